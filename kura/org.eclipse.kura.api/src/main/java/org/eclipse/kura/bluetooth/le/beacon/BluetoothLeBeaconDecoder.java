@@ -35,4 +35,16 @@ public interface BluetoothLeBeaconDecoder<T extends BluetoothLeBeacon> {
      * 
      */
     public Class<T> getBeaconType();
+
+    /**
+     * Get the types of the advertising data structures (AD types) one of which must be present in an advertising
+     * report for this decoder to be able to decode it. The reports that contain none of them are not passed to
+     * {@link #decode(byte[])}.
+     *
+     * @return the AD types, or null if the decoder must be invoked on every report
+     * @since 1.4
+     */
+    public default int[] getAdvertisingDataTypes() {
+        return null;
+    }
 }
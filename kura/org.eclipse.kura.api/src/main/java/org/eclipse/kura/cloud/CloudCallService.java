@@ -11,6 +11,8 @@
  *******************************************************************************/
 package org.eclipse.kura.cloud;
 
+import java.util.concurrent.CompletableFuture;
+
 import org.eclipse.kura.KuraConnectException;
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.KuraStoreException;
@@ -24,9 +26,11 @@ import org.osgi.annotation.versioning.ProviderType;
 /**
  * The CloudCallService provides helper methods to make a request/response conversation with the remote server.
  * The call methods deal with the logic required to build request messages and track the corresponding responses.
- * All call methods are synchronous; after a request is issued, the implementation will wait for the response
+ * The call methods are synchronous; after a request is issued, the implementation will wait for the response
  * to arrive or a timeout occurs. The timeout interval used by the service is configurable as a property
  * of the {@link DataTransportService}.
+ * The callAsync methods issue the request and return immediately; several requests can be outstanding at the
+ * same time and each of them is completed independently when its response arrives or its timeout expires.
  * 
  * @noimplement This interface is not intended to be implemented by clients.
  * @deprecated
@@ -70,6 +74,47 @@ public interface CloudCallService {
     public KuraResponsePayload call(String deviceId, String appId, String appTopic, KuraPayload appPayload, int timeout)
             throws KuraConnectException, KuraTimeoutException, KuraStoreException, KuraException;
 
+    /**
+     * Sends a local (to this device) request to a Cloudlet application
+     * with the given application ID without waiting for the response.
+     * <br>
+     * The returned future is completed with the response, or exceptionally with a {@link KuraTimeoutException} if
+     * no response is received within the timeout, with a {@link KuraStoreException} if the request cannot be
+     * stored for publishing or with a {@link KuraException} if the request cannot be sent or the response cannot be
+     * decoded.
+     *
+     * @param appId
+     * @param appTopic
+     * @param appPayload
+     *            the application specific payload of an KuraRequestPayload.
+     * @param timeout
+     *            the time to wait for the response in milliseconds, a value less than or equal to zero means no
+     *            timeout.
+     * @return a future completed when the response arrives
+     * @since 1.4
+     */
+    public CompletableFuture<KuraResponsePayload> callAsync(String appId, String appTopic, KuraPayload appPayload,
+            int timeout);
+
+    /**
+     * Sends a request to a remote server or device identified by the specified deviceId
+     * and targeting the given application ID without waiting for the response.
+     * <br>
+     * The returned future is completed as described in {@link #callAsync(String, String, KuraPayload, int)}.
+     *
+     * @param deviceId
+     * @param appId
+     * @param appTopic
+     * @param appPayload
+     * @param timeout
+     *            the time to wait for the response in milliseconds, a value less than or equal to zero means no
+     *            timeout.
+     * @return a future completed when the response arrives
+     * @since 1.4
+     */
+    public CompletableFuture<KuraResponsePayload> callAsync(String deviceId, String appId, String appTopic,
+            KuraPayload appPayload, int timeout);
+
     /**
      * Returns true if the underlying {@link DataService} is currently connected to the remote server.
      *
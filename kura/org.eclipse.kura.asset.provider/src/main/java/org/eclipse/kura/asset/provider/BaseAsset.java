@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 import org.eclipse.kura.KuraErrorCode;
@@ -55,6 +56,7 @@ import org.eclipse.kura.driver.Driver;
 import org.eclipse.kura.driver.Driver.ConnectionException;
 import org.eclipse.kura.driver.PreparedRead;
 import org.eclipse.kura.internal.asset.provider.AssetOptions;
+import org.eclipse.kura.internal.asset.provider.ChannelReadCache;
 import org.eclipse.kura.internal.asset.provider.DriverTrackerCustomizer;
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.localization.resources.AssetMessages;
@@ -147,6 +149,9 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
 
     private String kuraServicePid;
 
+    /** Shares the results of {@link #readAllChannels()} among concurrent callers. */
+    private final ChannelReadCache readCache = new ChannelReadCache(this::readAllChannelsFromDriver);
+
     /**
      * OSGi service component callback while activation.
      *
@@ -173,6 +178,7 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
         this.properties = properties;
         this.kuraServicePid = (String) this.properties.get(ConfigurationService.KURA_SERVICE_PID);
         retrieveConfigurationsFromProperties(properties);
+        this.readCache.invalidate();
         attachDriver(this.assetConfiguration.getDriverPid());
         logger.debug(message.updatingDone());
     }
@@ -274,6 +280,7 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
 
     public synchronized void setDriver(Driver driver) {
         this.driver = driver;
+        this.readCache.invalidate();
         tryClosePreparedRead();
         if (driver != null) {
             try {
@@ -289,6 +296,7 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
     }
 
     public synchronized void unsetDriver() {
+        this.readCache.invalidate();
         tryClosePreparedRead();
         detachAllListeners();
         this.driver = null;
@@ -439,15 +447,98 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
         return readRecords;
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Concurrent calls are coalesced: callers arriving while a read is in progress wait for the next read to
+     * complete and share its result, the values returned are never read before the call.
+     */
     @Override
     public List<ChannelRecord> readAllChannels() throws KuraException {
+        return readAllChannels(0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reads all the readable channels, accepting values read up to {@code maxAge} before the call.
+     * <p>
+     * The values read for another caller are returned if they are recent enough, so that the number of reads
+     * performed on the device does not depend on the number of consumers polling this asset.
+     *
+     * @param maxAge
+     *            the maximum age of the returned values, zero to only accept values read after the call
+     * @param unit
+     *            the unit of {@code maxAge}
+     * @return the list of channel records, owned by the caller
+     * @throws KuraException
+     *             if the connection to the field device is interrupted
+     * @throws NullPointerException
+     *             if no driver is attached to this asset
+     * @since 2.1
+     */
+    public List<ChannelRecord> readAllChannels(final long maxAge, final TimeUnit unit) throws KuraException {
         requireNonNull(this.driver, message.driverNonNull());
+        return this.readCache.read(unit.toNanos(maxAge));
+    }
+
+    /**
+     * Reads the provided channels, accepting values read up to {@code maxAge} before the call.
+     * <p>
+     * If all the channels are readable the values are taken from a coalesced read of all the channels, as for
+     * {@link #readAllChannels(long, TimeUnit)}, otherwise this method behaves as {@link #read(Set)}.
+     *
+     * @param channelNames
+     *            the names of the channels to be read
+     * @param maxAge
+     *            the maximum age of the returned values, zero to read the channels from the device
+     * @param unit
+     *            the unit of {@code maxAge}
+     * @return the list of channel records, in the iteration order of {@code channelNames}
+     * @throws KuraException
+     *             if the connection to the field device is interrupted
+     * @throws NullPointerException
+     *             if no driver is attached to this asset
+     * @since 2.1
+     */
+    public List<ChannelRecord> read(final Set<String> channelNames, final long maxAge, final TimeUnit unit)
+            throws KuraException {
+        if (maxAge <= 0) {
+            return read(channelNames);
+        }
+
+        final Map<String, ChannelRecord> recordsByName = CollectionUtil.newHashMap();
+        for (final ChannelRecord record : readAllChannels(maxAge, unit)) {
+            recordsByName.put(record.getChannelName(), record);
+        }
+        if (!recordsByName.keySet().containsAll(channelNames)) {
+            return read(channelNames);
+        }
+
+        final List<ChannelRecord> channelRecords = new ArrayList<>(channelNames.size());
+        for (final String name : channelNames) {
+            channelRecords.add(recordsByName.get(name));
+        }
+        return channelRecords;
+    }
+
+    /**
+     * Returns the values of the last completed read of all the channels, without accessing the device or waiting
+     * for reads in progress.
+     *
+     * @return the list of channel records, owned by the caller, or an empty list if no values have been read since
+     *         the configuration or the driver last changed
+     * @since 2.1
+     */
+    public List<ChannelRecord> getLatestChannelRecords() {
+        return this.readCache.getLatest();
+    }
+
+    private List<ChannelRecord> readAllChannelsFromDriver() throws KuraException {
         logger.debug(message.readingChannels());
 
         final List<ChannelRecord> channelRecords;
 
         synchronized (this) {
+            requireNonNull(this.driver, message.driverNonNull());
             try {
                 if (preparedRead != null) {
                     channelRecords = preparedRead.execute();
@@ -643,6 +734,8 @@ public class BaseAsset implements Asset, SelfConfiguringComponent {
                     this.driver.write(validRecords);
                 } catch (final ConnectionException ce) {
                     throw new KuraException(KuraErrorCode.CONNECTION_FAILED, ce);
+                } finally {
+                    this.readCache.invalidate();
                 }
             }
         }
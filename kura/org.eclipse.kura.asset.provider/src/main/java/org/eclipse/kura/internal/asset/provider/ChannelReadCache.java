@@ -0,0 +1,228 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.internal.asset.provider;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.channel.ChannelRecord;
+
+/**
+ * Caches the result of reading all the channels of an asset and coalesces concurrent reads.
+ * <p>
+ * Every caller specifies how old the values it receives are allowed to be. A request is served from the last
+ * completed read if it started no more than the maximum age ago, otherwise it joins the read in progress if that
+ * read started after the same limit, otherwise a new read is performed on its behalf. At most one read is in
+ * progress at any time, so with N concurrent callers asking for fresh values the device is read at most twice
+ * instead of N times.
+ * <p>
+ * Every caller receives its own copies of the records, the latest values can be retrieved without locking with
+ * {@link #getLatest()}.
+ */
+public final class ChannelReadCache {
+
+    /**
+     * Reads all the channels from the device.
+     */
+    @FunctionalInterface
+    public interface Reader {
+
+        List<ChannelRecord> read() throws KuraException;
+    }
+
+    private static final class Snapshot {
+
+        private final long startNanos;
+        private final List<ChannelRecord> records;
+
+        private Snapshot(long startNanos, List<ChannelRecord> records) {
+            this.startNanos = startNanos;
+            this.records = records;
+        }
+    }
+
+    private static final class Flight {
+
+        private final long startNanos;
+        private final long generation;
+        private boolean done;
+        private List<ChannelRecord> records;
+        private Exception failure;
+
+        private Flight(long startNanos, long generation) {
+            this.startNanos = startNanos;
+            this.generation = generation;
+        }
+    }
+
+    private final Reader reader;
+    private final Object lock = new Object();
+
+    private volatile Snapshot latest;
+
+    // guarded by lock
+    private Flight inFlight;
+    private long generation;
+
+    public ChannelReadCache(Reader reader) {
+        this.reader = requireNonNull(reader, "Reader cannot be null");
+    }
+
+    /**
+     * Returns the values of all the channels, read no earlier than {@code maxAgeNanos} before this call.
+     *
+     * @param maxAgeNanos
+     *            the maximum age of the values, zero to only accept values read after this call
+     * @return copies of the records, owned by the caller
+     * @throws KuraException
+     *             if the read fails, or the thread is interrupted while waiting for a read performed by another
+     *             caller
+     */
+    public List<ChannelRecord> read(long maxAgeNanos) throws KuraException {
+        final long requestNanos = System.nanoTime();
+        final long notBefore = requestNanos - Math.max(maxAgeNanos, 0);
+
+        Snapshot snapshot = this.latest;
+        if (maxAgeNanos > 0 && snapshot != null && snapshot.startNanos - notBefore >= 0) {
+            return copy(snapshot.records);
+        }
+
+        final Flight flight;
+        synchronized (this.lock) {
+            while (true) {
+                snapshot = this.latest;
+                if (snapshot != null && snapshot.startNanos - notBefore >= 0) {
+                    return copy(snapshot.records);
+                }
+                final Flight current = this.inFlight;
+                if (current == null) {
+                    flight = new Flight(System.nanoTime(), this.generation);
+                    this.inFlight = flight;
+                    break;
+                }
+                if (current.generation == this.generation && current.startNanos - notBefore >= 0) {
+                    return copy(await(current));
+                }
+                // too old for this caller, the next read will be shared with the other callers waiting for it
+                await(current);
+            }
+        }
+
+        return lead(flight);
+    }
+
+    /**
+     * Returns the values of the last completed read without waiting.
+     *
+     * @return copies of the records, or an empty list if no read has completed since the cache was last invalidated
+     */
+    public List<ChannelRecord> getLatest() {
+        final Snapshot snapshot = this.latest;
+        return snapshot != null ? copy(snapshot.records) : Collections.emptyList();
+    }
+
+    /**
+     * Discards the cached values and prevents the read in progress, if any, from being shared with later callers.
+     * To be called when the channel configuration or the driver changes, or after a write.
+     */
+    public void invalidate() {
+        synchronized (this.lock) {
+            this.generation++;
+            this.latest = null;
+        }
+    }
+
+    private List<ChannelRecord> lead(Flight flight) throws KuraException {
+        List<ChannelRecord> records = null;
+        Exception failure = null;
+        try {
+            records = this.reader.read();
+        } catch (KuraException | RuntimeException e) {
+            failure = e;
+        }
+
+        synchronized (this.lock) {
+            if (records != null) {
+                // the reader may reuse its records, as prepared reads do, keep a copy for the other callers
+                flight.records = copy(records);
+                if (flight.generation == this.generation) {
+                    this.latest = new Snapshot(flight.startNanos, flight.records);
+                }
+            }
+            flight.failure = failure;
+            flight.done = true;
+            this.inFlight = null;
+            this.lock.notifyAll();
+        }
+
+        if (failure != null) {
+            throw propagate(failure);
+        }
+        return records;
+    }
+
+    // must be called holding the lock
+    private List<ChannelRecord> await(Flight flight) throws KuraException {
+        while (!flight.done) {
+            try {
+                this.lock.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new KuraException(KuraErrorCode.TIMED_OUT, e);
+            }
+        }
+        if (flight.failure != null) {
+            throw propagate(flight.failure);
+        }
+        return flight.records;
+    }
+
+    private static KuraException propagate(Exception failure) {
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        return (KuraException) failure;
+    }
+
+    private static List<ChannelRecord> copy(List<ChannelRecord> records) {
+        final List<ChannelRecord> result = new ArrayList<>(records.size());
+        for (final ChannelRecord record : records) {
+            result.add(copy(record));
+        }
+        return result;
+    }
+
+    private static ChannelRecord copy(ChannelRecord record) {
+        final ChannelRecord result;
+        if (record.getValueType() != null) {
+            result = ChannelRecord.createReadRecord(record.getChannelName(), record.getValueType());
+            if (record.getChannelStatus() != null) {
+                result.setChannelStatus(record.getChannelStatus());
+            }
+        } else {
+            result = ChannelRecord.createStatusRecord(record.getChannelName(), record.getChannelStatus());
+        }
+        if (record.getValue() != null) {
+            result.setValue(record.getValue());
+        }
+        if (record.getChannelConfig() != null) {
+            result.setChannelConfig(record.getChannelConfig());
+        }
+        result.setTimestamp(record.getTimestamp());
+        return result;
+    }
+}
@@ -24,6 +24,7 @@ public class BluetoothLeEddystoneDecoderImpl implements BluetoothLeEddystoneDeco
     // See https://github.com/google/eddystone/blob/master/protocol-specification.md
     private static final byte UUID_LIST = (byte) 0x03;
     private static final byte[] EDDYSTONE_UUID = { (byte) 0xFE, (byte) 0xAA };
+    private static final int[] ADVERTISING_DATA_TYPES = { UUID_LIST };
 
     protected void activate(ComponentContext context) {
         logger.info("Activating Bluetooth Le Eddystone Codec...");
@@ -38,6 +39,11 @@ public class BluetoothLeEddystoneDecoderImpl implements BluetoothLeEddystoneDeco
         return BluetoothLeEddystone.class;
     }
 
+    @Override
+    public int[] getAdvertisingDataTypes() {
+        return ADVERTISING_DATA_TYPES;
+    }
+
     @Override
     public BluetoothLeEddystone decode(byte[] reportData) {
         return parseEIRData(reportData);
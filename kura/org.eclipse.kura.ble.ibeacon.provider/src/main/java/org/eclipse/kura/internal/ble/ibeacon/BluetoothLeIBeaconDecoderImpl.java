@@ -9,7 +9,6 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.ble.ibeacon;
 
-import java.util.Arrays;
 import java.util.UUID;
 
 import org.eclipse.kura.ble.ibeacon.BluetoothLeIBeacon;
@@ -25,6 +24,8 @@ public class BluetoothLeIBeaconDecoderImpl implements BluetoothLeIBeaconDecoder
     private static final byte[] BEACON_ID = { (byte) 0x02, (byte) 0x15 };
     private static final byte[] COMPANY_CODE = { (byte) 0x00, (byte) 0x4c };
     private static final byte[] IBEACON_PREFIX = { COMPANY_CODE[1], COMPANY_CODE[0], BEACON_ID[0], BEACON_ID[1] };
+    private static final int MANUFACTURER_SPECIFIC_DATA = 0xFF;
+    private static final int[] ADVERTISING_DATA_TYPES = { MANUFACTURER_SPECIFIC_DATA };
 
     protected void activate(ComponentContext context) {
         logger.info("Activating Bluetooth Le IBeacon Codec...");
@@ -39,6 +40,11 @@ public class BluetoothLeIBeaconDecoderImpl implements BluetoothLeIBeaconDecoder
         return BluetoothLeIBeacon.class;
     }
 
+    @Override
+    public int[] getAdvertisingDataTypes() {
+        return ADVERTISING_DATA_TYPES;
+    }
+
     @Override
     public BluetoothLeIBeacon decode(byte[] reportData) {
         return parseEIRData(reportData);
@@ -65,9 +71,8 @@ public class BluetoothLeIBeaconDecoderImpl implements BluetoothLeIBeaconDecoder
 
             byte dataType = b[ptr + 1];
 
-            if (dataType == (byte) 0xFF // Data-Type: Manufacturer-Specific
-                    && Arrays.equals(IBEACON_PREFIX, Arrays.copyOfRange(b, ptr + 2, ptr + 2 + IBEACON_PREFIX.length))
-                    && ptr > 0) {
+            if (dataType == (byte) MANUFACTURER_SPECIFIC_DATA
+                    && hasPrefix(b, ptr + 2) && ptr > 0) {
 
                 BluetoothLeIBeacon beacon = new BluetoothLeIBeacon();
 
@@ -81,13 +86,7 @@ public class BluetoothLeIBeaconDecoderImpl implements BluetoothLeIBeaconDecoder
                 int majorPtr = uuidPtr + 16;
                 int minorPtr = uuidPtr + 18;
 
-                StringBuilder uuid = new StringBuilder();
-                for (byte ub : Arrays.copyOfRange(b, uuidPtr, majorPtr)) {
-                    uuid.append(String.format("%02X", ub));
-                }
-                beacon.setUuid(UUID.fromString(uuid.toString().replaceFirst(
-                        "(\\p{XDigit}{8})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}{4})(\\p{XDigit}+)",
-                        "$1-$2-$3-$4-$5")));
+                beacon.setUuid(new UUID(readLong(b, uuidPtr), readLong(b, uuidPtr + 8)));
 
                 int majorl = b[majorPtr + 1] & 0xFF;
                 int majorh = b[majorPtr] & 0xFF;
@@ -105,4 +104,25 @@ public class BluetoothLeIBeaconDecoderImpl implements BluetoothLeIBeaconDecoder
         return null;
     }
 
+    private static boolean hasPrefix(byte[] b, int offset) {
+        // the full beacon data must be present: prefix, UUID, major, minor and tx power
+        if (offset + IBEACON_PREFIX.length + 21 > b.length) {
+            return false;
+        }
+        for (int i = 0; i < IBEACON_PREFIX.length; i++) {
+            if (b[offset + i] != IBEACON_PREFIX[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long readLong(byte[] b, int offset) {
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = value << 8 | b[offset + i] & 0xFF;
+        }
+        return value;
+    }
+
 }
@@ -0,0 +1,62 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.ble.beacon;
+
+import java.nio.ByteBuffer;
+
+import org.eclipse.kura.bluetooth.le.beacon.BluetoothLeBeaconDecoder;
+
+/**
+ * Pre-filters the advertising reports by the types of the AD structures they contain, so that the decoders are not
+ * invoked on data they cannot decode. The types are declared by the decoders through
+ * {@link BluetoothLeBeaconDecoder#getAdvertisingDataTypes()}.
+ * <p>
+ * See Bluetooth Core 4.0; 8 EXTENDED INQUIRY RESPONSE DATA FORMAT
+ */
+final class AdvertisingDataTypes {
+
+    private AdvertisingDataTypes() {
+    }
+
+    /**
+     * Checks whether the report data contains an AD structure of one of the given types.
+     *
+     * @param buffer
+     *            the buffer containing the report data
+     * @param offset
+     *            the position of the report data in the buffer
+     * @param length
+     *            the length of the report data
+     * @param types
+     *            the AD types, {@code null} matches any data
+     * @return {@code true} if the data contains one of the types
+     */
+    static boolean containsAny(ByteBuffer buffer, int offset, int length, int[] types) {
+        if (types == null) {
+            return true;
+        }
+        int end = offset + length;
+        int ptr = offset;
+        while (ptr + 1 < end) {
+            int structSize = buffer.get(ptr) & 0xFF;
+            if (structSize == 0) {
+                break;
+            }
+            int type = buffer.get(ptr + 1) & 0xFF;
+            for (int required : types) {
+                if (type == required) {
+                    return true;
+                }
+            }
+            ptr += structSize + 1;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.ble.beacon;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Drops the advertising reports that would notify the beacon listeners too often, before they are decoded.
+ * <p>
+ * A report is dropped when its advertiser sent the same data less than {@code duplicateInterval} milliseconds
+ * before, or when a report of the same advertiser has been accepted less than {@code minInterval} milliseconds
+ * before. The state of the least recently seen advertisers is discarded when more than {@link #MAX_ADVERTISERS}
+ * are tracked.
+ */
+class AdvertisingReportFilter {
+
+    static final int MAX_ADVERTISERS = 1024;
+
+    private static final class AdvertiserState {
+
+        private long lastAccepted;
+        private byte[] data = new byte[0];
+        private int length;
+
+        private boolean isDuplicate(ByteBuffer buffer, int offset, int length) {
+            if (this.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (this.data[i] != buffer.get(offset + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void accepted(ByteBuffer buffer, int offset, int length, long now) {
+            if (this.data.length < length) {
+                this.data = new byte[length];
+            }
+            for (int i = 0; i < length; i++) {
+                this.data[i] = buffer.get(offset + i);
+            }
+            this.length = length;
+            this.lastAccepted = now;
+        }
+    }
+
+    private final Map<Long, AdvertiserState> advertisers = new LinkedHashMap<Long, AdvertiserState>(16, 0.75f,
+            true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, AdvertiserState> eldest) {
+            return size() > MAX_ADVERTISERS;
+        }
+    };
+
+    private long duplicateInterval;
+    private long minInterval;
+
+    AdvertisingReportFilter(long duplicateInterval, long minInterval) {
+        setIntervals(duplicateInterval, minInterval);
+    }
+
+    synchronized void setIntervals(long duplicateInterval, long minInterval) {
+        this.duplicateInterval = Math.max(duplicateInterval, 0);
+        this.minInterval = Math.max(minInterval, 0);
+        this.advertisers.clear();
+    }
+
+    /**
+     * Checks whether an advertising report should be decoded, and records it if so.
+     *
+     * @param address
+     *            the advertiser address, in the 48 less significant bits
+     * @param buffer
+     *            the buffer containing the report data
+     * @param offset
+     *            the position of the report data in the buffer
+     * @param length
+     *            the length of the report data
+     * @param now
+     *            the current time, in milliseconds
+     * @return {@code true} if the report should be decoded
+     */
+    synchronized boolean accept(long address, ByteBuffer buffer, int offset, int length, long now) {
+        if (this.duplicateInterval == 0 && this.minInterval == 0) {
+            return true;
+        }
+
+        AdvertiserState state = this.advertisers.get(address);
+        if (state == null) {
+            state = new AdvertiserState();
+            this.advertisers.put(address, state);
+        } else {
+            long elapsed = now - state.lastAccepted;
+            if (elapsed < this.minInterval
+                    || elapsed < this.duplicateInterval && state.isDuplicate(buffer, offset, length)) {
+                return false;
+            }
+        }
+        state.accepted(buffer, offset, length, now);
+        return true;
+    }
+
+    synchronized int getAdvertiserCount() {
+        return this.advertisers.size();
+    }
+}
@@ -10,7 +10,9 @@
 package org.eclipse.kura.internal.ble.beacon;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -29,6 +31,7 @@ import org.eclipse.kura.bluetooth.le.beacon.BluetoothLeBeaconEncoder;
 import org.eclipse.kura.bluetooth.le.beacon.BluetoothLeBeaconManager;
 import org.eclipse.kura.bluetooth.le.beacon.BluetoothLeBeaconScanner;
 import org.eclipse.kura.bluetooth.le.beacon.listener.BluetoothLeBeaconListener;
+import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.internal.ble.util.BTSnoopListener;
 import org.eclipse.kura.internal.ble.util.BluetoothLeUtil;
 import org.eclipse.kura.internal.ble.util.BluetoothProcess;
@@ -38,7 +41,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class BluetoothLeBeaconManagerImpl
-        implements BluetoothLeBeaconManager<BluetoothLeBeacon>, BTSnoopListener, BluetoothProcessListener {
+        implements BluetoothLeBeaconManager<BluetoothLeBeacon>, BTSnoopListener, BluetoothProcessListener,
+        ConfigurableComponent {
 
     private static final Logger logger = LoggerFactory.getLogger(BluetoothLeBeaconManagerImpl.class);
 
@@ -49,6 +53,15 @@ public class BluetoothLeBeaconManagerImpl
     private static final String OCF_ADVERTISING_ENABLE_CMD = "0x000a";
     private static final String CMD = "cmd";
     private static final String TWO_CHAR_REGEX = "(?<=\\G..)";
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    // The reports of an advertiser with unchanged data are decoded at most once every duplicate interval, and
+    // all of its reports at most once every minimum interval (milliseconds, 0 disables the check). The defaults
+    // must match the component metatype.
+    private static final String DUPLICATE_INTERVAL_PROP_NAME = "beacon.duplicate.interval";
+    private static final String MIN_INTERVAL_PROP_NAME = "beacon.min.interval";
+    private static final long DEFAULT_DUPLICATE_INTERVAL = 1000;
+    private static final long DEFAULT_MIN_INTERVAL = 0;
 
     private static Map<String, BluetoothLeBeaconAdvertiserImpl<BluetoothLeBeacon>> advertisers = new HashMap<>();
     private static Map<String, List<BluetoothLeBeaconScannerImpl<BluetoothLeBeacon>>> scanners = new HashMap<>();
@@ -56,10 +69,34 @@ public class BluetoothLeBeaconManagerImpl
     private BluetoothProcess dumpProc;
     private BluetoothProcess hcitoolProc;
     private Map<BluetoothLeBeaconListener<BluetoothLeBeacon>, Class<?>> listeners;
+    private final AdvertisingReportFilter reportFilter = new AdvertisingReportFilter(DEFAULT_DUPLICATE_INTERVAL,
+            DEFAULT_MIN_INTERVAL);
 
     protected void activate(ComponentContext context) {
         logger.info("Activating Bluetooth Le Beacon Manager...");
         this.listeners = new HashMap<>();
+        updated(context);
+    }
+
+    protected void updated(ComponentContext context) {
+        Dictionary<String, Object> properties = context == null ? null : context.getProperties();
+        this.reportFilter.setIntervals(getLong(properties, DUPLICATE_INTERVAL_PROP_NAME, DEFAULT_DUPLICATE_INTERVAL),
+                getLong(properties, MIN_INTERVAL_PROP_NAME, DEFAULT_MIN_INTERVAL));
+    }
+
+    private static long getLong(Dictionary<String, Object> properties, String name, long defaultValue) {
+        Object value = properties == null ? null : properties.get(name);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Long.parseLong((String) value);
+            } catch (NumberFormatException e) {
+                logger.warn("Invalid value {} for property {}", value, name);
+            }
+        }
+        return defaultValue;
     }
 
     protected void deactivate(ComponentContext context) {
@@ -352,37 +389,137 @@ public class BluetoothLeBeaconManagerImpl
 
     @Override
     public void processBTSnoopRecord(byte[] record) {
-        // Extract raw advertisement data
-        List<AdvertisingReportRecord> reportRecords = BluetoothLeUtil.parseLEAdvertisement(record);
-        if (!reportRecords.isEmpty()) {
-
-            // Get the active decoders
-            List<BluetoothLeBeaconDecoder<BluetoothLeBeacon>> decoders = scanners.values().stream()
-                    .flatMap(List::stream).filter(scanner -> scanner.isScanning()).map(scanner -> scanner.getDecoder())
-                    .distinct().collect(Collectors.toList());
-
-            List<BluetoothLeBeacon> beacons = new ArrayList<>();
-            for (AdvertisingReportRecord report : reportRecords) {
-                for (BluetoothLeBeaconDecoder<BluetoothLeBeacon> decoder : decoders) {
-                    BluetoothLeBeacon beacon = decoder.decode(report.getReportData());
-                    if (beacon != null) {
-                        beacon.setAddress(report.getAddress());
-                        beacon.setRssi(report.getRssi());
-                        beacons.add(beacon);
+        processBTSnoopRecord(ByteBuffer.wrap(record));
+    }
+
+    /**
+     * Decodes the advertising reports contained in the record, without copying them until they have passed the
+     * pre-filter on the AD types expected by the active decoders and the duplicate filter of their advertiser.
+     */
+    @Override
+    public void processBTSnoopRecord(ByteBuffer record) {
+        int start = record.position();
+        int end = record.limit();
+
+        // HCI Packet Type : HCI Event (0x04)
+        // Event Code : LE Advertising Report (0x3E)
+        // Subevent Code : LE Advertisement Subevent (0x02)
+        if (end - start < 5 || record.get(start) != 0x04 || record.get(start + 1) != 0x3E
+                || record.get(start + 3) != 0x02) {
+            // Not an Advertisement Sub Event
+            return;
+        }
+
+        List<BluetoothLeBeaconDecoder<BluetoothLeBeacon>> decoders = null;
+        List<BluetoothLeBeacon> beacons = null;
+        long now = System.nanoTime() / 1000000;
+
+        // Parse each report: event type, address type, address, data length, data and rssi
+        int reportRecordsNumber = record.get(start + 4) & 0xFF;
+        int ptr = start + 5;
+        for (int nr = 0; nr < reportRecordsNumber && ptr + 9 <= end; nr++) {
+            int dataOffset = ptr + 9;
+            int dataLength = record.get(ptr + 8) & 0xFF;
+            int rssiOffset = dataOffset + dataLength;
+            if (rssiOffset >= end) {
+                logger.debug("Truncated advertising report");
+                break;
+            }
+            ptr = rssiOffset + 1;
+
+            if (decoders == null) {
+                decoders = getActiveDecoders();
+                if (decoders.isEmpty()) {
+                    return;
+                }
+            }
+            long address = readAddress(record, dataOffset - 7);
+            if (!isDecodable(decoders, record, dataOffset, dataLength)
+                    || !this.reportFilter.accept(address, record, dataOffset, dataLength, now)) {
+                continue;
+            }
+
+            byte[] reportData = new byte[dataLength];
+            for (int i = 0; i < dataLength; i++) {
+                reportData[i] = record.get(dataOffset + i);
+            }
+            String addressString = formatAddress(address);
+            for (BluetoothLeBeaconDecoder<BluetoothLeBeacon> decoder : decoders) {
+                int[] types = decoder.getAdvertisingDataTypes();
+                if (!AdvertisingDataTypes.containsAny(record, dataOffset, dataLength, types)) {
+                    continue;
+                }
+                BluetoothLeBeacon beacon = decode(decoder, reportData);
+                if (beacon != null) {
+                    beacon.setAddress(addressString);
+                    beacon.setRssi(record.get(rssiOffset));
+                    if (beacons == null) {
+                        beacons = new ArrayList<>();
                     }
+                    beacons.add(beacon);
                 }
             }
+        }
 
-            // Notify listeners
-            if (!beacons.isEmpty() && !this.listeners.isEmpty()) {
-                for (Entry<BluetoothLeBeaconListener<BluetoothLeBeacon>, Class<?>> entry : this.listeners.entrySet()) {
-                    beacons.stream().filter(beacon -> entry.getValue() == beacon.getClass())
-                            .collect(Collectors.toList()).forEach(entry.getKey()::onBeaconsReceived);
+        // Notify listeners
+        if (beacons != null && !this.listeners.isEmpty()) {
+            for (Entry<BluetoothLeBeaconListener<BluetoothLeBeacon>, Class<?>> entry : this.listeners.entrySet()) {
+                for (BluetoothLeBeacon beacon : beacons) {
+                    if (entry.getValue() == beacon.getClass()) {
+                        entry.getKey().onBeaconsReceived(beacon);
+                    }
                 }
             }
         }
     }
 
+    private static List<BluetoothLeBeaconDecoder<BluetoothLeBeacon>> getActiveDecoders() {
+        return scanners.values().stream().flatMap(List::stream).filter(scanner -> scanner.isScanning())
+                .map(scanner -> scanner.getDecoder()).distinct().collect(Collectors.toList());
+    }
+
+    private static boolean isDecodable(List<BluetoothLeBeaconDecoder<BluetoothLeBeacon>> decoders, ByteBuffer record,
+            int offset, int length) {
+        for (BluetoothLeBeaconDecoder<BluetoothLeBeacon> decoder : decoders) {
+            if (AdvertisingDataTypes.containsAny(record, offset, length, decoder.getAdvertisingDataTypes())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static BluetoothLeBeacon decode(BluetoothLeBeaconDecoder<BluetoothLeBeacon> decoder, byte[] reportData) {
+        try {
+            return decoder.decode(reportData);
+        } catch (RuntimeException e) {
+            // a malformed report must not stop the processing of the btsnoop stream
+            logger.debug("Failed to decode advertising report", e);
+            return null;
+        }
+    }
+
+    private static long readAddress(ByteBuffer record, int offset) {
+        // the address is sent least significant byte first
+        long address = 0;
+        for (int i = 5; i >= 0; i--) {
+            address = address << 8 | record.get(offset + i) & 0xFF;
+        }
+        return address;
+    }
+
+    private static String formatAddress(long address) {
+        char[] chars = new char[17];
+        for (int i = 0; i < 6; i++) {
+            int b = (int) (address >>> 8 * (5 - i)) & 0xFF;
+            chars[i * 3] = HEX_DIGITS[b >>> 4];
+            chars[i * 3 + 1] = HEX_DIGITS[b & 0x0F];
+            if (i < 5) {
+                chars[i * 3 + 2] = ':';
+            }
+        }
+        return new String(chars);
+    }
+
     @Override
     public void processBTSnoopErrorStream(String string) {
         // Not used
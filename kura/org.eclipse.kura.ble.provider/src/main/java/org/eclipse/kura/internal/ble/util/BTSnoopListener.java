@@ -9,6 +9,8 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.ble.util;
 
+import java.nio.ByteBuffer;
+
 /**
  * For listening to btsnoop streams
  */
@@ -21,9 +23,24 @@ public interface BTSnoopListener {
      */
     public void processBTSnoopRecord(byte[] record);
 
+    /**
+     * Process a BTSnoop Record held by a buffer that is reused by the parser. The buffer content is only valid for
+     * the duration of the call.
+     * <p>
+     * The default implementation copies the record and invokes {@link #processBTSnoopRecord(byte[])}.
+     *
+     * @param record
+     *            the packet data, between the position and the limit of the buffer
+     */
+    public default void processBTSnoopRecord(ByteBuffer record) {
+        byte[] copy = new byte[record.remaining()];
+        record.duplicate().get(copy);
+        processBTSnoopRecord(copy);
+    }
+
     /**
      * Process a BTSnoop error stream
-     * 
+     *
      * @param string
      */
     public void processBTSnoopErrorStream(String string);
@@ -9,16 +9,30 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.ble.util;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
-
-import org.apache.commons.io.IOUtils;
+import java.nio.ByteBuffer;
 
 /**
  * Parses a btsnoop stream into btsnoop records
+ * <p>
+ * The stream is made of a 16-byte file header followed by the records, each one with a 24-byte header
+ * (original length, included length, flags, cumulative drops and timestamp, big endian) and the packet data.
+ * The record headers and the packet data are read into buffers that are reused across the records.
  */
 public class BTSnoopParser {
 
+    private static final int FILE_HEADER_LENGTH = 16;
+    private static final int RECORD_HEADER_LENGTH = 24;
+    private static final int INCLUDED_LENGTH_OFFSET = 4;
+    private static final int INITIAL_RECORD_CAPACITY = 64;
+    // HCI packets are at most 64 KB long, larger values come from a corrupted stream
+    private static final int MAX_RECORD_LENGTH = 0x10000 + 4;
+
+    private final byte[] header = new byte[RECORD_HEADER_LENGTH];
+    private ByteBuffer record = ByteBuffer.allocate(INITIAL_RECORD_CAPACITY);
+
     private InputStream is;
     private boolean gotHeader = false;
 
@@ -28,35 +42,85 @@ public class BTSnoopParser {
 
     public void setInputStream(InputStream is) {
         this.is = is;
+        this.gotHeader = false;
     }
 
+    /**
+     * Reads the next record.
+     *
+     * @return a copy of the packet data of the record
+     * @throws EOFException
+     *             if the stream ends before a complete record has been read
+     * @throws IOException
+     *             if the stream cannot be read
+     */
     public byte[] readRecord() throws IOException {
+        ByteBuffer packet = nextRecord();
+        if (packet == null) {
+            throw new EOFException();
+        }
+        byte[] packetData = new byte[packet.remaining()];
+        packet.get(packetData);
+        return packetData;
+    }
+
+    /**
+     * Reads the next record without allocating a new buffer for it.
+     * <p>
+     * The returned buffer is positioned at the beginning of the packet data and limited to its length. It is owned
+     * by the parser and its content is only valid until the next invocation of this method.
+     *
+     * @return the packet data of the record, or {@code null} if the stream ended before the next record
+     * @throws EOFException
+     *             if the stream ends in the middle of a record
+     * @throws IOException
+     *             if the stream cannot be read or the record is malformed
+     */
+    public ByteBuffer nextRecord() throws IOException {
         if (!this.gotHeader) {
             // Read past the 16-byte header
-            IOUtils.readFully(this.is, new byte[16]);
+            if (!readFully(this.header, FILE_HEADER_LENGTH, true)) {
+                return null;
+            }
             this.gotHeader = true;
         }
 
-        readInt();
-        int includedLength = readInt();
-        readInt();
-        readInt();
-        readInt();
-        readInt();
-        byte[] packetData = new byte[includedLength];
+        if (!readFully(this.header, RECORD_HEADER_LENGTH, true)) {
+            return null;
+        }
 
-        // bluetooth record
-        IOUtils.readFully(this.is, packetData);
+        int includedLength = readInt(this.header, INCLUDED_LENGTH_OFFSET);
+        if (includedLength < 0 || includedLength > MAX_RECORD_LENGTH) {
+            throw new IOException("Invalid btsnoop record length " + includedLength);
+        }
+        if (this.record.capacity() < includedLength) {
+            this.record = ByteBuffer.allocate(Math.max(includedLength, this.record.capacity() * 2));
+        }
 
-        return packetData;
+        // bluetooth record
+        readFully(this.record.array(), includedLength, false);
+        this.record.clear();
+        this.record.limit(includedLength);
+        return this.record;
     }
 
-    private int readInt() throws IOException {
-
-        byte[] intBytes = new byte[4];
-
-        IOUtils.readFully(this.is, intBytes);
+    private boolean readFully(byte[] buffer, int length, boolean endAllowed) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            int count = this.is.read(buffer, offset, length - offset);
+            if (count < 0) {
+                if (offset == 0 && endAllowed) {
+                    return false;
+                }
+                throw new EOFException("Truncated btsnoop record");
+            }
+            offset += count;
+        }
+        return true;
+    }
 
-        return intBytes[0] << 24 | intBytes[1] << 16 | intBytes[2] << 8 | intBytes[3];
+    private static int readInt(byte[] b, int offset) {
+        return (b[offset] & 0xFF) << 24 | (b[offset + 1] & 0xFF) << 16 | (b[offset + 2] & 0xFF) << 8
+                | b[offset + 3] & 0xFF;
     }
-}
\ No newline at end of file
+}
@@ -16,6 +16,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -135,7 +136,10 @@ public class BluetoothProcess {
         this.parser.setInputStream(is);
         while (this.btSnoopReady) {
             if (is != null) {
-                byte[] packet = this.parser.readRecord();
+                ByteBuffer packet = this.parser.nextRecord();
+                if (packet == null) {
+                    break;
+                }
                 listener.processBTSnoopRecord(packet);
             }
         }
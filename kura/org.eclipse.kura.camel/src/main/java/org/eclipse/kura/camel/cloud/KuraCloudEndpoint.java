@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2016 Red Hat and others
+ * Copyright (c) 2011, 2017 Red Hat and others
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -14,6 +14,7 @@ import org.apache.camel.Processor;
 import org.apache.camel.impl.DefaultEndpoint;
 import org.apache.camel.spi.UriEndpoint;
 import org.apache.camel.spi.UriParam;
+import org.eclipse.kura.camel.internal.cloud.AsyncPublisher;
 import org.eclipse.kura.camel.internal.cloud.CloudClientCache;
 import org.eclipse.kura.camel.internal.cloud.CloudClientCache.CloudClientHandle;
 import org.slf4j.Logger;
@@ -48,6 +49,12 @@ public class KuraCloudEndpoint extends DefaultEndpoint {
     @UriParam(defaultValue = "")
     private String deviceId;
 
+    @UriParam(defaultValue = "0")
+    private int publishWindow;
+
+    @UriParam(defaultValue = "60000")
+    private long ackTimeout = AsyncPublisher.DEFAULT_ACK_TIMEOUT_MILLIS;
+
     private CloudClientHandle cloudClientHandle;
 
     private final CloudClientCache cache;
@@ -153,4 +160,28 @@ public class KuraCloudEndpoint extends DefaultEndpoint {
     public void setDeviceId(String deviceId) {
         this.deviceId = deviceId;
     }
+
+    /**
+     * Returns the maximum number of messages that the producer hands over to the data service without waiting for
+     * their acknowledgement. If 0, messages are published synchronously on the route thread.
+     */
+    public int getPublishWindow() {
+        return this.publishWindow;
+    }
+
+    public void setPublishWindow(int publishWindow) {
+        this.publishWindow = publishWindow;
+    }
+
+    /**
+     * Returns the time in milliseconds after which a message handed over to the data service and not acknowledged
+     * is reported as failed, when {@link #getPublishWindow()} is greater than 0.
+     */
+    public long getAckTimeout() {
+        return this.ackTimeout;
+    }
+
+    public void setAckTimeout(long ackTimeout) {
+        this.ackTimeout = ackTimeout;
+    }
 }
@@ -16,27 +16,119 @@ import static org.eclipse.kura.camel.camelcloud.KuraCloudClientConstants.CAMEL_K
 import static org.eclipse.kura.camel.camelcloud.KuraCloudClientConstants.CAMEL_KURA_CLOUD_RETAIN;
 import static org.eclipse.kura.camel.camelcloud.KuraCloudClientConstants.CAMEL_KURA_CLOUD_TOPIC;
 
+import java.util.concurrent.Callable;
+
+import org.apache.camel.AsyncCallback;
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
-import org.apache.camel.impl.DefaultProducer;
+import org.apache.camel.impl.DefaultAsyncProducer;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.camel.internal.cloud.AsyncPublisher;
 import org.eclipse.kura.cloud.CloudClient;
 import org.eclipse.kura.message.KuraPayload;
 
 /**
  * Producer implementation for {@link KuraCloudComponent}
+ * <p>
+ * By default each exchange is published synchronously on the route thread. If the endpoint configures a
+ * {@link KuraCloudEndpoint#getPublishWindow() publish window}, the messages are handed over to the data service by a
+ * dedicated thread and each exchange is completed asynchronously when the data service reports the message as
+ * published (QoS 0) or confirmed (QoS 1 and 2). When the window is full the route thread waits, so that the rate of
+ * the route follows the rate at which the data service delivers the messages.
  */
-public class KuraCloudProducer extends DefaultProducer {
+public class KuraCloudProducer extends DefaultAsyncProducer {
 
     // Visible for testing
     CloudClient cloudClient;
 
+    private volatile AsyncPublisher publisher;
+
     public KuraCloudProducer(KuraCloudEndpoint endpoint, CloudClient cloudClient) {
         super(endpoint);
         this.cloudClient = cloudClient;
     }
 
+    // Life-cycle
+
+    @Override
+    protected void doStart() throws Exception {
+        super.doStart();
+
+        final int publishWindow = getEndpoint().getPublishWindow();
+        if (publishWindow > 0) {
+            final AsyncPublisher newPublisher = new AsyncPublisher(this.cloudClient,
+                    "KuraCloudProducer-" + getEndpoint().getApplicationId(), publishWindow,
+                    Math.max(getEndpoint().getAckTimeout(), 1));
+            newPublisher.start();
+            this.publisher = newPublisher;
+        }
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        final AsyncPublisher stoppedPublisher = this.publisher;
+        this.publisher = null;
+        if (stoppedPublisher != null) {
+            stoppedPublisher.stop();
+        }
+
+        super.doStop();
+    }
+
+    // Processing
+
     @Override
     public void process(Exchange exchange) throws Exception {
+        if (this.publisher == null) {
+            createPublication(exchange).call();
+            return;
+        }
+        super.process(exchange);
+    }
+
+    @Override
+    public boolean process(final Exchange exchange, final AsyncCallback callback) {
+        final Publication publication;
+        try {
+            publication = createPublication(exchange);
+        } catch (Exception e) {
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+
+        final AsyncPublisher currentPublisher = this.publisher;
+        if (currentPublisher == null) {
+            try {
+                publication.call();
+            } catch (Exception e) {
+                exchange.setException(e);
+            }
+            callback.done(true);
+            return true;
+        }
+
+        try {
+            currentPublisher.submit(publication, publication.qos, error -> {
+                if (error != null) {
+                    exchange.setException(error);
+                }
+                callback.done(false);
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        } catch (IllegalStateException e) {
+            exchange.setException(e);
+            callback.done(true);
+            return true;
+        }
+        return false;
+    }
+
+    private Publication createPublication(Exchange exchange) {
         Message in = exchange.getIn();
 
         String topic = firstNotNull(in.getHeader(CAMEL_KURA_CLOUD_TOPIC, String.class), getEndpoint().getTopic());
@@ -69,14 +161,45 @@ public class KuraCloudProducer extends DefaultProducer {
             body = payload;
         }
 
-        if (control) {
-            if (deviceId != null) {
-                this.cloudClient.controlPublish(deviceId, topic, (KuraPayload) body, qos, retain, priority);
-            } else {
-                this.cloudClient.controlPublish(topic, (KuraPayload) body, qos, retain, priority);
+        return new Publication(topic, (KuraPayload) body, qos, retain, priority, control, deviceId);
+    }
+
+    /**
+     * A message whose headers have been resolved, ready to be handed over to the cloud client
+     */
+    private final class Publication implements Callable<Integer> {
+
+        private final String topic;
+        private final KuraPayload payload;
+        private final int qos;
+        private final boolean retain;
+        private final int priority;
+        private final boolean control;
+        private final String deviceId;
+
+        Publication(String topic, KuraPayload payload, int qos, boolean retain, int priority, boolean control,
+                String deviceId) {
+            this.topic = topic;
+            this.payload = payload;
+            this.qos = qos;
+            this.retain = retain;
+            this.priority = priority;
+            this.control = control;
+            this.deviceId = deviceId;
+        }
+
+        @Override
+        public Integer call() throws KuraException {
+            if (this.control) {
+                if (this.deviceId != null) {
+                    return KuraCloudProducer.this.cloudClient.controlPublish(this.deviceId, this.topic, this.payload,
+                            this.qos, this.retain, this.priority);
+                }
+                return KuraCloudProducer.this.cloudClient.controlPublish(this.topic, this.payload, this.qos,
+                        this.retain, this.priority);
             }
-        } else {
-            this.cloudClient.publish(topic, (KuraPayload) body, qos, retain, priority);
+            return KuraCloudProducer.this.cloudClient.publish(this.topic, this.payload, this.qos, this.retain,
+                    this.priority);
         }
     }
 
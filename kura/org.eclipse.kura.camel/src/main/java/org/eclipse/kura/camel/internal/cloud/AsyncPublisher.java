@@ -0,0 +1,417 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.camel.internal.cloud;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.kura.cloud.CloudClient;
+import org.eclipse.kura.cloud.CloudClientListener;
+import org.eclipse.kura.message.KuraPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Publishes messages through a {@link CloudClient} on a dedicated thread, and notifies the completion of each
+ * publication when the data service reports it: on {@link #onMessagePublished(int, String)} for QoS 0 messages, on
+ * {@link #onMessageConfirmed(int, String)} for the others.
+ * <p>
+ * The number of submitted publications that have not been completed yet is bounded by a window: when it is full,
+ * {@link #submit(Callable, int, Completion)} blocks the caller until the data service acknowledges a message.
+ * <p>
+ * The completions are notified on a dedicated thread, never on the thread of the data service that reports the
+ * acknowledgement, so that a completion that blocks cannot delay the delivery of the other messages.
+ * <p>
+ * The publications not acknowledged within the acknowledgement timeout are completed with an error so that their
+ * window slots are released, their messages may still be delivered by the data service. When the connection is lost
+ * the QoS 0 messages that have not been published yet are completed with an error, while the other messages are
+ * kept in the data service store and published again once the connection is established.
+ */
+public final class AsyncPublisher implements CloudClientListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(AsyncPublisher.class);
+
+    private static final long POLL_TIMEOUT_MILLIS = 500;
+    private static final long STOP_TIMEOUT_SECONDS = 5;
+
+    public static final long DEFAULT_ACK_TIMEOUT_MILLIS = 60000;
+
+    /**
+     * Receives the outcome of a publication.
+     */
+    @FunctionalInterface
+    public interface Completion {
+
+        /**
+         * Called once the publication has been completed.
+         *
+         * @param error
+         *            the error that prevented the publication, or {@code null} if the message has been acknowledged
+         *            by the data service
+         */
+        void completed(Exception error);
+    }
+
+    private static final class Request {
+
+        private final Callable<Integer> operation;
+        private final int qos;
+        private final Completion completion;
+        private long handedOverNanos;
+
+        private Request(final Callable<Integer> operation, final int qos, final Completion completion) {
+            this.operation = operation;
+            this.qos = qos;
+            this.completion = completion;
+        }
+    }
+
+    private final CloudClient cloudClient;
+    private final String name;
+    private final long ackTimeoutNanos;
+    private final Semaphore window;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+
+    // guarded by this
+    private final Map<Integer, Request> inFlight = new HashMap<>();
+    // the acknowledgements received while a message is being published, they may refer to it
+    private final Set<Integer> publishedWhilePublishing = new HashSet<>();
+    private final Set<Integer> confirmedWhilePublishing = new HashSet<>();
+    private boolean publishing;
+
+    private ExecutorService executor;
+    private volatile ExecutorService completionExecutor;
+    private volatile boolean running;
+
+    /**
+     * Creates a new publisher.
+     *
+     * @param cloudClient
+     *            the client used to publish the messages
+     * @param name
+     *            the name of the publisher thread
+     * @param windowSize
+     *            the maximum number of publications that have been submitted and not completed yet
+     */
+    public AsyncPublisher(final CloudClient cloudClient, final String name, final int windowSize) {
+        this(cloudClient, name, windowSize, DEFAULT_ACK_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Creates a new publisher.
+     *
+     * @param cloudClient
+     *            the client used to publish the messages
+     * @param name
+     *            the name of the publisher thread
+     * @param windowSize
+     *            the maximum number of publications that have been submitted and not completed yet
+     * @param ackTimeoutMillis
+     *            the time after which a publication handed over to the data service and not acknowledged is
+     *            completed with a {@link TimeoutException}
+     */
+    public AsyncPublisher(final CloudClient cloudClient, final String name, final int windowSize,
+            final long ackTimeoutMillis) {
+        requireNonNull(cloudClient, "Cloud client cannot be null");
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("The window size must be positive");
+        }
+        if (ackTimeoutMillis < 1) {
+            throw new IllegalArgumentException("The acknowledgement timeout must be positive");
+        }
+        this.cloudClient = cloudClient;
+        this.name = name;
+        this.ackTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(ackTimeoutMillis);
+        this.window = new Semaphore(windowSize);
+    }
+
+    public synchronized void start() {
+        if (this.running) {
+            return;
+        }
+        this.running = true;
+        this.cloudClient.addCloudClientListener(this);
+        this.executor = Executors.newSingleThreadExecutor(r -> new Thread(r, this.name));
+        this.completionExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, this.name + "-completion"));
+        this.executor.submit(this::publishLoop);
+    }
+
+    /**
+     * Stops the publisher. The pending publications are completed with an error, the messages already handed over to
+     * the data service may still be delivered.
+     */
+    public void stop() {
+        final ExecutorService stoppedExecutor;
+        final ExecutorService stoppedCompletionExecutor;
+        synchronized (this) {
+            if (!this.running) {
+                return;
+            }
+            this.running = false;
+            this.cloudClient.removeCloudClientListener(this);
+            stoppedExecutor = this.executor;
+            stoppedCompletionExecutor = this.completionExecutor;
+            this.executor = null;
+        }
+
+        stoppedExecutor.shutdown();
+        try {
+            if (!stoppedExecutor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("Publisher {} did not terminate in time", this.name);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        final List<Request> pending = new ArrayList<>();
+        this.queue.drainTo(pending);
+        synchronized (this) {
+            pending.addAll(this.inFlight.values());
+            this.inFlight.clear();
+        }
+        final IllegalStateException error = new IllegalStateException(
+                "The publisher has been stopped before the message was acknowledged");
+        for (final Request request : pending) {
+            complete(request, error);
+        }
+
+        stoppedCompletionExecutor.shutdown();
+        try {
+            if (!stoppedCompletionExecutor.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                logger.warn("The completions of publisher {} have not been notified in time", this.name);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Submits a publication, blocking while the window is full.
+     *
+     * @param operation
+     *            the operation that hands over the message to the data service and returns its identifier
+     * @param qos
+     *            the QoS of the message
+     * @param completion
+     *            receives the outcome of the publication, on the completion thread of the publisher
+     * @throws InterruptedException
+     *             if the caller has been interrupted while waiting for the window
+     * @throws IllegalStateException
+     *             if the publisher is not running
+     */
+    public void submit(final Callable<Integer> operation, final int qos, final Completion completion)
+            throws InterruptedException {
+        if (!this.running) {
+            throw new IllegalStateException("The publisher is not running");
+        }
+        this.window.acquire();
+        final Request request = new Request(operation, qos, completion);
+        this.queue.add(request);
+        if (!this.running && this.queue.remove(request)) {
+            this.window.release();
+            throw new IllegalStateException("The publisher is not running");
+        }
+    }
+
+    /**
+     * Returns the number of publications that have been submitted and not completed yet.
+     */
+    public synchronized int getPendingCount() {
+        return this.queue.size() + this.inFlight.size();
+    }
+
+    private void publishLoop() {
+        while (this.running) {
+            try {
+                expireInFlight();
+                final Request request = this.queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+                if (request != null) {
+                    publish(request);
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void publish(final Request request) {
+        synchronized (this) {
+            this.publishing = true;
+        }
+
+        Integer messageId = null;
+        Exception error = null;
+        try {
+            messageId = request.operation.call();
+        } catch (final Exception e) {
+            error = e;
+        }
+
+        final boolean acknowledged;
+        synchronized (this) {
+            this.publishing = false;
+            if (messageId == null) {
+                acknowledged = false;
+            } else if (request.qos == 0) {
+                acknowledged = this.publishedWhilePublishing.contains(messageId);
+            } else {
+                acknowledged = this.confirmedWhilePublishing.contains(messageId);
+            }
+            this.publishedWhilePublishing.clear();
+            this.confirmedWhilePublishing.clear();
+            if (messageId != null && !acknowledged) {
+                request.handedOverNanos = System.nanoTime();
+                this.inFlight.put(messageId, request);
+            }
+        }
+
+        if (error != null) {
+            complete(request, error);
+        } else if (messageId == null) {
+            complete(request, new IllegalStateException("No message identifier has been returned"));
+        } else if (acknowledged) {
+            complete(request, null);
+        }
+    }
+
+    private void acknowledged(final int messageId, final boolean confirmed) {
+        final Request request;
+        synchronized (this) {
+            final Request candidate = this.inFlight.get(messageId);
+            if (candidate != null && (candidate.qos == 0 || confirmed)) {
+                request = this.inFlight.remove(messageId);
+            } else {
+                request = null;
+                if (candidate == null && this.publishing) {
+                    (confirmed ? this.confirmedWhilePublishing : this.publishedWhilePublishing).add(messageId);
+                }
+            }
+        }
+        if (request != null) {
+            complete(request, null);
+        }
+    }
+
+    /**
+     * Completes the publications whose acknowledgement timeout has expired, for example because the message has been
+     * dropped from the store before being published.
+     */
+    private void expireInFlight() {
+        final long now = System.nanoTime();
+        final List<Request> expired = new ArrayList<>();
+        synchronized (this) {
+            final Iterator<Request> iterator = this.inFlight.values().iterator();
+            while (iterator.hasNext()) {
+                final Request request = iterator.next();
+                if (now - request.handedOverNanos >= this.ackTimeoutNanos) {
+                    iterator.remove();
+                    expired.add(request);
+                }
+            }
+        }
+        if (expired.isEmpty()) {
+            return;
+        }
+        logger.warn("{} messages have not been acknowledged in time by publisher {}", expired.size(), this.name);
+        final TimeoutException error = new TimeoutException("The message has not been acknowledged in time");
+        for (final Request request : expired) {
+            complete(request, error);
+        }
+    }
+
+    private void complete(final Request request, final Exception error) {
+        this.window.release();
+        final ExecutorService currentCompletionExecutor = this.completionExecutor;
+        try {
+            currentCompletionExecutor.execute(() -> notifyCompletion(request, error));
+        } catch (final RejectedExecutionException e) {
+            // an acknowledgement received after the publisher has been stopped
+            notifyCompletion(request, error);
+        }
+    }
+
+    private static void notifyCompletion(final Request request, final Exception error) {
+        try {
+            request.completion.completed(error);
+        } catch (final Exception e) {
+            logger.warn("Failed to notify the completion of a publication", e);
+        }
+    }
+
+    // CloudClientListener callbacks
+
+    @Override
+    public void onMessagePublished(final int messageId, final String appTopic) {
+        acknowledged(messageId, false);
+    }
+
+    @Override
+    public void onMessageConfirmed(final int messageId, final String appTopic) {
+        acknowledged(messageId, true);
+    }
+
+    @Override
+    public void onControlMessageArrived(final String deviceId, final String appTopic, final KuraPayload msg,
+            final int qos, final boolean retain) {
+        // not needed
+    }
+
+    @Override
+    public void onMessageArrived(final String deviceId, final String appTopic, final KuraPayload msg, final int qos,
+            final boolean retain) {
+        // not needed
+    }
+
+    @Override
+    public void onConnectionLost() {
+        // the stored QoS 1 and 2 messages are published again when the connection is established and left to the
+        // acknowledgement timeout, failing them could make the route publish them twice
+        final List<Request> lost = new ArrayList<>();
+        synchronized (this) {
+            final Iterator<Request> iterator = this.inFlight.values().iterator();
+            while (iterator.hasNext()) {
+                final Request request = iterator.next();
+                if (request.qos == 0) {
+                    iterator.remove();
+                    lost.add(request);
+                }
+            }
+        }
+        final IllegalStateException error = new IllegalStateException(
+                "The connection has been lost before the message was published");
+        for (final Request request : lost) {
+            complete(request, error);
+        }
+    }
+
+    @Override
+    public void onConnectionEstablished() {
+        // not needed
+    }
+}
@@ -0,0 +1,541 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.BODY;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.METRICS;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.POSITION;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.SENTON;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.ALTITUDE;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.HEADING;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.LATITUDE;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.LONGITUDE;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.PRECISION;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.SATELLITES;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.SPEED;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.STATUS;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.TIMESTAMP;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+
+import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.message.KuraPosition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pull parser counterpart of {@link CloudPayloadJsonDecoder}.
+ * <p>
+ * The Json document is scanned directly from the received bytes and every value is converted to its Java type as soon
+ * as it is read, without building an intermediate Json object tree. The mapping rules are the same of
+ * {@link CloudPayloadJsonDecoder}: fixed point numbers decode as {@link Long}, floating point numbers as
+ * {@link Double}, and a well formed document that cannot be mapped is returned in the body of the
+ * {@link KuraPayload}.
+ *
+ */
+public final class CloudPayloadJsonStreamDecoder {
+
+    private static final Logger logger = LoggerFactory.getLogger(CloudPayloadJsonStreamDecoder.class);
+
+    private final byte[] data;
+    private int pos;
+    private char[] scratch;
+
+    private CloudPayloadJsonStreamDecoder(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Builds a {@link KuraPayload} from a Json byte array. The method will try to parse the received Json in order to
+     * fill the corresponding {@link KuraPayload} fields.
+     * If the mapping fails, the entire byte array, received as argument, will be placed in the body of the returned
+     * {@link KuraPayload}.
+     *
+     * @param array
+     *            a Json encoded as a byte array.
+     * @return a {@link KuraPayload} that directly maps the received array.
+     * @throws IllegalArgumentException
+     *             if the received array is not a well formed Json document
+     */
+    public static KuraPayload buildFromByteArray(byte[] array) {
+        if (array == null) {
+            throw new NullPointerException("Json array cannot be null");
+        }
+
+        CloudPayloadJsonStreamDecoder decoder = new CloudPayloadJsonStreamDecoder(array);
+        KuraPayload payload = new KuraPayload();
+
+        if (!decoder.readPayload(payload)) {
+            payload = new KuraPayload();
+            payload.setBody(array);
+        }
+        return payload;
+    }
+
+    /**
+     * Reads the whole document. Once a member cannot be mapped, the remaining part of the document is only validated
+     * so that malformed input is always reported.
+     *
+     * @return {@code true} if the document has been entirely mapped into the payload
+     */
+    private boolean readPayload(KuraPayload payload) {
+        boolean mapped = true;
+
+        expect('{');
+        if (!consume('}')) {
+            do {
+                String name = readString();
+                expect(':');
+                if (mapped) {
+                    mapped = readPayloadMember(payload, name);
+                    if (!mapped) {
+                        logger.warn("Cannot parse Json: unable to map {}", name);
+                    }
+                } else {
+                    skipValue();
+                }
+            } while (consume(','));
+            expect('}');
+        }
+
+        skipWhitespace();
+        if (this.pos != this.data.length) {
+            throw error("Unexpected character");
+        }
+        return mapped;
+    }
+
+    private boolean readPayloadMember(KuraPayload payload, String name) {
+        byte next = peek();
+        if (SENTON.value().equalsIgnoreCase(name)) {
+            if (isNumberStart(next)) {
+                int start = this.pos;
+                skipNumber();
+                Long timestamp = parseLong(start, this.pos);
+                if (timestamp == null) {
+                    return false;
+                }
+                payload.setTimestamp(new Date(timestamp));
+            } else {
+                skipValue();
+            }
+            return true;
+        } else if (BODY.value().equalsIgnoreCase(name)) {
+            if (next == '"') {
+                try {
+                    payload.setBody(Base64.getDecoder().decode(readString()));
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            } else {
+                skipValue();
+            }
+            return true;
+        } else if (POSITION.value().equalsIgnoreCase(name) && next == '{') {
+            KuraPosition position = new KuraPosition();
+            payload.setPosition(position);
+            return readPosition(position);
+        } else if (METRICS.value().equalsIgnoreCase(name) && next == '{') {
+            return readMetrics(payload);
+        }
+
+        skipValue();
+        return false;
+    }
+
+    private boolean readPosition(KuraPosition position) {
+        boolean mapped = true;
+
+        expect('{');
+        if (!consume('}')) {
+            do {
+                String name = readString();
+                expect(':');
+                if (mapped && isNumberStart(peek())) {
+                    int start = this.pos;
+                    skipNumber();
+                    mapped = setPositionField(position, name, start, this.pos);
+                } else {
+                    skipValue();
+                    mapped = false;
+                }
+            } while (consume(','));
+            expect('}');
+        }
+        return mapped;
+    }
+
+    private boolean setPositionField(KuraPosition position, String name, int start, int end) {
+        if (LATITUDE.value().equalsIgnoreCase(name)) {
+            position.setLatitude(parseDouble(start, end));
+        } else if (LONGITUDE.value().equalsIgnoreCase(name)) {
+            position.setLongitude(parseDouble(start, end));
+        } else if (ALTITUDE.value().equalsIgnoreCase(name)) {
+            position.setAltitude(parseDouble(start, end));
+        } else if (HEADING.value().equalsIgnoreCase(name)) {
+            position.setHeading(parseDouble(start, end));
+        } else if (PRECISION.value().equalsIgnoreCase(name)) {
+            position.setPrecision(parseDouble(start, end));
+        } else if (SATELLITES.value().equalsIgnoreCase(name)) {
+            Integer satellites = parseInt(start, end);
+            if (satellites == null) {
+                return false;
+            }
+            position.setSatellites(satellites);
+        } else if (SPEED.value().equalsIgnoreCase(name)) {
+            position.setSpeed(parseDouble(start, end));
+        } else if (TIMESTAMP.value().equalsIgnoreCase(name)) {
+            Long timestamp = parseLong(start, end);
+            if (timestamp == null) {
+                return false;
+            }
+            position.setTimestamp(new Date(timestamp));
+        } else if (STATUS.value().equalsIgnoreCase(name)) {
+            Integer status = parseInt(start, end);
+            if (status == null) {
+                return false;
+            }
+            position.setStatus(status);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // as for CloudPayloadJsonDecoder, characters, ints, floats and byte arrays cannot be told apart
+    private boolean readMetrics(KuraPayload payload) {
+        boolean mapped = true;
+
+        expect('{');
+        if (!consume('}')) {
+            do {
+                String name = readString();
+                expect(':');
+                if (!mapped) {
+                    skipValue();
+                    continue;
+                }
+
+                byte next = peek();
+                if (next == '"') {
+                    payload.addMetric(name, readString());
+                } else if (isNumberStart(next)) {
+                    int start = this.pos;
+                    skipNumber();
+                    Long longValue = parseLong(start, this.pos);
+                    payload.addMetric(name, longValue != null ? longValue : (Object) parseDouble(start, this.pos));
+                } else if (next == 't') {
+                    expectLiteral("true");
+                    payload.addMetric(name, Boolean.TRUE);
+                } else if (next == 'f') {
+                    expectLiteral("false");
+                    payload.addMetric(name, Boolean.FALSE);
+                } else {
+                    skipValue();
+                    mapped = false;
+                }
+            } while (consume(','));
+            expect('}');
+        }
+        return mapped;
+    }
+
+    // ----------------------------------------------------------------
+    //
+    // Scanning
+    //
+    // ----------------------------------------------------------------
+
+    private void skipValue() {
+        byte next = peek();
+        if (next == '{') {
+            this.pos++;
+            if (!consume('}')) {
+                do {
+                    skipString();
+                    expect(':');
+                    skipValue();
+                } while (consume(','));
+                expect('}');
+            }
+        } else if (next == '[') {
+            this.pos++;
+            if (!consume(']')) {
+                do {
+                    skipValue();
+                } while (consume(','));
+                expect(']');
+            }
+        } else if (next == '"') {
+            skipString();
+        } else if (next == 't') {
+            expectLiteral("true");
+        } else if (next == 'f') {
+            expectLiteral("false");
+        } else if (next == 'n') {
+            expectLiteral("null");
+        } else if (isNumberStart(next)) {
+            skipNumber();
+        } else {
+            throw error("Expected value");
+        }
+    }
+
+    private void skipNumber() {
+        consumeByte('-');
+        if (!consumeByte('0')) {
+            if (!skipDigits()) {
+                throw error("Expected digit");
+            }
+        }
+        if (consumeByte('.') && !skipDigits()) {
+            throw error("Expected digit");
+        }
+        if (consumeByte('e') || consumeByte('E')) {
+            if (!consumeByte('+')) {
+                consumeByte('-');
+            }
+            if (!skipDigits()) {
+                throw error("Expected digit");
+            }
+        }
+    }
+
+    private boolean skipDigits() {
+        int start = this.pos;
+        while (this.pos < this.data.length && this.data[this.pos] >= '0' && this.data[this.pos] <= '9') {
+            this.pos++;
+        }
+        return this.pos > start;
+    }
+
+    private void skipString() {
+        skipWhitespace();
+        if (!consumeByte('"')) {
+            throw error("Expected name");
+        }
+        while (true) {
+            if (this.pos >= this.data.length) {
+                throw error("Unexpected end of input");
+            }
+            byte b = this.data[this.pos++];
+            if (b == '"') {
+                return;
+            } else if (b == '\\') {
+                this.pos++;
+            } else if (b >= 0 && b < 0x20) {
+                throw error("Expected valid string character");
+            }
+        }
+    }
+
+    private String readString() {
+        skipWhitespace();
+        if (!consumeByte('"')) {
+            throw error("Expected name");
+        }
+
+        // fast path: plain strings are decoded straight from the input array
+        int start = this.pos;
+        while (this.pos < this.data.length) {
+            byte b = this.data[this.pos];
+            if (b == '"') {
+                String result = new String(this.data, start, this.pos - start, StandardCharsets.UTF_8);
+                this.pos++;
+                return result;
+            } else if (b == '\\' || b >= 0 && b < 0x20) {
+                break;
+            }
+            this.pos++;
+        }
+
+        this.pos = start;
+        return readEscapedString();
+    }
+
+    private String readEscapedString() {
+        int start = this.pos;
+        int length = 0;
+        if (this.scratch == null || this.scratch.length < this.data.length - start) {
+            this.scratch = new char[this.data.length - start];
+        }
+
+        while (true) {
+            if (this.pos >= this.data.length) {
+                throw error("Unexpected end of input");
+            }
+            int b = this.data[this.pos++];
+            if (b == '"') {
+                return new String(this.scratch, 0, length);
+            } else if (b == '\\') {
+                this.scratch[length++] = readEscape();
+            } else if (b >= 0 && b < 0x20) {
+                throw error("Expected valid string character");
+            } else if (b >= 0) {
+                this.scratch[length++] = (char) b;
+            } else {
+                // multi byte sequence, copied as a whole
+                int sequenceStart = this.pos - 1;
+                while (this.pos < this.data.length && (this.data[this.pos] & 0xc0) == 0x80) {
+                    this.pos++;
+                }
+                String decoded = new String(this.data, sequenceStart, this.pos - sequenceStart,
+                        StandardCharsets.UTF_8);
+                decoded.getChars(0, decoded.length(), this.scratch, length);
+                length += decoded.length();
+            }
+        }
+    }
+
+    private char readEscape() {
+        if (this.pos >= this.data.length) {
+            throw error("Unexpected end of input");
+        }
+        byte b = this.data[this.pos++];
+        switch (b) {
+        case '"':
+        case '/':
+        case '\\':
+            return (char) b;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            if (this.pos + 4 > this.data.length) {
+                throw error("Unexpected end of input");
+            }
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(this.data[this.pos++], 16);
+                if (digit < 0) {
+                    throw error("Expected hexadecimal digit");
+                }
+                value = value << 4 | digit;
+            }
+            return (char) value;
+        default:
+            throw error("Expected valid escape sequence");
+        }
+    }
+
+    private Long parseLong(int start, int end) {
+        boolean negative = this.data[start] == '-';
+        int i = negative ? start + 1 : start;
+        long value = 0;
+        for (; i < end; i++) {
+            byte b = this.data[i];
+            if (b < '0' || b > '9') {
+                return null;
+            }
+            // accumulate as a negative number, so that Long.MIN_VALUE fits
+            if (value < Long.MIN_VALUE / 10) {
+                return null;
+            }
+            value *= 10;
+            if (value < Long.MIN_VALUE + (b - '0')) {
+                return null;
+            }
+            value -= b - '0';
+        }
+        if (!negative) {
+            if (value == Long.MIN_VALUE) {
+                return null;
+            }
+            value = -value;
+        }
+        return value;
+    }
+
+    private Integer parseInt(int start, int end) {
+        Long value = parseLong(start, end);
+        if (value == null || value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return null;
+        }
+        return value.intValue();
+    }
+
+    private double parseDouble(int start, int end) {
+        return Double.parseDouble(new String(this.data, start, end - start, StandardCharsets.US_ASCII));
+    }
+
+    private void expectLiteral(String literal) {
+        int length = literal.length();
+        if (this.pos + length > this.data.length) {
+            throw error("Unexpected end of input");
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.data[this.pos + i] != literal.charAt(i)) {
+                throw error("Expected '" + literal + "'");
+            }
+        }
+        this.pos += length;
+    }
+
+    private void expect(char ch) {
+        if (!consume(ch)) {
+            throw error("Expected '" + ch + "'");
+        }
+    }
+
+    private boolean consume(char ch) {
+        skipWhitespace();
+        return consumeByte(ch);
+    }
+
+    private boolean consumeByte(char ch) {
+        if (this.pos < this.data.length && this.data[this.pos] == ch) {
+            this.pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private byte peek() {
+        skipWhitespace();
+        if (this.pos >= this.data.length) {
+            throw error("Unexpected end of input");
+        }
+        return this.data[this.pos];
+    }
+
+    private static boolean isNumberStart(byte b) {
+        return b == '-' || b >= '0' && b <= '9';
+    }
+
+    private void skipWhitespace() {
+        while (this.pos < this.data.length) {
+            byte b = this.data[this.pos];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+                return;
+            }
+            this.pos++;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        int end = Math.min(this.data.length, this.pos + 16);
+        String context = new String(Arrays.copyOfRange(this.data, Math.min(this.pos, end), end),
+                StandardCharsets.UTF_8);
+        return new IllegalArgumentException(
+                String.format("Malformed Json at offset %d: %s near '%s'", this.pos, message, context));
+    }
+}
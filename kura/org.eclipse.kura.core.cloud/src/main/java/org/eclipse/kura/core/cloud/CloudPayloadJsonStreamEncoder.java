@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.BODY;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.METRICS;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.POSITION;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.SENTON;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.ALTITUDE;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.HEADING;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.LATITUDE;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.LONGITUDE;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.PRECISION;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.SATELLITES;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.SPEED;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.STATUS;
+import static org.eclipse.kura.core.cloud.CloudPayloadJsonFields.CloudPayloadJsonPositionFields.TIMESTAMP;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Map;
+
+import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.message.KuraPosition;
+
+/**
+ * Streaming counterpart of {@link CloudPayloadJsonEncoder}.
+ * <p>
+ * The {@link KuraPayload} is written field by field into a per-thread byte buffer that is reused across calls, so no
+ * intermediate Json object tree or {@link String} is built. The produced bytes are identical to the ones returned by
+ * {@link CloudPayloadJsonEncoder#getBytes(KuraPayload)}.
+ *
+ */
+public final class CloudPayloadJsonStreamEncoder {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Buffers grown above this size while encoding a large payload are released after use instead of being kept in
+     * the pool.
+     */
+    private static final int MAX_POOLED_CAPACITY = 64 * 1024;
+
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes();
+
+    private static final byte[] BASE64_DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/"
+            .getBytes();
+
+    private static final ThreadLocal<CloudPayloadJsonStreamEncoder> POOL = new ThreadLocal<CloudPayloadJsonStreamEncoder>() {
+
+        @Override
+        protected CloudPayloadJsonStreamEncoder initialValue() {
+            return new CloudPayloadJsonStreamEncoder();
+        }
+    };
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private int count;
+
+    private CloudPayloadJsonStreamEncoder() {
+    }
+
+    /**
+     * This static method takes a {@link KuraPayload} and converts it into a {@code byte[]}
+     *
+     * @param kuraPayload
+     *            a {@link KuraPayload} object that has to be converted.
+     * @return a byte[] that maps the received {@link KuraPayload} object
+     * @throws IllegalArgumentException
+     *             if the conversion fails
+     */
+    public static byte[] getBytes(KuraPayload kuraPayload) {
+        if (kuraPayload == null) {
+            throw new NullPointerException("Payload cannot be null");
+        }
+
+        CloudPayloadJsonStreamEncoder encoder = POOL.get();
+        try {
+            encoder.encode(kuraPayload);
+            return Arrays.copyOf(encoder.buffer, encoder.count);
+        } finally {
+            encoder.release();
+        }
+    }
+
+    private void encode(KuraPayload kuraPayload) {
+        this.count = 0;
+        writeByte('{');
+
+        boolean first = true;
+        Date timestamp = kuraPayload.getTimestamp();
+        if (timestamp != null) {
+            first = writeName(SENTON.value(), first);
+            writeLong(timestamp.getTime());
+        }
+
+        KuraPosition position = kuraPayload.getPosition();
+        if (position != null) {
+            first = writeName(POSITION.value(), first);
+            encodePosition(position);
+        }
+
+        first = writeName(METRICS.value(), first);
+        encodeMetrics(kuraPayload);
+
+        byte[] body = kuraPayload.getBody();
+        if (body != null) {
+            writeName(BODY.value(), first);
+            writeBase64(body);
+        }
+
+        writeByte('}');
+    }
+
+    private void encodeMetrics(KuraPayload kuraPayload) {
+        writeByte('{');
+        boolean first = true;
+        for (Map.Entry<String, Object> entry : kuraPayload.metrics().entrySet()) {
+            Object object = entry.getValue();
+            first = writeName(entry.getKey(), first);
+            if (object instanceof Boolean) {
+                writeAscii((Boolean) object ? "true" : "false");
+            } else if (object instanceof Double) {
+                writeDouble((Double) object);
+            } else if (object instanceof Float) {
+                writeFloat((Float) object);
+            } else if (object instanceof Integer) {
+                writeLong((Integer) object);
+            } else if (object instanceof Long) {
+                writeLong((Long) object);
+            } else if (object instanceof String) {
+                writeString((String) object);
+            } else if (object instanceof byte[]) {
+                writeBase64((byte[]) object);
+            } else {
+                throw new IllegalArgumentException("Cannot encode this value: " + object.toString());
+            }
+        }
+        writeByte('}');
+    }
+
+    private void encodePosition(KuraPosition position) {
+        writeByte('{');
+        boolean first = true;
+        if (position.getLatitude() != null) {
+            first = writeName(LATITUDE.value(), first);
+            writeDouble(position.getLatitude());
+        }
+        if (position.getLongitude() != null) {
+            first = writeName(LONGITUDE.value(), first);
+            writeDouble(position.getLongitude());
+        }
+        if (position.getAltitude() != null) {
+            first = writeName(ALTITUDE.value(), first);
+            writeDouble(position.getAltitude());
+        }
+        if (position.getHeading() != null) {
+            first = writeName(HEADING.value(), first);
+            writeDouble(position.getHeading());
+        }
+        if (position.getPrecision() != null) {
+            first = writeName(PRECISION.value(), first);
+            writeDouble(position.getPrecision());
+        }
+        if (position.getSatellites() != null) {
+            first = writeName(SATELLITES.value(), first);
+            writeLong(position.getSatellites());
+        }
+        if (position.getSpeed() != null) {
+            first = writeName(SPEED.value(), first);
+            writeDouble(position.getSpeed());
+        }
+        if (position.getTimestamp() != null) {
+            first = writeName(TIMESTAMP.value(), first);
+            writeLong(position.getTimestamp().getTime());
+        }
+        if (position.getStatus() != null) {
+            writeName(STATUS.value(), first);
+            writeLong(position.getStatus());
+        }
+        writeByte('}');
+    }
+
+    private boolean writeName(String name, boolean first) {
+        if (!first) {
+            writeByte(',');
+        }
+        writeString(name);
+        writeByte(':');
+        return false;
+    }
+
+    private void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+
+        ensureCapacity(20);
+        if (value < 0) {
+            this.buffer[this.count++] = '-';
+            value = -value;
+        }
+
+        int start = this.count;
+        do {
+            this.buffer[this.count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+
+        // digits were written least significant first
+        for (int i = start, j = this.count - 1; i < j; i++, j--) {
+            byte tmp = this.buffer[i];
+            this.buffer[i] = this.buffer[j];
+            this.buffer[j] = tmp;
+        }
+    }
+
+    private void writeDouble(double value) {
+        if (Double.isInfinite(value) || Double.isNaN(value)) {
+            throw new IllegalArgumentException("Infinite and NaN values not permitted in JSON");
+        }
+        writeDecimal(Double.toString(value));
+    }
+
+    private void writeFloat(float value) {
+        if (Float.isInfinite(value) || Float.isNaN(value)) {
+            throw new IllegalArgumentException("Infinite and NaN values not permitted in JSON");
+        }
+        writeDecimal(Float.toString(value));
+    }
+
+    private void writeDecimal(String decimal) {
+        // integral values are written without the trailing ".0", as the tree based encoder does
+        int length = decimal.length();
+        if (decimal.endsWith(".0")) {
+            length -= 2;
+        }
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            this.buffer[this.count++] = (byte) decimal.charAt(i);
+        }
+    }
+
+    private void writeAscii(String ascii) {
+        int length = ascii.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            this.buffer[this.count++] = (byte) ascii.charAt(i);
+        }
+    }
+
+    private void writeString(String value) {
+        int length = value.length();
+        // worst case: every char is escaped as \\uXXXX
+        ensureCapacity(length * 6 + 2);
+
+        byte[] buf = this.buffer;
+        int pos = this.count;
+        buf[pos++] = '"';
+        for (int i = 0; i < length; i++) {
+            char ch = value.charAt(i);
+            if (ch < 0x80) {
+                if (ch == '"' || ch == '\\') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = (byte) ch;
+                } else if (ch >= 0x20) {
+                    buf[pos++] = (byte) ch;
+                } else if (ch == '\n') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = 'n';
+                } else if (ch == '\r') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = 'r';
+                } else if (ch == '\t') {
+                    buf[pos++] = '\\';
+                    buf[pos++] = 't';
+                } else {
+                    pos = writeUnicodeEscape(buf, pos, ch);
+                }
+            } else if (ch < 0x800) {
+                buf[pos++] = (byte) (0xc0 | ch >> 6);
+                buf[pos++] = (byte) (0x80 | ch & 0x3f);
+            } else if (ch == '\u2028' || ch == '\u2029') {
+                pos = writeUnicodeEscape(buf, pos, ch);
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(ch, value.charAt(++i));
+                buf[pos++] = (byte) (0xf0 | codePoint >> 18);
+                buf[pos++] = (byte) (0x80 | codePoint >> 12 & 0x3f);
+                buf[pos++] = (byte) (0x80 | codePoint >> 6 & 0x3f);
+                buf[pos++] = (byte) (0x80 | codePoint & 0x3f);
+            } else if (Character.isSurrogate(ch)) {
+                // unpaired surrogate, replaced as String.getBytes(UTF_8) does
+                buf[pos++] = '?';
+            } else {
+                buf[pos++] = (byte) (0xe0 | ch >> 12);
+                buf[pos++] = (byte) (0x80 | ch >> 6 & 0x3f);
+                buf[pos++] = (byte) (0x80 | ch & 0x3f);
+            }
+        }
+        buf[pos++] = '"';
+        this.count = pos;
+    }
+
+    private static int writeUnicodeEscape(byte[] buf, int pos, char ch) {
+        buf[pos++] = '\\';
+        buf[pos++] = 'u';
+        buf[pos++] = HEX_DIGITS[ch >> 12 & 0xf];
+        buf[pos++] = HEX_DIGITS[ch >> 8 & 0xf];
+        buf[pos++] = HEX_DIGITS[ch >> 4 & 0xf];
+        buf[pos++] = HEX_DIGITS[ch & 0xf];
+        return pos;
+    }
+
+    private void writeBase64(byte[] data) {
+        ensureCapacity((data.length + 2) / 3 * 4 + 2);
+
+        byte[] buf = this.buffer;
+        int pos = this.count;
+        buf[pos++] = '"';
+
+        int i = 0;
+        int fullGroups = data.length / 3 * 3;
+        while (i < fullGroups) {
+            int bits = (data[i++] & 0xff) << 16 | (data[i++] & 0xff) << 8 | data[i++] & 0xff;
+            buf[pos++] = BASE64_DIGITS[bits >>> 18 & 0x3f];
+            buf[pos++] = BASE64_DIGITS[bits >>> 12 & 0x3f];
+            buf[pos++] = BASE64_DIGITS[bits >>> 6 & 0x3f];
+            buf[pos++] = BASE64_DIGITS[bits & 0x3f];
+        }
+
+        int remaining = data.length - fullGroups;
+        if (remaining > 0) {
+            int bits = (data[i++] & 0xff) << 16;
+            if (remaining == 2) {
+                bits |= (data[i] & 0xff) << 8;
+            }
+            buf[pos++] = BASE64_DIGITS[bits >>> 18 & 0x3f];
+            buf[pos++] = BASE64_DIGITS[bits >>> 12 & 0x3f];
+            buf[pos++] = remaining == 2 ? BASE64_DIGITS[bits >>> 6 & 0x3f] : (byte) '=';
+            buf[pos++] = '=';
+        }
+
+        buf[pos++] = '"';
+        this.count = pos;
+    }
+
+    private void writeByte(char ch) {
+        ensureCapacity(1);
+        this.buffer[this.count++] = (byte) ch;
+    }
+
+    private void ensureCapacity(int additional) {
+        int required = this.count + additional;
+        if (required > this.buffer.length) {
+            this.buffer = Arrays.copyOf(this.buffer, Math.max(required, this.buffer.length << 1));
+        }
+    }
+
+    private void release() {
+        this.count = 0;
+        if (this.buffer.length > MAX_POOLED_CAPACITY) {
+            this.buffer = new byte[INITIAL_CAPACITY];
+        }
+    }
+}
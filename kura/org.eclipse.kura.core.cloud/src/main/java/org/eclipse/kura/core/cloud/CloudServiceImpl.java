@@ -16,6 +16,7 @@ import static org.eclipse.kura.cloud.CloudPayloadEncoding.KURA_PROTOBUF;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.Hashtable;
@@ -41,9 +42,14 @@ import org.eclipse.kura.data.DataService;
 import org.eclipse.kura.data.listener.DataServiceListener;
 import org.eclipse.kura.message.KuraPayload;
 import org.eclipse.kura.message.KuraTopic;
+import org.eclipse.kura.net.NetInterfaceAddedEvent;
+import org.eclipse.kura.net.NetInterfaceRemovedEvent;
+import org.eclipse.kura.net.NetInterfaceStateChangedEvent;
 import org.eclipse.kura.net.NetworkService;
+import org.eclipse.kura.net.NetworkStateChangedEvent;
 import org.eclipse.kura.net.modem.ModemReadyEvent;
 import org.eclipse.kura.position.PositionLockedEvent;
+import org.eclipse.kura.position.PositionLostEvent;
 import org.eclipse.kura.position.PositionService;
 import org.eclipse.kura.system.SystemAdminService;
 import org.eclipse.kura.system.SystemService;
@@ -64,6 +70,18 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
     private static final String TOPIC_BA_APP = "BA";
     private static final String TOPIC_MQTT_APP = "MQTT";
 
+    // fired by the network admin bundle when the configuration of the interfaces, and thus their addresses, changes
+    private static final String NETWORK_CONFIG_CHANGE_EVENT_TOPIC =
+            "org/eclipse/kura/net/admin/event/NETWORK_EVENT_CONFIG_CHANGE_TOPIC";
+
+    // the events changing the connection interface or address of the device profile; the access point events fired
+    // by each wireless scan are not included
+    private static final List<String> NETWORK_PROFILE_EVENT_TOPICS = Arrays.asList(
+            NetInterfaceAddedEvent.NETWORK_EVENT_INTERFACE_ADDED_TOPIC,
+            NetInterfaceRemovedEvent.NETWORK_EVENT_INTERFACE_REMOVED_TOPIC,
+            NetInterfaceStateChangedEvent.NETWORK_EVENT_INTERFACE_STATE_CHANGED_TOPIC,
+            NetworkStateChangedEvent.NETWORK_EVENT_STATE_CHANGED_TOPIC, NETWORK_CONFIG_CHANGE_EVENT_TOPIC);
+
     private ComponentContext ctx;
 
     private CloudServiceOptions options;
@@ -90,9 +108,12 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
     private final AtomicInteger messageId;
 
+    private final DeviceProfileCache deviceProfileCache;
+
     public CloudServiceImpl() {
         this.cloudClients = new CopyOnWriteArrayList<>();
         this.messageId = new AtomicInteger();
+        this.deviceProfileCache = new DeviceProfileCache(this);
     }
 
     // ----------------------------------------------------------------
@@ -127,6 +148,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
     public void setSystemService(SystemService systemService) {
         this.systemService = systemService;
+        this.deviceProfileCache.invalidateAll();
     }
 
     public void unsetSystemService(SystemService systemService) {
@@ -137,8 +159,14 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
         return this.systemService;
     }
 
+    // package visibility for LifeCyclePayloadBuilder
+    DeviceProfileCache getDeviceProfileCache() {
+        return this.deviceProfileCache;
+    }
+
     public void setNetworkService(NetworkService networkService) {
         this.networkService = networkService;
+        this.deviceProfileCache.invalidateNetwork();
     }
 
     public void unsetNetworkService(NetworkService networkService) {
@@ -151,6 +179,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
     public void setPositionService(PositionService positionService) {
         this.positionService = positionService;
+        this.deviceProfileCache.invalidatePosition();
     }
 
     public void unsetPositionService(PositionService positionService) {
@@ -185,10 +214,12 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
         //
         // install event listener for GPS locked event
+        // position and network events also keep the device profile up to date
         Dictionary<String, Object> props = new Hashtable<String, Object>();
-        String[] eventTopics = { PositionLockedEvent.POSITION_LOCKED_EVENT_TOPIC,
-                ModemReadyEvent.MODEM_EVENT_READY_TOPIC };
-        props.put(EventConstants.EVENT_TOPIC, eventTopics);
+        List<String> eventTopics = new ArrayList<>(Arrays.asList(PositionLockedEvent.POSITION_LOCKED_EVENT_TOPIC,
+                PositionLostEvent.POSITION_LOST_EVENT_TOPIC, ModemReadyEvent.MODEM_EVENT_READY_TOPIC));
+        eventTopics.addAll(NETWORK_PROFILE_EVENT_TOPICS);
+        props.put(EventConstants.EVENT_TOPIC, eventTopics.toArray(new String[eventTopics.size()]));
         this.ctx.getBundleContext().registerService(EventHandler.class.getName(), this, props);
 
         this.dataService.addDataServiceListener(this);
@@ -253,6 +284,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
     @Override
     public void handleEvent(Event event) {
         if (PositionLockedEvent.POSITION_LOCKED_EVENT_TOPIC.contains(event.getTopic())) {
+            this.deviceProfileCache.invalidatePosition();
             // if we get a position locked event,
             // republish the birth certificate only if we are configured to
             logger.info("Handling PositionLockedEvent");
@@ -265,6 +297,7 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
             }
         } else if (ModemReadyEvent.MODEM_EVENT_READY_TOPIC.contains(event.getTopic())) {
             logger.info("Handling ModemReadyEvent");
+            this.deviceProfileCache.invalidateNetwork();
             ModemReadyEvent modemReadyEvent = (ModemReadyEvent) event;
             // keep these identifiers around until we can publish the certificate
             this.imei = (String) modemReadyEvent.getProperty(ModemReadyEvent.IMEI);
@@ -288,6 +321,11 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
                     }
                 }
             }
+        } else if (PositionLostEvent.POSITION_LOST_EVENT_TOPIC.equals(event.getTopic())) {
+            this.deviceProfileCache.invalidatePosition();
+        } else if (NETWORK_PROFILE_EVENT_TOPICS.contains(event.getTopic())) {
+            logger.debug("Handling {}", event.getTopic());
+            this.deviceProfileCache.invalidateNetwork();
         }
     }
 
@@ -433,12 +471,12 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
 
     @Override
     public void onMessageArrived(String topic, byte[] payload, int qos, boolean retained) {
-        logger.info("Message arrived on topic: {}", topic);
+        logger.debug("Message arrived on topic: {}", topic);
 
         // notify listeners
         KuraTopic kuraTopic = new KuraTopic(topic, this.options.getTopicControlPrefix());
         if (TOPIC_MQTT_APP.equals(kuraTopic.getApplicationId()) || TOPIC_BA_APP.equals(kuraTopic.getApplicationId())) {
-            logger.info("Ignoring feedback message from {}", topic);
+            logger.debug("Ignoring feedback message from {}", topic);
         } else {
             KuraPayload kuraPayload = null;
 
@@ -704,11 +742,11 @@ public class CloudServiceImpl implements CloudService, DataServiceListener, Conf
     }
 
     private byte[] encodeJsonPayload(KuraPayload payload) {
-        return CloudPayloadJsonEncoder.getBytes(payload);
+        return CloudPayloadJsonStreamEncoder.getBytes(payload);
     }
 
     private KuraPayload createKuraPayloadFromJson(byte[] payload) {
-        return CloudPayloadJsonDecoder.buildFromByteArray(payload);
+        return CloudPayloadJsonStreamDecoder.buildFromByteArray(payload);
     }
 
     private KuraPayload createKuraPayloadFromProtoBuf(String topic, byte[] payload) {
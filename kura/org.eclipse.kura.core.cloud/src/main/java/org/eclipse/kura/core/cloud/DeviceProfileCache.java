@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.eclipse.kura.core.message.KuraDeviceProfile;
+import org.eclipse.kura.core.util.NetUtil;
+import org.eclipse.kura.net.NetInterface;
+import org.eclipse.kura.net.NetInterfaceAddress;
+import org.eclipse.kura.net.NetworkService;
+import org.eclipse.kura.position.NmeaPosition;
+import org.eclipse.kura.position.PositionService;
+import org.eclipse.kura.system.SystemAdminService;
+import org.eclipse.kura.system.SystemService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Caches the information needed to build the device profile of the lifecycle messages.
+ * <p>
+ * Gathering the profile is expensive: several {@link SystemService} getters read files or execute commands and
+ * listing the active network interfaces executes several commands per interface. The profile is split in three
+ * parts, cached independently:
+ * <ul>
+ * <li>the system information, which only changes with a software update, refreshed every
+ * {@value #SYSTEM_MAX_AGE_MINUTES} minutes</li>
+ * <li>the connection interfaces and addresses, invalidated by network events</li>
+ * <li>the position, invalidated by position events</li>
+ * </ul>
+ * The network and position parts are also refreshed every {@value #NETWORK_POSITION_MAX_AGE_SECONDS} seconds, in
+ * case an event is missed. The uptime is always read.
+ */
+final class DeviceProfileCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeviceProfileCache.class);
+
+    static final long SYSTEM_MAX_AGE_MINUTES = 60;
+    static final long NETWORK_POSITION_MAX_AGE_SECONDS = 60;
+
+    private static final String UNKNOWN = "UNKNOWN";
+
+    private static final class NetworkInfo {
+
+        private final String connectionInterface;
+        private final String connectionIp;
+
+        private NetworkInfo(String connectionInterface, String connectionIp) {
+            this.connectionInterface = connectionInterface;
+            this.connectionIp = connectionIp;
+        }
+    }
+
+    private static final class PositionInfo {
+
+        private final double latitude;
+        private final double longitude;
+        private final double altitude;
+
+        private PositionInfo(double latitude, double longitude, double altitude) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.altitude = altitude;
+        }
+    }
+
+    /**
+     * A value loaded on demand and kept until it expires or it is invalidated. A value loaded while an invalidation
+     * occurs is returned to the caller but not cached.
+     */
+    private static final class Cached<T> {
+
+        private static final class Entry<T> {
+
+            private final T value;
+            private final long loadedNanos;
+            private final long generation;
+
+            private Entry(T value, long loadedNanos, long generation) {
+                this.value = value;
+                this.loadedNanos = loadedNanos;
+                this.generation = generation;
+            }
+        }
+
+        private final Supplier<T> loader;
+        private final long maxAgeNanos;
+        private final AtomicLong generation = new AtomicLong();
+        private volatile Entry<T> entry;
+
+        private Cached(Supplier<T> loader, long maxAgeNanos) {
+            this.loader = loader;
+            this.maxAgeNanos = maxAgeNanos;
+        }
+
+        private T get() {
+            T value = getIfValid();
+            if (value != null) {
+                return value;
+            }
+            synchronized (this) {
+                // another caller may have loaded the value in the meantime
+                value = getIfValid();
+                if (value != null) {
+                    return value;
+                }
+                final long loadGeneration = this.generation.get();
+                final long loadedNanos = System.nanoTime();
+                value = this.loader.get();
+                if (this.generation.get() == loadGeneration) {
+                    this.entry = new Entry<>(value, loadedNanos, loadGeneration);
+                }
+                return value;
+            }
+        }
+
+        private T getIfValid() {
+            final Entry<T> current = this.entry;
+            if (current != null && current.generation == this.generation.get()
+                    && System.nanoTime() - current.loadedNanos < this.maxAgeNanos) {
+                return current.value;
+            }
+            return null;
+        }
+
+        private void invalidate() {
+            this.generation.incrementAndGet();
+        }
+    }
+
+    private final CloudServiceImpl cloudServiceImpl;
+    private final Cached<KuraDeviceProfile> system;
+    private final Cached<NetworkInfo> network;
+    private final Cached<PositionInfo> position;
+
+    DeviceProfileCache(CloudServiceImpl cloudServiceImpl) {
+        this.cloudServiceImpl = cloudServiceImpl;
+        this.system = new Cached<>(this::loadSystemInfo, TimeUnit.MINUTES.toNanos(SYSTEM_MAX_AGE_MINUTES));
+        this.network = new Cached<>(this::loadNetworkInfo,
+                TimeUnit.SECONDS.toNanos(NETWORK_POSITION_MAX_AGE_SECONDS));
+        this.position = new Cached<>(this::loadPositionInfo,
+                TimeUnit.SECONDS.toNanos(NETWORK_POSITION_MAX_AGE_SECONDS));
+    }
+
+    /**
+     * @return a new profile, which the caller can modify
+     */
+    KuraDeviceProfile get() {
+        final KuraDeviceProfile systemInfo = this.system.get();
+        final NetworkInfo networkInfo = this.network.get();
+        final PositionInfo positionInfo = this.position.get();
+        final SystemAdminService sysAdminService = this.cloudServiceImpl.getSystemAdminService();
+
+        return new KuraDeviceProfile(sysAdminService.getUptime(), systemInfo.getDisplayName(),
+                systemInfo.getModelName(), systemInfo.getModelId(), systemInfo.getPartNumber(),
+                systemInfo.getSerialNumber(), systemInfo.getFirmwareVersion(), systemInfo.getBiosVersion(),
+                systemInfo.getOs(), systemInfo.getOsVersion(), systemInfo.getJvmName(), systemInfo.getJvmVersion(),
+                systemInfo.getJvmProfile(), systemInfo.getKuraVersion(), networkInfo.connectionInterface,
+                networkInfo.connectionIp, positionInfo.latitude, positionInfo.longitude, positionInfo.altitude,
+                systemInfo.getAvailableProcessors(), systemInfo.getTotalMemory(), systemInfo.getOsArch(),
+                systemInfo.getOsgiFramework(), systemInfo.getOsgiFrameworkVersion());
+    }
+
+    void invalidateNetwork() {
+        this.network.invalidate();
+    }
+
+    void invalidatePosition() {
+        this.position.invalidate();
+    }
+
+    void invalidateAll() {
+        this.system.invalidate();
+        this.network.invalidate();
+        this.position.invalidate();
+    }
+
+    private KuraDeviceProfile loadSystemInfo() {
+        final SystemService systemService = this.cloudServiceImpl.getSystemService();
+
+        return new KuraDeviceProfile(null, systemService.getDeviceName(), systemService.getModelName(),
+                systemService.getModelId(), systemService.getPartNumber(), systemService.getSerialNumber(),
+                systemService.getFirmwareVersion(), systemService.getBiosVersion(), systemService.getOsName(),
+                systemService.getOsVersion(), systemService.getJavaVmName(),
+                systemService.getJavaVmVersion() + " " + systemService.getJavaVmInfo(),
+                systemService.getJavaVendor() + " " + systemService.getJavaVersion(), systemService.getKuraVersion(),
+                null, null, String.valueOf(systemService.getNumberOfProcessors()),
+                String.valueOf(systemService.getTotalMemory()), systemService.getOsArch(),
+                systemService.getOsgiFwName(), systemService.getOsgiFwVersion());
+    }
+
+    private NetworkInfo loadNetworkInfo() {
+        final NetworkService networkService = this.cloudServiceImpl.getNetworkService();
+
+        StringBuilder sbConnectionIp = null;
+        StringBuilder sbConnectionInterface = null;
+        try {
+            List<NetInterface<? extends NetInterfaceAddress>> nis = networkService.getActiveNetworkInterfaces();
+            if (!nis.isEmpty()) {
+                sbConnectionIp = new StringBuilder();
+                sbConnectionInterface = new StringBuilder();
+
+                for (NetInterface<? extends NetInterfaceAddress> ni : nis) {
+                    List<? extends NetInterfaceAddress> nias = ni.getNetInterfaceAddresses();
+                    if (nias != null && !nias.isEmpty()) {
+                        sbConnectionInterface.append(buildConnectionInterface(ni)).append(",");
+                        sbConnectionIp.append(buildConnectionIp(ni)).append(",");
+                    }
+                }
+
+                // Remove trailing comma
+                sbConnectionIp.deleteCharAt(sbConnectionIp.length() - 1);
+                sbConnectionInterface.deleteCharAt(sbConnectionInterface.length() - 1);
+            }
+        } catch (Exception se) {
+            logger.warn("Error while getting ConnetionIP and ConnectionInterface", se);
+        }
+
+        String connectionIp = sbConnectionIp != null ? sbConnectionIp.toString() : UNKNOWN;
+        String connectionInterface = sbConnectionInterface != null ? sbConnectionInterface.toString() : UNKNOWN;
+        return new NetworkInfo(connectionInterface, connectionIp);
+    }
+
+    private PositionInfo loadPositionInfo() {
+        final PositionService positionService = this.cloudServiceImpl.getPositionService();
+
+        double latitude = 0.0;
+        double longitude = 0.0;
+        double altitude = 0.0;
+        if (positionService != null) {
+            NmeaPosition nmeaPosition = positionService.getNmeaPosition();
+            if (nmeaPosition != null) {
+                latitude = nmeaPosition.getLatitude();
+                longitude = nmeaPosition.getLongitude();
+                altitude = nmeaPosition.getAltitude();
+            } else {
+                logger.warn("Unresolved PositionService reference.");
+            }
+        }
+        return new PositionInfo(latitude, longitude, altitude);
+    }
+
+    private static String buildConnectionIp(NetInterface<? extends NetInterfaceAddress> ni) {
+        String connectionIp = UNKNOWN;
+        List<? extends NetInterfaceAddress> nias = ni.getNetInterfaceAddresses();
+        if (nias != null && !nias.isEmpty() && nias.get(0).getAddress() != null) {
+            connectionIp = nias.get(0).getAddress().getHostAddress();
+        }
+        return connectionIp;
+    }
+
+    private static String buildConnectionInterface(NetInterface<? extends NetInterfaceAddress> ni) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(ni.getName()).append(" (").append(NetUtil.hardwareAddressToString(ni.getHardwareAddress()))
+                .append(")");
+        return sb.toString();
+    }
+}
@@ -11,23 +11,13 @@
  *******************************************************************************/
 package org.eclipse.kura.core.cloud;
 
-import java.util.List;
-
 import org.eclipse.kura.core.message.KuraBirthPayload;
 import org.eclipse.kura.core.message.KuraBirthPayload.KuraBirthPayloadBuilder;
 import org.eclipse.kura.core.message.KuraDeviceProfile;
 import org.eclipse.kura.core.message.KuraDisconnectPayload;
-import org.eclipse.kura.core.util.NetUtil;
 import org.eclipse.kura.message.KuraPosition;
-import org.eclipse.kura.net.NetInterface;
-import org.eclipse.kura.net.NetInterfaceAddress;
-import org.eclipse.kura.net.NetworkService;
-import org.eclipse.kura.position.NmeaPosition;
-import org.eclipse.kura.position.PositionService;
 import org.eclipse.kura.system.SystemAdminService;
 import org.eclipse.kura.system.SystemService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
  * Utility class to build lifecycle payload messages.
@@ -36,10 +26,6 @@ public class LifeCyclePayloadBuilder {
 
     private static final String ERROR = "ERROR";
 
-    private static final Logger s_logger = LoggerFactory.getLogger(LifeCyclePayloadBuilder.class);
-
-    private static final String UNKNOWN = "UNKNOWN";
-
     private final CloudServiceImpl cloudServiceImpl;
 
     LifeCyclePayloadBuilder(CloudServiceImpl cloudServiceImpl) {
@@ -124,84 +110,13 @@ public class LifeCyclePayloadBuilder {
         return new KuraDisconnectPayload(sysAdminService.getUptime(), deviceName);
     }
 
+    /**
+     * Returns the device profile, mostly taken from the information cached by the cloud service.
+     *
+     * @return a new device profile
+     */
     public KuraDeviceProfile buildDeviceProfile() {
-        SystemService systemService = this.cloudServiceImpl.getSystemService();
-        SystemAdminService sysAdminService = this.cloudServiceImpl.getSystemAdminService();
-        NetworkService networkService = this.cloudServiceImpl.getNetworkService();
-        PositionService positionService = this.cloudServiceImpl.getPositionService();
-
-        //
-        // get the network information
-        StringBuilder sbConnectionIp = null;
-        StringBuilder sbConnectionInterface = null;
-        try {
-            List<NetInterface<? extends NetInterfaceAddress>> nis = networkService.getActiveNetworkInterfaces();
-            if (!nis.isEmpty()) {
-                sbConnectionIp = new StringBuilder();
-                sbConnectionInterface = new StringBuilder();
-
-                for (NetInterface<? extends NetInterfaceAddress> ni : nis) {
-                    List<? extends NetInterfaceAddress> nias = ni.getNetInterfaceAddresses();
-                    if (nias != null && !nias.isEmpty()) {
-                        sbConnectionInterface.append(buildConnectionInterface(ni)).append(",");
-                        sbConnectionIp.append(buildConnectionIp(ni)).append(",");
-                    }
-                }
-
-                // Remove trailing comma
-                sbConnectionIp.deleteCharAt(sbConnectionIp.length() - 1);
-                sbConnectionInterface.deleteCharAt(sbConnectionInterface.length() - 1);
-            }
-        } catch (Exception se) {
-            s_logger.warn("Error while getting ConnetionIP and ConnectionInterface", se);
-        }
-
-        String connectionIp = sbConnectionIp != null ? sbConnectionIp.toString() : UNKNOWN;
-        String connectionInterface = sbConnectionInterface != null ? sbConnectionInterface.toString() : UNKNOWN;
-
-        //
-        // get the position information
-        double latitude = 0.0;
-        double longitude = 0.0;
-        double altitude = 0.0;
-        if (positionService != null) {
-            NmeaPosition position = positionService.getNmeaPosition();
-            if (position != null) {
-                latitude = position.getLatitude();
-                longitude = position.getLongitude();
-                altitude = position.getAltitude();
-            } else {
-                s_logger.warn("Unresolved PositionService reference.");
-            }
-        }
-
-        //
-        // build the profile
-        return new KuraDeviceProfile(sysAdminService.getUptime(), systemService.getDeviceName(),
-                systemService.getModelName(), systemService.getModelId(), systemService.getPartNumber(),
-                systemService.getSerialNumber(), systemService.getFirmwareVersion(), systemService.getBiosVersion(),
-                systemService.getOsName(), systemService.getOsVersion(), systemService.getJavaVmName(),
-                systemService.getJavaVmVersion() + " " + systemService.getJavaVmInfo(),
-                systemService.getJavaVendor() + " " + systemService.getJavaVersion(), systemService.getKuraVersion(),
-                connectionInterface, connectionIp, latitude, longitude, altitude,
-                String.valueOf(systemService.getNumberOfProcessors()), String.valueOf(systemService.getTotalMemory()),
-                systemService.getOsArch(), systemService.getOsgiFwName(), systemService.getOsgiFwVersion());
-    }
-
-    private String buildConnectionIp(NetInterface<? extends NetInterfaceAddress> ni) {
-        String connectionIp = UNKNOWN;
-        List<? extends NetInterfaceAddress> nias = ni.getNetInterfaceAddresses();
-        if (nias != null && !nias.isEmpty() && nias.get(0).getAddress() != null) {
-            connectionIp = nias.get(0).getAddress().getHostAddress();
-        }
-        return connectionIp;
-    }
-
-    private String buildConnectionInterface(NetInterface<? extends NetInterfaceAddress> ni) {
-        StringBuilder sb = new StringBuilder();
-        sb.append(ni.getName()).append(" (").append(NetUtil.hardwareAddressToString(ni.getHardwareAddress()))
-                .append(")");
-        return sb.toString();
+        return this.cloudServiceImpl.getDeviceProfileCache().get();
     }
 
     private String buildApplicationIDs() {
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2016 Eurotech and/or its affiliates
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -12,6 +12,16 @@
 package org.eclipse.kura.core.cloud.call;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kura.KuraConnectException;
 import org.eclipse.kura.KuraErrorCode;
@@ -33,6 +43,13 @@ import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Request/response implementation that allows any number of outstanding calls.
+ * <p>
+ * Every call is tracked in a correlation map keyed by its request ID and is completed by the response published on
+ * its own reply topic. Timeouts and reply topic unsubscriptions run on a shared scheduler thread, so no caller and
+ * no {@link DataServiceListener} callback ever waits on a global lock.
+ */
 public class CloudCallServiceImpl implements CloudCallService, DataServiceListener {
 
     private static final Logger s_logger = LoggerFactory.getLogger(CloudCallServiceImpl.class);
@@ -46,11 +63,25 @@ public class CloudCallServiceImpl implements CloudCallService, DataServiceListen
     private static final String ACCOUNT_NAME_VAR_NAME = "#account-name";
     private static final String CLIENT_ID_VAR_NAME = "#client-id";
 
+    private static final String REPLY_TOPIC_PREFIX = "REPLY/";
+
     private DataService m_dataService;
 
-    private Object m_lock;
-    private String m_respTopic;
-    private KuraResponsePayload m_resp;
+    private final Map<String, PendingCall> m_pendingCalls = new ConcurrentHashMap<>();
+    private ScheduledExecutorService m_scheduler;
+
+    private static final class PendingCall {
+
+        private final String appId;
+        private final String respTopic;
+        private final CompletableFuture<KuraResponsePayload> future = new CompletableFuture<>();
+        private volatile ScheduledFuture<?> timeoutTask;
+
+        private PendingCall(String appId, String respTopic) {
+            this.appId = appId;
+            this.respTopic = respTopic;
+        }
+    }
 
     // ----------------------------------------------------------------
     //
@@ -74,27 +105,65 @@ public class CloudCallServiceImpl implements CloudCallService, DataServiceListen
 
     protected void activate(ComponentContext componentContext) {
         s_logger.info("Activating...");
-        this.m_lock = new Object();
+        this.m_scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "CloudCallService");
+            thread.setDaemon(true);
+            return thread;
+        });
         this.m_dataService.addDataServiceListener(this);
     }
 
     protected void deactivate(ComponentContext componentContext) {
         s_logger.info("Deactivating...");
         this.m_dataService.removeDataServiceListener(this);
-        synchronized (this.m_lock) {
-            this.m_lock.notifyAll();
+        cancel();
+        this.m_scheduler.shutdown();
+        try {
+            this.m_scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            s_logger.warn("Interrupted while waiting for pending unsubscriptions");
+            Thread.currentThread().interrupt();
         }
     }
 
     @Override
-    public synchronized KuraResponsePayload call(String appId, String appTopic, KuraPayload appPayload, int timeout)
+    public KuraResponsePayload call(String appId, String appTopic, KuraPayload appPayload, int timeout)
             throws KuraConnectException, KuraTimeoutException, KuraStoreException, KuraException {
         return call(CLIENT_ID_VAR_NAME, appId, appTopic, appPayload, timeout);
     }
 
     @Override
-    public synchronized KuraResponsePayload call(String deviceId, String appId, String appTopic, KuraPayload appPayload,
+    public KuraResponsePayload call(String deviceId, String appId, String appTopic, KuraPayload appPayload,
             int timeout) throws KuraConnectException, KuraTimeoutException, KuraStoreException, KuraException {
+        CompletableFuture<KuraResponsePayload> future = callAsync(deviceId, appId, appTopic, appPayload, timeout);
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof KuraException) {
+                throw (KuraException) cause;
+            }
+            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, cause, "Call failed");
+        } catch (CancellationException e) {
+            throw new KuraTimeoutException("Cancelled while waiting for the response");
+        } catch (InterruptedException e) {
+            // Avoid re-throwing this exception which should not normally happen
+            s_logger.warn("Interrupted while waiting for the response");
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new KuraTimeoutException("Interrupted while waiting for the response");
+        }
+    }
+
+    @Override
+    public CompletableFuture<KuraResponsePayload> callAsync(String appId, String appTopic, KuraPayload appPayload,
+            int timeout) {
+        return callAsync(CLIENT_ID_VAR_NAME, appId, appTopic, appPayload, timeout);
+    }
+
+    @Override
+    public CompletableFuture<KuraResponsePayload> callAsync(String deviceId, String appId, String appTopic,
+            KuraPayload appPayload, int timeout) {
         // Generate the request ID
         String requestId = s_generator.next();
 
@@ -102,7 +171,7 @@ public class CloudCallServiceImpl implements CloudCallService, DataServiceListen
                 .append(deviceId).append("/").append(appId).append("/").append(appTopic);
 
         StringBuilder sbRespTopic = new StringBuilder("$EDC").append("/").append(ACCOUNT_NAME_VAR_NAME).append("/")
-                .append(CLIENT_ID_VAR_NAME).append("/").append(appId).append("/").append("REPLY").append("/")
+                .append(CLIENT_ID_VAR_NAME).append("/").append(appId).append("/").append(REPLY_TOPIC_PREFIX)
                 .append(requestId);
 
         KuraRequestPayload req = null;
@@ -116,52 +185,91 @@ public class CloudCallServiceImpl implements CloudCallService, DataServiceListen
         req.setRequestId(requestId);
         req.setRequesterClientId(CLIENT_ID_VAR_NAME);
 
+        PendingCall pendingCall = new PendingCall(appId, sbRespTopic.toString());
+        CompletableFuture<KuraResponsePayload> future = pendingCall.future;
+
         CloudPayloadProtoBufEncoderImpl encoder = new CloudPayloadProtoBufEncoderImpl(req);
         byte[] rawPayload;
         try {
             rawPayload = encoder.getBytes();
         } catch (IOException e) {
-            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, e, "Cannot encode request");
+            future.completeExceptionally(new KuraException(KuraErrorCode.INTERNAL_ERROR, e, "Cannot encode request"));
+            return future;
         }
 
-        this.m_respTopic = sbRespTopic.toString();
-        this.m_resp = null;
-
-        this.m_dataService.subscribe(this.m_respTopic, 0);
+        try {
+            this.m_dataService.subscribe(pendingCall.respTopic, 0);
+        } catch (KuraException e) {
+            future.completeExceptionally(e);
+            return future;
+        }
 
-        synchronized (this.m_lock) {
-            try {
-                this.m_dataService.publish(sbReqTopic.toString(), rawPayload, DFLT_PUB_QOS, DFLT_RETAIN, DFLT_PRIORITY);
-                this.m_lock.wait(timeout);
-            } catch (KuraStoreException e) {
-                throw e;
-            } catch (InterruptedException e) {
-                // Avoid re-throwing this exception which should not normally happen
-                s_logger.warn("Interrupted while waiting for the response");
-                Thread.interrupted();
-            } finally {
-                try {
-                    this.m_dataService.unsubscribe(this.m_respTopic);
-                } catch (KuraException e) {
-                    s_logger.error("Cannot unsubscribe");
-                }
-                this.m_respTopic = null;
+        // register before publishing, the response can arrive before publish() returns
+        this.m_pendingCalls.put(requestId, pendingCall);
+        future.whenComplete((resp, error) -> release(requestId, pendingCall));
+
+        if (timeout > 0) {
+            pendingCall.timeoutTask = this.m_scheduler.schedule(
+                    () -> future.completeExceptionally(
+                            new KuraTimeoutException("Timed out while waiting for the response")),
+                    timeout, TimeUnit.MILLISECONDS);
+            if (future.isDone()) {
+                pendingCall.timeoutTask.cancel(false);
             }
         }
 
-        if (this.m_resp == null) {
-            throw new KuraTimeoutException("Timed out while waiting for the response");
+        try {
+            this.m_dataService.publish(sbReqTopic.toString(), rawPayload, DFLT_PUB_QOS, DFLT_RETAIN, DFLT_PRIORITY);
+        } catch (KuraException e) {
+            future.completeExceptionally(e);
         }
 
-        return this.m_resp;
+        return future;
     }
 
+    /**
+     * Cancels all the outstanding calls.
+     */
     public void cancel() {
-        synchronized (this.m_lock) {
-            notifyAll();
+        for (PendingCall pendingCall : new ArrayList<>(this.m_pendingCalls.values())) {
+            pendingCall.future.cancel(false);
         }
     }
 
+    private void release(String requestId, PendingCall pendingCall) {
+        this.m_pendingCalls.remove(requestId, pendingCall);
+
+        ScheduledFuture<?> timeoutTask = pendingCall.timeoutTask;
+        if (timeoutTask != null) {
+            timeoutTask.cancel(false);
+        }
+
+        // unsubscribing blocks until the broker acknowledges it, never do it on the caller or the listener thread
+        Runnable unsubscribe = () -> {
+            DataService dataService = this.m_dataService;
+            if (dataService == null) {
+                return;
+            }
+            try {
+                dataService.unsubscribe(pendingCall.respTopic);
+            } catch (KuraException e) {
+                s_logger.error("Cannot unsubscribe");
+            }
+        };
+        if (this.m_scheduler.isShutdown()) {
+            unsubscribe.run();
+        } else {
+            this.m_scheduler.execute(unsubscribe);
+        }
+    }
+
+    /**
+     * Returns the number of calls waiting for a response.
+     */
+    int getPendingCallCount() {
+        return this.m_pendingCalls.size();
+    }
+
     @Override
     public void onConnectionEstablished() {
         // Ignore
@@ -187,33 +295,34 @@ public class CloudCallServiceImpl implements CloudCallService, DataServiceListen
 
         s_logger.debug("Message arrived on topic: '{}'", topic);
 
-        if (this.m_respTopic != null) {
-            // Filter on application ID and topic
-            KuraTopic kuraTopic = new KuraTopic(topic);
-            KuraTopic kuraRespTopic = new KuraTopic(this.m_respTopic);
+        if (this.m_pendingCalls.isEmpty()) {
+            return;
+        }
 
-            if (kuraTopic.getApplicationId().equals(kuraRespTopic.getApplicationId())
-                    && kuraTopic.getApplicationTopic().equals(kuraRespTopic.getApplicationTopic())) {
+        // Filter on application ID and topic
+        KuraTopic kuraTopic = new KuraTopic(topic);
+        String applicationTopic = kuraTopic.getApplicationTopic();
+        if (applicationTopic == null || !applicationTopic.startsWith(REPLY_TOPIC_PREFIX)) {
+            return;
+        }
 
-                s_logger.debug("Got response");
+        String requestId = applicationTopic.substring(REPLY_TOPIC_PREFIX.length());
+        PendingCall pendingCall = this.m_pendingCalls.get(requestId);
+        if (pendingCall == null || !pendingCall.appId.equals(kuraTopic.getApplicationId())) {
+            return;
+        }
 
-                CloudPayloadProtoBufDecoderImpl decoder = new CloudPayloadProtoBufDecoderImpl(payload);
+        s_logger.debug("Got response for request {}", requestId);
 
-                KuraResponsePayload resp = null;
-                try {
-                    KuraPayload kuraPayload = decoder.buildFromByteArray();
-                    resp = new KuraResponsePayload(kuraPayload);
-                } catch (KuraInvalidMessageException e) {
-                    s_logger.error("Cannot decode protobuf", e);
-                } catch (IOException e) {
-                    s_logger.error("Cannot decode protobuf", e);
-                }
+        CloudPayloadProtoBufDecoderImpl decoder = new CloudPayloadProtoBufDecoderImpl(payload);
 
-                synchronized (this.m_lock) {
-                    this.m_resp = resp; // Can be null
-                    this.m_lock.notifyAll();
-                }
-            }
+        try {
+            KuraPayload kuraPayload = decoder.buildFromByteArray();
+            pendingCall.future.complete(new KuraResponsePayload(kuraPayload));
+        } catch (KuraInvalidMessageException | IOException e) {
+            s_logger.error("Cannot decode protobuf", e);
+            pendingCall.future
+                    .completeExceptionally(new KuraException(KuraErrorCode.DECODER_ERROR, e, "Cannot decode response"));
         }
     }
 
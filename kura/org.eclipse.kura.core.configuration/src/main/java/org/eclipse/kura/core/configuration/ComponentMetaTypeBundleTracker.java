@@ -12,10 +12,21 @@
  *******************************************************************************/
 package org.eclipse.kura.core.configuration;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.configuration.metatype.Designate;
 import org.eclipse.kura.configuration.metatype.OCD;
+import org.eclipse.kura.core.configuration.MetaTypeCache.ComponentOCD;
 import org.eclipse.kura.core.configuration.metatype.Tmetadata;
 import org.eclipse.kura.core.configuration.metatype.Tocd;
 import org.eclipse.kura.core.configuration.util.ComponentUtil;
@@ -30,19 +41,42 @@ import org.slf4j.LoggerFactory;
 /**
  * BundleTracker to track all the Service which have defaults in MetaType.
  * When the ConfigurableComponet is found it is then registered to the ConfigurationService.
+ * <p>
+ * The bundles already active when the tracker is opened have their MetaType parsed in parallel, the resulting
+ * OCDs are then registered to the ConfigurationService before {@link #open()} returns. Parsed OCDs are cached
+ * by {@link MetaTypeCache} so that bundles not modified since the previous start are not parsed again. The cache
+ * entries of the bundles added later, for example by a deployment package, are saved once the bundles stop changing
+ * and when the tracker is closed.
  */
 public class ComponentMetaTypeBundleTracker extends BundleTracker<Bundle> {
 
     private static final Logger s_logger = LoggerFactory.getLogger(ComponentMetaTypeBundleTracker.class);
 
+    private static final String CACHE_FILE_NAME = "metatype.cache";
+    private static final long CACHE_SAVE_DELAY = 5; // In seconds
+    private static final int PARSER_THREADS = Integer.getInteger("org.eclipse.kura.core.configuration.metatypeThreads",
+            Runtime.getRuntime().availableProcessors());
+
     private final BundleContext m_context;
     private final ConfigurationServiceImpl m_configurationService;
+    private final MetaTypeCache m_cache;
+
+    // bundles found while opening, guarded by itself; the executor is null once the tracker is open
+    private final Map<Bundle, Future<List<ComponentOCD>>> m_initialBundles = new LinkedHashMap<>();
+    private ExecutorService m_executor;
+
+    private final AtomicInteger m_cacheHits = new AtomicInteger();
+
+    // saves the cache after the bundles added while the tracker is open, guarded by this
+    private ScheduledExecutorService m_saveExecutor;
+    private Future<?> m_pendingSave;
 
     public ComponentMetaTypeBundleTracker(BundleContext context, ConfigurationServiceImpl configurationService)
             throws InvalidSyntaxException {
         super(context, Bundle.ACTIVE, null);
         this.m_context = context;
         this.m_configurationService = configurationService;
+        this.m_cache = new MetaTypeCache(context.getDataFile(CACHE_FILE_NAME));
     }
 
     // ----------------------------------------------------------------
@@ -51,11 +85,98 @@ public class ComponentMetaTypeBundleTracker extends BundleTracker<Bundle> {
     //
     // ----------------------------------------------------------------
 
+    @Override
+    public void open() {
+        final long start = System.nanoTime();
+        this.m_cache.load();
+        this.m_cacheHits.set(0);
+
+        synchronized (this.m_initialBundles) {
+            this.m_executor = Executors.newFixedThreadPool(Math.max(PARSER_THREADS, 1),
+                    new ThreadFactory("MetaTypeParser-"));
+        }
+        synchronized (this) {
+            this.m_saveExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory("MetaTypeCacheSaver-"));
+        }
+
+        final ExecutorService executor;
+        final Map<Bundle, Future<List<ComponentOCD>>> initialBundles;
+        try {
+            super.open();
+        } finally {
+            synchronized (this.m_initialBundles) {
+                executor = this.m_executor;
+                initialBundles = new LinkedHashMap<>(this.m_initialBundles);
+                this.m_executor = null;
+                this.m_initialBundles.clear();
+            }
+            executor.shutdown();
+        }
+
+        final long parseStart = System.nanoTime();
+        final List<List<ComponentOCD>> results = new ArrayList<>(initialBundles.size());
+        for (Map.Entry<Bundle, Future<List<ComponentOCD>>> entry : initialBundles.entrySet()) {
+            try {
+                results.add(entry.getValue().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                s_logger.error("Error processing MetaType for bundle: " + entry.getKey().getSymbolicName(),
+                        e.getCause());
+            }
+        }
+
+        final long registerStart = System.nanoTime();
+        for (List<ComponentOCD> ocds : results) {
+            this.m_configurationService.registerComponentOCDs(ocds);
+        }
+
+        final long saveStart = System.nanoTime();
+        final List<Long> bundleIds = new ArrayList<>();
+        for (Bundle bundle : this.m_context.getBundles()) {
+            bundleIds.add(bundle.getBundleId());
+        }
+        this.m_cache.retain(bundleIds);
+        this.m_cache.save();
+        final long end = System.nanoTime();
+
+        s_logger.info(
+                "Processed MetaType of {} bundles ({} from cache) in {} ms: tracking {} ms, parsing {} ms, registration {} ms, cache {} ms",
+                initialBundles.size(), this.m_cacheHits.get(), toMillis(end - start), toMillis(parseStart - start),
+                toMillis(registerStart - parseStart), toMillis(saveStart - registerStart),
+                toMillis(end - saveStart));
+    }
+
+    @Override
+    public void close() {
+        super.close();
+
+        final ScheduledExecutorService saveExecutor;
+        synchronized (this) {
+            saveExecutor = this.m_saveExecutor;
+            this.m_saveExecutor = null;
+            this.m_pendingSave = null;
+        }
+        if (saveExecutor != null) {
+            saveExecutor.shutdownNow();
+            this.m_cache.save();
+        }
+    }
+
     @Override
     public Bundle addingBundle(Bundle bundle, BundleEvent event) {
         Bundle bnd = super.addingBundle(bundle, event);
+        synchronized (this.m_initialBundles) {
+            if (this.m_executor != null) {
+                this.m_initialBundles.put(bundle, this.m_executor.submit(() -> processBundleMetaType(bundle)));
+                return bnd;
+            }
+        }
+
         s_logger.debug("addingBundle(): processing MetaType for bundle: {}...", bundle.getSymbolicName());
-        processBundleMetaType(bundle);
+        this.m_configurationService.registerComponentOCDs(processBundleMetaType(bundle));
+        scheduleCacheSave();
         s_logger.debug("addingBundle(): processed MetaType for bundle: {}", bundle.getSymbolicName());
         return bnd;
     }
@@ -66,7 +187,7 @@ public class ComponentMetaTypeBundleTracker extends BundleTracker<Bundle> {
     //
     // ----------------------------------------------------------------
 
-    private void processBundleMetaType(Bundle bundle) {
+    private List<ComponentOCD> processBundleMetaType(Bundle bundle) {
         // Push the latest configuration merging the properties in ConfigAdmin
         // with the default properties read from the component's meta-type.
         // This allows components to incrementally add new configuration
@@ -76,7 +197,17 @@ public class ComponentMetaTypeBundleTracker extends BundleTracker<Bundle> {
         // Note: configuration properties in snapshots no longer present in
         // the meta-type are not purged.
 
-        Map<String, Tmetadata> metas = ComponentUtil.getMetadata(this.m_context, bundle);
+        final long bundleId = bundle.getBundleId();
+        final long lastModified = bundle.getLastModified();
+        List<ComponentOCD> ocds = this.m_cache.get(bundleId, lastModified);
+        if (ocds != null) {
+            this.m_cacheHits.incrementAndGet();
+            return ocds;
+        }
+
+        ocds = new ArrayList<>();
+        List<String> failedPids = new ArrayList<>();
+        Map<String, Tmetadata> metas = ComponentUtil.getMetadata(this.m_context, bundle, failedPids);
         for (String metatypePid : metas.keySet()) {
             try {
 
@@ -93,11 +224,55 @@ public class ComponentMetaTypeBundleTracker extends BundleTracker<Bundle> {
 
                     // register the pid with the OCD and whether it is a factory
                     OCD ocd = ComponentUtil.getOCD(metadata, metatypePid);
-                    this.m_configurationService.registerComponentOCD(metatypePid, (Tocd) ocd, isFactory);
+                    ocds.add(new ComponentOCD(metatypePid, (Tocd) ocd, isFactory));
                 }
             } catch (Exception e) {
+                failedPids.add(metatypePid);
                 s_logger.error("Error seeding configuration for pid: " + metatypePid, e);
             }
         }
+
+        // do not cache incomplete results, the errors will be reported again on the next start
+        if (failedPids.isEmpty()) {
+            this.m_cache.put(bundleId, lastModified, ocds);
+        } else {
+            this.m_cache.remove(bundleId);
+        }
+        return ocds;
+    }
+
+    /**
+     * Saves the cache once no bundle has been added for {@link #CACHE_SAVE_DELAY} seconds, rather than rewriting it
+     * for each bundle.
+     */
+    private synchronized void scheduleCacheSave() {
+        if (this.m_saveExecutor == null) {
+            return;
+        }
+        if (this.m_pendingSave != null) {
+            this.m_pendingSave.cancel(false);
+        }
+        this.m_pendingSave = this.m_saveExecutor.schedule(this.m_cache::save, CACHE_SAVE_DELAY, TimeUnit.SECONDS);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    private static final class ThreadFactory implements java.util.concurrent.ThreadFactory {
+
+        private final String namePrefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        ThreadFactory(String namePrefix) {
+            this.namePrefix = namePrefix;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, this.namePrefix + this.count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
     }
 }
@@ -15,11 +15,15 @@ package org.eclipse.kura.core.configuration;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -33,7 +37,9 @@ import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -90,6 +96,9 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
     private static final boolean TRACK_ONLY_RELEVANT_SERVICES = !Boolean
             .getBoolean("org.eclipse.kura.core.configuration.legacyServiceTracking");
 
+    private static final int MAX_SNAPSHOT_JOURNAL_LENGTH = Integer
+            .getInteger("org.eclipse.kura.core.configuration.snapshotJournalLength", 16);
+
     private interface ServiceHandler {
 
         void add(String servicePid, String kuraPid, String factoryPid);
@@ -160,6 +169,19 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
     // maps the kura.service.pid to the associated service.pid
     private final Map<String, String> servicePidByPid;
 
+    // configurations of the latest snapshot, with encrypted passwords, or null if not yet loaded
+    private List<ComponentConfiguration> latestSnapshotConfigs;
+
+    // the full snapshot whose journal receives the next snapshot deltas, or null if the next snapshot must be full
+    private Long journalBaseId;
+    private int journalLength;
+
+    // ids of the snapshots, mapped to the id of the full snapshot they are recorded in, guarded by snapshotIndexLock.
+    // Loaded from the snapshots directory on first use, then kept up to date when snapshots are saved and deleted.
+    private final Object snapshotIndexLock = new Object();
+    private TreeMap<Long, Long> snapshotIndex;
+    private File snapshotIndexDirectory;
+
     // ----------------------------------------------------------------
     //
     // Dependencies
@@ -230,11 +252,13 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         this.bundleContext = componentContext.getBundleContext();
 
         // Load the latest snapshot and push it to ConfigurationAdmin
+        final long start = System.nanoTime();
         try {
             loadLatestSnapshotInConfigAdmin();
         } catch (Exception e) {
             throw new ComponentException("Error loading latest snapshot", e);
         }
+        logger.info("Latest snapshot loaded in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
 
         //
         // start the trackers
@@ -255,6 +279,8 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
 
         this.bundleTracker = new ComponentMetaTypeBundleTracker(this.ctx.getBundleContext(), this);
         this.bundleTracker.open();
+
+        logger.info("activate...done in {} ms", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
     }
 
     private <T> ServiceTracker<T, T> createTracker(final Class<T> clazz, final ServiceHandler handler) {
@@ -666,6 +692,19 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         }
     }
 
+    /**
+     * Registers the OCDs of a bundle holding the lock only once.
+     */
+    synchronized void registerComponentOCDs(List<MetaTypeCache.ComponentOCD> componentOcds) {
+        for (MetaTypeCache.ComponentOCD componentOcd : componentOcds) {
+            try {
+                registerComponentOCD(componentOcd.getPid(), componentOcd.getOcd(), componentOcd.isFactory());
+            } catch (Exception e) {
+                logger.error("Error seeding configuration for pid: " + componentOcd.getPid(), e);
+            }
+        }
+    }
+
     synchronized void registerComponentConfiguration(final String pid, final String servicePid,
             final String factoryPid) {
         if (pid == null || servicePid == null) {
@@ -1039,11 +1078,6 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
     }
 
     private synchronized long saveSnapshot(List<ComponentConfiguration> configs) throws KuraException {
-        // Build the XML structure
-        XmlComponentConfigurations conf = new XmlComponentConfigurations();
-        conf.setConfigurations(configs);
-
-        // Write it to disk: marshall
         long sid = new Date().getTime();
 
         // Do not save the snapshot in the past
@@ -1058,8 +1092,23 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             }
         }
 
-        // Write snapshot
-        writeSnapshot(sid, conf);
+        List<ComponentConfiguration> delta = getSnapshotDelta(configs);
+        if (delta != null) {
+            // Record only the changed configurations
+            appendSnapshotDelta(sid, delta);
+            this.journalLength++;
+            addToSnapshotIndex(sid, this.journalBaseId);
+        } else {
+            // Build the XML structure and write a full snapshot, the journal restarts from it
+            XmlComponentConfigurations conf = new XmlComponentConfigurations();
+            conf.setConfigurations(configs);
+
+            writeSnapshot(sid, conf);
+            this.journalBaseId = sid;
+            this.journalLength = 0;
+            addToSnapshotIndex(sid, sid);
+        }
+        this.latestSnapshotConfigs = configs != null ? copyConfigurations(configs) : null;
 
         this.pendingDeletePids.clear();
 
@@ -1068,6 +1117,53 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         return sid;
     }
 
+    private List<ComponentConfiguration> getSnapshotDelta(List<ComponentConfiguration> configs) {
+        if (this.journalBaseId == null || this.latestSnapshotConfigs == null || configs == null) {
+            return null;
+        }
+
+        // keep room for the previous base and its journal within the configured number of snapshots
+        int maxJournalLength = Math.min(MAX_SNAPSHOT_JOURNAL_LENGTH,
+                (this.systemService.getKuraSnapshotsCount() - 1) / 2);
+        if (this.journalLength >= maxJournalLength) {
+            return null;
+        }
+
+        // removed components cannot be recorded, and large deltas cost as much as a full snapshot
+        List<ComponentConfiguration> delta = SnapshotJournal.delta(this.latestSnapshotConfigs, configs);
+        if (delta == null || delta.size() * 2 > configs.size()) {
+            return null;
+        }
+        return delta;
+    }
+
+    private void appendSnapshotDelta(long sid, List<ComponentConfiguration> delta) throws KuraException {
+        File fJournal = getSnapshotJournalFile(this.journalBaseId);
+        if (fJournal == null) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_SNAPSHOT_NOT_FOUND);
+        }
+
+        XmlComponentConfigurations conf = new XmlComponentConfigurations();
+        conf.setConfigurations(delta);
+
+        String xmlResult = marshal(conf);
+        if (xmlResult == null || xmlResult.trim().isEmpty()) {
+            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, conf);
+        }
+
+        char[] encryptedXML = this.cryptoService.encryptAes(xmlResult.toCharArray());
+
+        try {
+            logger.info("Writing snapshot - Appending {} changed configurations to {}...", delta.size(),
+                    fJournal.getAbsolutePath());
+            SnapshotJournal.append(fJournal, sid, encryptedXML);
+            logger.info("Writing snapshot - Appending {} changed configurations to {}... Done.", delta.size(),
+                    fJournal.getAbsolutePath());
+        } catch (IOException e) {
+            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, e);
+        }
+    }
+
     private void writeSnapshot(long sid, XmlComponentConfigurations conf) throws KuraException {
         File fSnapshot = getSnapshotFile(sid);
         if (fSnapshot == null) {
@@ -1095,7 +1191,7 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             logger.info("Writing snapshot - Saving {}...", fSnapshot.getAbsolutePath());
             fos = new FileOutputStream(fSnapshot);
             osw = new OutputStreamWriter(fos, "UTF-8");
-            osw.append(new String(encryptedXML));
+            osw.write(encryptedXML);
             osw.flush();
             fos.flush();
             fos.getFD().sync();
@@ -1244,18 +1340,67 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
 
     private TreeSet<Long> getSnapshotsInternal() {
         // keeps the list of snapshots ordered
-        TreeSet<Long> ids = new TreeSet<>();
+        synchronized (this.snapshotIndexLock) {
+            return new TreeSet<>(getSnapshotIndex().keySet());
+        }
+    }
+
+    // must be called holding snapshotIndexLock
+    private TreeMap<Long, Long> getSnapshotIndex() {
         String configDir = getSnapshotsDirectory();
-        if (configDir != null) {
-            File fConfigDir = new File(configDir);
-            File[] files = fConfigDir.listFiles();
-            if (files != null) {
-
-                Pattern p = Pattern.compile("snapshot_([0-9]+)\\.xml");
-                for (File file : files) {
-                    Matcher m = p.matcher(file.getName());
-                    if (m.matches()) {
-                        ids.add(Long.parseLong(m.group(1)));
+        if (configDir == null) {
+            return new TreeMap<>();
+        }
+        return getSnapshotIndex(new File(configDir).getAbsoluteFile());
+    }
+
+    // must be called holding snapshotIndexLock
+    private TreeMap<Long, Long> getSnapshotIndex(File fConfigDir) {
+        if (this.snapshotIndex == null || !fConfigDir.equals(this.snapshotIndexDirectory)) {
+            this.snapshotIndex = loadSnapshotIndex(fConfigDir);
+            this.snapshotIndexDirectory = fConfigDir;
+        }
+        return this.snapshotIndex;
+    }
+
+    private void addToSnapshotIndex(long sid, long baseId) {
+        synchronized (this.snapshotIndexLock) {
+            getSnapshotIndex().put(sid, baseId);
+        }
+    }
+
+    private static TreeMap<Long, Long> loadSnapshotIndex(File fConfigDir) {
+        TreeMap<Long, Long> index = new TreeMap<>();
+        Map<Long, File> journals = new HashMap<>();
+        for (Long id : listFullSnapshots(fConfigDir, journals)) {
+            index.put(id, id);
+        }
+        for (Entry<Long, File> journal : journals.entrySet()) {
+            // a journal without its full snapshot cannot be replayed
+            if (index.containsKey(journal.getKey())) {
+                for (Long id : readJournaledSnapshotIds(journal.getValue())) {
+                    index.putIfAbsent(id, journal.getKey());
+                }
+            }
+        }
+        return index;
+    }
+
+    // returns the ids of the full snapshots and collects the journal files, by full snapshot id
+    private static TreeSet<Long> listFullSnapshots(File fConfigDir, Map<Long, File> journals) {
+        TreeSet<Long> ids = new TreeSet<>();
+        File[] files = fConfigDir.listFiles();
+        if (files != null) {
+
+            Pattern p = Pattern.compile("snapshot_([0-9]+)\\.(xml|journal)");
+            for (File file : files) {
+                Matcher m = p.matcher(file.getName());
+                if (m.matches()) {
+                    long id = Long.parseLong(m.group(1));
+                    if ("xml".equals(m.group(2))) {
+                        ids.add(id);
+                    } else {
+                        journals.put(id, file);
                     }
                 }
             }
@@ -1263,6 +1408,15 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         return ids;
     }
 
+    private static Set<Long> readJournaledSnapshotIds(File fJournal) {
+        try {
+            return SnapshotJournal.read(fJournal).keySet();
+        } catch (IOException e) {
+            logger.warn("Error loading file from disk", e);
+            return Collections.emptySet();
+        }
+    }
+
     String getSnapshotsDirectory() {
         return this.systemService.getKuraSnapshotsDirectory();
     }
@@ -1281,29 +1435,60 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
         return new File(snapshot);
     }
 
+    private File getSnapshotJournalFile(long baseId) {
+        String configDir = getSnapshotsDirectory();
+
+        if (configDir == null) {
+            return null;
+        }
+
+        return getSnapshotJournalFile(new File(configDir), baseId);
+    }
+
+    private static File getSnapshotJournalFile(File fConfigDir, long baseId) {
+        return new File(fConfigDir, "snapshot_" + baseId + ".journal");
+    }
+
     private void garbageCollectionOldSnapshots() {
-        // get the current snapshots and compared with the maximum number we
-        // need to keep
-        TreeSet<Long> sids = getSnapshotsInternal();
-
-        int currCount = sids.size();
-        int maxCount = this.systemService.getKuraSnapshotsCount();
-        while (currCount > maxCount && !sids.isEmpty()) { // stop if count reached or no more snapshots remain
-
-            // preserve snapshot ID 0 as this will be considered the seeding
-            // one.
-            long sid = sids.pollFirst();
-            if (sid != 0) {
+        synchronized (this.snapshotIndexLock) {
+            // get the current snapshots and compared with the maximum number we
+            // need to keep
+            TreeMap<Long, Long> index = getSnapshotIndex();
+            TreeSet<Long> sids = new TreeSet<>(index.keySet());
+
+            int maxCount = this.systemService.getKuraSnapshotsCount();
+            while (index.size() > maxCount && !sids.isEmpty()) { // stop if count reached or no more snapshots remain
+
+                // preserve snapshot ID 0 as this will be considered the seeding
+                // one. The journaled snapshots are deleted with their full snapshot.
+                long sid = sids.pollFirst();
+                if (sid == 0 || !index.containsKey(sid) || index.get(sid) != sid) {
+                    continue;
+                }
                 File fSnapshot = getSnapshotFile(sid);
                 if (fSnapshot != null && fSnapshot.exists()) {
                     logger.info("Snapshots Garbage Collector. Deleting {}", fSnapshot.getAbsolutePath());
                     fSnapshot.delete();
-                    currCount--;
+                    deleteSnapshotJournal(fSnapshot.getAbsoluteFile().getParentFile(), sid);
                 }
+                index.values().removeIf(baseId -> baseId == sid);
             }
         }
     }
 
+    private void deleteSnapshotJournal(File fConfigDir, long baseId) {
+        if (this.journalBaseId != null && this.journalBaseId == baseId) {
+            this.journalBaseId = null;
+            this.latestSnapshotConfigs = null;
+        }
+
+        File fJournal = getSnapshotJournalFile(fConfigDir, baseId);
+        if (fJournal.exists()) {
+            logger.info("Snapshots Garbage Collector. Deleting {}", fJournal.getAbsolutePath());
+            fJournal.delete();
+        }
+    }
+
     private void loadLatestSnapshotInConfigAdmin() throws KuraException {
         //
         // save away initial configuration
@@ -1352,6 +1537,10 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
     }
 
     private List<ComponentConfiguration> loadLatestSnapshotConfigurations() throws KuraException {
+        if (this.latestSnapshotConfigs != null) {
+            return copyConfigurations(this.latestSnapshotConfigs);
+        }
+
         //
         // Get the latest snapshot file to use as initialization
         Set<Long> snapshotIDs = getSnapshots();
@@ -1384,45 +1573,130 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             }
         }
 
+        if (configs != null) {
+            this.latestSnapshotConfigs = copyConfigurations(configs);
+        }
         return configs;
     }
 
+    // copies the configurations and their properties, so that the cached ones are not modified by the callers
+    private static List<ComponentConfiguration> copyConfigurations(List<ComponentConfiguration> configs) {
+        List<ComponentConfiguration> copy = new ArrayList<>(configs.size());
+        for (ComponentConfiguration config : configs) {
+            if (config == null) {
+                copy.add(null);
+                continue;
+            }
+            Map<String, Object> props = config.getConfigurationProperties();
+            Map<String, Object> propsCopy = null;
+            if (props != null) {
+                propsCopy = new HashMap<>(props);
+                for (Entry<String, Object> entry : propsCopy.entrySet()) {
+                    if (entry.getValue() instanceof Object[]) {
+                        entry.setValue(((Object[]) entry.getValue()).clone());
+                    }
+                }
+            }
+            OCD definition = config.getDefinition();
+            copy.add(new ComponentConfigurationImpl(config.getPid(),
+                    definition instanceof Tocd ? (Tocd) definition : null, propsCopy));
+        }
+        return copy;
+    }
+
     XmlComponentConfigurations loadEncryptedSnapshotFileContent(long snapshotID) throws KuraException {
         File fSnapshot = getSnapshotFile(snapshotID);
+        if (fSnapshot != null && !fSnapshot.exists()) {
+            XmlComponentConfigurations xmlConfigs = loadJournaledSnapshot(fSnapshot.getAbsoluteFile().getParentFile(),
+                    snapshotID);
+            if (xmlConfigs != null) {
+                return ConfigurationUpgrade.upgrade(xmlConfigs, this.bundleContext);
+            }
+        }
         if (fSnapshot == null || !fSnapshot.exists()) {
             throw new KuraException(KuraErrorCode.CONFIGURATION_SNAPSHOT_NOT_FOUND, fSnapshot.getAbsolutePath());
         }
 
-        FileReader fr = null;
-        BufferedReader br = null;
-        StringBuilder entireFile = new StringBuilder();
+        return ConfigurationUpgrade.upgrade(readEncryptedSnapshotFile(fSnapshot), this.bundleContext);
+    }
+
+    private XmlComponentConfigurations loadJournaledSnapshot(File fConfigDir, long snapshotID)
+            throws KuraException {
+        Long baseId;
+        synchronized (this.snapshotIndexLock) {
+            baseId = getSnapshotIndex(fConfigDir).get(snapshotID);
+        }
+        if (baseId == null || baseId == snapshotID) {
+            return null;
+        }
+        File fJournal = getSnapshotJournalFile(fConfigDir, baseId);
+
+        TreeMap<Long, String> records;
         try {
-            fr = new FileReader(fSnapshot);
-            br = new BufferedReader(fr);
-            String line = "";
-            while ((line = br.readLine()) != null) {
-                entireFile.append(line);
-            }
+            records = SnapshotJournal.read(fJournal);
         } catch (IOException e) {
             logger.error("Error loading file from disk", e);
             return null;
-        } finally {
-            try {
-                if (br != null) {
-                    br.close();
-                }
-            } catch (IOException e) {
+        }
+        if (!records.containsKey(snapshotID)) {
+            return null;
+        }
+
+        logger.info("Loading snapshot {} from the journal of snapshot {}...", snapshotID, baseId);
+        XmlComponentConfigurations xmlConfigs = readEncryptedSnapshotFile(
+                new File(fConfigDir, "snapshot_" + baseId + ".xml"));
+        if (xmlConfigs == null || xmlConfigs.getConfigurations() == null) {
+            return null;
+        }
+
+        // replay the deltas up to the requested snapshot
+        List<ComponentConfiguration> configs = xmlConfigs.getConfigurations();
+        for (String record : records.headMap(snapshotID, true).values()) {
+            XmlComponentConfigurations delta = decryptSnapshotContent(record.toCharArray());
+            if (delta == null) {
+                throw new KuraException(KuraErrorCode.DECODER_ERROR, fJournal.getAbsolutePath());
             }
-            try {
-                if (fr != null) {
-                    fr.close();
-                }
-            } catch (IOException e) {
+            if (delta.getConfigurations() != null) {
+                configs = SnapshotJournal.apply(configs, delta.getConfigurations());
             }
         }
+        xmlConfigs.setConfigurations(configs);
+        return xmlConfigs;
+    }
+
+    private XmlComponentConfigurations readEncryptedSnapshotFile(File fSnapshot) throws KuraException {
+        char[] entireFile;
+        try (Reader reader = new InputStreamReader(new FileInputStream(fSnapshot), StandardCharsets.UTF_8)) {
+            entireFile = readSnapshotContent(reader, (int) fSnapshot.length());
+        } catch (IOException e) {
+            logger.error("Error loading file from disk", e);
+            return null;
+        }
 
         // File loaded, try to decrypt and unmarshall
-        char[] decryptAes = this.cryptoService.decryptAes(entireFile.toString().toCharArray());
+        return decryptSnapshotContent(entireFile);
+    }
+
+    // reads the whole content in a single buffer, sized on the file length. The content is written on a single line,
+    // only the line breaks at its end, added for example when the file is edited, are dropped.
+    private static char[] readSnapshotContent(Reader reader, int expectedLength) throws IOException {
+        char[] buffer = new char[Math.max(expectedLength, 1024)];
+        int length = 0;
+        int read;
+        while ((read = reader.read(buffer, length, buffer.length - length)) != -1) {
+            length += read;
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+        }
+        while (length > 0 && (buffer[length - 1] == '\r' || buffer[length - 1] == '\n')) {
+            length--;
+        }
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private XmlComponentConfigurations decryptSnapshotContent(char[] encryptedContent) throws KuraException {
+        char[] decryptAes = this.cryptoService.decryptAes(encryptedContent);
         if (decryptAes == null) {
             throw new KuraException(KuraErrorCode.DECODER_ERROR);
         }
@@ -1436,7 +1710,7 @@ public class ConfigurationServiceImpl implements ConfigurationService, OCDServic
             logger.warn("Error parsing xml", e);
         }
 
-        return ConfigurationUpgrade.upgrade(xmlConfigs, this.bundleContext);
+        return xmlConfigs;
     }
 
     private void updateConfigurationInternal(String pid, Map<String, Object> properties, boolean snapshotOnConfirmation)
@@ -0,0 +1,341 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.configuration;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.eclipse.kura.configuration.metatype.AD;
+import org.eclipse.kura.configuration.metatype.Icon;
+import org.eclipse.kura.configuration.metatype.Option;
+import org.eclipse.kura.core.configuration.metatype.Tad;
+import org.eclipse.kura.core.configuration.metatype.Ticon;
+import org.eclipse.kura.core.configuration.metatype.Tocd;
+import org.eclipse.kura.core.configuration.metatype.Toption;
+import org.eclipse.kura.core.configuration.metatype.Tscalar;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Binary cache of the Object Class Definitions parsed from the MetaType of the installed bundles.
+ * <p>
+ * Entries are keyed by bundle id and valid as long as the last modified time of the bundle does not change, so
+ * that bundles which have not been installed or updated since the previous start do not need their MetaType to be
+ * parsed again. Each bundle is encoded when added and decoded only when requested; a missing, outdated or corrupted
+ * cache file simply results in an empty cache.
+ */
+final class MetaTypeCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetaTypeCache.class);
+
+    private static final int MAGIC = 0x4b4d5443;
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * The Object Class Definition registered for a MetaType pid.
+     */
+    static final class ComponentOCD {
+
+        private final String pid;
+        private final Tocd ocd;
+        private final boolean isFactory;
+
+        ComponentOCD(String pid, Tocd ocd, boolean isFactory) {
+            this.pid = pid;
+            this.ocd = ocd;
+            this.isFactory = isFactory;
+        }
+
+        String getPid() {
+            return this.pid;
+        }
+
+        Tocd getOcd() {
+            return this.ocd;
+        }
+
+        boolean isFactory() {
+            return this.isFactory;
+        }
+    }
+
+    private static final class Entry {
+
+        private final long lastModified;
+        private final byte[] content;
+
+        private Entry(long lastModified, byte[] content) {
+            this.lastModified = lastModified;
+            this.content = content;
+        }
+    }
+
+    private final File file;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    /**
+     * @param file
+     *            the file backing the cache, if null nothing is loaded or saved
+     */
+    MetaTypeCache(File file) {
+        this.file = file;
+    }
+
+    void load() {
+        this.entries.clear();
+        this.dirty = false;
+        if (this.file == null || !this.file.isFile()) {
+            return;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                logger.info("Ignoring MetaType cache {} with unknown format", this.file);
+                return;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                long bundleId = in.readLong();
+                long lastModified = in.readLong();
+                byte[] content = new byte[in.readInt()];
+                in.readFully(content);
+                this.entries.put(bundleId, new Entry(lastModified, content));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Error loading MetaType cache {}, ignoring it", this.file, e);
+            this.entries.clear();
+        }
+    }
+
+    /**
+     * @return the cached definitions of the bundle, or null if the bundle is not cached, has been modified or its
+     *         entry cannot be decoded
+     */
+    List<ComponentOCD> get(long bundleId, long lastModified) {
+        Entry entry = this.entries.get(bundleId);
+        if (entry == null || entry.lastModified != lastModified) {
+            return null;
+        }
+        try {
+            return decode(entry.content);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Error decoding cached MetaType of bundle {}", bundleId, e);
+            remove(bundleId);
+            return null;
+        }
+    }
+
+    void put(long bundleId, long lastModified, List<ComponentOCD> ocds) {
+        try {
+            this.entries.put(bundleId, new Entry(lastModified, encode(ocds)));
+        } catch (IOException | RuntimeException e) {
+            logger.debug("MetaType of bundle {} cannot be cached", bundleId, e);
+            this.entries.remove(bundleId);
+        }
+        this.dirty = true;
+    }
+
+    void remove(long bundleId) {
+        if (this.entries.remove(bundleId) != null) {
+            this.dirty = true;
+        }
+    }
+
+    /**
+     * Drops the entries of the bundles not in {@code bundleIds}.
+     */
+    void retain(Collection<Long> bundleIds) {
+        if (this.entries.keySet().retainAll(bundleIds)) {
+            this.dirty = true;
+        }
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * Writes the cache file if the cache has been modified since it was last loaded or saved.
+     */
+    synchronized void save() {
+        if (this.file == null || !this.dirty) {
+            return;
+        }
+        this.dirty = false;
+
+        File tmpFile = new File(this.file.getPath() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                Map<Long, Entry> current = new HashMap<>(this.entries);
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeInt(current.size());
+                for (Map.Entry<Long, Entry> entry : current.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeLong(entry.getValue().lastModified);
+                    out.writeInt(entry.getValue().content.length);
+                    out.write(entry.getValue().content);
+                }
+            }
+            Files.move(tmpFile.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            logger.warn("Error saving MetaType cache {}", this.file, e);
+            tmpFile.delete();
+        }
+    }
+
+    // ----------------------------------------------------------------
+    //
+    // Encoding
+    //
+    // ----------------------------------------------------------------
+
+    private static byte[] encode(List<ComponentOCD> ocds) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(ocds.size());
+            for (ComponentOCD componentOcd : ocds) {
+                writeString(out, componentOcd.getPid());
+                out.writeBoolean(componentOcd.isFactory());
+                writeOcd(out, componentOcd.getOcd());
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<ComponentOCD> decode(byte[] content) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(content));
+        int count = in.readInt();
+        List<ComponentOCD> ocds = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String pid = readString(in);
+            boolean isFactory = in.readBoolean();
+            ocds.add(new ComponentOCD(pid, readOcd(in), isFactory));
+        }
+        return ocds;
+    }
+
+    private static void writeOcd(DataOutputStream out, Tocd ocd) throws IOException {
+        writeString(out, ocd.getId());
+        writeString(out, ocd.getName());
+        writeString(out, ocd.getDescription());
+
+        List<Icon> icons = ocd.getIcon();
+        out.writeInt(icons.size());
+        for (Icon icon : icons) {
+            writeString(out, icon.getResource());
+            writeString(out, icon.getSize() != null ? icon.getSize().toString() : null);
+        }
+
+        List<AD> ads = ocd.getAD();
+        out.writeInt(ads.size());
+        for (AD ad : ads) {
+            writeString(out, ad.getId());
+            writeString(out, ad.getName());
+            writeString(out, ad.getDescription());
+            writeString(out, ad.getType().name());
+            out.writeInt(ad.getCardinality());
+            writeString(out, ad.getMin());
+            writeString(out, ad.getMax());
+            writeString(out, ad.getDefault());
+            out.writeBoolean(ad.isRequired());
+
+            List<Option> options = ad.getOption();
+            out.writeInt(options.size());
+            for (Option option : options) {
+                writeString(out, option.getLabel());
+                writeString(out, option.getValue());
+            }
+        }
+    }
+
+    private static Tocd readOcd(DataInputStream in) throws IOException {
+        Tocd ocd = new Tocd();
+        ocd.setId(readString(in));
+        ocd.setName(readString(in));
+        ocd.setDescription(readString(in));
+
+        int iconCount = in.readInt();
+        for (int i = 0; i < iconCount; i++) {
+            Ticon icon = new Ticon();
+            icon.setResource(readString(in));
+            String size = readString(in);
+            icon.setSize(size != null ? new BigInteger(size) : null);
+            ocd.setIcon(icon);
+        }
+
+        int adCount = in.readInt();
+        for (int i = 0; i < adCount; i++) {
+            Tad ad = new Tad();
+            ad.setId(readString(in));
+            ad.setName(readString(in));
+            ad.setDescription(readString(in));
+            ad.setType(Tscalar.valueOf(readString(in)));
+            ad.setCardinality(in.readInt());
+            ad.setMin(readString(in));
+            ad.setMax(readString(in));
+            ad.setDefault(readString(in));
+            ad.setRequired(in.readBoolean());
+
+            int optionCount = in.readInt();
+            for (int j = 0; j < optionCount; j++) {
+                Toption option = new Toption();
+                option.setLabel(readString(in));
+                option.setValue(readString(in));
+                ad.setOption(option);
+            }
+            ocd.addAD(ad);
+        }
+        return ocd;
+    }
+
+    // writeUTF() is limited to 64 KiB, long descriptions are not unusual
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.configuration;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+import org.eclipse.kura.configuration.ComponentConfiguration;
+import org.eclipse.kura.configuration.Password;
+
+/**
+ * Append-only journal of snapshot deltas.
+ * <p>
+ * A journal belongs to a full snapshot, the base, and is stored next to it as {@code snapshot_<base>.journal}.
+ * Every record holds the id of the snapshot it represents and the configurations of the components that changed
+ * since the previous record, already marshalled and encrypted. The snapshot with a given id is obtained loading
+ * the base and replacing, record after record, the configurations with the same pid.
+ * <p>
+ * Records are written on a single line as {@code <id>:<content>} followed by a newline, with the backslashes and
+ * the line breaks of the content escaped as {@code \\}, {@code \n} and {@code \r}. A record missing its newline has
+ * been interrupted while being written and is ignored.
+ */
+final class SnapshotJournal {
+
+    private static final char SEPARATOR = ':';
+    private static final char END_OF_RECORD = '\n';
+    private static final char ESCAPE = '\\';
+
+    private SnapshotJournal() {
+    }
+
+    static void append(File journal, long sid, char[] content) throws IOException {
+        StringBuilder record = new StringBuilder(content.length + 21);
+        record.append(sid).append(SEPARATOR);
+        for (char c : content) {
+            if (c == ESCAPE) {
+                record.append(ESCAPE).append(ESCAPE);
+            } else if (c == END_OF_RECORD) {
+                record.append(ESCAPE).append('n');
+            } else if (c == '\r') {
+                record.append(ESCAPE).append('r');
+            } else {
+                record.append(c);
+            }
+        }
+        record.append(END_OF_RECORD);
+
+        try (FileOutputStream fos = new FileOutputStream(journal, true)) {
+            fos.write(record.toString().getBytes(StandardCharsets.UTF_8));
+            fos.flush();
+            fos.getFD().sync();
+        }
+    }
+
+    /**
+     * @return the complete records of the journal, ordered by snapshot id
+     */
+    static TreeMap<Long, String> read(File journal) throws IOException {
+        TreeMap<Long, String> records = new TreeMap<>();
+        if (!journal.exists()) {
+            return records;
+        }
+
+        String content = new String(Files.readAllBytes(journal.toPath()), StandardCharsets.UTF_8);
+        int start = 0;
+        int end;
+        while ((end = content.indexOf(END_OF_RECORD, start)) >= 0) {
+            int separator = content.indexOf(SEPARATOR, start);
+            if (separator > start && separator < end) {
+                try {
+                    records.put(Long.parseLong(content.substring(start, separator)),
+                            unescape(content, separator + 1, end));
+                } catch (NumberFormatException e) {
+                    // corrupted record, skip it
+                }
+            }
+            start = end + 1;
+        }
+        return records;
+    }
+
+    private static String unescape(String content, int start, int end) {
+        int escape = content.indexOf(ESCAPE, start);
+        if (escape < 0 || escape >= end) {
+            return content.substring(start, end);
+        }
+        StringBuilder result = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            char c = content.charAt(i);
+            if (c == ESCAPE && i + 1 < end) {
+                char escaped = content.charAt(++i);
+                if (escaped == 'n') {
+                    c = END_OF_RECORD;
+                } else if (escaped == 'r') {
+                    c = '\r';
+                } else {
+                    c = escaped;
+                }
+            }
+            result.append(c);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Computes the configurations to be recorded to go from {@code previous} to {@code current}.
+     *
+     * @return the new or changed configurations, or null if some of the previous configurations have been removed
+     *         and the change cannot be represented as a delta
+     */
+    static List<ComponentConfiguration> delta(List<ComponentConfiguration> previous,
+            List<ComponentConfiguration> current) {
+        Map<String, ComponentConfiguration> previousByPid = new LinkedHashMap<>();
+        for (ComponentConfiguration config : previous) {
+            if (config != null) {
+                previousByPid.put(config.getPid(), config);
+            }
+        }
+
+        List<ComponentConfiguration> changed = new ArrayList<>();
+        for (ComponentConfiguration config : current) {
+            if (config == null) {
+                continue;
+            }
+            ComponentConfiguration previousConfig = previousByPid.remove(config.getPid());
+            if (previousConfig == null || !propertiesEqual(previousConfig.getConfigurationProperties(),
+                    config.getConfigurationProperties())) {
+                changed.add(config);
+            }
+        }
+
+        return previousByPid.isEmpty() ? changed : null;
+    }
+
+    /**
+     * @return a new list with the configurations of {@code base} replaced by the ones in {@code delta} with the same
+     *         pid, and the remaining ones of {@code delta} appended
+     */
+    static List<ComponentConfiguration> apply(List<ComponentConfiguration> base, List<ComponentConfiguration> delta) {
+        Map<String, ComponentConfiguration> result = new LinkedHashMap<>();
+        for (ComponentConfiguration config : base) {
+            if (config != null) {
+                result.put(config.getPid(), config);
+            }
+        }
+        for (ComponentConfiguration config : delta) {
+            if (config != null) {
+                result.put(config.getPid(), config);
+            }
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    private static boolean propertiesEqual(Map<String, Object> first, Map<String, Object> second) {
+        if (first == null || second == null) {
+            return first == second;
+        }
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (Map.Entry<String, Object> entry : first.entrySet()) {
+            if (!second.containsKey(entry.getKey()) || !valueEquals(entry.getValue(), second.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean valueEquals(Object first, Object second) {
+        if (first instanceof Password && second instanceof Password) {
+            return Arrays.equals(((Password) first).getPassword(), ((Password) second).getPassword());
+        }
+        if (first instanceof Object[] && second instanceof Object[]) {
+            Object[] firstArray = (Object[]) first;
+            Object[] secondArray = (Object[]) second;
+            if (firstArray.length != secondArray.length) {
+                return false;
+            }
+            for (int i = 0; i < firstArray.length; i++) {
+                if (!valueEquals(firstArray[i], secondArray[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return Objects.deepEquals(first, second);
+    }
+}
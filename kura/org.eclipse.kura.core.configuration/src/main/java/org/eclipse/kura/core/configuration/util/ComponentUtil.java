@@ -66,6 +66,19 @@ public class ComponentUtil {
      * @return
      */
     public static Map<String, Tmetadata> getMetadata(BundleContext ctx, Bundle bnd) {
+        return getMetadata(ctx, bnd, null);
+    }
+
+    /**
+     * Returns a Map with all the MetaType Object Class Definitions contained in the bundle.
+     *
+     * @param ctx
+     * @param bnd
+     * @param failedPids
+     *            if not null, receives the pids whose Metadata could not be loaded
+     * @return
+     */
+    public static Map<String, Tmetadata> getMetadata(BundleContext ctx, Bundle bnd, List<String> failedPids) {
         final Map<String, Tmetadata> bundleMetadata = new HashMap<>();
 
         final ServiceReference<MetaTypeService> ref = ctx.getServiceReference(MetaTypeService.class);
@@ -90,6 +103,9 @@ public class ComponentUtil {
                         } catch (Exception e) {
                             // ignore: Metadata for the specified pid is not found
                             logger.warn("Error loading Metadata for pid " + pid, e);
+                            if (failedPids != null) {
+                                failedPids.add(pid);
+                            }
                         }
                     }
                 }
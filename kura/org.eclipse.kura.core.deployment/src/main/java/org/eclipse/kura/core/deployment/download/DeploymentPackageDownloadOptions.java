@@ -29,6 +29,7 @@ public class DeploymentPackageDownloadOptions extends DeploymentPackageInstallOp
     public static final String METRIC_DP_DOWNLOAD_BLOCK_DELAY = "dp.download.block.delay";
     public static final String METRIC_DP_DOWNLOAD_TIMEOUT = "dp.download.timeout";
     public static final String METRIC_DP_DOWNLOAD_RESUME = "dp.download.resume";
+    public static final String METRIC_DP_DOWNLOAD_PARALLEL_RANGES = "dp.download.parallel.ranges";
     public static final String METRIC_DP_DOWNLOAD_USER = "dp.download.username";
     public static final String METRIC_DP_DOWNLOAD_PASSWORD = "dp.download.password";
     public static final String METRIC_DP_DOWNLOAD_NOTIFY_BLOCK_SIZE = "dp.download.notify.block.size";
@@ -42,6 +43,7 @@ public class DeploymentPackageDownloadOptions extends DeploymentPackageInstallOp
     private int notifyBlockSize;
     private int blockDelay = 0;
     private int timeout = 4000;
+    private int parallelRanges = 1;
 
     private String username = null;
     private String password = null;
@@ -110,6 +112,10 @@ public class DeploymentPackageDownloadOptions extends DeploymentPackageInstallOp
             if (metric != null) {
                 super.setResume((Boolean) metric);
             }
+            metric = request.getMetric(METRIC_DP_DOWNLOAD_PARALLEL_RANGES);
+            if (metric != null) {
+                this.parallelRanges = (Integer) metric;
+            }
             metric = request.getMetric(METRIC_DP_DOWNLOAD_USER);
             if (metric != null) {
                 this.username = (String) metric;
@@ -209,6 +215,17 @@ public class DeploymentPackageDownloadOptions extends DeploymentPackageInstallOp
         this.timeout = timeout;
     }
 
+    /**
+     * @return the number of ranges of the package to be downloaded in parallel, 1 to download it sequentially
+     */
+    public int getParallelRanges() {
+        return this.parallelRanges;
+    }
+
+    public void setParallelRanges(int parallelRanges) {
+        this.parallelRanges = parallelRanges;
+    }
+
     public boolean isDownloadForced() {
         return this.forceDownload;
     }
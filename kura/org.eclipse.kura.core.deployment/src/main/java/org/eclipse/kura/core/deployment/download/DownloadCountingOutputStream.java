@@ -31,5 +31,15 @@ public interface DownloadCountingOutputStream {
 
     public void setTotalBytes(long totalBytes);
 
+    /**
+     * Returns the hash of the downloaded content, computed while downloading with the algorithm requested in the
+     * download options.
+     *
+     * @return the hexadecimal hash, or null if it has not been computed and the downloaded file must be hashed
+     */
+    public default String getContentHash() {
+        return null;
+    }
+
     public void close() throws IOException;
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2017 Eurotech and/or its affiliates
+ * Copyright (c) 2011, 2018 Eurotech and/or its affiliates
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -39,9 +39,33 @@ public class DownloadFileUtilities extends FileUtilities {
         return new File(fileName);
     }
 
+    /**
+     * Returns the file holding the content downloaded so far, renamed to {@code file} once the download completes.
+     */
+    public static File getPartialDownloadFile(File file) {
+        return new File(file.getPath() + ".part");
+    }
+
+    /**
+     * Returns the file holding the ETag or last modification time of the content stored in the partial download
+     * file, used to verify that a resumed download still refers to the same content.
+     */
+    public static File getPartialDownloadValidatorFile(File file) {
+        return new File(file.getPath() + ".part.validator");
+    }
+
     public static boolean deleteDownloadedFile(DeploymentPackageInstallOptions options) throws IOException {
         File file = getDpDownloadFile(options);
 
+        File partialFile = getPartialDownloadFile(file);
+        if (partialFile.isFile()) {
+            partialFile.delete();
+        }
+        File validatorFile = getPartialDownloadValidatorFile(file);
+        if (validatorFile.isFile()) {
+            validatorFile.delete();
+        }
+
         if (file != null && file.exists() && file.isFile()) {
             return file.delete();
         }
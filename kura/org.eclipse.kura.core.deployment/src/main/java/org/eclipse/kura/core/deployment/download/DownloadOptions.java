@@ -12,6 +12,7 @@
 
 package org.eclipse.kura.core.deployment.download;
 
+import java.io.File;
 import java.io.OutputStream;
 
 import org.eclipse.kura.core.deployment.progress.ProgressListener;
@@ -25,6 +26,8 @@ public class DownloadOptions {
     private SslManagerService sslManagerService;
     private String downloadURL;
     private int alreadyDownloaded;
+    private File file;
+    private String hashAlgorithm;
 
     public OutputStream getOut() {
         return this.out;
@@ -73,4 +76,27 @@ public class DownloadOptions {
     public void setAlreadyDownloaded(int alreadyDownloaded) {
         this.alreadyDownloaded = alreadyDownloaded;
     }
+
+    /**
+     * @return the file the content is downloaded to, the partial content is kept next to it until the download
+     *         completes
+     */
+    public File getFile() {
+        return this.file;
+    }
+
+    public void setFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the algorithm of the hash to be computed while downloading, or null if no hash is required
+     */
+    public String getHashAlgorithm() {
+        return this.hashAlgorithm;
+    }
+
+    public void setHashAlgorithm(String hashAlgorithm) {
+        this.hashAlgorithm = hashAlgorithm;
+    }
 }
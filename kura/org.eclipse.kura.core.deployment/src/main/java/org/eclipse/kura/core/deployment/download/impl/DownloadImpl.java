@@ -12,9 +12,7 @@
 package org.eclipse.kura.core.deployment.download.impl;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.Date;
 import java.util.concurrent.CancellationException;
 
@@ -174,50 +172,44 @@ public class DownloadImpl implements ProgressListener {
     // ----------------------------------------------------------------
 
     private void incrementalDownloadFromURL(File dpFile, String url, int downloadIndex) throws Exception {
-        OutputStream os = null;
-
-        try {
-            os = new FileOutputStream(dpFile);
-            DownloadOptions downloadOptions = new DownloadOptions();
-            downloadOptions.setOut(os);
-            downloadOptions.setRequestOptions(this.options);
-            downloadOptions.setCallback(this);
-            downloadOptions.setSslManagerService(this.sslManagerService);
-            downloadOptions.setDownloadURL(url);
-            downloadOptions.setAlreadyDownloaded(downloadIndex);
-
-            this.downloadHelper = getDownloadInstance(this.options.getDownloadProtocol(), downloadOptions);
-            this.downloadHelper.startWork();
-            this.downloadHelper.close();
-        } finally {
-            if (os != null) {
-                try {
-                    os.close();
-                } catch (IOException e1) {
-                    s_logger.error("Exception while trying to close stream.", e1);
-                }
-            }
-        }
-
+        String hashAlgorithm = null;
+        String hashValue = null;
         if (this.options.getHash() != null) {
             String[] hashAlgorithmValue = this.options.getHash().split(":");
 
-            String hashAlgorithm = null;
-            String hashValue = null;
             if (hashAlgorithmValue.length == 2) {
                 hashAlgorithm = hashAlgorithmValue[0].trim();
                 hashValue = hashAlgorithmValue[1].trim();
             }
+            // these things should be checked beforehand, so that the hash has a chance to be verified
+            if (hashAlgorithm == null || "".equals(hashAlgorithm) || hashValue == null || "".equals(hashValue)) {
+                throw new KuraException(KuraErrorCode.INTERNAL_ERROR, null,
+                        "Failed to verify checksum with empty algorithm: " + hashAlgorithm);
+            }
+        }
+
+        DownloadOptions downloadOptions = new DownloadOptions();
+        downloadOptions.setFile(dpFile);
+        downloadOptions.setHashAlgorithm(hashAlgorithm);
+        downloadOptions.setRequestOptions(this.options);
+        downloadOptions.setCallback(this);
+        downloadOptions.setSslManagerService(this.sslManagerService);
+        downloadOptions.setDownloadURL(url);
+        downloadOptions.setAlreadyDownloaded(downloadIndex);
+
+        this.downloadHelper = getDownloadInstance(this.options.getDownloadProtocol(), downloadOptions);
+        this.downloadHelper.startWork();
+        this.downloadHelper.close();
+
+        if (hashAlgorithm != null) {
             s_logger.info("--> Going to verify hash signature!");
             try {
-                // these things should be checked beforehand, so that hash() has a chance to succeed
-                if (hashAlgorithm == null || "".equals(hashAlgorithm) || hashValue == null || "".equals(hashValue)) {
-                    throw new KuraException(KuraErrorCode.INTERNAL_ERROR, null,
-                            "Failed to verify checksum with empty algorithm: " + hashAlgorithm);
+                // normally computed during the transfer, without reading the file again
+                String checksum = this.downloadHelper.getContentHash();
+                if (checksum == null) {
+                    checksum = HashUtil.hash(hashAlgorithm, dpFile);
                 }
 
-                String checksum = HashUtil.hash(hashAlgorithm, dpFile);
-
                 if (checksum == null || !checksum.equals(hashValue)) {
                     throw new KuraException(KuraErrorCode.INTERNAL_ERROR, null,
                             "Failed to verify checksum with algorithm: " + hashAlgorithm);
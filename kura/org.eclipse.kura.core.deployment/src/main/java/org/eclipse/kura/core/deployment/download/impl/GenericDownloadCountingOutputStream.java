@@ -13,7 +13,6 @@
 package org.eclipse.kura.core.deployment.download.impl;
 
 import java.io.IOException;
-import java.io.InputStream;
 
 import org.apache.commons.io.output.CountingOutputStream;
 import org.eclipse.kura.core.deployment.DownloadStatus;
@@ -39,10 +38,9 @@ public class GenericDownloadCountingOutputStream extends CountingOutputStream {
     final int m_alreadyDownloaded;
     final String m_downloadURL;
 
-    InputStream is = null;
-
     private long m_currentStep = 1;
-    // private long previous;
+    // bytes stored so far, written through this stream or directly to the download file
+    private volatile long transferredBytes;
     private DownloadStatus m_downloadStatus = DownloadStatus.FAILED;
 
     public GenericDownloadCountingOutputStream(DownloadOptions downloadOptions) {
@@ -75,25 +73,60 @@ public class GenericDownloadCountingOutputStream extends CountingOutputStream {
         this.totalBytes = totalBytes;
     }
 
+    @Override
+    public long getByteCount() {
+        return this.transferredBytes;
+    }
+
+    @Override
+    public void close() throws IOException {
+        // downloads written to a file channel have no underlying stream
+        if (this.out != null) {
+            super.close();
+        }
+    }
+
     @Override
     protected void afterWrite(int n) throws IOException {
         super.afterWrite(n);
-        if (this.propResolution == 0 && getTotalBytes() > 0) {
-            this.propResolution = Math.round(this.totalBytes / 100 * 5);
-        } else if (this.propResolution == 0) {
-            this.propResolution = 1024 * 256;
-        }
-        if (getByteCount() >= this.m_currentStep * this.propResolution) {
-            // System.out.println("Bytes read: "+ (getByteCount() - previous));
-            // previous = getByteCount();
-            this.m_currentStep++;
-            postProgressEvent(this.options.getClientId(), getByteCount(), this.totalBytes, DownloadStatus.IN_PROGRESS,
-                    null);
+        afterTransfer(n);
+    }
+
+    /**
+     * Sets the number of bytes already stored, when a download is resumed or restarted.
+     */
+    protected synchronized void setTransferredBytes(long bytes) {
+        this.transferredBytes = bytes;
+        this.m_currentStep = this.propResolution > 0 ? bytes / this.propResolution + 1 : 1;
+    }
+
+    /**
+     * Accounts for {@code n} bytes stored, notifying the progress and applying the block delay. The delay is applied
+     * outside of the lock, so that ranges downloaded in parallel are throttled independently.
+     */
+    protected void afterTransfer(int n) {
+        synchronized (this) {
+            this.transferredBytes += n;
+            if (this.propResolution == 0 && getTotalBytes() > 0) {
+                this.propResolution = Math.round(this.totalBytes / 100 * 5);
+            } else if (this.propResolution == 0) {
+                this.propResolution = 1024 * 256;
+            }
+            if (getByteCount() >= this.m_currentStep * this.propResolution) {
+                // System.out.println("Bytes read: "+ (getByteCount() - previous));
+                // previous = getByteCount();
+                this.m_currentStep++;
+                postProgressEvent(this.options.getClientId(), getByteCount(), this.totalBytes,
+                        DownloadStatus.IN_PROGRESS, null);
+            }
         }
-        try {
-            Thread.sleep(this.propBlockDelay);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        if (this.propBlockDelay > 0) {
+            try {
+                Thread.sleep(this.propBlockDelay);
+            } catch (InterruptedException e) {
+                // the download has been cancelled, the next channel operation fails
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -11,45 +11,114 @@
  *******************************************************************************/
 package org.eclipse.kura.core.deployment.download.impl;
 
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.Authenticator;
 import java.net.HttpURLConnection;
 import java.net.PasswordAuthentication;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.GeneralSecurityException;
-import java.util.concurrent.Callable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import javax.net.ssl.HttpsURLConnection;
 
-import org.apache.commons.io.IOUtils;
 import org.eclipse.kura.KuraConnectException;
 import org.eclipse.kura.KuraErrorCode;
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.core.deployment.DownloadStatus;
 import org.eclipse.kura.core.deployment.download.DownloadCountingOutputStream;
+import org.eclipse.kura.core.deployment.download.DownloadFileUtilities;
 import org.eclipse.kura.core.deployment.download.DownloadOptions;
+import org.eclipse.kura.core.deployment.util.HashUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Downloads a file over HTTP(S) writing it through a {@link FileChannel}.
+ * <p>
+ * The content is stored in a partial file, renamed to the requested file once complete, and hashed while it is
+ * transferred. When the connection drops the transfer is resumed from the last byte written with an HTTP Range
+ * request; if the download options request it, a partial file left by a previous download is resumed as well,
+ * provided that the ETag or last modification time of its content has been stored next to it. Optionally the file
+ * is split in ranges downloaded in parallel, in which case the hash is computed once all the ranges are complete; if
+ * some of the ranges fail, the partial file is truncated to the content downloaded without gaps.
+ */
 public class HttpDownloadCountingOutputStream extends GenericDownloadCountingOutputStream
         implements DownloadCountingOutputStream {
 
     private static final Logger s_logger = LoggerFactory.getLogger(HttpDownloadCountingOutputStream.class);
 
+    /** Consecutive failures without progress after which a transfer is abandoned */
+    private static final int MAX_RESUME_ATTEMPTS = 5;
+
+    /** Ranges smaller than this are not worth a separate connection */
+    private static final long MIN_PARALLEL_RANGE_SIZE = 1024L * 1024;
+
+    private static final int MAX_DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    /**
+     * A range of the file, {@code position} is the next byte to be written and {@code end} the first byte not
+     * belonging to the range, or -1 if the range extends to the end of the file.
+     */
+    private static final class Range {
+
+        private long position;
+        private final long end;
+
+        private Range(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+    }
+
     private ExecutorService executor;
     private Future<Void> future;
 
+    private final File downloadFile;
+    private final File validatorFile;
+    private final String hashAlgorithm;
+    private volatile String contentHash;
+
+    private int resumeDelay = 2000;
+
+    // ETag or last modification time of the file, to be sure that resumed ranges belong to the same content
+    private volatile String validator;
+
+    // length of the partial file downloaded without gaps if the parallel ranges failed, -1 otherwise
+    private long completedRangesLength = -1;
+
     public HttpDownloadCountingOutputStream(DownloadOptions downloadOptions) {
         super(downloadOptions);
         setBufferSize(this.options.getBlockSize());
         setResolution(this.options.getNotifyBlockSize());
         setBlockDelay(this.options.getBlockDelay());
         setConnectTimeout(this.options.getTimeout());
+        this.downloadFile = downloadOptions.getFile();
+        this.validatorFile = DownloadFileUtilities.getPartialDownloadValidatorFile(this.downloadFile);
+        this.hashAlgorithm = downloadOptions.getHashAlgorithm();
     }
 
     @Override
@@ -63,102 +132,470 @@ public class HttpDownloadCountingOutputStream extends GenericDownloadCountingOut
         }
     }
 
+    @Override
+    public String getContentHash() {
+        return this.contentHash;
+    }
+
     @Override
     public void startWork() throws KuraException {
 
         this.executor = Executors.newSingleThreadExecutor();
 
-        this.future = this.executor.submit(new Callable<Void>() {
-
-            @Override
-            public Void call() throws Exception {
-                URL localUrl = null;
-                boolean shouldAuthenticate = false;
-                try {
-                    shouldAuthenticate = HttpDownloadCountingOutputStream.this.options.getUsername() != null
-                            && HttpDownloadCountingOutputStream.this.options.getPassword() != null
-                            && !(HttpDownloadCountingOutputStream.this.options.getUsername().trim().isEmpty()
-                                    && !HttpDownloadCountingOutputStream.this.options.getPassword().trim().isEmpty());
-
-                    if (shouldAuthenticate) {
-                        Authenticator.setDefault(new Authenticator() {
-
-                            @Override
-                            protected PasswordAuthentication getPasswordAuthentication() {
-                                return new PasswordAuthentication(
-                                        HttpDownloadCountingOutputStream.this.options.getUsername(),
-                                        HttpDownloadCountingOutputStream.this.options.getPassword().toCharArray());
-                            }
-                        });
-                    }
-
-                    localUrl = new URL(HttpDownloadCountingOutputStream.this.m_downloadURL);
-                    URLConnection urlConnection = localUrl.openConnection();
-                    int connectTimeout = getConnectTimeout();
-                    int readTimeout = getPropReadTimeout();
-                    urlConnection.setConnectTimeout(connectTimeout);
-                    urlConnection.setReadTimeout(readTimeout);
+        this.future = this.executor.submit(() -> {
+            download();
+            return null;
+        });
 
-                    testConnectionProtocol(urlConnection);
+        try {
+            this.future.get();
+        } catch (ExecutionException ex) {
+            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, ex);
+        } catch (InterruptedException ex) {
+            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, ex);
+        } finally {
+            this.executor.shutdown();
+        }
+    }
 
-                    HttpDownloadCountingOutputStream.this.is = urlConnection.getInputStream();
+    protected void setResumeDelay(int delay) {
+        this.resumeDelay = delay;
+    }
 
-                    String s = urlConnection.getHeaderField("Content-Length");
-                    s_logger.info("Content-lenght: " + s);
+    protected URLConnection openConnection(URL url) throws IOException {
+        return url.openConnection();
+    }
 
-                    setTotalBytes(s != null ? Integer.parseInt(s) : -1);
-                    postProgressEvent(HttpDownloadCountingOutputStream.this.options.getClientId(), 0,
-                            HttpDownloadCountingOutputStream.this.totalBytes, DownloadStatus.IN_PROGRESS, null);
+    private void download() throws KuraException {
+        final boolean shouldAuthenticate = this.options.getUsername() != null && this.options.getPassword() != null
+                && !(this.options.getUsername().trim().isEmpty() && !this.options.getPassword().trim().isEmpty());
 
-                    int bufferSize = getBufferSize();
+        final File partialFile = DownloadFileUtilities.getPartialDownloadFile(this.downloadFile);
+        try {
+            if (shouldAuthenticate) {
+                Authenticator.setDefault(new Authenticator() {
 
-                    if (bufferSize == 0 && getTotalBytes() > 0) {
-                        int newSize = Math.round(HttpDownloadCountingOutputStream.this.totalBytes / 100 + 1);
-                        bufferSize = newSize;
-                        setBufferSize(newSize);
-                    } else if (bufferSize == 0) {
-                        int newSize = 1024 * 4;
-                        bufferSize = newSize;
-                        setBufferSize(newSize);
+                    @Override
+                    protected PasswordAuthentication getPasswordAuthentication() {
+                        return new PasswordAuthentication(HttpDownloadCountingOutputStream.this.options.getUsername(),
+                                HttpDownloadCountingOutputStream.this.options.getPassword().toCharArray());
                     }
+                });
+            }
 
-                    long numBytes = IOUtils.copyLarge(HttpDownloadCountingOutputStream.this.is,
-                            HttpDownloadCountingOutputStream.this, new byte[bufferSize]);
-                    postProgressEvent(HttpDownloadCountingOutputStream.this.options.getClientId(), numBytes,
-                            HttpDownloadCountingOutputStream.this.totalBytes, DownloadStatus.COMPLETED, null);
-
-                } catch (IOException e) {
-                    postProgressEvent(HttpDownloadCountingOutputStream.this.options.getClientId(), getByteCount(),
-                            HttpDownloadCountingOutputStream.this.totalBytes, DownloadStatus.FAILED, e.getMessage());
-                    throw new KuraConnectException(e);
-                } finally {
-                    if (HttpDownloadCountingOutputStream.this.is != null) {
-                        try {
-                            HttpDownloadCountingOutputStream.this.is.close();
-                        } catch (IOException e) {
-                        }
+            final URL url = new URL(this.m_downloadURL);
+            try (FileChannel channel = FileChannel.open(partialFile.toPath(), CREATE, READ, WRITE)) {
+                final MessageDigest digest = createDigest();
+
+                final Range range = new Range(0, -1);
+                this.validator = this.options.isResume() && channel.size() > 0 ? readValidator() : null;
+                if (this.validator != null) {
+                    range.position = channel.size();
+                    s_logger.info("Resuming download of {} from byte {}", this.m_downloadURL, range.position);
+                    if (digest != null) {
+                        // the only case in which downloaded content is read back
+                        updateDigest(digest, channel, range.position);
                     }
-                    try {
-                        close();
-                    } catch (IOException e) {
+                } else {
+                    if (channel.size() > 0) {
+                        s_logger.info("Discarding the partial download of {}", this.m_downloadURL);
                     }
-                    localUrl = null;
-                    if (shouldAuthenticate) {
-                        Authenticator.setDefault(null);
+                    channel.truncate(0);
+                }
+                setTransferredBytes(range.position);
+
+                if (range.position > 0 || this.options.getParallelRanges() <= 1
+                        || !transferRanges(url, channel, this.options.getParallelRanges())) {
+                    transferWithResume(url, channel, range, digest);
+                } else if (digest != null) {
+                    updateDigest(digest, channel, channel.size());
+                }
+
+                channel.force(false);
+                if (digest != null) {
+                    this.contentHash = HashUtil.toHexString(digest.digest());
+                }
+            }
+            Files.move(partialFile.toPath(), this.downloadFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            this.validatorFile.delete();
+
+            postProgressEvent(this.options.getClientId(), getByteCount(), this.totalBytes, DownloadStatus.COMPLETED,
+                    null);
+        } catch (IOException e) {
+            postProgressEvent(this.options.getClientId(), getByteCount(), this.totalBytes, DownloadStatus.FAILED,
+                    e.getMessage());
+            if (!this.options.isResume()) {
+                partialFile.delete();
+                this.validatorFile.delete();
+            }
+            throw new KuraConnectException(e);
+        } finally {
+            if (this.completedRangesLength >= 0) {
+                truncatePartialFile(partialFile, this.completedRangesLength);
+            }
+            if (shouldAuthenticate) {
+                Authenticator.setDefault(null);
+            }
+        }
+    }
+
+    private MessageDigest createDigest() {
+        if (this.hashAlgorithm == null) {
+            return null;
+        }
+        try {
+            return MessageDigest.getInstance(this.hashAlgorithm);
+        } catch (NoSuchAlgorithmException e) {
+            // reported when the downloaded file is verified
+            s_logger.debug("Hash algorithm {} not available", this.hashAlgorithm, e);
+            return null;
+        }
+    }
+
+    /**
+     * Transfers {@code range}, resuming it after connection errors as long as the transfer makes progress.
+     */
+    private void transferWithResume(URL url, FileChannel channel, Range range, MessageDigest digest)
+            throws IOException, KuraException {
+        int failures = 0;
+        long failurePosition = -1;
+        while (true) {
+            try {
+                transfer(url, channel, range, digest);
+                return;
+            } catch (IOException e) {
+                if (e instanceof ClosedByInterruptException || e instanceof InterruptedIOException
+                        || Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+                if (range.position > failurePosition) {
+                    failures = 0;
+                    failurePosition = range.position;
+                }
+                if (++failures > MAX_RESUME_ATTEMPTS) {
+                    throw e;
+                }
+                s_logger.warn("Download of {} interrupted at byte {}, resuming: {}", this.m_downloadURL,
+                        range.position, e.getMessage());
+                try {
+                    Thread.sleep((long) this.resumeDelay * failures);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Download cancelled");
+                }
+            }
+        }
+    }
+
+    private void transfer(URL url, FileChannel channel, Range range, MessageDigest digest)
+            throws IOException, KuraException {
+        final boolean isPartial = range.position > 0 || range.end >= 0;
+        final HttpURLConnection connection = connect(url);
+        if (isPartial) {
+            connection.setRequestProperty("Range",
+                    "bytes=" + range.position + "-" + (range.end >= 0 ? Long.toString(range.end - 1) : ""));
+            if (this.validator != null) {
+                connection.setRequestProperty("If-Range", this.validator);
+            }
+        }
+
+        boolean completed = false;
+        try {
+            final int code = connection.getResponseCode();
+            final long end;
+            if (isPartial && code == HttpURLConnection.HTTP_PARTIAL) {
+                final long[] contentRange = parseContentRange(connection.getHeaderField("Content-Range"));
+                if (contentRange == null || contentRange[0] != range.position) {
+                    throw new IOException("Unexpected Content-Range: " + connection.getHeaderField("Content-Range"));
+                }
+                end = contentRange[1] + 1;
+                if (range.end < 0) {
+                    setTotalBytes(contentRange[2] >= 0 ? contentRange[2] : end);
+                }
+            } else if (code == HttpURLConnection.HTTP_OK) {
+                if (range.end >= 0) {
+                    throw new IOException("The server does not support range requests");
+                }
+                if (range.position > 0) {
+                    s_logger.info("The server cannot resume the download of {}, restarting it", this.m_downloadURL);
+                    channel.truncate(0);
+                    if (digest != null) {
+                        digest.reset();
                     }
+                    range.position = 0;
+                    setTransferredBytes(0);
+                }
+                end = connection.getContentLengthLong();
+                setTotalBytes(end);
+                postProgressEvent(this.options.getClientId(), 0, this.totalBytes, DownloadStatus.IN_PROGRESS, null);
+            } else if (code == 416 && range.end < 0) {
+                // requested beyond the end: complete if the partial file is as long as the remote one
+                final long[] contentRange = parseContentRange(connection.getHeaderField("Content-Range"));
+                if (contentRange == null || contentRange[2] != range.position) {
+                    throw new IOException("Cannot resume the download from byte " + range.position);
                 }
+                setTotalBytes(range.position);
+                completed = true;
+                return;
+            } else {
+                throw new IOException("Unexpected HTTP response: " + code + " " + connection.getResponseMessage());
+            }
 
-                return null;
+            if (range.end < 0) {
+                storeValidator(getValidator(connection));
             }
 
-        });
+            copy(connection, channel, range, end >= 0 ? end : range.end, digest);
+            completed = true;
+        } finally {
+            if (!completed) {
+                connection.disconnect();
+            }
+        }
+    }
 
+    private void copy(HttpURLConnection connection, FileChannel channel, Range range, long end, MessageDigest digest)
+            throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(getTransferBufferSize());
+        try (ReadableByteChannel in = Channels.newChannel(connection.getInputStream())) {
+            while (end < 0 || range.position < end) {
+                buffer.clear();
+                if (end >= 0) {
+                    buffer.limit((int) Math.min(buffer.capacity(), end - range.position));
+                }
+                final int n = in.read(buffer);
+                if (n < 0) {
+                    break;
+                }
+                buffer.flip();
+                if (digest != null) {
+                    digest.update(buffer.array(), 0, n);
+                }
+                while (buffer.hasRemaining()) {
+                    range.position += channel.write(buffer, range.position);
+                }
+                afterTransfer(n);
+            }
+        }
+        if (end >= 0 && range.position < end) {
+            throw new EOFException("Connection closed at byte " + range.position + " of " + end);
+        }
+    }
+
+    /**
+     * Downloads the file as {@code count} ranges in parallel, if the server supports range requests and the file is
+     * large enough.
+     *
+     * @return false if the file must be downloaded sequentially
+     */
+    private boolean transferRanges(URL url, FileChannel channel, int count) throws IOException, KuraException {
+        final HttpURLConnection probe = connect(url);
+        final long length;
         try {
-            this.future.get();
-        } catch (ExecutionException ex) {
-            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, ex);
-        } catch (InterruptedException ex) {
-            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, ex);
+            probe.setRequestMethod("HEAD");
+            if (probe.getResponseCode() != HttpURLConnection.HTTP_OK
+                    || !"bytes".equalsIgnoreCase(probe.getHeaderField("Accept-Ranges"))) {
+                return false;
+            }
+            length = probe.getContentLengthLong();
+            if (length < 2 * MIN_PARALLEL_RANGE_SIZE) {
+                return false;
+            }
+            storeValidator(getValidator(probe));
+        } finally {
+            probe.disconnect();
+        }
+
+        final int ranges = (int) Math.min(count, length / MIN_PARALLEL_RANGE_SIZE);
+        final long rangeSize = (length + ranges - 1) / ranges;
+        setTotalBytes(length);
+        postProgressEvent(this.options.getClientId(), 0, this.totalBytes, DownloadStatus.IN_PROGRESS, null);
+        s_logger.info("Downloading {} as {} parallel ranges", this.m_downloadURL, ranges);
+
+        final ExecutorService rangeExecutor = Executors.newFixedThreadPool(ranges);
+        final List<Range> rangeList = new ArrayList<>(ranges);
+        boolean completed = false;
+        try {
+            final List<Future<Void>> futures = new ArrayList<>(ranges);
+            for (long start = 0; start < length; start += rangeSize) {
+                final Range range = new Range(start, Math.min(start + rangeSize, length));
+                rangeList.add(range);
+                futures.add(rangeExecutor.submit(() -> {
+                    transferWithResume(url, channel, range, null);
+                    return null;
+                }));
+            }
+            for (Future<Void> rangeFuture : futures) {
+                rangeFuture.get();
+            }
+            completed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Download cancelled");
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof KuraException) {
+                throw (KuraException) cause;
+            }
+            throw new KuraException(KuraErrorCode.INTERNAL_ERROR, cause);
+        } finally {
+            rangeExecutor.shutdownNow();
+            if (!completed) {
+                this.completedRangesLength = awaitTermination(rangeExecutor) ? getCompletedLength(rangeList) : 0;
+            }
+        }
+        return true;
+    }
+
+    private boolean awaitTermination(ExecutorService rangeExecutor) {
+        try {
+            return rangeExecutor.awaitTermination((long) getConnectTimeout() + getPropReadTimeout(),
+                    TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the length of the content written without gaps, the ranges are sorted by position.
+     */
+    private static long getCompletedLength(List<Range> ranges) {
+        long length = 0;
+        for (Range range : ranges) {
+            length = range.position;
+            if (range.position < range.end) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Drops the content written after the first incomplete range, so that a resumed download does not skip the
+     * gaps left by the failed ranges.
+     */
+    private void truncatePartialFile(File partialFile, long length) {
+        if (!partialFile.isFile()) {
+            return;
+        }
+        if (length > 0) {
+            try (FileChannel channel = FileChannel.open(partialFile.toPath(), WRITE)) {
+                channel.truncate(length);
+                return;
+            } catch (IOException e) {
+                s_logger.warn("Failed to truncate the partial download of {}", this.m_downloadURL, e);
+            }
+        }
+        partialFile.delete();
+        this.validatorFile.delete();
+    }
+
+    private String readValidator() {
+        if (!this.validatorFile.isFile()) {
+            s_logger.info("The content of the partial download of {} is unknown, restarting it", this.m_downloadURL);
+            return null;
+        }
+        try {
+            final String value = new String(Files.readAllBytes(this.validatorFile.toPath()), StandardCharsets.UTF_8)
+                    .trim();
+            return value.isEmpty() ? null : value;
+        } catch (IOException e) {
+            s_logger.warn("Failed to read {}", this.validatorFile, e);
+            return null;
+        }
+    }
+
+    /**
+     * Stores the validator of the content being downloaded next to the partial file, before any content is written.
+     */
+    private void storeValidator(String value) throws IOException {
+        this.validator = value;
+        if (value == null) {
+            Files.deleteIfExists(this.validatorFile.toPath());
+        } else {
+            Files.write(this.validatorFile.toPath(), value.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private HttpURLConnection connect(URL url) throws IOException, KuraConnectException {
+        final URLConnection urlConnection = openConnection(url);
+        urlConnection.setConnectTimeout(getConnectTimeout());
+        urlConnection.setReadTimeout(getPropReadTimeout());
+
+        testConnectionProtocol(urlConnection);
+
+        return (HttpURLConnection) urlConnection;
+    }
+
+    private int getTransferBufferSize() {
+        int bufferSize = getBufferSize();
+        if (bufferSize == 0 && getTotalBytes() > 0) {
+            bufferSize = (int) Math.min(getTotalBytes() / 100 + 1, MAX_DEFAULT_BUFFER_SIZE);
+            setBufferSize(bufferSize);
+        } else if (bufferSize == 0) {
+            bufferSize = 1024 * 4;
+            setBufferSize(bufferSize);
+        }
+        return bufferSize;
+    }
+
+    private static String getValidator(HttpURLConnection connection) {
+        final String eTag = connection.getHeaderField("ETag");
+        // weak entity tags cannot be used with If-Range
+        if (eTag != null && !eTag.startsWith("W/")) {
+            return eTag;
+        }
+        return connection.getHeaderField("Last-Modified");
+    }
+
+    /**
+     * Parses a Content-Range header, as in {@code bytes 0-499/1234} or {@code bytes *}{@code /1234}.
+     *
+     * @return the first byte, the last byte and the total length, -1 if unknown, or null if the header is missing or
+     *         invalid
+     */
+    static long[] parseContentRange(String contentRange) {
+        if (contentRange == null || !contentRange.startsWith("bytes ")) {
+            return null;
+        }
+        try {
+            final String value = contentRange.substring("bytes ".length()).trim();
+            final int slash = value.indexOf('/');
+            if (slash < 0) {
+                return null;
+            }
+            final String range = value.substring(0, slash);
+            final String total = value.substring(slash + 1);
+            final long length = "*".equals(total) ? -1 : Long.parseLong(total);
+            if ("*".equals(range)) {
+                return new long[] { -1, -1, length };
+            }
+            final int dash = range.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            return new long[] { Long.parseLong(range.substring(0, dash)), Long.parseLong(range.substring(dash + 1)),
+                    length };
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void updateDigest(MessageDigest digest, FileChannel channel, long length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        long position = 0;
+        while (position < length) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), length - position));
+            final int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of the partial download");
+            }
+            digest.update(buffer.array(), 0, n);
+            position += n;
         }
     }
 
@@ -36,12 +36,7 @@ public class HashUtil {
             while ((bytesCount = fis.read(byteArray)) != -1) {
                 cript.update(byteArray, 0, bytesCount);
             }
-            byte[] encodedBytes = cript.digest();
-            StringBuilder sb = new StringBuilder();
-            for (byte encodedByte : encodedBytes) {
-                sb.append(Integer.toString((encodedByte & 0xff) + 0x100, 16).substring(1));
-            }
-            return sb.toString();
+            return toHexString(cript.digest());
         } catch (FileNotFoundException e) {
             throw new KuraException(KuraErrorCode.STORE_ERROR, null, e.getMessage());
         } catch (IOException e) {
@@ -55,4 +50,11 @@ public class HashUtil {
         }
     }
 
+    public static String toHexString(byte[] encodedBytes) {
+        StringBuilder sb = new StringBuilder(encodedBytes.length * 2);
+        for (byte encodedByte : encodedBytes) {
+            sb.append(Integer.toString((encodedByte & 0xff) + 0x100, 16).substring(1));
+        }
+        return sb.toString();
+    }
 }
@@ -37,6 +37,7 @@ import org.eclipse.kura.KuraTooManyInflightMessagesException;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.configuration.ConfigurationService;
 import org.eclipse.kura.core.data.store.DbDataStore;
+import org.eclipse.kura.core.data.transport.mqtt.MqttDataTransport;
 import org.eclipse.kura.core.internal.data.TokenBucket;
 import org.eclipse.kura.data.DataService;
 import org.eclipse.kura.data.DataTransportService;
@@ -67,6 +68,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     private static final Logger logger = LoggerFactory.getLogger(DataServiceImpl.class);
 
     private static final int TRANSPORT_TASK_TIMEOUT = 1; // In seconds
+    private static final long NOT_CONNECTED_RETRY_DELAY = 1000; // In milliseconds
 
     private DataServiceOptions dataServiceOptions;
 
@@ -92,9 +94,25 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
     private TokenBucket throttle;
 
+    /**
+     * State of the publishing thread, changed by the connection events and by the in-flight window.
+     * Storing a message only wakes the publishing thread up when it is {@link #READY}.
+     */
+    private enum PublisherState {
+        // the transport is not connected, stored messages are only appended to the store
+        OFFLINE,
+        // messages can be published
+        READY,
+        // the in-flight window is full, waiting for a confirmation
+        WINDOW_FULL,
+        // waiting for the next rate limit token
+        THROTTLED
+    }
+
     private final Lock lock = new ReentrantLock();
     private boolean notifyPending;
     private final Condition lockCondition = this.lock.newCondition();
+    private PublisherState publisherState = PublisherState.OFFLINE;
 
     private volatile AtomicBoolean publisherEnabled = new AtomicBoolean();
 
@@ -105,6 +123,11 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
     private AtomicInteger connectionAttempts;
 
+    private final DataServiceMetrics metrics = new DataServiceMetrics();
+    private final PublishTracer tracer = new PublishTracer();
+    private ScheduledFuture<?> metricsLogFuture;
+    private long lastLoggedActivity;
+
     // ----------------------------------------------------------------
     //
     // Activation APIs
@@ -124,6 +147,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.congestionExecutor = Executors.newSingleThreadScheduledExecutor();
 
         createThrottle();
+        configureTelemetry();
         submitPublishingWork();
 
         String[] parts = pid.split("-");
@@ -132,6 +156,9 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             table += "_" + parts[1];
         }
         this.store = new DbDataStore(table);
+        if (this.dataTransportService instanceof MqttDataTransport) {
+            ((MqttDataTransport) this.dataTransportService).setDataStore(this.store);
+        }
 
         restartDbServiceTracker(this.dataServiceOptions.getDbServiceInstancePid());
 
@@ -141,6 +168,9 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.cloudConnectionStatusService.register(this);
 
         this.dataTransportService.addDataTransportListener(this);
+        if (this.dataTransportService.isConnected()) {
+            setPublisherState(PublisherState.READY);
+        }
 
         startConnectionMonitorTask();
     }
@@ -230,6 +260,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.dataServiceOptions = new DataServiceOptions(properties);
 
         createThrottle();
+        configureTelemetry();
 
         final String currentDbServicePid = this.dataServiceOptions.getDbServiceInstancePid();
 
@@ -271,6 +302,9 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.publisherExecutor.shutdownNow();
 
         this.dataTransportService.removeDataTransportListener(this);
+        if (this.dataTransportService instanceof MqttDataTransport) {
+            ((MqttDataTransport) this.dataTransportService).unsetDataStore(this.store);
+        }
 
         this.store.stop();
 
@@ -364,6 +398,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                 try {
                     this.store.unpublishAllInFlighMessages();
                     this.inFlightMsgIds.clear();
+                    this.metrics.inFlightMessagesCleared();
                 } catch (KuraStoreException e) {
                     logger.error("Failed to unpublish in-flight messages", e);
                 }
@@ -372,6 +407,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
                 try {
                     this.store.dropAllInFlightMessages();
                     this.inFlightMsgIds.clear();
+                    this.metrics.inFlightMessagesCleared();
                 } catch (KuraStoreException e) {
                     logger.error("Failed to drop in-flight messages", e);
                 }
@@ -381,7 +417,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         // Notify the listeners
         this.dataServiceListeners.onConnectionEstablished();
 
-        signalPublisher();
+        setPublisherState(PublisherState.READY);
     }
 
     @Override
@@ -396,6 +432,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     public void onDisconnected() {
         logger.info("Notified disconnected");
         this.cloudConnectionStatusService.updateStatus(this, CloudConnectionStatusEnum.OFF);
+        setPublisherState(PublisherState.OFFLINE);
 
         // Notify the listeners
         this.dataServiceListeners.onDisconnected();
@@ -424,6 +461,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     @Override
     public void onConnectionLost(Throwable cause) {
         logger.info("connectionLost");
+        setPublisherState(PublisherState.OFFLINE);
 
         stopConnectionMonitorTask(); // Just in case...
         startConnectionMonitorTask();
@@ -439,8 +477,6 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
         // Notify the listeners
         this.dataServiceListeners.onMessageArrived(topic, payload, qos, retained);
-
-        signalPublisher();
     }
 
     @Override
@@ -450,6 +486,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         logger.debug("Confirmed message with MQTT message ID: {} on session ID: {}", token.getMessageId(),
                 token.getSessionId());
 
+        this.metrics.messageConfirmed(token);
+
         Integer messageId = this.inFlightMsgIds.remove(token);
         if (messageId == null) {
             logger.info(
@@ -459,7 +497,6 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
             DataMessage confirmedMessage = null;
             try {
-                logger.info("Confirmed message ID: {} to store", messageId);
                 this.store.confirmed(messageId);
                 confirmedMessage = this.store.get(messageId);
             } catch (KuraStoreException e) {
@@ -469,6 +506,7 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
             // Notify the listeners
             if (confirmedMessage != null) {
                 String topic = confirmedMessage.getTopic();
+                this.tracer.trace("Confirmed", topic, messageId);
                 this.dataServiceListeners.onMessageConfirmed(messageId, topic);
             } else {
                 logger.error("Confirmed Message with ID {} could not be loaded from the DataStore.", messageId);
@@ -477,9 +515,8 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
         if (this.inFlightMsgIds.size() < this.dataServiceOptions.getMaxInFlightMessages()) {
             handleInFlightDecongestion();
+            inFlightWindowAvailable();
         }
-
-        signalPublisher();
     }
 
     @Override
@@ -528,12 +565,19 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
     @Override
     public int publish(String topic, byte[] payload, int qos, boolean retain, int priority) throws KuraStoreException {
 
-        logger.info("Storing message on topic :{}, priority: {}", topic, priority);
-
-        DataMessage dataMsg = this.store.store(topic, payload, qos, retain, priority);
-        logger.info("Stored message on topic :{}, priority: {}", topic, priority);
+        long start = System.nanoTime();
+        DataMessage dataMsg;
+        try {
+            dataMsg = this.store.store(topic, payload, qos, retain, priority);
+        } catch (KuraStoreException e) {
+            this.metrics.storeFailed();
+            throw e;
+        }
+        this.metrics.messageStored(start);
+        this.tracer.trace("Stored", topic, dataMsg.getId());
 
-        signalPublisher();
+        // while offline, throttled or congested messages are only appended to the store
+        signalMessageStored();
 
         return dataMsg.getId();
     }
@@ -563,6 +607,62 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         this.lock.unlock();
     }
 
+    private void signalMessageStored() {
+        this.lock.lock();
+        try {
+            if (this.publisherState == PublisherState.READY) {
+                this.notifyPending = true;
+                this.lockCondition.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void setPublisherState(PublisherState state) {
+        this.lock.lock();
+        try {
+            if (this.publisherState != state) {
+                logger.debug("Publisher state {} -> {}", this.publisherState, state);
+                this.publisherState = state;
+            }
+            // The publisher moves to the waiting states by itself.
+            // Going offline also wakes up a throttled publisher so that it stops waiting for a token.
+            if (state == PublisherState.READY || state == PublisherState.OFFLINE) {
+                this.notifyPending = true;
+                this.lockCondition.signal();
+            }
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private boolean compareAndSetPublisherState(PublisherState expected, PublisherState state) {
+        this.lock.lock();
+        try {
+            if (this.publisherState != expected) {
+                return false;
+            }
+            setPublisherState(state);
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private PublisherState getPublisherState() {
+        this.lock.lock();
+        try {
+            return this.publisherState;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void inFlightWindowAvailable() {
+        compareAndSetPublisherState(PublisherState.WINDOW_FULL, PublisherState.READY);
+    }
+
     private boolean startConnectionMonitorTask() {
         if (this.connectionMonitorFuture != null && !this.connectionMonitorFuture.isDone()) {
             logger.error("Reconnect task already running");
@@ -672,6 +772,36 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         }
     }
 
+    private void configureTelemetry() {
+        this.tracer.configure(this.dataServiceOptions.getTraceTopicPrefixes(),
+                this.dataServiceOptions.getTraceSampleInterval(), this.dataServiceOptions.getTraceMaxPerSecond());
+
+        if (this.metricsLogFuture != null) {
+            this.metricsLogFuture.cancel(false);
+            this.metricsLogFuture = null;
+        }
+        int interval = this.dataServiceOptions.getMetricsLogInterval();
+        if (interval > 0) {
+            this.metricsLogFuture = this.congestionExecutor.scheduleWithFixedDelay(this::logMetrics, interval,
+                    interval, TimeUnit.SECONDS);
+        }
+    }
+
+    private void logMetrics() {
+        long activity = this.metrics.getStoredCount() + this.metrics.getConfirmedCount();
+        if (activity != this.lastLoggedActivity) {
+            this.lastLoggedActivity = activity;
+            logger.info("Publishing metrics: {}", this.metrics);
+        }
+    }
+
+    /**
+     * Returns the counters and latency histograms of the publishing pipeline of this instance.
+     */
+    public DataServiceMetrics getMetrics() {
+        return this.metrics;
+    }
+
     private void stopConnectionMonitorTask() {
         if (this.connectionMonitorFuture != null && !this.connectionMonitorFuture.isDone()) {
 
@@ -706,14 +836,17 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         boolean retain = message.isRetain();
         int msgId = message.getId();
 
-        logger.debug("Publishing message with ID: {} on topic: {}, priority: {}",
-                new Object[] { msgId, topic, message.getPriority() });
-
-        DataTransportToken token = this.dataTransportService.publish(topic, payload, qos, retain);
+        long start = System.nanoTime();
+        DataTransportToken token;
+        try {
+            token = this.dataTransportService.publish(topic, payload, qos, retain);
+        } catch (KuraException e) {
+            this.metrics.publishFailed();
+            throw e;
+        }
 
         if (token == null) {
             this.store.published(msgId);
-            logger.debug("Published message with ID: {}", msgId);
         } else {
 
             // Check if the token is already tracked in the map (in which case we are in trouble)
@@ -724,8 +857,9 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
 
             this.inFlightMsgIds.put(token, msgId);
             this.store.published(msgId, token.getMessageId(), token.getSessionId());
-            logger.debug("Published message with ID: {} and MQTT message ID: {}", msgId, token.getMessageId());
         }
+        this.metrics.messagePublished(token, start);
+        this.tracer.trace("Published", topic, msgId);
     }
 
     private List<Integer> buildMessageIds(List<DataMessage> messages, String topicRegex) {
@@ -790,49 +924,85 @@ public class DataServiceImpl implements DataService, DataTransportListener, Conf
         public void run() {
             Thread.currentThread().setName("DataServiceImpl:Submit");
             while (DataServiceImpl.this.publisherEnabled.get()) {
-                long sleepingTime = -1;
-                boolean messagePublished = false;
+                if (getPublisherState() != PublisherState.READY) {
+                    // Offline or congested: woken up by the connection events or by a confirmation
+                    suspendPublisher(-1, TimeUnit.MILLISECONDS);
+                    continue;
+                }
 
-                if (DataServiceImpl.this.dataTransportService.isConnected()) {
-                    try {
-                        DataMessage message = DataServiceImpl.this.store.getNextMessage();
+                boolean messagePublished = false;
+                try {
+                    DataMessage message = DataServiceImpl.this.store.getNextMessage();
 
-                        if (message != null) {
-                            checkInFlightMessages(message);
+                    if (message != null) {
+                        if (!hasInFlightWindow(message)) {
+                            waitForInFlightWindow();
+                            continue;
+                        }
 
-                            if (DataServiceImpl.this.dataServiceOptions.isRateLimitEnabled()
-                                    && message.getPriority() >= 5) {
-                                messagePublished = publishMessageTokenBucket(message);
-                                sleepingTime = DataServiceImpl.this.throttle.getTokenWaitTime();
-                            } else {
-                                publishMessageUnbound(message);
-                                messagePublished = true;
+                        if (DataServiceImpl.this.dataServiceOptions.isRateLimitEnabled()
+                                && message.getPriority() >= 5) {
+                            messagePublished = publishMessageTokenBucket(message);
+                            if (!messagePublished) {
+                                waitForToken();
+                                continue;
                             }
+                        } else {
+                            publishMessageUnbound(message);
+                            messagePublished = true;
                         }
-                    } catch (KuraNotConnectedException e) {
+                    }
+                } catch (KuraNotConnectedException e) {
+                    if (!DataServiceImpl.this.dataTransportService.isConnected()) {
                         logger.info("DataPublisherService is not connected");
-                    } catch (KuraTooManyInflightMessagesException e) {
-                        logger.info("Too many in-flight messages");
-                        handleInFlightCongestion();
-                    } catch (Exception e) {
-                        logger.error("Probably an unrecoverable exception", e);
+                        compareAndSetPublisherState(PublisherState.READY, PublisherState.OFFLINE);
+                    } else {
+                        // The transport is reconnecting: retry later, or as soon as a connection event is received
+                        logger.debug("DataPublisherService is reconnecting");
+                        suspendPublisher(NOT_CONNECTED_RETRY_DELAY, TimeUnit.MILLISECONDS);
                     }
-                } else {
-                    logger.info("DataPublisherService not connected");
+                    continue;
+                } catch (KuraTooManyInflightMessagesException e) {
+                    logger.info("Too many in-flight messages");
+                    compareAndSetPublisherState(PublisherState.READY, PublisherState.WINDOW_FULL);
+                    handleInFlightCongestion();
+                    continue;
+                } catch (Exception e) {
+                    logger.error("Probably an unrecoverable exception", e);
                 }
 
                 if (!messagePublished) {
-                    suspendPublisher(sleepingTime, TimeUnit.MILLISECONDS);
+                    // Nothing to publish: woken up by the next stored message
+                    suspendPublisher(-1, TimeUnit.MILLISECONDS);
                 }
             }
             logger.debug("Exited publisher loop.");
         }
 
-        private void checkInFlightMessages(DataMessage message) throws KuraTooManyInflightMessagesException {
-            if (message.getQos() > 0 && DataServiceImpl.this.inFlightMsgIds
-                    .size() >= DataServiceImpl.this.dataServiceOptions.getMaxInFlightMessages()) {
-                logger.warn("The configured maximum number of in-flight messages has been reached");
-                throw new KuraTooManyInflightMessagesException("Too many in-flight messages");
+        private boolean hasInFlightWindow(DataMessage message) {
+            return message.getQos() == 0 || DataServiceImpl.this.inFlightMsgIds
+                    .size() < DataServiceImpl.this.dataServiceOptions.getMaxInFlightMessages();
+        }
+
+        private void waitForInFlightWindow() {
+            logger.warn("The configured maximum number of in-flight messages has been reached");
+            compareAndSetPublisherState(PublisherState.READY, PublisherState.WINDOW_FULL);
+            // A confirmation could have been received in the meantime
+            if (DataServiceImpl.this.inFlightMsgIds.size() < DataServiceImpl.this.dataServiceOptions
+                    .getMaxInFlightMessages()) {
+                inFlightWindowAvailable();
+            } else {
+                handleInFlightCongestion();
+            }
+        }
+
+        private void waitForToken() {
+            // The bucket holds at most the configured burst size,
+            // after an outage the backlog is drained at the configured rate.
+            long sleepingTime = DataServiceImpl.this.throttle.getTokenWaitTime();
+            if (compareAndSetPublisherState(PublisherState.READY, PublisherState.THROTTLED)) {
+                suspendPublisher(sleepingTime, TimeUnit.MILLISECONDS);
+                compareAndSetPublisherState(PublisherState.THROTTLED, PublisherState.READY);
             }
         }
 
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.eclipse.kura.data.DataTransportToken;
+
+/**
+ * Counters and latency histograms of the {@link DataServiceImpl} publishing pipeline.
+ * <p>
+ * They replace the per-message log lines: updating them costs a few atomic operations and they can be read at any
+ * time, either through the getters or the summary periodically logged by the {@link DataServiceImpl}.
+ * <ul>
+ * <li>store latency: time spent storing a message in the {@link DataStore}</li>
+ * <li>publish latency: time spent handing a stored message to the transport and recording it as published</li>
+ * <li>confirm latency: time between handing a QoS &gt; 0 message to the transport and its confirmation</li>
+ * </ul>
+ */
+public final class DataServiceMetrics {
+
+    private final LongAdder stored = new LongAdder();
+    private final LongAdder storeFailures = new LongAdder();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder publishFailures = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+
+    private final LatencyHistogram storeLatency = new LatencyHistogram();
+    private final LatencyHistogram publishLatency = new LatencyHistogram();
+    private final LatencyHistogram confirmLatency = new LatencyHistogram();
+
+    // publication time of the tracked in-flight messages
+    private final Map<DataTransportToken, Long> inFlightPublishTimes = new ConcurrentHashMap<>();
+
+    void messageStored(long startNanos) {
+        this.storeLatency.record(System.nanoTime() - startNanos);
+        this.stored.increment();
+    }
+
+    void storeFailed() {
+        this.storeFailures.increment();
+    }
+
+    void messagePublished(DataTransportToken token, long startNanos) {
+        this.publishLatency.record(System.nanoTime() - startNanos);
+        this.published.increment();
+        if (token != null) {
+            this.inFlightPublishTimes.put(token, startNanos);
+        }
+    }
+
+    void publishFailed() {
+        this.publishFailures.increment();
+    }
+
+    void messageConfirmed(DataTransportToken token) {
+        this.confirmed.increment();
+        Long startNanos = this.inFlightPublishTimes.remove(token);
+        // messages restored from the store have not been published by this instance
+        if (startNanos != null) {
+            this.confirmLatency.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    void inFlightMessagesCleared() {
+        this.inFlightPublishTimes.clear();
+    }
+
+    public long getStoredCount() {
+        return this.stored.sum();
+    }
+
+    public long getStoreFailureCount() {
+        return this.storeFailures.sum();
+    }
+
+    public long getPublishedCount() {
+        return this.published.sum();
+    }
+
+    public long getPublishFailureCount() {
+        return this.publishFailures.sum();
+    }
+
+    public long getConfirmedCount() {
+        return this.confirmed.sum();
+    }
+
+    public LatencyHistogram getStoreLatency() {
+        return this.storeLatency;
+    }
+
+    public LatencyHistogram getPublishLatency() {
+        return this.publishLatency;
+    }
+
+    public LatencyHistogram getConfirmLatency() {
+        return this.confirmLatency;
+    }
+
+    /**
+     * Resets all the counters and histograms. The publication times of the tracked in-flight messages are kept.
+     */
+    public void reset() {
+        this.stored.reset();
+        this.storeFailures.reset();
+        this.published.reset();
+        this.publishFailures.reset();
+        this.confirmed.reset();
+        this.storeLatency.reset();
+        this.publishLatency.reset();
+        this.confirmLatency.reset();
+    }
+
+    @Override
+    public String toString() {
+        return new StringBuilder().append("stored=").append(getStoredCount()).append(" (failed ")
+                .append(getStoreFailureCount()).append("), published=").append(getPublishedCount())
+                .append(" (failed ").append(getPublishFailureCount()).append("), confirmed=")
+                .append(getConfirmedCount()).append("; store latency [").append(this.storeLatency)
+                .append("]; publish latency [").append(this.publishLatency).append("]; confirm latency [")
+                .append(this.confirmLatency).append("]").toString();
+    }
+}
@@ -38,6 +38,10 @@ public class DataServiceOptions {
     private static final String RATE_LIMIT_BURST_SIZE_PROP_NAME = "rate.limit.burst.size";
     private static final String RECOVERY_ENABLE_PROP_NAME = "enable.recovery.on.connection.failure";
     private static final String RECOVERY_MAX_FAILURES_PROP_NAME = "connection.recovery.max.failures";
+    private static final String METRICS_LOG_INTERVAL_PROP_NAME = "metrics.log-interval";
+    private static final String TRACE_TOPIC_PREFIXES_PROP_NAME = "trace.topic-prefixes";
+    private static final String TRACE_SAMPLE_INTERVAL_PROP_NAME = "trace.sample-interval";
+    private static final String TRACE_MAX_PER_SECOND_PROP_NAME = "trace.max-per-second";
 
     private static final boolean AUTOCONNECT_PROP_DEFAULT = false;
     private static final int CONNECT_DELAY_DEFAULT = 60;
@@ -55,6 +59,10 @@ public class DataServiceOptions {
     private static final int RATE_LIMIT_BURST_SIZE_DEFAULT = 1;
     private static final boolean RECOVERY_ENABLE_DEFAULT = true;
     private static final int RECOVERY_MAX_FAILURES_DEFAULT = 10;
+    private static final int METRICS_LOG_INTERVAL_DEFAULT = 300;
+    private static final String TRACE_TOPIC_PREFIXES_DEFAULT = "";
+    private static final int TRACE_SAMPLE_INTERVAL_DEFAULT = 1;
+    private static final int TRACE_MAX_PER_SECOND_DEFAULT = 10;
 
     private static final int CONNECT_CRITICAL_COMPONENT_TIMEOUT_MULTIPLIER = 5000;
 
@@ -154,6 +162,22 @@ public class DataServiceOptions {
         return (int) this.properties.getOrDefault(RECOVERY_MAX_FAILURES_PROP_NAME, RECOVERY_MAX_FAILURES_DEFAULT);
     }
 
+    int getMetricsLogInterval() {
+        return (int) this.properties.getOrDefault(METRICS_LOG_INTERVAL_PROP_NAME, METRICS_LOG_INTERVAL_DEFAULT);
+    }
+
+    String getTraceTopicPrefixes() {
+        return (String) this.properties.getOrDefault(TRACE_TOPIC_PREFIXES_PROP_NAME, TRACE_TOPIC_PREFIXES_DEFAULT);
+    }
+
+    int getTraceSampleInterval() {
+        return (int) this.properties.getOrDefault(TRACE_SAMPLE_INTERVAL_PROP_NAME, TRACE_SAMPLE_INTERVAL_DEFAULT);
+    }
+
+    int getTraceMaxPerSecond() {
+        return (int) this.properties.getOrDefault(TRACE_MAX_PER_SECOND_PROP_NAME, TRACE_MAX_PER_SECOND_DEFAULT);
+    }
+
     int getCriticalComponentTimeout() {
         return getConnectDelay() * CONNECT_CRITICAL_COMPONENT_TIMEOUT_MULTIPLIER;
     }
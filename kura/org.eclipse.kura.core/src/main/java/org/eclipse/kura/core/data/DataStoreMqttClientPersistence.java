@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data;
+
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.Vector;
+
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.paho.client.mqttv3.MqttClientPersistence;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.internal.wire.MqttPublish;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Paho client persistence backed by the {@link DataStore} of the {@link DataServiceImpl}.
+ * <p>
+ * Outgoing QoS &gt; 0 publications are already stored by the {@link DataServiceImpl} together with the MQTT
+ * message ID and the session ID they have been published with, so they are not written a second time.
+ * When the client is created the store in-flight messages of the current session are presented to Paho as
+ * persisted publications and Paho redelivers them on reconnect. Confirmations are tracked by the
+ * {@link DataServiceImpl} through the delivery complete callback.
+ * <p>
+ * The remaining Paho state (QoS 2 handshakes and received QoS 2 messages) is kept in memory only.
+ * After a restart an unconfirmed QoS 2 publication is therefore sent again as a PUBLISH.
+ */
+public class DataStoreMqttClientPersistence implements MqttClientPersistence {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataStoreMqttClientPersistence.class);
+
+    // Paho persistence key prefix of outgoing QoS 1 and QoS 2 publications
+    private static final String SEND_KEY_PREFIX = "s-";
+
+    private final DataStore store;
+    private final MemoryPersistence memoryPersistence = new MemoryPersistence();
+
+    private String sessionId;
+
+    public DataStoreMqttClientPersistence(DataStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void open(String clientId, String serverURI) throws MqttPersistenceException {
+        // same as the session ID generated by the MqttDataTransport
+        this.sessionId = clientId + "-" + serverURI;
+        this.memoryPersistence.open(clientId, serverURI);
+    }
+
+    @Override
+    public void close() throws MqttPersistenceException {
+        this.memoryPersistence.close();
+    }
+
+    @Override
+    public void put(String key, MqttPersistable persistable) throws MqttPersistenceException {
+        if (isSendKey(key)) {
+            // stored by the DataService before being handed to the transport
+            return;
+        }
+        this.memoryPersistence.put(key, persistable);
+    }
+
+    @Override
+    public MqttPersistable get(String key) throws MqttPersistenceException {
+        if (isSendKey(key)) {
+            return getPublish(key);
+        }
+        return this.memoryPersistence.get(key);
+    }
+
+    @Override
+    public void remove(String key) throws MqttPersistenceException {
+        if (isSendKey(key)) {
+            // confirmed by the DataService on delivery complete
+            return;
+        }
+        this.memoryPersistence.remove(key);
+    }
+
+    @Override
+    public Enumeration keys() throws MqttPersistenceException {
+        // a set, MQTT message IDs of stale in-flight messages can repeat
+        Set<Object> keys = new LinkedHashSet<>();
+        for (DataMessage message : getInFlightMessages()) {
+            keys.add(SEND_KEY_PREFIX + message.getPublishedMessageId());
+        }
+
+        Enumeration<?> memoryKeys = this.memoryPersistence.keys();
+        while (memoryKeys.hasMoreElements()) {
+            keys.add(memoryKeys.nextElement());
+        }
+        return new Vector<>(keys).elements();
+    }
+
+    @Override
+    public void clear() throws MqttPersistenceException {
+        // in-flight messages of the DataStore are unpublished or dropped by the DataService on a new session
+        this.memoryPersistence.clear();
+    }
+
+    @Override
+    public boolean containsKey(String key) throws MqttPersistenceException {
+        if (isSendKey(key)) {
+            return findInFlightMessage(parseMessageId(key)) != null;
+        }
+        return this.memoryPersistence.containsKey(key);
+    }
+
+    private MqttPersistable getPublish(String key) throws MqttPersistenceException {
+        DataMessage inFlightMessage = findInFlightMessage(parseMessageId(key));
+        if (inFlightMessage == null) {
+            return null;
+        }
+
+        DataMessage message;
+        try {
+            message = this.store.get(inFlightMessage.getId());
+        } catch (KuraStoreException e) {
+            throw new MqttPersistenceException(e);
+        }
+        if (message == null) {
+            return null;
+        }
+
+        MqttMessage mqttMessage = new MqttMessage(message.getPayload() != null ? message.getPayload() : new byte[0]);
+        mqttMessage.setQos(message.getQos());
+        mqttMessage.setRetained(message.isRetain());
+
+        MqttPublish publish = new MqttPublish(message.getTopic(), mqttMessage);
+        publish.setMessageId(message.getPublishedMessageId());
+
+        logger.debug("Restored in-flight message with ID: {} and MQTT message ID: {}", message.getId(),
+                message.getPublishedMessageId());
+        return publish;
+    }
+
+    private DataMessage findInFlightMessage(int publishedMessageId) throws MqttPersistenceException {
+        // MQTT message IDs wrap around, the most recent publication wins
+        DataMessage found = null;
+        for (DataMessage message : getInFlightMessages()) {
+            if (message.getPublishedMessageId() == publishedMessageId
+                    && (found == null || message.getId() > found.getId())) {
+                found = message;
+            }
+        }
+        return found;
+    }
+
+    private List<DataMessage> getInFlightMessages() throws MqttPersistenceException {
+        List<DataMessage> sessionMessages = new ArrayList<>();
+        try {
+            List<DataMessage> messages = this.store.allInFlightMessagesNoPayload();
+            if (messages != null) {
+                for (DataMessage message : messages) {
+                    if (this.sessionId != null && this.sessionId.equals(message.getSessionId())) {
+                        sessionMessages.add(message);
+                    }
+                }
+            }
+        } catch (KuraStoreException e) {
+            throw new MqttPersistenceException(e);
+        }
+        return sessionMessages;
+    }
+
+    private static boolean isSendKey(String key) {
+        return key.startsWith(SEND_KEY_PREFIX);
+    }
+
+    private static int parseMessageId(String key) throws MqttPersistenceException {
+        try {
+            return Integer.parseInt(key.substring(SEND_KEY_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            throw new MqttPersistenceException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.data;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sampled and rate limited per-message tracing of the publishing pipeline.
+ * <p>
+ * Tracing is limited to the topics starting with one of the configured prefixes and can be changed at runtime
+ * through the {@link DataServiceImpl} configuration. Only one every {@code sampleInterval} matching events is
+ * logged, and no more than {@code maxPerSecond} per second. With no prefixes configured {@link #trace} returns
+ * after a single volatile read.
+ */
+final class PublishTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(PublishTracer.class);
+
+    private static final class Settings {
+
+        private final String[] topicPrefixes;
+        private final int sampleInterval;
+        private final int maxPerSecond;
+
+        private Settings(String[] topicPrefixes, int sampleInterval, int maxPerSecond) {
+            this.topicPrefixes = topicPrefixes;
+            this.sampleInterval = Math.max(sampleInterval, 1);
+            this.maxPerSecond = Math.max(maxPerSecond, 0);
+        }
+    }
+
+    private static final Settings DISABLED = new Settings(new String[0], 1, 0);
+
+    private volatile Settings settings = DISABLED;
+
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger windowCount = new AtomicInteger();
+
+    /**
+     * @param topicPrefixes
+     *            comma separated list of topic prefixes, an empty or null value disables tracing
+     */
+    void configure(String topicPrefixes, int sampleInterval, int maxPerSecond) {
+        String[] prefixes = parsePrefixes(topicPrefixes);
+        if (prefixes.length == 0 || maxPerSecond <= 0) {
+            this.settings = DISABLED;
+            return;
+        }
+        this.settings = new Settings(prefixes, sampleInterval, maxPerSecond);
+        logger.info("Tracing messages on topics starting with {}, sampling 1 every {}, at most {} per second",
+                topicPrefixes, sampleInterval, maxPerSecond);
+    }
+
+    void trace(String event, String topic, int messageId) {
+        Settings current = this.settings;
+        if (current.topicPrefixes.length == 0 || !matches(current, topic)) {
+            return;
+        }
+        if (this.matched.incrementAndGet() % current.sampleInterval != 0) {
+            return;
+        }
+        if (!acquire(current.maxPerSecond)) {
+            return;
+        }
+        logger.info("{} message ID: {} on topic: {}", event, messageId, topic);
+    }
+
+    private boolean acquire(int maxPerSecond) {
+        long now = System.nanoTime();
+        long start = this.windowStart.get();
+        if (now - start >= 1_000_000_000L && this.windowStart.compareAndSet(start, now)) {
+            this.windowCount.set(0);
+        }
+        return this.windowCount.incrementAndGet() <= maxPerSecond;
+    }
+
+    private static boolean matches(Settings settings, String topic) {
+        if (topic == null) {
+            return false;
+        }
+        for (String prefix : settings.topicPrefixes) {
+            if (topic.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] parsePrefixes(String topicPrefixes) {
+        if (topicPrefixes == null || topicPrefixes.trim().isEmpty()) {
+            return new String[0];
+        }
+        return topicPrefixes.trim().split("\\s*,\\s*");
+    }
+}
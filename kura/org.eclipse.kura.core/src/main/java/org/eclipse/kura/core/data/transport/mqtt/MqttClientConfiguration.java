@@ -21,7 +21,7 @@ public class MqttClientConfiguration {
     private final MqttConnectOptions connectOptions;
 
     public enum PersistenceType {
-        FILE, MEMORY
+        FILE, MEMORY, STORE
     };
 
     public MqttClientConfiguration(String brokerUrl, String clientId, PersistenceType persistenceType,
@@ -28,6 +28,8 @@ import org.eclipse.kura.KuraTooManyInflightMessagesException;
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.configuration.ConfigurationService;
 import org.eclipse.kura.configuration.Password;
+import org.eclipse.kura.core.data.DataStore;
+import org.eclipse.kura.core.data.DataStoreMqttClientPersistence;
 import org.eclipse.kura.core.data.transport.mqtt.MqttClientConfiguration.PersistenceType;
 import org.eclipse.kura.core.util.ValidationUtil;
 import org.eclipse.kura.crypto.CryptoService;
@@ -116,6 +118,7 @@ public class MqttDataTransport implements DataTransportService, MqttCallback, Co
 
     private PersistenceType persistenceType;
     private MqttClientPersistence persistence;
+    private volatile DataStore dataStore;
 
     private final Map<String, String> topicContext = new HashMap<String, String>();
     private final Map<String, Object> properties = new HashMap<String, Object>();
@@ -160,6 +163,20 @@ public class MqttDataTransport implements DataTransportService, MqttCallback, Co
         this.cloudConnectionStatusService = null;
     }
 
+    /**
+     * Set by the {@link org.eclipse.kura.core.data.DataServiceImpl} using this transport.
+     * The store backs the in-flight persistence when {@code in-flight.persistence} is set to {@code store}.
+     */
+    public void setDataStore(DataStore dataStore) {
+        this.dataStore = dataStore;
+    }
+
+    public void unsetDataStore(DataStore dataStore) {
+        if (this.dataStore == dataStore) {
+            this.dataStore = null;
+        }
+    }
+
     // ----------------------------------------------------------------
     //
     // Activation APIs
@@ -513,7 +530,7 @@ public class MqttDataTransport implements DataTransportService, MqttCallback, Co
 
         topic = replaceTopicVariables(topic);
 
-        logger.info("Publishing message on topic: {} with QoS: {}", topic, qos);
+        logger.debug("Publishing message on topic: {} with QoS: {}", topic, qos);
 
         MqttMessage message = new MqttMessage();
         message.setPayload(payload);
@@ -839,6 +856,8 @@ public class MqttDataTransport implements DataTransportService, MqttCallback, Co
             persistenceType = PersistenceType.FILE;
         } else if ("memory".equals(sType)) {
             persistenceType = PersistenceType.MEMORY;
+        } else if ("store".equals(sType)) {
+            persistenceType = PersistenceType.STORE;
         } else {
             throw new IllegalStateException("Invalid MQTT client configuration: persistenceType: " + persistenceType);
         }
@@ -959,9 +978,21 @@ public class MqttDataTransport implements DataTransportService, MqttCallback, Co
             // Paho won't do that.
 
             PersistenceType persistenceType = this.clientConf.getPersistenceType();
+            if (persistenceType == PersistenceType.STORE && this.dataStore == null) {
+                // A client created now would be kept until the persistence type changes:
+                // record memory so that the next connect recreates it once the store is available.
+                logger.warn("Message store not available, using memory persistence for in-flight messages");
+                persistenceType = PersistenceType.MEMORY;
+            }
+
             if (persistenceType == PersistenceType.MEMORY) {
                 logger.info("Using memory persistence for in-flight messages");
                 this.persistence = new MemoryPersistence();
+            } else if (persistenceType == PersistenceType.STORE) {
+                // In-flight messages are already in the DataService store,
+                // Paho restores them from there instead of writing them again to its own files.
+                logger.info("Using the message store for in-flight messages");
+                this.persistence = new DataStoreMqttClientPersistence(this.dataStore);
             } else {
                 StringBuffer sb = new StringBuffer();
                 sb.append(this.systemService.getKuraDataDirectory()).append(this.systemService.getFileSeparator())
@@ -26,6 +26,11 @@ import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.security.AccessController;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -558,6 +563,11 @@ public class SystemServiceImpl extends SuperSystemService implements SystemServi
                 logger.error(e.getLocalizedMessage());
             }
         } else {
+            // avoid enumerating all the interfaces through the network service, which executes several commands
+            macAddress = readSysfsMacAddress(primaryNetworkInterfaceName);
+            if (macAddress != null) {
+                return macAddress;
+            }
             try {
                 List<NetInterface<? extends NetInterfaceAddress>> interfaces = this.networkService
                         .getNetworkInterfaces();
@@ -577,6 +587,20 @@ public class SystemServiceImpl extends SuperSystemService implements SystemServi
         return macAddress;
     }
 
+    private static String readSysfsMacAddress(String interfaceName) {
+        if (interfaceName == null) {
+            return null;
+        }
+        try {
+            Path address = Paths.get("/sys/class/net", interfaceName, "address");
+            String mac = new String(Files.readAllBytes(address), StandardCharsets.US_ASCII).trim();
+            return mac.isEmpty() ? null : mac.toUpperCase();
+        } catch (IOException | InvalidPathException e) {
+            logger.debug("Failed to read the MAC address of {} from sysfs", interfaceName, e);
+            return null;
+        }
+    }
+
     /**
      * Returns ip of the first interface name of which begins with <code>prefix</code>.
      *
@@ -0,0 +1,292 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.eclipse.kura.core.util.ProcessUtil.Priority;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes processes on a bounded number of worker threads.
+ * <p>
+ * Waiting executions are queued by priority and the workers always take the oldest execution with the highest
+ * priority. Low priority executions, typically slow commands such as wireless scans, can never occupy all the
+ * workers, so that a worker is always left for the executions with higher priority. With a single worker this cannot
+ * be guaranteed: low priority executions share it with the others, they are only taken after all the executions
+ * with higher priority and a running low priority execution delays the following ones. Workers are started when
+ * needed.
+ * <p>
+ * Each execution may have a timeout, covering both the time spent in the queue and the execution of the process:
+ * when it expires the execution is removed from the queue or the process is killed.
+ */
+final class ProcessExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessExecutor.class);
+
+    private static final class Task {
+
+        private final String[] cmdarray;
+        private final Priority priority;
+        private final long submitNanos = System.nanoTime();
+        private final CompletableFuture<SafeProcess> result = new CompletableFuture<>();
+
+        // guarded by this
+        private SafeProcess process;
+        private boolean cancelled;
+
+        private Task(String[] cmdarray, Priority priority) {
+            this.cmdarray = cmdarray;
+            this.priority = priority;
+        }
+    }
+
+    private static final class Counters {
+
+        private long executions;
+        private long failures;
+        private long timeouts;
+        private long totalQueueNanos;
+        private long maxQueueNanos;
+        private long totalExecutionNanos;
+        private long maxExecutionNanos;
+    }
+
+    private final int maxWorkers;
+    private final int maxLowPriorityWorkers;
+
+    private final Object lock = new Object();
+    private final Map<Priority, ArrayDeque<Task>> queues = new EnumMap<>(Priority.class);
+    private int workers;
+    private int busyWorkers;
+    private int busyLowPriorityWorkers;
+
+    private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+    ProcessExecutor(int maxWorkers) {
+        if (maxWorkers <= 0) {
+            throw new IllegalArgumentException("The number of workers must be positive");
+        }
+        this.maxWorkers = maxWorkers;
+        // with a single worker, low priority executions would never run otherwise
+        this.maxLowPriorityWorkers = Math.max(1, maxWorkers - 1);
+        for (Priority priority : Priority.values()) {
+            this.queues.put(priority, new ArrayDeque<>());
+        }
+    }
+
+    /**
+     * Executes a process and waits for its termination.
+     *
+     * @param timeoutNanos
+     *            the maximum time to wait, zero or negative to wait indefinitely
+     * @throws IOException
+     *             if the process cannot be executed, the timeout expires or the calling thread is interrupted
+     */
+    SafeProcess exec(String[] cmdarray, Priority priority, long timeoutNanos) throws IOException {
+        final Task task = new Task(cmdarray, priority);
+        submit(task);
+
+        try {
+            return timeoutNanos > 0 ? task.result.get(timeoutNanos, TimeUnit.NANOSECONDS) : task.result.get();
+        } catch (TimeoutException e) {
+            cancel(task);
+            final Counters c = getCounters(cmdarray);
+            synchronized (c) {
+                c.timeouts++;
+            }
+            throw new IOException("Timeout executing " + Arrays.toString(cmdarray));
+        } catch (InterruptedException e) {
+            cancel(task);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted executing " + Arrays.toString(cmdarray));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    List<ProcessStatistics> getStatistics() {
+        final List<ProcessStatistics> result = new ArrayList<>(this.counters.size());
+        for (Map.Entry<String, Counters> entry : this.counters.entrySet()) {
+            final Counters c = entry.getValue();
+            synchronized (c) {
+                result.add(new ProcessStatistics(entry.getKey(), c.executions, c.failures, c.timeouts,
+                        c.totalQueueNanos, c.maxQueueNanos, c.totalExecutionNanos, c.maxExecutionNanos));
+            }
+        }
+        return result;
+    }
+
+    int getQueueLength() {
+        synchronized (this.lock) {
+            return queued();
+        }
+    }
+
+    int getBusyWorkers() {
+        synchronized (this.lock) {
+            return this.busyWorkers;
+        }
+    }
+
+    private void submit(Task task) {
+        synchronized (this.lock) {
+            this.queues.get(task.priority).add(task);
+            if (this.workers < this.maxWorkers && this.workers - this.busyWorkers < queued()) {
+                final Thread worker = new Thread(this::work, "ProcessExecutor-" + this.workers);
+                worker.setDaemon(true);
+                worker.start();
+                this.workers++;
+            }
+            this.lock.notifyAll();
+        }
+    }
+
+    private void cancel(Task task) {
+        final SafeProcess process;
+        synchronized (this.lock) {
+            this.queues.get(task.priority).remove(task);
+        }
+        synchronized (task) {
+            task.cancelled = true;
+            process = task.process;
+        }
+        if (process != null) {
+            logger.warn("Killing {}", Arrays.toString(task.cmdarray));
+            process.cancel();
+        }
+        task.result.cancel(false);
+    }
+
+    private void work() {
+        while (true) {
+            final Task task;
+            synchronized (this.lock) {
+                Task next;
+                while ((next = poll()) == null) {
+                    try {
+                        this.lock.wait();
+                    } catch (InterruptedException e) {
+                        this.workers--;
+                        return;
+                    }
+                }
+                task = next;
+                this.busyWorkers++;
+                if (task.priority == Priority.LOW) {
+                    this.busyLowPriorityWorkers++;
+                }
+            }
+
+            try {
+                run(task);
+            } finally {
+                synchronized (this.lock) {
+                    this.busyWorkers--;
+                    if (task.priority == Priority.LOW) {
+                        this.busyLowPriorityWorkers--;
+                        // a low priority execution may have been waiting for a worker to be released
+                        this.lock.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    // must be called holding the lock
+    private int queued() {
+        int length = 0;
+        for (ArrayDeque<Task> queue : this.queues.values()) {
+            length += queue.size();
+        }
+        return length;
+    }
+
+    // must be called holding the lock
+    private Task poll() {
+        for (Map.Entry<Priority, ArrayDeque<Task>> entry : this.queues.entrySet()) {
+            if (entry.getKey() == Priority.LOW && this.busyLowPriorityWorkers >= this.maxLowPriorityWorkers) {
+                continue;
+            }
+            final Task task = entry.getValue().poll();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private void run(Task task) {
+        final long startNanos = System.nanoTime();
+        final SafeProcess process = new SafeProcess();
+        synchronized (task) {
+            if (task.cancelled) {
+                return;
+            }
+            task.process = process;
+        }
+
+        Exception failure = null;
+        try {
+            process.exec(task.cmdarray);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        // record before completing, so that the statistics include the execution when the caller resumes
+        record(task, startNanos - task.submitNanos, System.nanoTime() - startNanos, failure != null);
+        if (failure == null) {
+            task.result.complete(process);
+        } else {
+            task.result.completeExceptionally(failure);
+        }
+    }
+
+    private void record(Task task, long queueNanos, long executionNanos, boolean failed) {
+        final Counters c = getCounters(task.cmdarray);
+        synchronized (c) {
+            c.executions++;
+            if (failed) {
+                c.failures++;
+            }
+            c.totalQueueNanos += queueNanos;
+            c.maxQueueNanos = Math.max(c.maxQueueNanos, queueNanos);
+            c.totalExecutionNanos += executionNanos;
+            c.maxExecutionNanos = Math.max(c.maxExecutionNanos, executionNanos);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Executed {} in {} ms, queued for {} ms", Arrays.toString(task.cmdarray),
+                    TimeUnit.NANOSECONDS.toMillis(executionNanos), TimeUnit.NANOSECONDS.toMillis(queueNanos));
+        }
+    }
+
+    private Counters getCounters(String[] cmdarray) {
+        final String command = cmdarray.length > 0 ? new File(cmdarray[0]).getName() : "";
+        return this.counters.computeIfAbsent(command, k -> new Counters());
+    }
+}
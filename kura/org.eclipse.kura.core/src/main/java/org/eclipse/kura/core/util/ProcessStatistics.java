@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Execution statistics of the processes started through {@link ProcessUtil} with the same command name, the last
+ * element of the path of the executable.
+ * <p>
+ * Instances are immutable snapshots, see {@link ProcessUtil#getStatistics()}.
+ */
+public final class ProcessStatistics {
+
+    private final String command;
+    private final long executions;
+    private final long failures;
+    private final long timeouts;
+    private final long totalQueueNanos;
+    private final long maxQueueNanos;
+    private final long totalExecutionNanos;
+    private final long maxExecutionNanos;
+
+    ProcessStatistics(String command, long executions, long failures, long timeouts, long totalQueueNanos,
+            long maxQueueNanos, long totalExecutionNanos, long maxExecutionNanos) {
+        this.command = command;
+        this.executions = executions;
+        this.failures = failures;
+        this.timeouts = timeouts;
+        this.totalQueueNanos = totalQueueNanos;
+        this.maxQueueNanos = maxQueueNanos;
+        this.totalExecutionNanos = totalExecutionNanos;
+        this.maxExecutionNanos = maxExecutionNanos;
+    }
+
+    public String getCommand() {
+        return this.command;
+    }
+
+    /**
+     * @return the number of processes started
+     */
+    public long getExecutions() {
+        return this.executions;
+    }
+
+    /**
+     * @return the number of processes which could not be started or whose output could not be read
+     */
+    public long getFailures() {
+        return this.failures;
+    }
+
+    /**
+     * @return the number of executions abandoned because their timeout expired, while queued or running
+     */
+    public long getTimeouts() {
+        return this.timeouts;
+    }
+
+    public long getAverageQueueTime(TimeUnit unit) {
+        return this.executions > 0 ? unit.convert(this.totalQueueNanos / this.executions, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    public long getMaxQueueTime(TimeUnit unit) {
+        return unit.convert(this.maxQueueNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public long getAverageExecutionTime(TimeUnit unit) {
+        return this.executions > 0 ? unit.convert(this.totalExecutionNanos / this.executions, TimeUnit.NANOSECONDS)
+                : 0;
+    }
+
+    public long getMaxExecutionTime(TimeUnit unit) {
+        return unit.convert(this.maxExecutionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "ProcessStatistics [command=" + this.command + ", executions=" + this.executions + ", failures="
+                + this.failures + ", timeouts=" + this.timeouts + ", averageQueueTime="
+                + getAverageQueueTime(TimeUnit.MILLISECONDS) + " ms, maxQueueTime="
+                + getMaxQueueTime(TimeUnit.MILLISECONDS) + " ms, averageExecutionTime="
+                + getAverageExecutionTime(TimeUnit.MILLISECONDS) + " ms, maxExecutionTime="
+                + getMaxExecutionTime(TimeUnit.MILLISECONDS) + " ms]";
+    }
+}
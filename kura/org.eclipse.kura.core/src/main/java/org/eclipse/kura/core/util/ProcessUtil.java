@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2016 Eurotech and/or its affiliates
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -12,22 +12,53 @@
 package org.eclipse.kura.core.util;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.StringTokenizer;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Executes external processes, consuming their output and error streams.
+ * <p>
+ * Processes are executed on a bounded pool of workers, whose size can be set through the
+ * {@value #WORKERS_PROPERTY} system property (default {@value #DEFAULT_WORKERS}, at least {@value #MIN_WORKERS} so
+ * that a worker is always left for the executions that are not {@link Priority#LOW}). When all the workers are busy,
+ * executions are queued according to their {@link Priority}.
+ */
 public class ProcessUtil {
 
-    private static final Logger s_logger = LoggerFactory.getLogger(ProcessUtil.class);
+    /**
+     * The priority of an execution, used when no worker is available.
+     */
+    public enum Priority {
+        /**
+         * Short commands whose result is needed promptly, e.g. reading the link state of an interface.
+         */
+        HIGH,
+        NORMAL,
+        /**
+         * Long running commands, e.g. wireless scans. Low priority executions never occupy all the workers.
+         */
+        LOW
+    }
+
+    public static final String WORKERS_PROPERTY = "org.eclipse.kura.core.util.process.workers";
+    public static final int DEFAULT_WORKERS = 4;
+    public static final int MIN_WORKERS = 2;
 
-    private static final ExecutorService s_processExecutor = Executors.newSingleThreadExecutor();
+    private static final ProcessExecutor s_processExecutor = new ProcessExecutor(
+            Math.max(MIN_WORKERS, Integer.getInteger(WORKERS_PROPERTY, DEFAULT_WORKERS)));
 
     public static SafeProcess exec(String command) throws IOException {
+        return exec(command, Priority.NORMAL, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Executes a command, split in tokens by white spaces.
+     *
+     * @see #exec(String[], Priority, long, TimeUnit)
+     */
+    public static SafeProcess exec(String command, Priority priority, long timeout, TimeUnit unit)
+            throws IOException {
         // Use StringTokenizer since this is the method documented by Runtime
         StringTokenizer st = new StringTokenizer(command);
         int count = st.countTokens();
@@ -37,28 +68,42 @@ public class ProcessUtil {
             cmdArray[i] = st.nextToken();
         }
 
-        return exec(cmdArray);
+        return exec(cmdArray, priority, timeout, unit);
     }
 
     public static SafeProcess exec(final String[] cmdarray) throws IOException {
-        // Serialize process executions. One at a time so we can consume all streams.
-        Future<SafeProcess> futureSafeProcess = s_processExecutor.submit(new Callable<SafeProcess>() {
+        return exec(cmdarray, Priority.NORMAL, 0, TimeUnit.MILLISECONDS);
+    }
 
-            @Override
-            public SafeProcess call() throws Exception {
-                Thread.currentThread().setName("SafeProcessExecutor");
-                SafeProcess safeProcess = new SafeProcess();
-                safeProcess.exec(cmdarray);
-                return safeProcess;
-            }
-        });
+    /**
+     * Executes a process and waits for its termination.
+     *
+     * @param cmdarray
+     *            the command and its arguments
+     * @param priority
+     *            the priority of the execution when no worker is available
+     * @param timeout
+     *            the maximum time to wait for the termination of the process, including the time spent waiting for a
+     *            worker, zero or negative to wait indefinitely. When the timeout expires the process is killed.
+     * @param unit
+     *            the unit of the timeout
+     * @return the terminated process
+     * @throws IOException
+     *             if the process cannot be executed or its output cannot be read, if the timeout expires or if the
+     *             calling thread is interrupted ({@link java.io.InterruptedIOException})
+     */
+    public static SafeProcess exec(String[] cmdarray, Priority priority, long timeout, TimeUnit unit)
+            throws IOException {
+        return s_processExecutor.exec(cmdarray, priority, unit.toNanos(timeout));
+    }
 
-        try {
-            return futureSafeProcess.get();
-        } catch (Exception e) {
-            s_logger.error("Error waiting from SafeProcess output", e);
-            throw new IOException(e);
-        }
+    /**
+     * Returns the execution statistics, one entry per command name.
+     *
+     * @return a snapshot of the statistics of the processes executed so far
+     */
+    public static List<ProcessStatistics> getStatistics() {
+        return s_processExecutor.getStatistics();
     }
 
     /**
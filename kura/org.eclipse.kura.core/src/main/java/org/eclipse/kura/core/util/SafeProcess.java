@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2016 Eurotech and/or its affiliates
+ * Copyright (c) 2011, 2017 Eurotech and/or its affiliates
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -22,6 +22,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,10 +31,17 @@ public class SafeProcess {
 
     private static final Logger s_logger = LoggerFactory.getLogger(SafeProcess.class);
 
-    private static final ExecutorService s_streamGobblers = Executors.newFixedThreadPool(2);
+    private static final AtomicInteger s_gobblerCount = new AtomicInteger();
 
-    private Process m_process;
-    private Future<byte[]> m_futureInputGobbler;
+    // the output stream is read by the executing thread, only the error stream needs a separate thread
+    private static final ExecutorService s_streamGobblers = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "SafeProcess ErrorStream Gobbler-" + s_gobblerCount.getAndIncrement());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Process m_process;
+    private volatile boolean m_cancelled;
     private Future<byte[]> m_futureErrorGobbler;
     private byte[] m_inBytes;
     private byte[] m_errBytes;
@@ -68,47 +76,58 @@ public class SafeProcess {
     void exec(String[] cmdarray) throws IOException {
         s_logger.debug("Executing: {}", Arrays.toString(cmdarray));
         ProcessBuilder pb = new ProcessBuilder(cmdarray);
-        this.m_process = pb.start();
+        final Process process = pb.start();
+        this.m_process = process;
 
-        // process the input stream
-        this.m_futureInputGobbler = s_streamGobblers.submit(new Callable<byte[]>() {
+        try {
+            // nothing is ever written to the process
+            closeQuietly(process.getOutputStream());
 
-            @Override
-            public byte[] call() throws Exception {
-                Thread.currentThread().setName("SafeProcess InputStream Gobbler");
-                return readStreamFully(SafeProcess.this.m_process.getInputStream());
+            if (this.m_cancelled) {
+                // cancel() may have missed the process
+                process.destroyForcibly();
             }
-        });
 
-        // process the error stream
-        this.m_futureErrorGobbler = s_streamGobblers.submit(new Callable<byte[]>() {
+            // process the error stream
+            this.m_futureErrorGobbler = s_streamGobblers.submit(new Callable<byte[]>() {
 
-            @Override
-            public byte[] call() throws Exception {
-                Thread.currentThread().setName("SafeProcess ErrorStream Gobbler");
-                return readStreamFully(SafeProcess.this.m_process.getErrorStream());
-            }
-        });
+                @Override
+                public byte[] call() throws Exception {
+                    return readStreamFully(process.getErrorStream());
+                }
+            });
 
-        // wait for the process execution
-        try {
-            this.m_inBytes = this.m_futureInputGobbler.get();
+            // process the input stream and wait for the process execution
+            this.m_inBytes = readStreamFully(process.getInputStream());
             this.m_errBytes = this.m_futureErrorGobbler.get();
-            this.m_exitValue = this.m_process.waitFor();
+            this.m_exitValue = process.waitFor();
+            if (this.m_cancelled) {
+                throw new IOException("Execution of " + Arrays.toString(cmdarray) + " cancelled");
+            }
         } catch (InterruptedException e) {
             throw new IOException(e);
         } catch (ExecutionException e) {
             throw new IOException(e);
         } finally {
-            closeQuietly(this.m_process.getInputStream());
-            closeQuietly(this.m_process.getErrorStream());
-            closeQuietly(this.m_process.getOutputStream());
-            this.m_process.destroy();
+            closeQuietly(process.getInputStream());
+            closeQuietly(process.getErrorStream());
+            process.destroy();
             this.m_process = null;
             this.m_waited = true;
         }
     }
 
+    /**
+     * Kills the process, if running, making a pending {@link #exec(String[])} fail.
+     */
+    void cancel() {
+        this.m_cancelled = true;
+        final Process process = this.m_process;
+        if (process != null) {
+            process.destroyForcibly();
+        }
+    }
+
     public int waitFor() throws InterruptedException {
         return this.m_exitValue;
     }
@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2018 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.internal.driver.can;
+
+import java.util.List;
+
+import org.eclipse.kura.core.configuration.metatype.Tad;
+import org.eclipse.kura.core.configuration.metatype.Toption;
+import org.eclipse.kura.core.configuration.metatype.Tscalar;
+import org.eclipse.kura.driver.ChannelDescriptor;
+import org.eclipse.kura.driver.binary.BinaryDataTypes;
+import org.eclipse.kura.protocol.can.CanFilter;
+import org.eclipse.kura.util.collection.CollectionUtil;
+
+/**
+ * CAN specific channel descriptor. A channel maps a signal contained in the payload of the frames with a given CAN
+ * identifier. The descriptor contains the following attribute definition identifiers.
+ *
+ * <ul>
+ * <li>can.id</li> the CAN identifier of the frames
+ * <li>can.data.type</li> the encoding of the signal
+ * <li>offset</li> the offset of the signal in the payload, in bytes
+ * <li>byte.count</li> the number of bytes of a BYTE_ARRAY signal
+ * <li>bit.index</li> the index of the bit of a BOOL signal
+ * </ul>
+ */
+public final class CanChannelDescriptor implements ChannelDescriptor {
+
+    public static final String CAN_ID_ID = "can.id";
+    public static final String CAN_DATA_TYPE_ID = "can.data.type";
+    public static final String OFFSET_ID = "offset";
+    public static final String BYTE_COUNT_ID = "byte.count";
+    public static final String BIT_INDEX_ID = "bit.index";
+
+    public static final String BOOL_DATA_TYPE = "BOOL";
+    public static final String BYTE_ARRAY_DATA_TYPE = "BYTE_ARRAY";
+
+    public static final int MAX_FRAME_LENGTH = 8;
+
+    private static Toption generateOption(String type) {
+        Toption option = new Toption();
+        option.setLabel(type);
+        option.setValue(type);
+        return option;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Object getDescriptor() {
+        final List<Tad> elements = CollectionUtil.newArrayList();
+
+        final Tad canId = new Tad();
+        canId.setName(CAN_ID_ID);
+        canId.setId(CAN_ID_ID);
+        canId.setDescription("CAN identifier of the frames containing the signal");
+        canId.setType(Tscalar.INTEGER);
+        canId.setRequired(true);
+        canId.setMin("0");
+        canId.setMax(Integer.toString(CanFilter.CAN_EFF_MASK));
+        canId.setDefault("0");
+
+        elements.add(canId);
+
+        final Tad dataType = new Tad();
+        dataType.setName(CAN_DATA_TYPE_ID);
+        dataType.setId(CAN_DATA_TYPE_ID);
+        dataType.setDescription("Encoding of the signal");
+        dataType.setType(Tscalar.STRING);
+        dataType.setRequired(true);
+        dataType.setDefault("UINT8");
+
+        for (String type : BinaryDataTypes.NAMES) {
+            dataType.setOption(generateOption(type));
+        }
+        dataType.setOption(generateOption(BOOL_DATA_TYPE));
+        dataType.setOption(generateOption(BYTE_ARRAY_DATA_TYPE));
+
+        elements.add(dataType);
+
+        final Tad offset = new Tad();
+        offset.setName(OFFSET_ID);
+        offset.setId(OFFSET_ID);
+        offset.setDescription("Offset of the signal in the frame payload, in bytes");
+        offset.setType(Tscalar.INTEGER);
+        offset.setRequired(true);
+        offset.setMin("0");
+        offset.setMax(Integer.toString(MAX_FRAME_LENGTH - 1));
+        offset.setDefault("0");
+
+        elements.add(offset);
+
+        final Tad byteCount = new Tad();
+        byteCount.setName(BYTE_COUNT_ID);
+        byteCount.setId(BYTE_COUNT_ID);
+        byteCount.setDescription("Length of the signal in bytes, only used by the BYTE_ARRAY data type");
+        byteCount.setType(Tscalar.INTEGER);
+        byteCount.setRequired(true);
+        byteCount.setMin("0");
+        byteCount.setMax(Integer.toString(MAX_FRAME_LENGTH));
+        byteCount.setDefault("0");
+
+        elements.add(byteCount);
+
+        final Tad bitIndex = new Tad();
+        bitIndex.setName(BIT_INDEX_ID);
+        bitIndex.setId(BIT_INDEX_ID);
+        bitIndex.setDescription("Index of the bit in the byte at the given offset, only used by the BOOL data type");
+        bitIndex.setType(Tscalar.INTEGER);
+        bitIndex.setRequired(true);
+        bitIndex.setMin("0");
+        bitIndex.setMax("7");
+        bitIndex.setDefault("0");
+
+        elements.add(bitIndex);
+
+        return elements;
+    }
+
+}
@@ -0,0 +1,360 @@
+/**
+ * Copyright (c) 2018 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.can;
+
+import static java.util.Objects.requireNonNull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.KuraRuntimeException;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.channel.listener.ChannelEvent;
+import org.eclipse.kura.channel.listener.ChannelListener;
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.driver.ChannelDescriptor;
+import org.eclipse.kura.driver.block.BlockFactory;
+import org.eclipse.kura.driver.block.task.AbstractBlockDriver;
+import org.eclipse.kura.driver.block.task.BlockTask;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.block.task.ToplevelBlockTask;
+import org.eclipse.kura.internal.driver.can.task.CanTaskBuilder;
+import org.eclipse.kura.internal.driver.can.task.CanToplevelBlockTask;
+import org.eclipse.kura.protocol.can.CanConnectionService;
+import org.eclipse.kura.protocol.can.CanFilter;
+import org.eclipse.kura.protocol.can.CanMessage;
+import org.eclipse.kura.protocol.can.CanMessageListener;
+import org.eclipse.kura.type.DataType;
+import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Kura CanDriver is a CAN bus Driver implementation for Kura Asset-Driver
+ * Topology.<br/>
+ * <br/>
+ *
+ * Each channel maps a signal contained in the payload of the frames with a
+ * given CAN identifier. The driver receives the frames from the
+ * {@link CanConnectionService}, filtered by the identifiers used by the
+ * channels, and keeps the last frame received for each identifier: a read
+ * decodes the signals from these frames and a write sends a frame made of the
+ * last known payload updated with the written signals.<br/>
+ * <br/>
+ *
+ * Channel listeners are notified when a frame with the identifier of their
+ * channel is received, with the last frame of each batch delivered by the
+ * {@link CanConnectionService}. The events are delivered by the event thread
+ * of the driver, so that a slow listener does not hold the dispatching thread
+ * of the {@link CanConnectionService}: the frames received while a listener
+ * is busy are coalesced and only the last one is reported.<br/>
+ * <br/>
+ *
+ * The required properties are enlisted in {@link CanChannelDescriptor} and
+ * the driver specific properties are enlisted in {@link CanDriverOptions}
+ *
+ * @see CanChannelDescriptor
+ * @see CanDriverOptions
+ */
+public final class CanDriver extends AbstractBlockDriver<Integer>
+        implements ConfigurableComponent, CanMessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(CanDriver.class);
+
+    private final Map<Integer, CanMessage> lastFrames = new ConcurrentHashMap<>();
+    // the identifiers used by reads and writes, kept until the driver is deactivated
+    private final Set<Integer> taskCanIds = ConcurrentHashMap.newKeySet();
+    // the identifiers registered with the CanConnectionService, guarded by this
+    private Set<Integer> canIds = new HashSet<>();
+    private final Map<ChannelListener, CanChannelListener> channelListeners = new ConcurrentHashMap<>();
+    private volatile ExecutorService eventExecutor;
+
+    private CanConnectionService canConnectionService;
+
+    private CanDriverOptions options = new CanDriverOptions(null);
+
+    private boolean connected;
+
+    public void setCanConnectionService(CanConnectionService canConnectionService) {
+        this.canConnectionService = canConnectionService;
+    }
+
+    public void unsetCanConnectionService(CanConnectionService canConnectionService) {
+        this.canConnectionService = null;
+    }
+
+    protected synchronized void activate(final ComponentContext componentContext,
+            final Map<String, Object> properties) {
+        logger.debug("Activating CAN Driver...");
+        requireNonNull(properties, "Properties cannot be null");
+        this.options = new CanDriverOptions(properties);
+        this.eventExecutor = Executors.newSingleThreadExecutor(r -> new Thread(r, "CanDriver Events"));
+        logger.debug("Activating CAN Driver... Done");
+    }
+
+    protected synchronized void deactivate(final ComponentContext componentContext) {
+        logger.debug("Deactivating CAN Driver...");
+        this.channelListeners.clear();
+        this.taskCanIds.clear();
+        this.canIds = new HashSet<>();
+        if (this.eventExecutor != null) {
+            this.eventExecutor.shutdownNow();
+            this.eventExecutor = null;
+        }
+        try {
+            this.canConnectionService.removeCanMessageListener(this);
+            this.disconnect();
+        } catch (final IOException | ConnectionException e) {
+            logger.error("Error while disconnecting", e);
+        }
+        logger.debug("Deactivating CAN Driver... Done");
+    }
+
+    public synchronized void updated(final Map<String, Object> properties) {
+        logger.debug("Updating CAN Driver...");
+        requireNonNull(properties, "Properties cannot be null");
+        this.options = new CanDriverOptions(properties);
+        logger.debug("Updating CAN Driver... Done");
+    }
+
+    @Override
+    public synchronized void connect() throws ConnectionException {
+        if (!this.connected) {
+            logger.debug("Connecting...");
+            try {
+                this.canConnectionService.connectCanSocket();
+            } catch (Exception e) {
+                throw new ConnectionException("Unexpected exception while connecting", e);
+            }
+            this.connected = true;
+            logger.debug("Connecting... Done");
+        }
+    }
+
+    @Override
+    public synchronized void disconnect() throws ConnectionException {
+        if (this.connected) {
+            logger.debug("Disconnecting...");
+            try {
+                this.canConnectionService.disconnectCanSocket();
+            } catch (IOException e) {
+                throw new ConnectionException("Unexpected exception while disconnecting", e);
+            } finally {
+                this.connected = false;
+            }
+            logger.debug("Disconnecting... Done");
+        }
+    }
+
+    /**
+     * Returns the last frame received or sent with the provided identifier.
+     *
+     * @param canId
+     *            the CAN identifier
+     * @return the frame, or {@code null} if no frame with the provided identifier has been received or sent
+     */
+    public CanMessage getLastFrame(int canId) {
+        return this.lastFrames.get(canId);
+    }
+
+    /**
+     * Sends a frame made of the last known payload for the provided identifier, updated with the provided data.
+     *
+     * @param canId
+     *            the CAN identifier
+     * @param offset
+     *            the offset of the data in the payload
+     * @param data
+     *            the data
+     * @throws IOException
+     *             if the frame cannot be sent
+     */
+    public synchronized void writeFrame(int canId, int offset, byte[] data) throws IOException {
+        final CanMessage lastFrame = this.lastFrames.get(canId);
+        final byte[] lastPayload = lastFrame == null || lastFrame.getData() == null ? new byte[0]
+                : lastFrame.getData();
+        final byte[] payload = Arrays.copyOf(lastPayload, Math.max(lastPayload.length, offset + data.length));
+        System.arraycopy(data, 0, payload, offset, data.length);
+
+        try {
+            this.canConnectionService.sendCanMessage(this.options.getInterfaceName(), canId, payload);
+        } catch (KuraException e) {
+            throw new IOException(e);
+        }
+
+        final CanMessage frame = new CanMessage();
+        frame.setCanId(canId);
+        frame.setData(payload);
+        frame.setTimestamp(System.currentTimeMillis());
+        this.lastFrames.put(canId, frame);
+    }
+
+    @Override
+    public void onCanMessages(List<CanMessage> messages) {
+        final Map<Integer, CanMessage> batchFrames = new HashMap<>();
+        for (CanMessage message : messages) {
+            batchFrames.put(message.getCanId(), message);
+        }
+        this.lastFrames.putAll(batchFrames);
+
+        for (CanChannelListener channelListener : this.channelListeners.values()) {
+            final CanMessage frame = batchFrames.get(channelListener.canId);
+            if (frame != null) {
+                channelListener.post(frame, this.eventExecutor);
+            }
+        }
+    }
+
+    /**
+     * Registers with the {@link CanConnectionService} the filters for the identifiers used by the tasks and the
+     * channel listeners, if they have changed. Synchronized so that the filter lists computed by concurrent callers
+     * are registered in the same order as they are computed.
+     */
+    private synchronized void updateFilters() {
+        final Set<Integer> ids = new HashSet<>(this.taskCanIds);
+        for (CanChannelListener channelListener : this.channelListeners.values()) {
+            ids.add(channelListener.canId);
+        }
+        if (ids.equals(this.canIds)) {
+            return;
+        }
+        this.canIds = ids;
+        try {
+            if (ids.isEmpty()) {
+                this.canConnectionService.removeCanMessageListener(this);
+            } else {
+                final List<CanFilter> filters = ids.stream().map(CanFilter::forId).collect(Collectors.toList());
+                this.canConnectionService.addCanMessageListener(this, filters);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to update the CAN filters", e);
+        }
+    }
+
+    @Override
+    protected BlockFactory<ToplevelBlockTask> getTaskFactoryForDomain(final Integer canId, final Mode mode) {
+        if (this.taskCanIds.add(canId)) {
+            updateFilters();
+        }
+        return (start, end) -> new CanToplevelBlockTask(CanDriver.this, mode, canId, start, end);
+    }
+
+    @Override
+    protected Stream<Pair<Integer, BlockTask>> toTasks(List<ChannelRecord> records, Mode mode) {
+        return CanTaskBuilder.build(records, mode);
+    }
+
+    @Override
+    public ChannelDescriptor getChannelDescriptor() {
+        return new CanChannelDescriptor();
+    }
+
+    @Override
+    public void registerChannelListener(final Map<String, Object> channelConfig, final ChannelListener listener)
+            throws ConnectionException {
+        final CanChannelListener channelListener;
+        try {
+            channelListener = new CanChannelListener(channelConfig, listener);
+        } catch (Exception e) {
+            throw new KuraRuntimeException(KuraErrorCode.CONFIGURATION_ERROR, e, e.getMessage());
+        }
+        this.channelListeners.put(listener, channelListener);
+        updateFilters();
+        connect();
+    }
+
+    @Override
+    public void unregisterChannelListener(final ChannelListener listener) throws ConnectionException {
+        if (this.channelListeners.remove(listener) != null) {
+            updateFilters();
+        }
+    }
+
+    private static final class CanChannelListener {
+
+        private final Map<String, Object> channelConfig;
+        private final ChannelListener listener;
+        private final String channelName;
+        private final DataType valueType;
+        private final int canId;
+        // the last frame received and not reported yet
+        private final AtomicReference<CanMessage> pendingFrame = new AtomicReference<>();
+
+        CanChannelListener(final Map<String, Object> channelConfig, final ChannelListener listener)
+                throws KuraException {
+            this.channelConfig = channelConfig;
+            this.listener = listener;
+            this.channelName = (String) channelConfig.get("+name");
+            this.valueType = DataType.getDataType((String) channelConfig.get("+value.type"));
+            this.canId = CanTaskBuilder.getCanId(newRecord());
+            // validates the channel configuration
+            CanTaskBuilder.build(newRecord(), Mode.READ);
+        }
+
+        private ChannelRecord newRecord() {
+            final ChannelRecord record = ChannelRecord.createReadRecord(this.channelName, this.valueType);
+            record.setChannelConfig(this.channelConfig);
+            return record;
+        }
+
+        /**
+         * Reports the frame on the provided executor, replacing the frame not reported yet if any.
+         */
+        void post(CanMessage frame, ExecutorService executor) {
+            if (this.pendingFrame.getAndSet(frame) != null || executor == null) {
+                return;
+            }
+            try {
+                executor.execute(() -> notify(this.pendingFrame.getAndSet(null)));
+            } catch (RejectedExecutionException e) {
+                // the driver is being deactivated
+                this.pendingFrame.set(null);
+            }
+        }
+
+        void notify(CanMessage frame) {
+            final ChannelRecord record = newRecord();
+            try {
+                final BlockTask task = CanTaskBuilder.build(record, Mode.READ);
+                final ToplevelBlockTask parent = new CanToplevelBlockTask(frame, task.getStart(), task.getEnd());
+                parent.addChild(task);
+                parent.run();
+            } catch (Exception e) {
+                record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
+            }
+            record.setTimestamp(frame.getTimestamp());
+
+            try {
+                this.listener.onChannelEvent(new ChannelEvent(record));
+            } catch (Exception e) {
+                logger.warn("Failed to notify channel {}", this.channelName, e);
+            }
+        }
+    }
+}
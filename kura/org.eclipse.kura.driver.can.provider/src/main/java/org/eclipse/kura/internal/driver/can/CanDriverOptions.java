@@ -0,0 +1,34 @@
+/**
+ * Copyright (c) 2018 Eurotech and/or its affiliates
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+
+package org.eclipse.kura.internal.driver.can;
+
+import java.util.Collections;
+import java.util.Map;
+
+final class CanDriverOptions {
+
+    private static final String INTERFACE_NAME_PROP_NAME = "interface.name";
+
+    private static final String INTERFACE_NAME_DEFAULT = "can0";
+
+    private final Map<String, Object> properties;
+
+    CanDriverOptions(final Map<String, Object> properties) {
+        this.properties = properties == null ? Collections.<String, Object> emptyMap() : properties;
+    }
+
+    String getInterfaceName() {
+        return (String) this.properties.getOrDefault(INTERFACE_NAME_PROP_NAME, INTERFACE_NAME_DEFAULT);
+    }
+
+}
@@ -0,0 +1,135 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.driver.can.task;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.driver.binary.BinaryData;
+import org.eclipse.kura.driver.binary.BinaryDataTypes;
+import org.eclipse.kura.driver.block.task.AbstractBlockDriver.Pair;
+import org.eclipse.kura.driver.block.task.BinaryDataTask;
+import org.eclipse.kura.driver.block.task.BitTask;
+import org.eclipse.kura.driver.block.task.BlockTask;
+import org.eclipse.kura.driver.block.task.ByteArrayTask;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.internal.driver.can.CanChannelDescriptor;
+import org.eclipse.kura.protocol.can.CanFilter;
+import org.eclipse.kura.type.DataType;
+
+public final class CanTaskBuilder {
+
+    private CanTaskBuilder() {
+    }
+
+    public static int getCanId(ChannelRecord record) throws KuraException {
+        final int canId = getIntProperty(record, CanChannelDescriptor.CAN_ID_ID, "Error while retrieving CAN id");
+        if (canId < 0 || canId > CanFilter.CAN_EFF_MASK) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, "Invalid CAN id " + canId);
+        }
+        return canId;
+    }
+
+    private static int getIntProperty(ChannelRecord record, String propertyName, String failureMessage)
+            throws KuraException {
+        try {
+            return Integer.parseInt(record.getChannelConfig().get(propertyName).toString());
+        } catch (Exception e) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, failureMessage);
+        }
+    }
+
+    private static void assertChannelType(ChannelRecord record, DataType channelType) throws KuraException {
+        if (channelType != record.getValueType()) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR,
+                    "Error while converting the retrieved value to the defined typed " + channelType);
+        }
+    }
+
+    private static <T> BlockTask newBinaryDataTask(ChannelRecord record, int offset, BinaryData<T> binaryDataType,
+            Mode mode) {
+        return new BinaryDataTask<>(record, offset, binaryDataType, record.getValueType(), mode);
+    }
+
+    /**
+     * Converts a {@link ChannelRecord} into a {@link BlockTask} operating on the payload of a frame.
+     *
+     * @param record
+     *            the record
+     * @param mode
+     *            the mode, can be either {@link Mode#READ} or {@link Mode#WRITE}
+     * @return the task
+     * @throws KuraException
+     *             if the channel configuration is not valid
+     */
+    public static BlockTask build(ChannelRecord record, Mode mode) throws KuraException {
+
+        final int offset = getIntProperty(record, CanChannelDescriptor.OFFSET_ID,
+                "Error while retrieving signal offset");
+        final Object canDataTypeId = record.getChannelConfig().get(CanChannelDescriptor.CAN_DATA_TYPE_ID);
+
+        final BlockTask task;
+        if (record.getValueType() == DataType.BYTE_ARRAY
+                || CanChannelDescriptor.BYTE_ARRAY_DATA_TYPE.equals(canDataTypeId)) {
+
+            assertChannelType(record, DataType.BYTE_ARRAY);
+            int byteCount = getIntProperty(record, CanChannelDescriptor.BYTE_COUNT_ID,
+                    "Error while retrieving byte count");
+            task = new ByteArrayTask(record, offset, offset + byteCount, mode);
+
+        } else if (CanChannelDescriptor.BOOL_DATA_TYPE.equals(canDataTypeId)) {
+
+            assertChannelType(record, DataType.BOOLEAN);
+            int bitIndex = getIntProperty(record, CanChannelDescriptor.BIT_INDEX_ID,
+                    "Error while retrieving bit index");
+            task = new BitTask(record, offset, bitIndex, mode == Mode.WRITE ? Mode.UPDATE : Mode.READ);
+
+        } else {
+
+            final BinaryData<?> binaryDataType;
+            try {
+                binaryDataType = BinaryDataTypes.parse((String) canDataTypeId);
+            } catch (Exception e) {
+                throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR, "Unknown CAN data type " + canDataTypeId);
+            }
+            task = newBinaryDataTask(record, offset, binaryDataType, mode);
+
+        }
+
+        if (task.getStart() < 0 || task.getEnd() > CanChannelDescriptor.MAX_FRAME_LENGTH) {
+            throw new KuraException(KuraErrorCode.CONFIGURATION_ERROR,
+                    "The signal must be contained in the " + CanChannelDescriptor.MAX_FRAME_LENGTH + " bytes payload");
+        }
+        return task;
+    }
+
+    public static Stream<Pair<Integer, BlockTask>> build(List<ChannelRecord> records, Mode mode) {
+        return records.stream().map(record -> {
+            try {
+                final int canId = getCanId(record);
+                return new Pair<>(canId, build(record, mode));
+            } catch (Exception e) {
+                record.setTimestamp(System.currentTimeMillis());
+                record.setChannelStatus(new ChannelStatus(ChannelFlag.FAILURE, e.getMessage(), e));
+                return null;
+            }
+        }).filter(Objects::nonNull);
+    }
+
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.driver.can.task;
+
+import java.io.IOException;
+
+import org.eclipse.kura.driver.binary.Buffer;
+import org.eclipse.kura.driver.binary.ByteArrayBuffer;
+import org.eclipse.kura.driver.block.task.Mode;
+import org.eclipse.kura.driver.block.task.ToplevelBlockTask;
+import org.eclipse.kura.internal.driver.can.CanDriver;
+import org.eclipse.kura.protocol.can.CanMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Transfers a range of the payload of the frames with a given CAN identifier. Reads use the last frame received by
+ * the driver or a provided frame, writes send a new frame through the driver.
+ */
+public class CanToplevelBlockTask extends ToplevelBlockTask {
+
+    private static final Logger logger = LoggerFactory.getLogger(CanToplevelBlockTask.class);
+
+    private final CanDriver driver;
+    private final int canId;
+    private final CanMessage frame;
+    private ByteArrayBuffer data;
+
+    public CanToplevelBlockTask(CanDriver driver, Mode mode, int canId, int start, int end) {
+        super(start, end, mode);
+        this.driver = driver;
+        this.canId = canId;
+        this.frame = null;
+    }
+
+    public CanToplevelBlockTask(CanMessage frame, int start, int end) {
+        super(start, end, Mode.READ);
+        this.driver = null;
+        this.canId = frame.getCanId();
+        this.frame = frame;
+    }
+
+    @Override
+    public void processBuffer() throws IOException {
+        final byte[] buffer = ((ByteArrayBuffer) getBuffer()).getBackingArray();
+        if (getMode() == Mode.READ) {
+            logger.debug("Reading from frame, id: 0x{} offset: {} length: {}", Integer.toHexString(this.canId),
+                    getStart(), buffer.length);
+            final CanMessage source = this.frame != null ? this.frame : this.driver.getLastFrame(this.canId);
+            if (source == null) {
+                throw new IOException("No frame received with CAN id 0x" + Integer.toHexString(this.canId));
+            }
+            final byte[] payload = source.getData();
+            if (payload == null || payload.length < getEnd()) {
+                throw new IOException("The frame with CAN id 0x" + Integer.toHexString(this.canId) + " is "
+                        + (payload == null ? 0 : payload.length) + " bytes long, at least " + getEnd() + " expected");
+            }
+            System.arraycopy(payload, getStart(), buffer, 0, buffer.length);
+        } else {
+            logger.debug("Writing frame, id: 0x{} offset: {} length: {}", Integer.toHexString(this.canId),
+                    getStart(), buffer.length);
+            this.driver.writeFrame(this.canId, getStart(), buffer);
+        }
+    }
+
+    @Override
+    public Buffer getBuffer() {
+        if (this.data == null) {
+            this.data = new ByteArrayBuffer(new byte[getEnd() - getStart()]);
+        }
+        return this.data;
+    }
+
+}
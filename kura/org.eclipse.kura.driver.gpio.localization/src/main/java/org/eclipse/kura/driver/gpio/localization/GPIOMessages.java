@@ -62,6 +62,9 @@ public interface GPIOMessages {
     @En("GPIO write operation failed")
     public String writeFailed();
 
+    @En("A pulse counter channel requires a resource.trigger other than NONE")
+    public String errorPulseCounterWithoutTrigger();
+
     @En("Driver is busy")
     public String errorDriverBusy();
 
@@ -31,7 +31,13 @@ import org.eclipse.kura.gpio.KuraGPIOTrigger;
  * <ul>
  * <li>resource.name</li> denotes the GPIO number/identifier
  * <li>resource.direction</li> denotes the GPIO direction
- * <li>resource.trigger</li> denotes the GPIO event that triggers a listener
+ * <li>resource.trigger</li> denotes the GPIO event that triggers a listener, or the edges counted by a pulse
+ * counter, which requires a value other than NONE
+ * <li>resource.function</li> denotes whether the channel provides the pin state or the number of pulses
+ * <li>resource.debounce</li> denotes the interval, in milliseconds, during which the edges following a detected
+ * edge are ignored
+ * <li>resource.coalescing.window</li> denotes the interval, in milliseconds, during which the detected edges are
+ * reported to a listener as a single event
  * </ul>
  */
 public final class GPIOChannelDescriptor implements ChannelDescriptor {
@@ -42,6 +48,9 @@ public final class GPIOChannelDescriptor implements ChannelDescriptor {
     private static final String RESOURCE_NAME = "resource.name";
     private static final String RESOURCE_DIRECTION = "resource.direction";
     private static final String RESOURCE_TRIGGER = "resource.trigger";
+    private static final String RESOURCE_FUNCTION = "resource.function";
+    private static final String RESOURCE_DEBOUNCE = "resource.debounce";
+    private static final String RESOURCE_COALESCING_WINDOW = "resource.coalescing.window";
 
     private List<GPIOService> gpioServices;
 
@@ -120,6 +129,36 @@ public final class GPIOChannelDescriptor implements ChannelDescriptor {
         addOptions(resourceTriggers, KuraGPIOTrigger.values(), null);
         elements.add(resourceTriggers);
 
+        final Tad resourceFunction = new Tad();
+        resourceFunction.setName(RESOURCE_FUNCTION);
+        resourceFunction.setId(RESOURCE_FUNCTION);
+        resourceFunction.setDescription(RESOURCE_FUNCTION);
+        resourceFunction.setType(Tscalar.STRING);
+        resourceFunction.setRequired(true);
+        resourceFunction.setDefault(GPIOChannelFunction.STATE.name());
+        addOptions(resourceFunction, GPIOChannelFunction.values(), null);
+        elements.add(resourceFunction);
+
+        final Tad resourceDebounce = new Tad();
+        resourceDebounce.setName(RESOURCE_DEBOUNCE);
+        resourceDebounce.setId(RESOURCE_DEBOUNCE);
+        resourceDebounce.setDescription(RESOURCE_DEBOUNCE);
+        resourceDebounce.setType(Tscalar.INTEGER);
+        resourceDebounce.setRequired(true);
+        resourceDebounce.setMin("0");
+        resourceDebounce.setDefault("0");
+        elements.add(resourceDebounce);
+
+        final Tad resourceCoalescingWindow = new Tad();
+        resourceCoalescingWindow.setName(RESOURCE_COALESCING_WINDOW);
+        resourceCoalescingWindow.setId(RESOURCE_COALESCING_WINDOW);
+        resourceCoalescingWindow.setDescription(RESOURCE_COALESCING_WINDOW);
+        resourceCoalescingWindow.setType(Tscalar.INTEGER);
+        resourceCoalescingWindow.setRequired(true);
+        resourceCoalescingWindow.setMin("0");
+        resourceCoalescingWindow.setDefault("0");
+        elements.add(resourceCoalescingWindow);
+
         return elements;
     }
 
@@ -140,4 +179,30 @@ public final class GPIOChannelDescriptor implements ChannelDescriptor {
         return KuraGPIOTrigger.valueOf((String) properties.get(RESOURCE_TRIGGER));
     }
 
+    static GPIOChannelFunction getResourceFunction(Map<String, Object> properties) {
+        Object function = properties.get(RESOURCE_FUNCTION);
+        if (function == null) {
+            return GPIOChannelFunction.STATE;
+        }
+        return GPIOChannelFunction.valueOf(function.toString());
+    }
+
+    static long getResourceDebounce(Map<String, Object> properties) {
+        return getMillis(properties, RESOURCE_DEBOUNCE);
+    }
+
+    static long getResourceCoalescingWindow(Map<String, Object> properties) {
+        return getMillis(properties, RESOURCE_COALESCING_WINDOW);
+    }
+
+    private static long getMillis(Map<String, Object> properties, String key) {
+        Object value = properties.get(key);
+        if (value instanceof Number) {
+            return Math.max(((Number) value).longValue(), 0);
+        } else if (value instanceof String && !((String) value).isEmpty()) {
+            return Math.max(Long.parseLong((String) value), 0);
+        }
+        return 0;
+    }
+
 }
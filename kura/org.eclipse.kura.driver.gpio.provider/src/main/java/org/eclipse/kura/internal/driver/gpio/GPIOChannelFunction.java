@@ -0,0 +1,27 @@
+/**
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.internal.driver.gpio;
+
+/**
+ * The value provided by a GPIO channel.
+ */
+public enum GPIOChannelFunction {
+    /**
+     * The state of the pin.
+     */
+    STATE,
+    /**
+     * The number of edges detected on an input pin, according to its trigger, since the channel has been first
+     * used.
+     */
+    PULSE_COUNTER
+}
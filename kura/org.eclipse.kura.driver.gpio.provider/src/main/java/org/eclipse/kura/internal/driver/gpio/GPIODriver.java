@@ -20,12 +20,19 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
@@ -45,7 +52,6 @@ import org.eclipse.kura.gpio.KuraGPIOMode;
 import org.eclipse.kura.gpio.KuraGPIOPin;
 import org.eclipse.kura.gpio.KuraGPIOTrigger;
 import org.eclipse.kura.gpio.KuraUnavailableDeviceException;
-import org.eclipse.kura.gpio.PinStatusListener;
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.type.DataType;
 import org.eclipse.kura.type.TypedValue;
@@ -64,6 +70,12 @@ import org.slf4j.LoggerFactory;
  * <br/>
  * <br/>
  * The required properties are enlisted in {@link GPIOChannelDescriptor}.
+ * <br/>
+ * <br/>
+ * The status changes of the pins used by channel listeners and pulse counters are tracked by
+ * {@link GPIOEdgeMonitor}s, which debounce them. The edges detected within the coalescing window of a channel are
+ * reported to its listener as a single event, delivered by the event thread of the driver. The channel operations
+ * do not lock the driver, that is only locked to open the pins and to change the listeners.
  *
  * @see Driver
  * @see GPIOChannelDescriptor
@@ -76,9 +88,13 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
     private static final String WRITE_FAILED_MESSAGE = message.writeFailed();
     private static final String READ_FAILED_MESSAGE = message.readFailed();
 
-    private Set<String> gpioNames;
-    private Set<GPIOListener> gpioListeners;
-    private final List<GPIOService> gpioServices = new ArrayList<>();
+    private final Set<String> gpioNames = ConcurrentHashMap.newKeySet();
+    private final Set<GPIOListener> gpioListeners = ConcurrentHashMap.newKeySet();
+    private final List<GPIOService> gpioServices = new CopyOnWriteArrayList<>();
+    private final Map<String, GPIOEdgeMonitor> edgeMonitors = new ConcurrentHashMap<>();
+    // the monitors used by pulse counter reads, kept until the driver is disconnected
+    private final Set<String> counterMonitorKeys = ConcurrentHashMap.newKeySet();
+    private volatile ScheduledExecutorService eventExecutor;
 
     protected synchronized void bindGPIOService(final GPIOService gpioService) {
         if (!this.gpioServices.contains(gpioService)) {
@@ -92,14 +108,17 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
 
     protected synchronized void activate(final Map<String, Object> properties) {
         logger.debug("Activating GPIO Driver...");
-        this.gpioNames = new HashSet<>();
-        this.gpioListeners = new HashSet<>();
+        this.eventExecutor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "GPIODriver Events"));
         logger.debug("Activating GPIO Driver... Done");
     }
 
     protected synchronized void deactivate() {
         logger.debug("Deactivating GPIO Driver...");
         doDeactivate();
+        if (this.eventExecutor != null) {
+            this.eventExecutor.shutdownNow();
+            this.eventExecutor = null;
+        }
         logger.debug("Deactivating GPIO Driver... Done");
     }
 
@@ -110,15 +129,16 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
 
     private void doDeactivate() {
         for (GPIOListener gpioListener : this.gpioListeners) {
-            KuraGPIOPin pin = gpioListener.getPin();
-            try {
-                pin.removePinStatusListener(gpioListener);
-            } catch (KuraClosedDeviceException | IOException e) {
-                logger.error(message.errorRemovingListener(pin.getName()), e);
-            }
+            gpioListener.cancel();
         }
         this.gpioListeners.clear();
 
+        for (GPIOEdgeMonitor monitor : this.edgeMonitors.values()) {
+            removeEdgeMonitor(monitor);
+        }
+        this.edgeMonitors.clear();
+        this.counterMonitorKeys.clear();
+
         for (String name : this.gpioNames) {
             for (GPIOService service : this.gpioServices) {
                 KuraGPIOPin pin = service.getPinByName(name);
@@ -150,7 +170,7 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
     }
 
     @Override
-    public synchronized void read(final List<ChannelRecord> records) throws ConnectionException {
+    public void read(final List<ChannelRecord> records) throws ConnectionException {
         for (final ChannelRecord record : records) {
             Optional<GPIORequestInfo> requestInfo = GPIORequestInfo.extract(record);
             if (requestInfo.isPresent()) {
@@ -161,14 +181,14 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
     }
 
     @Override
-    public synchronized void write(final List<ChannelRecord> records) throws ConnectionException {
+    public void write(final List<ChannelRecord> records) throws ConnectionException {
         for (final ChannelRecord record : records) {
             GPIORequestInfo.extract(record).ifPresent(this::runWriteRequest);
         }
     }
 
     @Override
-    public synchronized PreparedRead prepareRead(List<ChannelRecord> channelRecords) {
+    public PreparedRead prepareRead(List<ChannelRecord> channelRecords) {
         requireNonNull(channelRecords, message.recordListNonNull());
 
         GPIOPreparedRead preparedRead = new GPIOPreparedRead();
@@ -191,23 +211,21 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
         KuraGPIODirection direction = GPIOChannelDescriptor.getResourceDirection(channelConfig);
         if (!GPIOChannelDescriptor.DEFAULT_RESOURCE_NAME.equals(name) && direction != null) {
             this.gpioNames.add(name);
-            KuraGPIOPin pin;
-            if (KuraGPIODirection.INPUT.equals(direction)) {
-                pin = getPin(name, direction, KuraGPIOMode.INPUT_PULL_UP,
-                        GPIOChannelDescriptor.getResourceTrigger(channelConfig));
-            } else {
-                pin = getPin(name, direction, KuraGPIOMode.OUTPUT_OPEN_DRAIN,
-                        GPIOChannelDescriptor.getResourceTrigger(channelConfig));
+            KuraGPIOTrigger trigger = GPIOChannelDescriptor.getResourceTrigger(channelConfig);
+            GPIOChannelFunction function = GPIOChannelDescriptor.getResourceFunction(channelConfig);
+            if (function == GPIOChannelFunction.PULSE_COUNTER && trigger == KuraGPIOTrigger.NONE) {
+                logger.warn(message.errorPulseCounterWithoutTrigger());
+                return;
             }
-            if (pin != null) {
-                GPIOListener gpioListener = new GPIOListener(pin, (String) channelConfig.get("+name"),
-                        DataType.getDataType((String) channelConfig.get("+value.type")), listener);
+            long debounce = GPIOChannelDescriptor.getResourceDebounce(channelConfig);
+            GPIOEdgeMonitor monitor = getEdgeMonitor(name, direction, trigger, debounce);
+            if (monitor != null) {
+                GPIOListener gpioListener = new GPIOListener(monitor, getEdgeMonitorKey(name, trigger, debounce),
+                        (String) channelConfig.get("+name"),
+                        DataType.getDataType((String) channelConfig.get("+value.type")), function,
+                        GPIOChannelDescriptor.getResourceCoalescingWindow(channelConfig), listener);
                 this.gpioListeners.add(gpioListener);
-                try {
-                    pin.addPinStatusListener(gpioListener);
-                } catch (KuraClosedDeviceException | IOException e) {
-                    logger.error(message.errorSettingListener(name), e);
-                }
+                monitor.addEdgeListener(gpioListener);
             }
         }
     }
@@ -218,17 +236,62 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
         while (iterator.hasNext()) {
             GPIOListener gpioListener = iterator.next();
             if (listener == gpioListener.getListener()) {
+                gpioListener.cancel();
+                iterator.remove();
+                GPIOEdgeMonitor monitor = gpioListener.getMonitor();
+                String key = gpioListener.getMonitorKey();
+                if (!monitor.hasEdgeListeners() && !this.counterMonitorKeys.contains(key)
+                        && this.edgeMonitors.remove(key, monitor)) {
+                    removeEdgeMonitor(monitor);
+                }
+            }
+        }
+    }
+
+    private GPIOEdgeMonitor getEdgeMonitor(String resourceName, KuraGPIODirection resourceDirection,
+            KuraGPIOTrigger resourceTrigger, long debounce) {
+        String key = getEdgeMonitorKey(resourceName, resourceTrigger, debounce);
+        GPIOEdgeMonitor monitor = this.edgeMonitors.get(key);
+        if (monitor != null) {
+            return monitor;
+        }
+
+        synchronized (this) {
+            monitor = this.edgeMonitors.get(key);
+            if (monitor == null) {
+                KuraGPIOMode mode = KuraGPIODirection.INPUT.equals(resourceDirection) ? KuraGPIOMode.INPUT_PULL_UP
+                        : KuraGPIOMode.OUTPUT_OPEN_DRAIN;
+                KuraGPIOPin pin = getPin(resourceName, resourceDirection, mode, resourceTrigger);
+                if (pin == null) {
+                    return null;
+                }
+                monitor = new GPIOEdgeMonitor(pin, debounce);
                 try {
-                    gpioListener.getPin().removePinStatusListener(gpioListener);
-                    iterator.remove();
+                    pin.addPinStatusListener(monitor);
                 } catch (KuraClosedDeviceException | IOException e) {
-                    logger.error(message.errorRemovingListener(gpioListener.getPin().getName()), e);
+                    logger.error(message.errorSettingListener(resourceName), e);
+                    return null;
                 }
+                this.edgeMonitors.put(key, monitor);
             }
+            return monitor;
+        }
+    }
+
+    private static String getEdgeMonitorKey(String resourceName, KuraGPIOTrigger resourceTrigger, long debounce) {
+        return resourceName + '|' + resourceTrigger + '|' + debounce;
+    }
+
+    private void removeEdgeMonitor(GPIOEdgeMonitor monitor) {
+        KuraGPIOPin pin = monitor.getPin();
+        try {
+            pin.removePinStatusListener(monitor);
+        } catch (KuraClosedDeviceException | IOException e) {
+            logger.error(message.errorRemovingListener(pin.getName()), e);
         }
     }
 
-    private synchronized void runWriteRequest(GPIORequestInfo requestInfo) {
+    private void runWriteRequest(GPIORequestInfo requestInfo) {
         ChannelRecord record = requestInfo.channelRecord;
         if (!GPIOChannelDescriptor.DEFAULT_RESOURCE_NAME.equals(requestInfo.resourceName)
                 && requestInfo.resourceDirection != null) {
@@ -263,11 +326,7 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
             pin = service.getPinByName(resourceName, resourceDirection, resourceMode, resourceTrigger);
             if (pin != null) {
                 if (!pin.isOpen()) {
-                    try {
-                        pin.open();
-                    } catch (KuraGPIODeviceException | KuraUnavailableDeviceException | IOException e) {
-                        logger.error(message.errorOpeningResource(pin.getName()), e);
-                    }
+                    openPin(pin);
                 }
                 break;
             }
@@ -275,6 +334,33 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
         return pin;
     }
 
+    private synchronized void openPin(KuraGPIOPin pin) {
+        if (!pin.isOpen()) {
+            try {
+                pin.open();
+            } catch (KuraGPIODeviceException | KuraUnavailableDeviceException | IOException e) {
+                logger.error(message.errorOpeningResource(pin.getName()), e);
+            }
+        }
+    }
+
+    private Optional<TypedValue<?>> getTypedValue(final DataType expectedValueType, final long count) {
+        switch (expectedValueType) {
+        case LONG:
+            return Optional.of(TypedValues.newLongValue(count));
+        case INTEGER:
+            return Optional.of(TypedValues.newIntegerValue((int) count));
+        case DOUBLE:
+            return Optional.of(TypedValues.newDoubleValue(count));
+        case FLOAT:
+            return Optional.of(TypedValues.newFloatValue(count));
+        case STRING:
+            return Optional.of(TypedValues.newStringValue(Long.toString(count)));
+        default:
+            return Optional.empty();
+        }
+    }
+
     private Optional<TypedValue<?>> getTypedValue(final DataType expectedValueType, final Boolean containedValue) {
         try {
             switch (expectedValueType) {
@@ -338,9 +424,13 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
         }
     }
 
-    private synchronized void runReadRequest(GPIORequestInfo requestInfo) {
+    private void runReadRequest(GPIORequestInfo requestInfo) {
         ChannelRecord record = requestInfo.channelRecord;
         if (!GPIOChannelDescriptor.DEFAULT_RESOURCE_NAME.equals(requestInfo.resourceName)
+                && requestInfo.resourceDirection != null
+                && requestInfo.resourceFunction == GPIOChannelFunction.PULSE_COUNTER) {
+            runCounterReadRequest(requestInfo);
+        } else if (!GPIOChannelDescriptor.DEFAULT_RESOURCE_NAME.equals(requestInfo.resourceName)
                 && requestInfo.resourceDirection != null) {
             try {
                 KuraGPIOPin pin = getPin(requestInfo.resourceName, requestInfo.resourceDirection,
@@ -366,6 +456,33 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
         }
     }
 
+    private void runCounterReadRequest(GPIORequestInfo requestInfo) {
+        ChannelRecord record = requestInfo.channelRecord;
+        if (requestInfo.resourceTrigger == KuraGPIOTrigger.NONE) {
+            // no edge would ever be counted
+            setFailureRecord(record, message.errorPulseCounterWithoutTrigger());
+            return;
+        }
+        GPIOEdgeMonitor monitor = getEdgeMonitor(requestInfo.resourceName, requestInfo.resourceDirection,
+                requestInfo.resourceTrigger, requestInfo.resourceDebounce);
+        if (monitor == null) {
+            setFailureRecord(record, READ_FAILED_MESSAGE);
+            return;
+        }
+        this.counterMonitorKeys.add(getEdgeMonitorKey(requestInfo.resourceName, requestInfo.resourceTrigger,
+                requestInfo.resourceDebounce));
+
+        final Optional<TypedValue<?>> typedValue = getTypedValue(requestInfo.dataType, monitor.getEdgeCount());
+        if (!typedValue.isPresent()) {
+            record.setChannelStatus(new ChannelStatus(FAILURE, message.errorValueTypeConversion(), null));
+            record.setTimestamp(System.currentTimeMillis());
+            return;
+        }
+        record.setValue(typedValue.get());
+        record.setChannelStatus(new ChannelStatus(SUCCESS));
+        record.setTimestamp(System.currentTimeMillis());
+    }
+
     private static class GPIORequestInfo {
 
         private final DataType dataType;
@@ -373,6 +490,8 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
         private KuraGPIODirection resourceDirection;
         private KuraGPIOMode resourceMode;
         private KuraGPIOTrigger resourceTrigger;
+        private GPIOChannelFunction resourceFunction;
+        private long resourceDebounce;
         private final ChannelRecord channelRecord;
 
         public GPIORequestInfo(ChannelRecord channelRecord, DataType dataType) {
@@ -398,6 +517,8 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
             request.resourceName = GPIOChannelDescriptor.getResourceName(channelConfig);
             request.resourceDirection = GPIOChannelDescriptor.getResourceDirection(channelConfig);
             request.resourceTrigger = GPIOChannelDescriptor.getResourceTrigger(channelConfig);
+            request.resourceFunction = GPIOChannelDescriptor.getResourceFunction(channelConfig);
+            request.resourceDebounce = GPIOChannelDescriptor.getResourceDebounce(channelConfig);
             if (KuraGPIODirection.INPUT.equals(request.resourceDirection)) {
                 request.resourceMode = KuraGPIOMode.INPUT_PULL_UP;
             } else {
@@ -433,32 +554,84 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
         }
     }
 
-    private class GPIOListener implements PinStatusListener {
+    /**
+     * Reports the edges detected by a {@link GPIOEdgeMonitor} to a channel listener, as soon as they are detected or
+     * once per coalescing window. The events of a window carry the pin state or the pulse count at the end of the
+     * window and the time of the last edge. No event is sent if no edge has been counted since the previous one.
+     */
+    private class GPIOListener implements GPIOEdgeMonitor.EdgeListener {
 
+        private final GPIOEdgeMonitor monitor;
+        private final String monitorKey;
         private final ChannelListener listener;
         private final String channelName;
-        private final KuraGPIOPin pin;
         private final DataType dataType;
-
-        public GPIOListener(KuraGPIOPin pin, String channelName, DataType dataType, ChannelListener listener) {
-            this.pin = pin;
+        private final GPIOChannelFunction function;
+        private final long delay;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long reportedEdgeCount;
+        private volatile ScheduledFuture<?> pendingReport;
+
+        public GPIOListener(GPIOEdgeMonitor monitor, String monitorKey, String channelName, DataType dataType,
+                GPIOChannelFunction function, long coalescingWindow, ChannelListener listener) {
+            this.monitor = monitor;
+            this.monitorKey = monitorKey;
             this.channelName = channelName;
             this.dataType = dataType;
+            this.function = function;
+            // the state is reported once the debounce interval has elapsed, so that it is the final one
+            this.delay = Math.max(coalescingWindow, monitor.getDebounceMillis());
             this.listener = listener;
+            this.reportedEdgeCount = monitor.getEdgeCount();
+        }
+
+        public GPIOEdgeMonitor getMonitor() {
+            return this.monitor;
         }
 
-        public KuraGPIOPin getPin() {
-            return this.pin;
+        public String getMonitorKey() {
+            return this.monitorKey;
         }
 
         public ChannelListener getListener() {
             return this.listener;
         }
 
+        public void cancel() {
+            this.monitor.removeEdgeListener(this);
+            ScheduledFuture<?> pending = this.pendingReport;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+        }
+
         @Override
-        public void pinStatusChange(boolean value) {
+        public void edgeDetected(GPIOEdgeMonitor edgeMonitor) {
+            ScheduledExecutorService executor = GPIODriver.this.eventExecutor;
+            if (this.delay == 0 || executor == null) {
+                report();
+            } else if (this.scheduled.compareAndSet(false, true)) {
+                try {
+                    this.pendingReport = executor.schedule(() -> {
+                        this.scheduled.set(false);
+                        report();
+                    }, this.delay, TimeUnit.MILLISECONDS);
+                } catch (RejectedExecutionException e) {
+                    this.scheduled.set(false);
+                }
+            }
+        }
+
+        private void report() {
+            final long edgeCount = this.monitor.getEdgeCount();
+            if (edgeCount == this.reportedEdgeCount) {
+                return;
+            }
+            this.reportedEdgeCount = edgeCount;
+
             ChannelRecord record = ChannelRecord.createReadRecord(this.channelName, this.dataType);
-            final Optional<TypedValue<?>> typedValue = getTypedValue(this.dataType, value);
+            final Optional<TypedValue<?>> typedValue = this.function == GPIOChannelFunction.PULSE_COUNTER
+                    ? getTypedValue(this.dataType, edgeCount) : getTypedValue(this.dataType, this.monitor.getValue());
             if (!typedValue.isPresent()) {
                 record.setChannelStatus(new ChannelStatus(FAILURE, message.errorValueTypeConversion(), null));
                 record.setTimestamp(System.currentTimeMillis());
@@ -467,7 +640,7 @@ public final class GPIODriver implements Driver, ConfigurableComponent {
 
             record.setValue(typedValue.get());
             record.setChannelStatus(new ChannelStatus(SUCCESS));
-            record.setTimestamp(System.currentTimeMillis());
+            record.setTimestamp(this.monitor.getLastEdgeTimestamp());
             this.listener.onChannelEvent(new ChannelEvent(record));
         }
 
@@ -0,0 +1,124 @@
+/**
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *  All rights reserved. This program and the accompanying materials
+ *  are made available under the terms of the Eclipse Public License v1.0
+ *  which accompanies this distribution, and is available at
+ *  http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *   Eurotech
+ */
+package org.eclipse.kura.internal.driver.gpio;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.eclipse.kura.gpio.KuraGPIOPin;
+import org.eclipse.kura.gpio.PinStatusListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Listens to the status changes of a GPIO pin, keeping its last value, the number of edges and the time of the last
+ * edge, so that they can be read without accessing the device.
+ * <p>
+ * An edge detected less than the debounce interval after the previous counted edge is considered a bounce: it
+ * updates the value of the pin but it is not counted and it does not notify the {@link EdgeListener}s.
+ */
+final class GPIOEdgeMonitor implements PinStatusListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(GPIOEdgeMonitor.class);
+
+    /**
+     * Notified on the thread that reports the status changes of the pin, it must not block.
+     */
+    interface EdgeListener {
+
+        void edgeDetected(GPIOEdgeMonitor monitor);
+    }
+
+    private final KuraGPIOPin pin;
+    private final long debounceNanos;
+    private final LongSupplier nanoClock;
+    private final List<EdgeListener> edgeListeners = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong edgeCount = new AtomicLong();
+    private volatile boolean value;
+    private volatile long lastEdgeNanos;
+    private volatile long lastEdgeTimestamp;
+
+    GPIOEdgeMonitor(KuraGPIOPin pin, long debounceMillis) {
+        this(pin, debounceMillis, System::nanoTime);
+    }
+
+    GPIOEdgeMonitor(KuraGPIOPin pin, long debounceMillis, LongSupplier nanoClock) {
+        this.pin = pin;
+        this.debounceNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(debounceMillis, 0));
+        this.nanoClock = nanoClock;
+    }
+
+    KuraGPIOPin getPin() {
+        return this.pin;
+    }
+
+    long getDebounceMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(this.debounceNanos);
+    }
+
+    /**
+     * Returns the number of edges detected since the monitor has been created, bounces excluded.
+     */
+    long getEdgeCount() {
+        return this.edgeCount.get();
+    }
+
+    /**
+     * Returns the value reported by the last status change, including bounces.
+     */
+    boolean getValue() {
+        return this.value;
+    }
+
+    /**
+     * Returns the time of the last counted edge, in milliseconds since the epoch, or 0 if no edge has been detected.
+     */
+    long getLastEdgeTimestamp() {
+        return this.lastEdgeTimestamp;
+    }
+
+    void addEdgeListener(EdgeListener listener) {
+        this.edgeListeners.add(listener);
+    }
+
+    void removeEdgeListener(EdgeListener listener) {
+        this.edgeListeners.remove(listener);
+    }
+
+    boolean hasEdgeListeners() {
+        return !this.edgeListeners.isEmpty();
+    }
+
+    @Override
+    public void pinStatusChange(boolean value) {
+        final long now = this.nanoClock.getAsLong();
+        this.value = value;
+        if (this.edgeCount.get() > 0 && now - this.lastEdgeNanos < this.debounceNanos) {
+            return;
+        }
+        this.lastEdgeNanos = now;
+        this.lastEdgeTimestamp = System.currentTimeMillis();
+        this.edgeCount.incrementAndGet();
+
+        for (EdgeListener listener : this.edgeListeners) {
+            try {
+                listener.edgeDetected(this);
+            } catch (Exception e) {
+                logger.warn("Failed to notify an edge on pin {}", this.pin.getName(), e);
+            }
+        }
+    }
+}
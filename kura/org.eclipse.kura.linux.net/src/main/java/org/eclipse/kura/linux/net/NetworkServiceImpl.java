@@ -55,6 +55,8 @@ import org.eclipse.kura.linux.net.util.KuraConstants;
 import org.eclipse.kura.linux.net.util.LinuxIfconfig;
 import org.eclipse.kura.linux.net.util.LinuxNetworkUtil;
 import org.eclipse.kura.linux.net.util.ScanTool;
+import org.eclipse.kura.linux.net.util.SysfsNetworkStateProvider;
+import org.eclipse.kura.linux.net.util.SysfsNetworkStateProvider.InterfaceState;
 import org.eclipse.kura.net.ConnectionInfo;
 import org.eclipse.kura.net.IPAddress;
 import org.eclipse.kura.net.NetInterface;
@@ -291,6 +293,15 @@ public class NetworkServiceImpl implements NetworkService, EventHandler {
             return NetworkState.CONNECTED_GLOBAL;
         }
 
+        SysfsNetworkStateProvider sysfs = SysfsNetworkStateProvider.getInstance();
+        if (sysfs.isAvailable()) {
+            try {
+                return getStateFromSysfs(sysfs);
+            } catch (IOException e) {
+                logger.warn("Failed to read the interface states from sysfs", e);
+            }
+        }
+
         // if we have a link we at least of network local access
         List<NetInterface<? extends NetInterfaceAddress>> netInterfaces = getNetworkInterfaces();
         for (NetInterface<? extends NetInterfaceAddress> netInterface : netInterfaces) {
@@ -313,6 +324,23 @@ public class NetworkServiceImpl implements NetworkService, EventHandler {
         return NetworkState.UNKNOWN;
     }
 
+    private static NetworkState getStateFromSysfs(SysfsNetworkStateProvider sysfs) throws IOException {
+        boolean loopbackUp = false;
+        for (String interfaceName : sysfs.getInterfaceNames()) {
+            InterfaceState state = sysfs.getState(interfaceName);
+            if (state == null) {
+                continue;
+            }
+            if (state.getType() == NetInterfaceType.ETHERNET && state.isLinkUp()) {
+                return NetworkState.CONNECTED_SITE;
+            }
+            if (state.getType() == NetInterfaceType.LOOPBACK && state.isUp()) {
+                loopbackUp = true;
+            }
+        }
+        return loopbackUp ? NetworkState.CONNECTED_LOCAL : NetworkState.UNKNOWN;
+    }
+
     @Override
     public NetInterfaceState getState(String interfaceName) throws KuraException {
         NetInterface<? extends NetInterfaceAddress> netInterface = getNetworkInterface(interfaceName);
@@ -13,10 +13,12 @@ package org.eclipse.kura.linux.net.util;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.kura.KuraErrorCode;
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.core.util.ProcessUtil;
+import org.eclipse.kura.core.util.ProcessUtil.Priority;
 import org.eclipse.kura.core.util.SafeProcess;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,7 +62,8 @@ public class EthTool implements LinkTool {
         SafeProcess proc = null;
         boolean result = false;
         try {
-            proc = ProcessUtil.exec("ethtool " + this.ifaceName);
+            proc = ProcessUtil.exec(new String[] { "ethtool", this.ifaceName }, Priority.HIGH, 0,
+                    TimeUnit.SECONDS);
             result = proc.waitFor() == 0 ? true : false;
             parse(proc);
         } catch (Exception e) {
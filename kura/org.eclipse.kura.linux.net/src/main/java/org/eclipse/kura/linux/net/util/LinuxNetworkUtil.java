@@ -31,6 +31,7 @@ import org.eclipse.kura.core.linux.util.LinuxProcessUtil;
 import org.eclipse.kura.core.util.ProcessUtil;
 import org.eclipse.kura.core.util.SafeProcess;
 import org.eclipse.kura.linux.net.NetworkServiceImpl;
+import org.eclipse.kura.linux.net.util.SysfsNetworkStateProvider.InterfaceState;
 import org.eclipse.kura.linux.net.wifi.WifiOptions;
 import org.eclipse.kura.net.NetInterfaceType;
 import org.eclipse.kura.net.wifi.WifiInterface.Capability;
@@ -135,6 +136,11 @@ public class LinuxNetworkUtil {
             return null;
         }
 
+        InterfaceState state = getSysfsState(ifaceName);
+        if (state != null) {
+            return state.getInetAddress();
+        }
+
         LinuxIfconfig ifconfig = getInterfaceConfiguration(ifaceName);
 
         return ifconfig != null ? ifconfig.getInetAddress() : null;
@@ -200,6 +206,11 @@ public class LinuxNetworkUtil {
             return -1;
         }
 
+        InterfaceState state = getSysfsState(ifaceName);
+        if (state != null) {
+            return state.getMtu();
+        }
+
         LinuxIfconfig ifconfig = getInterfaceConfiguration(ifaceName);
 
         return ifconfig != null ? ifconfig.getMtu() : -1;
@@ -269,6 +280,11 @@ public class LinuxNetworkUtil {
             return false;
         }
 
+        InterfaceState state = getSysfsState(ifaceName);
+        if (state != null) {
+            return state.isLinkUp();
+        }
+
         try {
             LinuxIfconfig ifconfig = getInterfaceConfiguration(ifaceName);
             // FIXME: should we throw an exception if config is null?
@@ -1246,6 +1262,7 @@ public class LinuxNetworkUtil {
                 LinuxProcessUtil.start("ifconfig " + interfaceName + " up\n");
                 LinuxProcessUtil.start("ifup " + interfaceName + "\n");
             }
+            SysfsNetworkStateProvider.getInstance().invalidate(interfaceName);
         }
     }
 
@@ -1259,6 +1276,11 @@ public class LinuxNetworkUtil {
             return false;
         }
 
+        InterfaceState state = getSysfsState(ifaceName);
+        if (state != null) {
+            return state.getInetAddress() != null && state.getInetPrefixLength() >= 0;
+        }
+
         LinuxIfconfig ifconfig = getInterfaceConfiguration(ifaceName);
 
         // FIXME: should we throw an exception if config is null?
@@ -1318,6 +1340,7 @@ public class LinuxNetworkUtil {
             if (proc != null) {
                 ProcessUtil.destroy(proc);
             }
+            SysfsNetworkStateProvider.getInstance().invalidate(interfaceName);
         }
     }
 
@@ -1400,6 +1423,11 @@ public class LinuxNetworkUtil {
             return false;
         }
 
+        InterfaceState state = getSysfsState(interfaceName);
+        if (state != null) {
+            return state.isUp();
+        }
+
         LinuxIfconfig config = getInterfaceConfiguration(interfaceName);
 
         return config != null ? config.isUp() : false;
@@ -1684,6 +1712,23 @@ public class LinuxNetworkUtil {
         return sb.toString();
     }
 
+    /*
+     * Returns null if sysfs is not available or the interface is not found, in which case the callers fall back to
+     * the command line tools.
+     */
+    private static InterfaceState getSysfsState(String ifaceName) {
+        SysfsNetworkStateProvider provider = SysfsNetworkStateProvider.getInstance();
+        if (!provider.isAvailable()) {
+            return null;
+        }
+        try {
+            return provider.getState(ifaceName);
+        } catch (IOException e) {
+            logger.debug("Failed to read the state of {} from sysfs", ifaceName, e);
+            return null;
+        }
+    }
+
     private static String formFailedCommandMessage(String cmd) {
         StringBuilder sb = new StringBuilder();
         sb.append("'").append(cmd).append("' failed");
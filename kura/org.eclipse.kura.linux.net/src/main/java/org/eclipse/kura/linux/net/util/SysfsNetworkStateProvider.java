@@ -0,0 +1,339 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+
+package org.eclipse.kura.linux.net.util;
+
+import java.io.IOException;
+import java.net.Inet4Address;
+import java.net.InterfaceAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.net.NetInterfaceType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the state of the network interfaces from {@code /sys/class/net} instead of executing {@code ifconfig},
+ * {@code ip}, {@code ethtool} or {@code iw}.
+ * <p>
+ * The state of each interface is cached for a short time, so that the interface monitors and the other periodic
+ * callers share the same reads. The kernel does not notify sysfs changes to user space, so the cache must be
+ * invalidated through {@link #invalidate(String)} when the state of an interface is changed by Kura itself.
+ */
+public class SysfsNetworkStateProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(SysfsNetworkStateProvider.class);
+
+    public static final long DEFAULT_MAX_AGE_MILLIS = 1000;
+
+    // from linux/if.h
+    private static final int IFF_UP = 0x1;
+    private static final int IFF_RUNNING = 0x40;
+
+    // from linux/if_arp.h
+    private static final int ARPHRD_ETHER = 1;
+    private static final int ARPHRD_PPP = 512;
+    private static final int ARPHRD_LOOPBACK = 772;
+
+    private static final SysfsNetworkStateProvider instance = new SysfsNetworkStateProvider(Paths.get("/"),
+            DEFAULT_MAX_AGE_MILLIS, SysfsNetworkStateProvider::getInet4Address);
+
+    /**
+     * Resolves the IPv4 address of an interface, sysfs does not expose it.
+     */
+    @FunctionalInterface
+    interface AddressResolver {
+
+        /**
+         * @return the address and the prefix length, null if the interface has no IPv4 address
+         */
+        InterfaceState.Inet4 resolve(String interfaceName) throws IOException;
+    }
+
+    /**
+     * An immutable snapshot of the state of a network interface.
+     */
+    public static final class InterfaceState {
+
+        static final class Inet4 {
+
+            private final String address;
+            private final short prefixLength;
+
+            Inet4(String address, short prefixLength) {
+                this.address = address;
+                this.prefixLength = prefixLength;
+            }
+        }
+
+        private final String name;
+        private final NetInterfaceType type;
+        private final int flags;
+        private final boolean carrier;
+        private final String operState;
+        private final int mtu;
+        private final String macAddress;
+        private final String driver;
+        private final Inet4 inet4;
+
+        InterfaceState(String name, NetInterfaceType type, int flags, boolean carrier, String operState, int mtu,
+                String macAddress, String driver, Inet4 inet4) {
+            this.name = name;
+            this.type = type;
+            this.flags = flags;
+            this.carrier = carrier;
+            this.operState = operState;
+            this.mtu = mtu;
+            this.macAddress = macAddress;
+            this.driver = driver;
+            this.inet4 = inet4;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        /**
+         * @return the type derived from the hardware type of the interface; modems are only recognized once the
+         *         PPP interface is created
+         */
+        public NetInterfaceType getType() {
+            return this.type;
+        }
+
+        /**
+         * @return true if the interface is administratively up (e.g. by 'ifconfig iface up')
+         */
+        public boolean isUp() {
+            return (this.flags & IFF_UP) != 0;
+        }
+
+        public boolean isRunning() {
+            return (this.flags & IFF_RUNNING) != 0;
+        }
+
+        /**
+         * @return true if the physical link is detected, false if it is not or the interface is down
+         */
+        public boolean isLinkUp() {
+            return this.carrier;
+        }
+
+        /**
+         * @return the RFC 2863 operational state, e.g. "up", "down", "dormant" or "unknown"
+         */
+        public String getOperState() {
+            return this.operState;
+        }
+
+        public int getMtu() {
+            return this.mtu;
+        }
+
+        /**
+         * @return the hardware address in the form "00:11:22:33:44:55", null if not available
+         */
+        public String getMacAddress() {
+            return this.macAddress;
+        }
+
+        /**
+         * @return the name of the kernel driver, null for virtual interfaces
+         */
+        public String getDriver() {
+            return this.driver;
+        }
+
+        public String getInetAddress() {
+            return this.inet4 != null ? this.inet4.address : null;
+        }
+
+        /**
+         * @return the IPv4 prefix length, -1 if the interface has no IPv4 address
+         */
+        public short getInetPrefixLength() {
+            return this.inet4 != null ? this.inet4.prefixLength : -1;
+        }
+
+        @Override
+        public String toString() {
+            return "InterfaceState [name=" + this.name + ", type=" + this.type + ", up=" + isUp() + ", linkUp="
+                    + this.carrier + ", operState=" + this.operState + ", mtu=" + this.mtu + ", macAddress="
+                    + this.macAddress + ", driver=" + this.driver + ", inetAddress=" + getInetAddress() + "/"
+                    + getInetPrefixLength() + "]";
+        }
+    }
+
+    private static final class Entry {
+
+        private final InterfaceState state;
+        private final long readNanos;
+
+        private Entry(InterfaceState state, long readNanos) {
+            this.state = state;
+            this.readNanos = readNanos;
+        }
+    }
+
+    private final Path sysClassNet;
+    private final long maxAgeNanos;
+    private final AddressResolver addressResolver;
+    private final Map<String, Entry> cache = new ConcurrentHashMap<>();
+
+    SysfsNetworkStateProvider(Path root, long maxAgeMillis, AddressResolver addressResolver) {
+        this.sysClassNet = root.resolve("sys/class/net");
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMillis);
+        this.addressResolver = addressResolver;
+    }
+
+    public static SysfsNetworkStateProvider getInstance() {
+        return instance;
+    }
+
+    /**
+     * @return true if the state of the interfaces can be read from sysfs on this system
+     */
+    public boolean isAvailable() {
+        return Files.isDirectory(this.sysClassNet);
+    }
+
+    /**
+     * @return the names of the network interfaces, sorted
+     */
+    public List<String> getInterfaceNames() throws IOException {
+        final List<String> names = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(this.sysClassNet)) {
+            for (Path entry : entries) {
+                names.add(entry.getFileName().toString());
+            }
+        }
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Returns the state of an interface, read at most {@link #DEFAULT_MAX_AGE_MILLIS} ago.
+     *
+     * @return the state, null if the interface does not exist
+     * @throws IOException
+     *             if the state of an existing interface cannot be read
+     */
+    public InterfaceState getState(String interfaceName) throws IOException {
+        final Entry entry = this.cache.get(interfaceName);
+        final long now = System.nanoTime();
+        if (entry != null && now - entry.readNanos < this.maxAgeNanos) {
+            return entry.state;
+        }
+
+        final InterfaceState state = read(interfaceName);
+        if (state != null) {
+            this.cache.put(interfaceName, new Entry(state, now));
+        } else {
+            this.cache.remove(interfaceName);
+        }
+        return state;
+    }
+
+    /**
+     * Discards the cached state of an interface, to be called after changing its configuration.
+     */
+    public void invalidate(String interfaceName) {
+        this.cache.remove(interfaceName);
+    }
+
+    public void invalidateAll() {
+        this.cache.clear();
+    }
+
+    private InterfaceState read(String interfaceName) throws IOException {
+        final Path dir = this.sysClassNet.resolve(interfaceName);
+        if (interfaceName.indexOf('/') >= 0 || !Files.isDirectory(dir)) {
+            return null;
+        }
+
+        final int flags = Integer.decode(readAttribute(dir, "flags", "0"));
+        final int arpType = Integer.parseInt(readAttribute(dir, "type", "-1"));
+        // reading the carrier of an interface which is down fails with EINVAL
+        final boolean carrier = (flags & IFF_UP) != 0 && "1".equals(readAttribute(dir, "carrier", "0"));
+        final String operState = readAttribute(dir, "operstate", "unknown");
+        final int mtu = Integer.parseInt(readAttribute(dir, "mtu", "-1"));
+
+        String macAddress = readAttribute(dir, "address", null);
+        if (macAddress != null && (macAddress.isEmpty() || "00:00:00:00:00:00".equals(macAddress))) {
+            macAddress = null;
+        }
+
+        String driver = null;
+        final Path driverLink = dir.resolve("device/driver");
+        if (Files.exists(driverLink)) {
+            driver = driverLink.toRealPath().getFileName().toString();
+        }
+
+        NetInterfaceType type;
+        if (arpType == ARPHRD_LOOPBACK) {
+            type = NetInterfaceType.LOOPBACK;
+        } else if (arpType == ARPHRD_PPP) {
+            type = NetInterfaceType.MODEM;
+        } else if (arpType == ARPHRD_ETHER) {
+            final boolean wireless = Files.isDirectory(dir.resolve("wireless"))
+                    || Files.exists(dir.resolve("phy80211"));
+            type = wireless ? NetInterfaceType.WIFI : NetInterfaceType.ETHERNET;
+        } else {
+            type = NetInterfaceType.UNKNOWN;
+        }
+
+        final InterfaceState state = new InterfaceState(interfaceName, type, flags, carrier, operState, mtu,
+                macAddress, driver, this.addressResolver.resolve(interfaceName));
+        logger.trace("Read {}", state);
+        return state;
+    }
+
+    private static String readAttribute(Path dir, String name, String defaultValue) {
+        try {
+            return new String(Files.readAllBytes(dir.resolve(name)), StandardCharsets.US_ASCII).trim();
+        } catch (IOException e) {
+            logger.trace("Failed to read {}/{}", dir, name, e);
+            return defaultValue;
+        }
+    }
+
+    private static InterfaceState.Inet4 getInet4Address(String interfaceName) throws IOException {
+        final NetworkInterface networkInterface;
+        try {
+            networkInterface = NetworkInterface.getByName(interfaceName);
+        } catch (SocketException e) {
+            throw new IOException(e);
+        }
+        if (networkInterface == null) {
+            return null;
+        }
+        for (InterfaceAddress address : networkInterface.getInterfaceAddresses()) {
+            if (address.getAddress() instanceof Inet4Address) {
+                return new InterfaceState.Inet4(address.getAddress().getHostAddress(),
+                        address.getNetworkPrefixLength());
+            }
+        }
+        return null;
+    }
+}
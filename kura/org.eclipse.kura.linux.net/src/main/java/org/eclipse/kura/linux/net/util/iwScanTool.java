@@ -26,6 +26,7 @@ import org.eclipse.kura.KuraErrorCode;
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.core.linux.util.LinuxProcessUtil;
 import org.eclipse.kura.core.util.ProcessUtil;
+import org.eclipse.kura.core.util.ProcessUtil.Priority;
 import org.eclipse.kura.core.util.SafeProcess;
 import org.eclipse.kura.net.wifi.WifiAccessPoint;
 import org.slf4j.Logger;
@@ -109,7 +110,8 @@ public class iwScanTool extends ScanTool implements IScanTool {
                     logger.info("scan() :: executing: {}", sb.toString());
                     iwScanTool.this.status = false;
                     try {
-                        iwScanTool.this.process = ProcessUtil.exec(sb.toString());
+                        iwScanTool.this.process = ProcessUtil.exec(sb.toString(), Priority.LOW,
+                                iwScanTool.this.timeout, TimeUnit.SECONDS);
                         stat = iwScanTool.this.process.waitFor();
                         logger.info("scan() :: {} command returns status={}", sb.toString(), stat);
                         if (stat == 0) {
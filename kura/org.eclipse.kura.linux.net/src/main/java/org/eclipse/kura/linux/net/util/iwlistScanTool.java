@@ -30,6 +30,7 @@ import org.eclipse.kura.core.linux.util.LinuxProcessUtil;
 import org.eclipse.kura.core.net.WifiAccessPointImpl;
 import org.eclipse.kura.core.net.util.NetworkUtil;
 import org.eclipse.kura.core.util.ProcessUtil;
+import org.eclipse.kura.core.util.ProcessUtil.Priority;
 import org.eclipse.kura.core.util.SafeProcess;
 import org.eclipse.kura.net.wifi.WifiAccessPoint;
 import org.eclipse.kura.net.wifi.WifiMode;
@@ -102,7 +103,8 @@ public class iwlistScanTool implements IScanTool {
                     logger.info("scan() :: executing: {}", sb.toString());
                     iwlistScanTool.this.status = false;
                     try {
-                        iwlistScanTool.this.process = ProcessUtil.exec(sb.toString());
+                        iwlistScanTool.this.process = ProcessUtil.exec(sb.toString(), Priority.LOW,
+                                iwlistScanTool.this.timeout, TimeUnit.SECONDS);
                         stat = iwlistScanTool.this.process.waitFor();
                         logger.info("scan() :: " + sb.toString() + " command returns status=" + stat + " - process="
                                 + iwlistScanTool.this.process);
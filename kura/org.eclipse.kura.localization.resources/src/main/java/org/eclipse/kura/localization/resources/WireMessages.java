@@ -70,6 +70,18 @@ public interface WireMessages {
     @En("Activating Fifo...Done")
     public String activatingFifoDone();
 
+    @En("Activating Aggregator...")
+    public String activatingAggregator();
+
+    @En("Activating Aggregator...Done")
+    public String activatingAggregatorDone();
+
+    @En("Activating Deadband...")
+    public String activatingDeadband();
+
+    @En("Activating Deadband...Done")
+    public String activatingDeadbandDone();
+
     @En("Activating Wire Asset...")
     public String activatingWireAsset();
 
@@ -232,6 +244,18 @@ public interface WireMessages {
     @En("Dectivating Fifo...Done")
     public String deactivatingFifoDone();
 
+    @En("Deactivating Aggregator...")
+    public String deactivatingAggregator();
+
+    @En("Deactivating Aggregator...Done")
+    public String deactivatingAggregatorDone();
+
+    @En("Deactivating Deadband...")
+    public String deactivatingDeadband();
+
+    @En("Deactivating Deadband...Done")
+    public String deactivatingDeadbandDone();
+
     @En("Dectivating Timer...")
     public String deactivatingTimer();
 
@@ -619,6 +643,18 @@ public interface WireMessages {
     @En("Updating Fifo...Done")
     public String updatingFifoDone();
 
+    @En("Updating Aggregator...")
+    public String updatingAggregator();
+
+    @En("Updating Aggregator...Done")
+    public String updatingAggregatorDone();
+
+    @En("Updating Deadband...")
+    public String updatingDeadband();
+
+    @En("Updating Deadband...Done")
+    public String updatingDeadbandDone();
+
     @En("Updating Timer...")
     public String updatingTimer();
 
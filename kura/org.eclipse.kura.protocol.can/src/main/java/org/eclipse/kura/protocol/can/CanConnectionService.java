@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2017 Eurotech and/or its affiliates
+ * Copyright (c) 2011, 2018 Eurotech and/or its affiliates
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -12,6 +12,7 @@
 package org.eclipse.kura.protocol.can;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.eclipse.kura.KuraException;
 
@@ -22,14 +23,16 @@ import org.eclipse.kura.KuraException;
 public interface CanConnectionService {
 
     /**
-     * Establishes a RAW CAN socket connection
+     * Establishes a RAW CAN socket connection. The socket is shared by the clients of the service, each call must be
+     * balanced by a call to {@link #disconnectCanSocket()}.
      * 
      * @throws IOException
      */
     public void connectCanSocket() throws IOException;
     
     /**
-     * Disconnects a CAN socket connection
+     * Disconnects a CAN socket connection. The socket is closed once all the clients that connected it have
+     * disconnected.
      * 
      * @throws IOException
      */
@@ -65,4 +68,35 @@ public interface CanConnectionService {
      * @throws IOException
      */
     public CanMessage receiveCanMessage(int canId, int canMask) throws IOException;
+
+    /**
+     * Registers a listener for the frames received on the CAN socket (all interfaces). If the listener is already
+     * registered its filters are replaced.
+     * <p>
+     * Once a listener has been registered, the frames are read by a dedicated thread until the socket is closed. While
+     * at least a listener is registered they are queued into a preallocated buffer and delivered to the listeners in
+     * batches, otherwise they are discarded. The filter of the socket is updated so that the frames not matching any
+     * listener are discarded by the kernel. Frames received while the buffer is full are dropped.
+     *
+     * @param listener
+     *            the listener
+     * @param filters
+     *            the listener receives only the frames matching at least one of these filters, all the frames if the
+     *            list is empty
+     * @throws IOException
+     *             if the socket filter cannot be updated
+     * @since 2.1
+     */
+    public void addCanMessageListener(CanMessageListener listener, List<CanFilter> filters) throws IOException;
+
+    /**
+     * Unregisters a listener previously registered with {@link #addCanMessageListener(CanMessageListener, List)}.
+     *
+     * @param listener
+     *            the listener
+     * @throws IOException
+     *             if the socket filter cannot be updated
+     * @since 2.1
+     */
+    public void removeCanMessageListener(CanMessageListener listener) throws IOException;
 }
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2017 Eurotech and/or its affiliates
+ * Copyright (c) 2011, 2018 Eurotech and/or its affiliates
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -12,6 +12,11 @@
 package org.eclipse.kura.protocol.can;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.eclipse.kura.KuraErrorCode;
 import org.eclipse.kura.KuraException;
@@ -27,37 +32,82 @@ import de.entropia.can.CanSocket.Mode;
 public class CanConnectionServiceImpl implements CanConnectionService {
 
     private static final Logger s_logger = LoggerFactory.getLogger(CanConnectionServiceImpl.class);
-    
-    private CanSocket socket = null;
+
+    // about 1 second of frames on a fully loaded 500 kbit/s bus
+    private static final int RECEIVE_BUFFER_CAPACITY = 4096;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long RECEIVE_ERROR_DELAY_MS = 1000;
+
+    private final CanMessageDispatcher dispatcher = new CanMessageDispatcher(RECEIVE_BUFFER_CAPACITY,
+            MAX_BATCH_SIZE);
+
+    private volatile CanSocket socket = null;
+    // the socket is shared by the clients, it is closed when all the clients have disconnected
+    private int connections;
+    // once started, the receiver reads all the frames of the socket until it is closed
+    private volatile Receiver receiver;
+    private CanFilter socketFilter;
 
     protected void activate() {
         s_logger.info("activating CanConnectionService");
     }
 
-    protected void deactivate() {
+    protected synchronized void deactivate() {
+        stopReceiver();
         if (this.socket != null) {
             try {
                 this.socket.close();
             } catch (IOException e) {
                 s_logger.error("Error closing CAN socket");
             }
+            this.socket = null;
         }
+        this.connections = 0;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The socket is shared by all the clients of the service: it is opened by the first connection and the following
+     * ones only register the client.
+     */
     @Override
-    public void connectCanSocket() throws IOException {
-        this.socket = new CanSocket(Mode.RAW);
-        this.socket.setLoopbackMode(false);
-        this.socket.bind(CanSocket.CAN_ALL_INTERFACES);
+    public synchronized void connectCanSocket() throws IOException {
+        if (this.socket == null) {
+            final CanSocket canSocket = new CanSocket(Mode.RAW);
+            try {
+                canSocket.setLoopbackMode(false);
+                canSocket.bind(CanSocket.CAN_ALL_INTERFACES);
+            } catch (IOException e) {
+                canSocket.close();
+                throw e;
+            }
+            this.socket = canSocket;
+            if (this.dispatcher.hasListeners()) {
+                startReceiving();
+            }
+        }
+        this.connections++;
     }
-    
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The socket is closed when all the clients that connected it have disconnected.
+     */
     @Override
-    public void disconnectCanSocket() throws IOException {
+    public synchronized void disconnectCanSocket() throws IOException {
+        if (this.connections == 0 || --this.connections > 0) {
+            return;
+        }
+        stopReceiver();
         if (this.socket != null) {
-            this.socket.close();
+            final CanSocket closingSocket = this.socket;
+            this.socket = null;
+            closingSocket.close();
         }
     }
-    
+
     @Override
     public void sendCanMessage(String ifName, int canId, byte[] message) throws KuraException, IOException {
         if (message.length > 8) {
@@ -65,27 +115,41 @@ public class CanConnectionServiceImpl implements CanConnectionService {
         }
 
         try {
-            CanInterface canif = new CanInterface(this.socket, ifName);
-            socket.bind(canif);
-            socket.send(new CanFrame(canif, new CanId(canId), message));
+            final CanSocket canSocket = getSocket();
+            CanInterface canif = new CanInterface(canSocket, ifName);
+            canSocket.bind(canif);
+            canSocket.send(new CanFrame(canif, new CanId(canId), message));
         } catch (IOException e) {
             s_logger.error("Error on CanSocket in sendCanMessage: {}", e.getMessage());
             throw e;
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Once a {@link CanMessageListener} has been registered, the frames are read by the receiving thread until the
+     * socket is closed, and this method waits for the next matching frame delivered by it. In this case the socket
+     * filter is widened to include the requested frames while waiting, the other listeners keep receiving only the
+     * frames matching their filters.
+     */
     @Override
     public CanMessage receiveCanMessage(int canId, int canMask) throws IOException {
+        if (this.receiver != null) {
+            return receiveDispatchedMessage(canId, canMask);
+        }
         try {
+            final CanSocket canSocket = getSocket();
             if (canId >= 0) {
-                this.socket.setCanFilter(canId, canMask);
+                canSocket.setCanFilter(canId, canMask);
             }
-            CanFrame cf = this.socket.recv();
+            CanFrame cf = canSocket.recv();
             CanId ci = cf.getCanId();
 
             CanMessage cm = new CanMessage();
             cm.setCanId(ci.getCanId_EFF());
             cm.setData(cf.getData());
+            cm.setTimestamp(System.currentTimeMillis());
             return cm;
         } catch (IOException e) {
             s_logger.error("Error on CanSocket in receiveCanMessage: {}", e.getMessage());
@@ -93,4 +157,153 @@ public class CanConnectionServiceImpl implements CanConnectionService {
         }
     }
 
+    @Override
+    public synchronized void addCanMessageListener(CanMessageListener listener, List<CanFilter> filters)
+            throws IOException {
+        this.dispatcher.addListener(listener, filters);
+        if (this.socket != null && (this.receiver == null || !this.receiver.isDispatching())) {
+            startReceiving();
+        } else {
+            updateSocketFilter();
+        }
+    }
+
+    @Override
+    public synchronized void removeCanMessageListener(CanMessageListener listener) throws IOException {
+        if (!this.dispatcher.removeListener(listener)) {
+            return;
+        }
+        if (this.dispatcher.hasListeners()) {
+            updateSocketFilter();
+        } else {
+            stopDispatching();
+        }
+    }
+
+    private CanSocket getSocket() throws IOException {
+        final CanSocket canSocket = this.socket;
+        if (canSocket == null) {
+            throw new IOException("CAN socket not connected");
+        }
+        return canSocket;
+    }
+
+    private CanMessage receiveDispatchedMessage(int canId, int canMask) throws IOException {
+        final BlockingQueue<CanMessage> messages = new LinkedBlockingQueue<>();
+        final CanMessageListener listener = messages::addAll;
+        addCanMessageListener(listener, canId >= 0 ? Collections.singletonList(new CanFilter(canId, canMask))
+                : Collections.<CanFilter> emptyList());
+        try {
+            return messages.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a CAN frame");
+        } finally {
+            removeCanMessageListener(listener);
+        }
+    }
+
+    /**
+     * Starts dispatching the frames to the listeners, starting the receiver of the socket if needed.
+     */
+    private void startReceiving() throws IOException {
+        if (this.receiver == null) {
+            this.socketFilter = null;
+        }
+        updateSocketFilter();
+        final CanFrameRingBuffer buffer = this.dispatcher.start();
+        if (this.receiver == null) {
+            this.receiver = new Receiver(this.socket);
+            this.receiver.buffer = buffer;
+            this.receiver.start();
+        } else {
+            this.receiver.buffer = buffer;
+        }
+    }
+
+    /**
+     * Stops dispatching the frames once the listeners are gone. The receiver keeps reading the socket and discards the
+     * frames, a read pending in native code cannot be interrupted and a second receiver would compete with it.
+     */
+    private void stopDispatching() {
+        if (this.receiver != null) {
+            this.receiver.buffer = null;
+        }
+        this.dispatcher.stop();
+    }
+
+    /**
+     * Stops the receiver before the socket is closed, the pending read returns when it is.
+     */
+    private void stopReceiver() {
+        stopDispatching();
+        if (this.receiver == null) {
+            return;
+        }
+        this.receiver.running = false;
+        this.receiver.interrupt();
+        this.receiver = null;
+        this.socketFilter = null;
+    }
+
+    private void updateSocketFilter() throws IOException {
+        if (this.socket == null || !this.dispatcher.hasListeners()) {
+            return;
+        }
+        final CanFilter filter = this.dispatcher.getSocketFilter();
+        if (!filter.equals(this.socketFilter)) {
+            s_logger.debug("Setting CAN socket filter to {}", filter);
+            this.socket.setCanFilter(filter.getCanId(), filter.getCanMask());
+            this.socketFilter = filter;
+        }
+    }
+
+    /**
+     * Reads the frames from the socket into the buffer of the current receiving session, or discards them if no
+     * session is active. The thread terminates when it is stopped and the pending read returns because the socket
+     * has been closed.
+     */
+    private static final class Receiver extends Thread {
+
+        private final CanSocket socket;
+        private volatile CanFrameRingBuffer buffer;
+        private volatile boolean running = true;
+
+        Receiver(CanSocket socket) {
+            super("CanConnectionService Receiver");
+            setDaemon(true);
+            this.socket = socket;
+        }
+
+        boolean isDispatching() {
+            return this.buffer != null;
+        }
+
+        @Override
+        public void run() {
+            while (this.running) {
+                try {
+                    final CanFrame frame = this.socket.recv();
+                    // read after the frame is received, a session started meanwhile gets it
+                    final CanFrameRingBuffer currentBuffer = this.buffer;
+                    if (currentBuffer != null) {
+                        currentBuffer.offer(frame.getCanId().getCanId_EFF(), frame.getData(),
+                                System.currentTimeMillis());
+                    }
+                } catch (IOException e) {
+                    if (!this.running) {
+                        break;
+                    }
+                    s_logger.error("Error on CanSocket in receive loop: {}", e.getMessage());
+                    try {
+                        Thread.sleep(RECEIVE_ERROR_DELAY_MS);
+                    } catch (InterruptedException e1) {
+                        Thread.currentThread().interrupt();
+                        break;
+                    }
+                }
+            }
+            s_logger.debug("CAN receive loop terminated");
+        }
+    }
 }
@@ -0,0 +1,113 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.can;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * A CAN identifier filter. A frame matches the filter if
+ * {@code (frameId & canMask) == (canId & canMask)}, as for the filters of the SocketCAN RAW sockets.
+ */
+public final class CanFilter {
+
+    /**
+     * The mask of the bits of an extended (29 bit) CAN identifier.
+     */
+    public static final int CAN_EFF_MASK = 0x1FFFFFFF;
+
+    /**
+     * A filter that matches all the frames.
+     */
+    public static final CanFilter ACCEPT_ALL = new CanFilter(0, 0);
+
+    private final int canId;
+    private final int canMask;
+
+    public CanFilter(int canId, int canMask) {
+        this.canId = canId & canMask;
+        this.canMask = canMask;
+    }
+
+    /**
+     * Returns a filter that matches only the frames with the provided identifier.
+     *
+     * @param canId
+     *            the CAN identifier
+     * @return the filter
+     */
+    public static CanFilter forId(int canId) {
+        return new CanFilter(canId, CAN_EFF_MASK);
+    }
+
+    /**
+     * Returns the most specific filter that matches all the frames matched by at least one of the provided filters.
+     * <p>
+     * A socket can be given such a filter when it serves several filters, the frames it receives must then be matched
+     * again against the original filters.
+     *
+     * @param filters
+     *            the filters to be merged
+     * @return the merged filter, {@link #ACCEPT_ALL} if no filter is provided
+     */
+    public static CanFilter merge(Collection<CanFilter> filters) {
+        final Iterator<CanFilter> iterator = filters.iterator();
+        if (!iterator.hasNext()) {
+            return ACCEPT_ALL;
+        }
+        final CanFilter first = iterator.next();
+        int mask = first.canMask;
+        int differences = 0;
+        while (iterator.hasNext()) {
+            final CanFilter filter = iterator.next();
+            mask &= filter.canMask;
+            differences |= filter.canId ^ first.canId;
+        }
+        mask &= ~differences;
+        return new CanFilter(first.canId, mask);
+    }
+
+    public int getCanId() {
+        return this.canId;
+    }
+
+    public int getCanMask() {
+        return this.canMask;
+    }
+
+    public boolean matches(int frameId) {
+        return (frameId & this.canMask) == this.canId;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.canId + this.canMask;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CanFilter)) {
+            return false;
+        }
+        final CanFilter other = (CanFilter) obj;
+        return this.canId == other.canId && this.canMask == other.canMask;
+    }
+
+    @Override
+    public String toString() {
+        return "CanFilter [canId=0x" + Integer.toHexString(this.canId) + ", canMask=0x"
+                + Integer.toHexString(this.canMask) + "]";
+    }
+}
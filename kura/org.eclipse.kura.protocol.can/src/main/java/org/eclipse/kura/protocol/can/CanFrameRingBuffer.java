@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.can;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded queue of CAN frames with a single producer and a single consumer.
+ * <p>
+ * The identifiers, payloads and timestamps of the frames are stored in arrays allocated when the buffer is created,
+ * so that queuing a frame does not allocate memory. If the buffer is full the frame is dropped and counted.
+ */
+final class CanFrameRingBuffer {
+
+    static final int MAX_DATA_LENGTH = 8;
+
+    interface FrameConsumer {
+
+        void accept(int canId, byte[] data, int offset, int length, long timestamp);
+    }
+
+    private final int capacity;
+    private final int indexMask;
+
+    private final int[] canIds;
+    private final byte[] lengths;
+    private final byte[] data;
+    private final long[] timestamps;
+
+    // sequence number of the next frame to be read, written by the consumer only
+    private final AtomicLong head = new AtomicLong();
+    // sequence number of the next frame to be written, written by the producer only
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    private volatile Thread waitingConsumer;
+
+    CanFrameRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        // rounded up to a power of two, so that the index of a slot can be computed with a mask
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.indexMask = this.capacity - 1;
+        this.canIds = new int[this.capacity];
+        this.lengths = new byte[this.capacity];
+        this.data = new byte[this.capacity * MAX_DATA_LENGTH];
+        this.timestamps = new long[this.capacity];
+    }
+
+    int getCapacity() {
+        return this.capacity;
+    }
+
+    int size() {
+        return (int) (this.tail.get() - this.head.get());
+    }
+
+    boolean isEmpty() {
+        return this.tail.get() == this.head.get();
+    }
+
+    long getDroppedFrames() {
+        return this.droppedFrames.get();
+    }
+
+    /**
+     * Appends a frame, can only be called by the producer thread.
+     *
+     * @return {@code false} if the buffer is full and the frame has been dropped
+     */
+    boolean offer(int canId, byte[] frameData, long timestamp) {
+        final long sequence = this.tail.get();
+        if (sequence - this.head.get() >= this.capacity) {
+            this.droppedFrames.incrementAndGet();
+            return false;
+        }
+        final int index = (int) sequence & this.indexMask;
+        final int length = frameData == null ? 0 : Math.min(frameData.length, MAX_DATA_LENGTH);
+
+        this.canIds[index] = canId;
+        this.lengths[index] = (byte) length;
+        if (length > 0) {
+            System.arraycopy(frameData, 0, this.data, index * MAX_DATA_LENGTH, length);
+        }
+        this.timestamps[index] = timestamp;
+        this.tail.set(sequence + 1);
+
+        final Thread consumer = this.waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Passes at most {@code maxFrames} frames to the consumer and removes them from the buffer, can only be called by
+     * the consumer thread. The data array passed to the consumer is the backing array of the buffer, it must not be
+     * retained.
+     *
+     * @return the number of frames consumed
+     */
+    int drain(FrameConsumer consumer, int maxFrames) {
+        final long first = this.head.get();
+        final int count = (int) Math.min(this.tail.get() - first, maxFrames);
+        for (int i = 0; i < count; i++) {
+            final int index = (int) (first + i) & this.indexMask;
+            consumer.accept(this.canIds[index], this.data, index * MAX_DATA_LENGTH, this.lengths[index],
+                    this.timestamps[index]);
+        }
+        // the slots can be overwritten only once they have been consumed
+        this.head.set(first + count);
+        return count;
+    }
+
+    /**
+     * Waits until the buffer is not empty, can only be called by the consumer thread.
+     *
+     * @return {@code true} if the buffer is not empty, {@code false} if the timeout elapsed
+     * @throws InterruptedException
+     *             if the thread has been interrupted while waiting
+     */
+    boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+        if (isEmpty()) {
+            this.waitingConsumer = Thread.currentThread();
+            try {
+                if (isEmpty()) {
+                    LockSupport.parkNanos(this, unit.toNanos(timeout));
+                }
+            } finally {
+                this.waitingConsumer = null;
+            }
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+        return !isEmpty();
+    }
+}
@@ -1,5 +1,5 @@
 /*******************************************************************************
- * Copyright (c) 2011, 2016 Eurotech and/or its affiliates
+ * Copyright (c) 2011, 2018 Eurotech and/or its affiliates
  *
  * All rights reserved. This program and the accompanying materials
  * are made available under the terms of the Eclipse Public License v1.0
@@ -15,6 +15,7 @@ public class CanMessage {
 
     private int m_canId;
     private byte[] m_data;
+    private long m_timestamp;
 
     public byte[] getData() {
         return this.m_data;
@@ -32,4 +33,15 @@ public class CanMessage {
         this.m_canId = canId;
     }
 
+    /**
+     * Returns the time at which the frame has been received, in milliseconds since the epoch, or 0 if unknown.
+     */
+    public long getTimestamp() {
+        return this.m_timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.m_timestamp = timestamp;
+    }
+
 }
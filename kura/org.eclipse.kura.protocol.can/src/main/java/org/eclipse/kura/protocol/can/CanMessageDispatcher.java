@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.can;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers the frames queued by the receiving thread to the registered {@link CanMessageListener}s.
+ * <p>
+ * Each receiving session queues the frames in its own {@link CanFrameRingBuffer}, which is drained in batches by a
+ * dedicated thread. Each listener receives the frames of a batch that match its filters with a single invocation.
+ */
+final class CanMessageDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CanMessageDispatcher.class);
+
+    private static final long AWAIT_TIMEOUT_MS = 500;
+
+    private final int capacity;
+    private final int maxBatchSize;
+    private final Map<CanMessageListener, Subscription> subscriptions = new ConcurrentHashMap<>();
+
+    private DispatcherThread dispatcherThread;
+
+    CanMessageDispatcher(int capacity, int maxBatchSize) {
+        this.capacity = capacity;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    void addListener(CanMessageListener listener, Collection<CanFilter> filters) {
+        this.subscriptions.put(listener, new Subscription(listener, filters));
+    }
+
+    boolean removeListener(CanMessageListener listener) {
+        return this.subscriptions.remove(listener) != null;
+    }
+
+    boolean hasListeners() {
+        return !this.subscriptions.isEmpty();
+    }
+
+    /**
+     * Returns a single filter that matches all the frames needed by the registered listeners.
+     */
+    CanFilter getSocketFilter() {
+        final List<CanFilter> filters = new ArrayList<>();
+        for (Subscription subscription : this.subscriptions.values()) {
+            if (subscription.filters.isEmpty()) {
+                return CanFilter.ACCEPT_ALL;
+            }
+            filters.addAll(subscription.filters);
+        }
+        return CanFilter.merge(filters);
+    }
+
+    /**
+     * Starts a new receiving session, stopping the previous one.
+     *
+     * @return the buffer in which the receiving thread must queue the frames, with
+     *         {@link CanFrameRingBuffer#offer(int, byte[], long)}
+     */
+    synchronized CanFrameRingBuffer start() {
+        stop();
+        final CanFrameRingBuffer buffer = new CanFrameRingBuffer(this.capacity);
+        this.dispatcherThread = new DispatcherThread(buffer);
+        this.dispatcherThread.start();
+        return buffer;
+    }
+
+    /**
+     * Stops the current receiving session, the frames still queued in its buffer are discarded.
+     */
+    synchronized void stop() {
+        if (this.dispatcherThread == null) {
+            return;
+        }
+        this.dispatcherThread.running = false;
+        this.dispatcherThread.interrupt();
+        this.dispatcherThread = null;
+    }
+
+    /**
+     * Delivers the next batch of frames queued in the provided buffer, can only be called by a single thread at a
+     * time.
+     *
+     * @param buffer
+     *            the buffer to be drained
+     * @param batch
+     *            a list used to hold the batch, cleared by this method
+     * @return the number of frames delivered
+     */
+    int dispatch(CanFrameRingBuffer buffer, List<CanMessage> batch) {
+        batch.clear();
+        final int count = buffer.drain((canId, data, offset, length, timestamp) -> {
+            final CanMessage message = new CanMessage();
+            message.setCanId(canId);
+            message.setData(Arrays.copyOfRange(data, offset, offset + length));
+            message.setTimestamp(timestamp);
+            batch.add(message);
+        }, this.maxBatchSize);
+        if (count == 0) {
+            return 0;
+        }
+
+        final List<CanMessage> messages = Collections.unmodifiableList(batch);
+        for (Subscription subscription : this.subscriptions.values()) {
+            subscription.deliver(messages);
+        }
+        return count;
+    }
+
+    private final class DispatcherThread extends Thread {
+
+        private final CanFrameRingBuffer buffer;
+        private final List<CanMessage> batch = new ArrayList<>();
+        private volatile boolean running = true;
+        private long reportedDroppedFrames;
+
+        DispatcherThread(CanFrameRingBuffer buffer) {
+            super("CanConnectionService Dispatcher");
+            setDaemon(true);
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void run() {
+            while (this.running) {
+                try {
+                    if (this.buffer.await(AWAIT_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        dispatch(this.buffer, this.batch);
+                        reportDroppedFrames();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Exception e) {
+                    logger.warn("Unexpected exception dispatching CAN frames", e);
+                }
+            }
+        }
+
+        private void reportDroppedFrames() {
+            final long droppedFrames = this.buffer.getDroppedFrames();
+            if (droppedFrames != this.reportedDroppedFrames) {
+                logger.warn("CAN receive buffer full, {} frames dropped so far", droppedFrames);
+                this.reportedDroppedFrames = droppedFrames;
+            }
+        }
+    }
+
+    private static final class Subscription {
+
+        private final CanMessageListener listener;
+        private final List<CanFilter> filters;
+
+        Subscription(CanMessageListener listener, Collection<CanFilter> filters) {
+            this.listener = listener;
+            this.filters = filters == null ? Collections.<CanFilter> emptyList() : new ArrayList<>(filters);
+        }
+
+        boolean matches(CanMessage message) {
+            for (CanFilter filter : this.filters) {
+                if (filter.matches(message.getCanId())) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void deliver(List<CanMessage> messages) {
+            List<CanMessage> matching = messages;
+            if (!this.filters.isEmpty()) {
+                matching = new ArrayList<>();
+                for (CanMessage message : messages) {
+                    if (matches(message)) {
+                        matching.add(message);
+                    }
+                }
+            }
+            if (matching.isEmpty()) {
+                return;
+            }
+            try {
+                this.listener.onCanMessages(matching);
+            } catch (Exception e) {
+                logger.warn("CAN message listener failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.protocol.can;
+
+import java.util.List;
+
+/**
+ * Receives the CAN frames read by a {@link CanConnectionService}.
+ *
+ * @see CanConnectionService#addCanMessageListener(CanMessageListener, List)
+ */
+@FunctionalInterface
+public interface CanMessageListener {
+
+    /**
+     * Delivers a batch of frames matching the filters of this listener, in the order they have been received.
+     * <p>
+     * This method is invoked on the thread that dispatches the frames to all the listeners and must not block. The
+     * messages are shared with the other listeners and must not be modified, the list is only valid for the duration
+     * of the call.
+     *
+     * @param messages
+     *            the received frames, never empty
+     */
+    public void onCanMessages(List<CanMessage> messages);
+}
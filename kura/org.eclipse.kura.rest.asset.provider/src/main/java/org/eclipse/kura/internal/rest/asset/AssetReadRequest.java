@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.rest.asset;
+
+import java.util.Set;
+
+public class AssetReadRequest implements Validable {
+
+    private String name;
+    private Set<String> channels;
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the names of the channels to be read, or null if all the channels should be read
+     */
+    public Set<String> getChannelNames() {
+        return channels;
+    }
+
+    @Override
+    public boolean isValid() {
+        return name != null;
+    }
+}
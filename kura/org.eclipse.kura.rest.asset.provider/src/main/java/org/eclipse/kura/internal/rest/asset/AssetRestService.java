@@ -12,10 +12,19 @@ package org.eclipse.kura.internal.rest.asset;
 
 import static org.eclipse.kura.internal.rest.asset.Validable.validate;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.Base64.Encoder;
 import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import javax.annotation.security.RolesAllowed;
@@ -25,9 +34,11 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.asset.Asset;
@@ -44,16 +55,24 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonPrimitive;
 import com.google.gson.JsonSerializer;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 
 @Path("/assets")
 public class AssetRestService {
 
     private static final String BAD_WRITE_REQUEST_ERROR_MESSAGE = "Bad request, expected request format: {\"channels\": [{\"name\": \"channel-1\", \"type\": \"INTEGER\", \"value\": 10 }]}";
     private static final String BAD_READ_REQUEST_ERROR_MESSAGE = "Bad request, expected request format: { \"channels\": [ \"channel-1\", \"channel-2\"]}";
+    private static final String BAD_BATCH_WRITE_REQUEST_ERROR_MESSAGE = "Bad request, expected request format: {\"assets\": [{\"name\": \"asset-1\", \"channels\": [{\"name\": \"channel-1\", \"type\": \"INTEGER\", \"value\": 10 }]}]}";
+    private static final String BAD_BATCH_READ_REQUEST_ERROR_MESSAGE = "Bad request, expected request format: {\"assets\": [{\"name\": \"asset-1\", \"channels\": [ \"channel-1\", \"channel-2\"]}, {\"name\": \"asset-2\"}]}";
     private static final Encoder BASE64_ENCODER = Base64.getEncoder();
 
+    static final String APPLICATION_NDJSON = "application/x-ndjson";
+    static final Type CHANNEL_RECORD_LIST_TYPE = new TypeToken<List<ChannelRecord>>() {
+    }.getType();
+
     private AssetService assetService;
-    private Gson channelSerializer;
+    private volatile Gson channelSerializer;
 
     protected void setAssetService(AssetService assetService) {
         this.assetService = assetService;
@@ -113,6 +132,104 @@ public class AssetRestService {
         return getChannelSerializer().toJsonTree(records);
     }
 
+    /**
+     * Reads the channels of several assets, writing the results to the response as they are available.
+     * Each result contains either the channel records or the error that prevented the asset from being read.
+     */
+    @POST
+    @RolesAllowed("assets")
+    @Path("/_read")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public StreamingOutput read(BatchReadRequest batchRequest) {
+        validate(batchRequest, BAD_BATCH_READ_REQUEST_ERROR_MESSAGE);
+        return output -> writeBatch(output, batchRequest.getRequests(), AssetReadRequest::getName, (asset,
+                request) -> request.getChannelNames() == null ? asset.readAllChannels()
+                        : asset.read(request.getChannelNames()));
+    }
+
+    /**
+     * Writes the channels of several assets, returning the written records with their status.
+     */
+    @POST
+    @RolesAllowed("assets")
+    @Path("/_write")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public StreamingOutput write(BatchWriteRequest batchRequest) {
+        validate(batchRequest, BAD_BATCH_WRITE_REQUEST_ERROR_MESSAGE);
+        return output -> writeBatch(output, batchRequest.getRequests(), AssetWriteRequest::getName,
+                (asset, request) -> {
+                    final List<ChannelRecord> records = request.getRequests().stream()
+                            .map(WriteRequest::toChannelRecord).collect(Collectors.toList());
+                    asset.write(records);
+                    return records;
+                });
+    }
+
+    /**
+     * Streams the values of the channels of an asset as newline delimited JSON until the client disconnects.
+     *
+     * @param channels
+     *            comma separated names of the channels, all the channels if missing
+     * @param interval
+     *            interval in milliseconds between two reads, if missing or zero the values are sent as they are
+     *            notified to channel listeners
+     */
+    @GET
+    @RolesAllowed("assets")
+    @Path("/{pid}/_subscribe")
+    @Produces(APPLICATION_NDJSON)
+    public StreamingOutput subscribe(@PathParam("pid") String assetPid, @QueryParam("channels") String channels,
+            @QueryParam("interval") long interval) {
+        final Asset asset = getAsset(assetPid);
+        if (interval < 0) {
+            throw new WebApplicationException(Response.status(Response.Status.BAD_REQUEST)
+                    .type(MediaType.TEXT_PLAIN).entity("Bad request, interval must not be negative").build());
+        }
+        Set<String> channelNames = null;
+        if (channels != null && !channels.trim().isEmpty()) {
+            channelNames = new LinkedHashSet<>(Arrays.asList(channels.trim().split("\\s*,\\s*")));
+        }
+        return new AssetSubscription(asset, channelNames, interval, getChannelSerializer());
+    }
+
+    @FunctionalInterface
+    private interface AssetOperation<T> {
+
+        List<ChannelRecord> apply(Asset asset, T request) throws KuraException;
+    }
+
+    private <T> void writeBatch(OutputStream output, List<T> requests, Function<T, String> names,
+            AssetOperation<T> operation) throws IOException {
+        final Gson serializer = getChannelSerializer();
+        final JsonWriter writer = serializer.newJsonWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.beginArray();
+        for (T request : requests) {
+            final String assetPid = names.apply(request);
+            writer.beginObject();
+            writer.name("name").value(assetPid);
+            final Asset asset = this.assetService.getAsset(assetPid);
+            if (asset == null) {
+                writer.name("error").value("Asset not found: " + assetPid);
+            } else {
+                List<ChannelRecord> records = null;
+                try {
+                    records = operation.apply(asset, request);
+                } catch (KuraException | RuntimeException e) {
+                    writer.name("error").value(String.valueOf(e.getMessage()));
+                }
+                if (records != null) {
+                    writer.name("channels");
+                    serializer.toJson(records, CHANNEL_RECORD_LIST_TYPE, writer);
+                }
+            }
+            writer.endObject();
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
     private Asset getAsset(String assetPid) {
         final Asset asset = assetService.getAsset(assetPid);
         if (asset == null) {
@@ -122,7 +239,8 @@ public class AssetRestService {
         return asset;
     }
 
-    private Gson getChannelSerializer() {
+    // Gson instances are thread safe, the same serializer is shared by all the requests
+    Gson getChannelSerializer() {
         if (channelSerializer == null) {
             channelSerializer = new GsonBuilder().registerTypeAdapter(TypedValue.class,
                     (JsonSerializer<TypedValue<?>>) (typedValue, type, context) -> {
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.rest.asset;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.asset.Asset;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.listener.ChannelListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+
+/**
+ * Streams the values of the channels of an asset as newline delimited JSON, one array of channel records per
+ * line, until the client disconnects.
+ * <p>
+ * With a positive interval the channels are read periodically, otherwise the values notified to channel
+ * listeners are sent as soon as they are available. In the latter case an empty array is sent when no values are
+ * notified for a while, to detect closed connections.
+ */
+class AssetSubscription implements StreamingOutput {
+
+    private static final Logger logger = LoggerFactory.getLogger(AssetSubscription.class);
+
+    static final long MIN_INTERVAL_MILLIS = 100;
+    static final long HEARTBEAT_INTERVAL_MILLIS = 15000;
+
+    /** Values notified by the listeners and not yet sent, the oldest ones are dropped if the client is too slow */
+    private static final int MAX_PENDING_RECORDS = 1024;
+
+    private final Asset asset;
+    private final Set<String> channelNames;
+    private final long intervalMillis;
+    private final Gson serializer;
+    private final long heartbeatIntervalMillis;
+
+    /**
+     * @param channelNames
+     *            the channels to be subscribed, or null for all the channels
+     * @param intervalMillis
+     *            the interval between two reads, zero to use channel listeners
+     */
+    AssetSubscription(Asset asset, Set<String> channelNames, long intervalMillis, Gson serializer) {
+        this(asset, channelNames, intervalMillis, serializer, HEARTBEAT_INTERVAL_MILLIS);
+    }
+
+    AssetSubscription(Asset asset, Set<String> channelNames, long intervalMillis, Gson serializer,
+            long heartbeatIntervalMillis) {
+        this.asset = asset;
+        this.channelNames = channelNames;
+        this.intervalMillis = intervalMillis;
+        this.serializer = serializer;
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+    }
+
+    @Override
+    public void write(OutputStream output) throws IOException {
+        final Writer writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+        try {
+            if (this.intervalMillis > 0) {
+                poll(writer);
+            } else {
+                listen(writer);
+            }
+        } catch (IOException e) {
+            logger.debug("Subscriber disconnected", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (KuraException e) {
+            logger.warn("Subscription to asset channels failed", e);
+        }
+    }
+
+    private void poll(Writer writer) throws IOException, InterruptedException, KuraException {
+        final long interval = Math.max(this.intervalMillis, MIN_INTERVAL_MILLIS);
+        long next = System.nanoTime();
+        while (true) {
+            final List<ChannelRecord> records = this.channelNames == null ? this.asset.readAllChannels()
+                    : this.asset.read(this.channelNames);
+            writeLine(writer, records);
+
+            // fixed rate, skipping the reads a slow asset did not allow to perform
+            final long now = System.nanoTime();
+            do {
+                next += TimeUnit.MILLISECONDS.toNanos(interval);
+            } while (next <= now);
+            TimeUnit.NANOSECONDS.sleep(next - now);
+        }
+    }
+
+    private void listen(Writer writer) throws IOException, InterruptedException, KuraException {
+        final BlockingQueue<ChannelRecord> pending = new ArrayBlockingQueue<>(MAX_PENDING_RECORDS);
+        final ChannelListener listener = event -> {
+            final ChannelRecord record = event.getChannelRecord();
+            while (!pending.offer(record)) {
+                pending.poll();
+            }
+        };
+
+        final Set<String> names = this.channelNames != null ? this.channelNames
+                : this.asset.getAssetConfiguration().getAssetChannels().keySet();
+        try {
+            for (String name : names) {
+                this.asset.registerChannelListener(name, listener);
+            }
+
+            final List<ChannelRecord> batch = new ArrayList<>();
+            while (true) {
+                final ChannelRecord first = pending.poll(this.heartbeatIntervalMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    writeLine(writer, Collections.emptyList());
+                    continue;
+                }
+                batch.clear();
+                batch.add(first);
+                pending.drainTo(batch);
+                writeLine(writer, batch);
+            }
+        } finally {
+            this.asset.unregisterChannelListener(listener);
+        }
+    }
+
+    private void writeLine(Writer writer, List<ChannelRecord> records) throws IOException {
+        try {
+            this.serializer.toJson(records, AssetRestService.CHANNEL_RECORD_LIST_TYPE,
+                    this.serializer.newJsonWriter(writer));
+        } catch (JsonIOException e) {
+            // the client has disconnected
+            throw new IOException(e.getCause());
+        }
+        writer.write('\n');
+        writer.flush();
+    }
+}
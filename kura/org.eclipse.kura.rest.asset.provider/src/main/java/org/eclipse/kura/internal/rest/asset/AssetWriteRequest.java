@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.rest.asset;
+
+public class AssetWriteRequest extends WriteRequestList {
+
+    private String name;
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isValid() {
+        return name != null && super.isValid();
+    }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+
+package org.eclipse.kura.internal.rest.asset;
+
+import java.util.List;
+
+public class BatchWriteRequest implements Validable {
+
+    private List<AssetWriteRequest> assets;
+
+    public List<AssetWriteRequest> getRequests() {
+        return assets;
+    }
+
+    @Override
+    public boolean isValid() {
+        if (assets == null) {
+            return false;
+        }
+        for (AssetWriteRequest request : assets) {
+            if (!Validable.isValid(request)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -34,7 +34,7 @@ public final class EventService {
 
     private final GwtEventServiceAsync gwtEventService = GWT.create(GwtEventService.class);
     private HashMap<String, LinkedList<Handler>> subscribedHandlers = new HashMap<String, LinkedList<Handler>>();
-    private long lastEventTimestamp = 0;
+    private long lastEventId = 0;
     private Timer resendTimer;
 
     private class TimeoutRequestBuilder extends RpcRequestBuilder {
@@ -49,12 +49,12 @@ public final class EventService {
 
     private EventService() {
         ((ServiceDefTarget) gwtEventService).setRpcRequestBuilder(new TimeoutRequestBuilder());
-        gwtEventService.getLastEventTimestamp(new AsyncCallback<String>() {
+        gwtEventService.getLastEventId(new AsyncCallback<String>() {
 
             @Override
             public void onSuccess(String result) {
-                lastEventTimestamp = Long.parseLong(result);
-                gwtEventService.getNextEvents(Long.toString(lastEventTimestamp), eventCallback);
+                lastEventId = Long.parseLong(result);
+                gwtEventService.getNextEvents(Long.toString(lastEventId), eventCallback);
             }
 
             @Override
@@ -73,7 +73,7 @@ public final class EventService {
 
             stopResendTimer();
 
-            gwtEventService.getNextEvents(Long.toString(lastEventTimestamp), eventCallback);
+            gwtEventService.getNextEvents(Long.toString(lastEventId), eventCallback);
         }
 
         @Override
@@ -97,7 +97,7 @@ public final class EventService {
 
             @Override
             public void run() {
-                gwtEventService.getNextEvents(Long.toString(lastEventTimestamp), eventCallback);
+                gwtEventService.getNextEvents(Long.toString(lastEventId), eventCallback);
             }
         };
         resendTimer.schedule(timeout);
@@ -109,7 +109,7 @@ public final class EventService {
             return;
         }
 
-        lastEventTimestamp = Long.parseLong(event.getTimestamp());
+        lastEventId = Long.parseLong(event.getId());
 
         LinkedList<Handler> topicHandlers = subscribedHandlers.get(event.getTopic());
 
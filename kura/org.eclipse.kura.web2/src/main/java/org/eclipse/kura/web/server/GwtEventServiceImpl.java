@@ -11,12 +11,14 @@
  *******************************************************************************/
 package org.eclipse.kura.web.server;
 
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.Hashtable;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.eclipse.kura.web.server.util.EventRing;
 import org.eclipse.kura.web.shared.ForwardedEventTopic;
 import org.eclipse.kura.web.shared.model.GwtEventInfo;
 import org.eclipse.kura.web.shared.service.GwtEventService;
@@ -34,7 +36,7 @@ public class GwtEventServiceImpl extends OsgiRemoteServiceServlet implements Gwt
     private static final int MAX_EVENT_COUNT = 50;
 
     private LinkedList<String> topics = new LinkedList<String>();
-    private LinkedList<GwtEventInfo> events = new LinkedList<GwtEventInfo>();
+    private final EventRing<GwtEventInfo> events = new EventRing<>(MAX_EVENT_COUNT, 0, TimeUnit.MILLISECONDS);
     private ServiceRegistration<EventHandler> registration;
 
     public GwtEventServiceImpl() {
@@ -44,33 +46,8 @@ public class GwtEventServiceImpl extends OsgiRemoteServiceServlet implements Gwt
     }
 
     @Override
-    public synchronized void handleEvent(Event event) {
-
-        GwtEventInfo eventInfo = serialize(event);
-
-        if (events.size() >= MAX_EVENT_COUNT) {
-            events.removeLast();
-        }
-
-        events.push(eventInfo);
-
-        this.notifyAll();
-    }
-
-    private List<GwtEventInfo> getEvents(long fromTimestamp) {
-        LinkedList<GwtEventInfo> result = new LinkedList<GwtEventInfo>();
-
-        Iterator<GwtEventInfo> i = events.iterator();
-
-        while (i.hasNext()) {
-            GwtEventInfo next = i.next();
-            if (Long.parseLong(next.getTimestamp()) <= fromTimestamp) {
-                break;
-            }
-            result.push(next);
-        }
-
-        return result;
+    public void handleEvent(Event event) {
+        this.events.append(id -> serialize(event, id));
     }
 
     public void start() {
@@ -92,34 +69,28 @@ public class GwtEventServiceImpl extends OsgiRemoteServiceServlet implements Gwt
     }
 
     @Override
-    public synchronized List<GwtEventInfo> getNextEvents(String fromTimestamp) {
-        long timestamp = Long.parseLong(fromTimestamp);
-
-        List<GwtEventInfo> result = getEvents(timestamp);
-
-        if (!result.isEmpty()) {
-            return result;
-        }
+    public List<GwtEventInfo> getNextEvents(String fromId) {
+        long cursor = Long.parseLong(fromId);
 
+        // the monitor of the ring is released while waiting, clients do not block each other or the event delivery
+        List<GwtEventInfo> result = new ArrayList<GwtEventInfo>();
         try {
-            this.wait(POLL_TIMEOUT_SECONDS * 1000);
+            this.events.poll(cursor, POLL_TIMEOUT_SECONDS, TimeUnit.SECONDS, result);
         } catch (InterruptedException e) {
-            return new LinkedList<GwtEventInfo>();
+            Thread.currentThread().interrupt();
         }
 
-        return getEvents(timestamp);
+        return result;
     }
 
     @Override
-    public synchronized String getLastEventTimestamp() {
-        if (events.isEmpty()) {
-            return "0";
-        }
-        return events.getFirst().getTimestamp();
+    public String getLastEventId() {
+        return Long.toString(this.events.getLastId());
     }
 
-    public GwtEventInfo serialize(Event event) {
+    public GwtEventInfo serialize(Event event, long id) {
         GwtEventInfo result = new GwtEventInfo(event.getTopic());
+        result.setId(Long.toString(id));
 
         for (String property : event.getPropertyNames()) {
             if ("event".equals(property)) {
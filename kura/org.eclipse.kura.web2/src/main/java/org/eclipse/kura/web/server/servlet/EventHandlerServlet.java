@@ -13,34 +13,30 @@
  *******************************************************************************/
 package org.eclipse.kura.web.server.servlet;
 
-import static java.util.Objects.isNull;
-import static java.util.Objects.requireNonNull;
 import static org.eclipse.kura.util.base.StringUtil.isNullOrEmpty;
 import static org.eclipse.kura.wire.WireSupport.EMIT_EVENT_TOPIC;
 import static org.osgi.service.event.EventConstants.EVENT_TOPIC;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.Hashtable;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
-import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
+import org.eclipse.kura.web.server.util.EventRing;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.FrameworkUtil;
 import org.osgi.framework.ServiceRegistration;
-import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,6 +45,11 @@ import org.slf4j.LoggerFactory;
  * The Class EventHandlerServlet is responsible for interacting between Event
  * Admin and Javascript through Server Sent Events (SSE). This is mainly required
  * for Kura Wires to delegate the emit events.
+ * <p>
+ * A single event handler stores the emit events in a bounded {@link EventRing} shared by all the clients. Emit
+ * events of the same emitter and port are coalesced, the UI cannot show them at a higher rate anyway. Each event
+ * is sent with its id, so a reconnecting EventSource resumes from the last event it received through the
+ * {@code Last-Event-ID} header.
  */
 public final class EventHandlerServlet extends HttpServlet {
 
@@ -58,34 +59,60 @@ public final class EventHandlerServlet extends HttpServlet {
     /** Session Timeout in Seconds - 5 minutes */
     private static final int MAX_INACTIVE_INTERVAL = 5 * 60;
 
-    /**
-     * Maximum size of the queue to maintain the events. The queue does not care if any
-     * event maintained by the queue is rejected. As long as a consumer thread can consume
-     * events from the queue, the system behavior is considered as expected.
-     */
-    private static final int MAX_SIZE_OF_QUEUE = 10;
+    /** Number of events kept for the clients which are reconnecting or lagging behind */
+    private static final int MAX_SIZE_OF_RING = 256;
+
+    /** Minimum interval between two forwarded emit events of the same emitter and port */
+    private static final long COALESCING_INTERVAL_MILLIS = 200;
+
+    /** Interval between the checks of the session validity */
+    private static final long POLL_INTERVAL_SECONDS = 2;
+
+    /** Interval between the comments sent to detect closed connections when no events are available */
+    private static final long HEARTBEAT_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
 
     /** Serial Version */
     private static final long serialVersionUID = -8962416452919656283L;
 
-    /** Bundle Context */
-    private BundleContext bundleContext;
-
     /** Used to track the new sessions */
     private Map<String, HttpSession> requests;
 
+    private EventRing<String> events;
+
+    private ServiceRegistration<?> registration;
+
+    private volatile boolean destroyed;
+
     /** {@inheritDoc} */
     @Override
     public void init() throws ServletException {
         super.init();
-        this.bundleContext = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
+        final BundleContext bundleContext = FrameworkUtil.getBundle(this.getClass()).getBundleContext();
         this.requests = new ConcurrentHashMap<>();
+        this.events = new EventRing<>(MAX_SIZE_OF_RING, COALESCING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+        this.destroyed = false;
+
+        // event handler properties
+        final Dictionary<String, Object> props = new Hashtable<>();
+        props.put(EVENT_TOPIC, EMIT_EVENT_TOPIC);
+        // a single handler for all the clients, it never blocks
+        this.registration = bundleContext.registerService(EventHandler.class, event -> {
+            final String data = event.getProperty("emitter") + " " + event.getProperty("port");
+            this.events.appendCoalesced(data, id -> data);
+        }, props);
     }
 
     /** {@inheritDoc} */
     @Override
     public void destroy() {
         super.destroy();
+        this.destroyed = true;
+        if (this.registration != null) {
+            this.registration.unregister();
+            this.registration = null;
+        }
         this.requests.clear();
     }
 
@@ -137,53 +164,57 @@ public final class EventHandlerServlet extends HttpServlet {
             this.requests.put(requestId, session);
         }
 
-        final BlockingQueue<Event> eventQueue = new LinkedBlockingQueue<>(MAX_SIZE_OF_QUEUE);
-        final ServletOutputStream outputStream = response.getOutputStream();
-        final PrintStream printStream = new PrintStream(outputStream);
-
-        // the asynchronous task to retrieve and remove head element from the queue
-        final CompletableFuture<Void> elementRemovalFuture = CompletableFuture.runAsync(() -> {
-            try {
-                boolean requestExistsAndValid = checkRequestValidity(requestId);
-                // if session exists and valid, remove head element from the queue
-                while (requestExistsAndValid && !printStream.checkError()) {
-                    final Event data = eventQueue.poll(2, TimeUnit.SECONDS);
-                    if (!isNull(data)) {
-                        printStream.printf("data: %s %s%n%n", data.getProperty("emitter"), data.getProperty("port"));
+        long cursor = getInitialCursor(request);
+
+        try (PrintStream printStream = new PrintStream(response.getOutputStream(), false, "UTF-8")) {
+            final List<String> batch = new ArrayList<>();
+            long lastWrite = System.nanoTime();
+
+            while (!this.destroyed && checkRequestValidity(requestId) && !printStream.checkError()) {
+                batch.clear();
+                cursor = this.events.poll(cursor, POLL_INTERVAL_SECONDS, TimeUnit.SECONDS, batch);
+                if (!batch.isEmpty()) {
+                    // the id applies to the last event of the batch, the one the client resumes from
+                    for (int i = 0; i < batch.size(); i++) {
+                        if (i == batch.size() - 1) {
+                            printStream.printf("id: %d%n", cursor);
+                        }
+                        printStream.printf("data: %s%n%n", batch.get(i));
                     }
-                    requestExistsAndValid = checkRequestValidity(requestId);
+                } else if (System.nanoTime() - lastWrite >= HEARTBEAT_INTERVAL_NANOS) {
+                    printStream.print(":\n\n");
+                } else {
+                    continue;
                 }
-            } catch (final InterruptedException ex) {
-                logger.warn("Element removal timeout...", ex);
-                response.setStatus(HttpServletResponse.SC_OK);
+                printStream.flush();
+                lastWrite = System.nanoTime();
             }
-        });
-
-        final ServiceRegistration<?> registration = registerEventHandler(EMIT_EVENT_TOPIC, eventQueue, requestId,
-                elementRemovalFuture);
-        // unregisters event handler service and close the servlet output stream
-        final CompletableFuture<Void> cleanupFuture = elementRemovalFuture.handle((ok, exeption) -> {
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            response.setStatus(HttpServletResponse.SC_OK);
+        } finally {
             logger.info("Cleaning resources for request: {}", requestId);
             cleanRequest(requestId);
-            registration.unregister();
+        }
+    }
+
+    private long getInitialCursor(final HttpServletRequest request) {
+        final String lastEventId = request.getHeader(LAST_EVENT_ID_HEADER);
+        if (!isNullOrEmpty(lastEventId)) {
             try {
-                printStream.close();
-                outputStream.close();
-            } catch (final IOException ex) {
-                logger.warn("Outport Stream closing issue...", ex);
+                return Long.parseLong(lastEventId.trim());
+            } catch (final NumberFormatException e) {
+                logger.debug("Invalid {} header: {}", LAST_EVENT_ID_HEADER, lastEventId);
             }
-            return null;
-        });
-
-        // returns the result if available or throw exception
-        try {
-            cleanupFuture.join();
-        } catch (RuntimeException re) {
-            // expecting if the queue is not processed
         }
+        // new clients only receive the events following their connection
+        return this.events.getLastId();
     }
 
     private boolean checkRequestValidity(final String requestId) {
+        if (requestId == null) {
+            return false;
+        }
         boolean requestAvailable = this.requests.containsKey(requestId);
         if (requestAvailable) {
             HttpSession storedSession = this.requests.get(requestId);
@@ -196,54 +227,10 @@ public final class EventHandlerServlet extends HttpServlet {
         return false;
     }
 
-    /**
-     * Registers the event handler
-     *
-     * @param topic
-     *            the topic to track changes
-     * @param eventQueue
-     *            the shared queue
-     * @param requestId
-     *            the request ID to track
-     * @param output
-     *            the output stream
-     * @param future
-     *            the SSE task's future handle
-     * @return the service registration ID
-     * @throws NullPointerException
-     *             if any of the provided arguments is null
-     */
-    private ServiceRegistration<?> registerEventHandler(final String topic, final BlockingQueue<Event> eventQueue,
-            final String requestId, final CompletableFuture<?> future) {
-        requireNonNull(topic, "Topic must not be null");
-        requireNonNull(eventQueue, "Provided Queue must not be null");
-        requireNonNull(requestId, "Provided Session ID must not be null");
-        requireNonNull(future, "Future reference must not be null");
-
-        // event handler properties
-        final Dictionary<String, Object> props = new Hashtable<>();
-        props.put(EVENT_TOPIC, topic);
-        // register the handler as a service instance
-        return this.bundleContext.registerService(EventHandler.class, event -> {
-            synchronized (EventHandlerServlet.class) {
-
-                final boolean validRequest = checkRequestValidity(requestId);
-                final boolean consumerAlive = eventQueue.offer(event);
-                if (validRequest && consumerAlive) {
-                    return;
-                } else {
-                    logger.debug("Valid request: {}, consumer alive: {}. Ready to close...", validRequest,
-                            consumerAlive);
-                    cleanRequest(requestId);
-
-                    future.cancel(true);
-                }
-            }
-        }, props);
-    }
-
     private void cleanRequest(final String requestId) {
         logger.debug("Cleaning request: {}", requestId);
-        this.requests.remove(requestId);
+        if (requestId != null) {
+            this.requests.remove(requestId);
+        }
     }
-}
\ No newline at end of file
+}
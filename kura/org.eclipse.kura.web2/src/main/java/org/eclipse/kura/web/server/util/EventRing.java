@@ -0,0 +1,139 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.web.server.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+/**
+ * Bounded ring buffer of events shared by all the clients of an event stream.
+ * <p>
+ * Every appended event gets an increasing id, starting from 1. Clients keep the id of the last event they have
+ * received, their cursor, and read the events following it; a client falling behind by more than the capacity of
+ * the buffer silently loses the oldest events. A cursor greater than the id of the last event comes from a previous
+ * run of the framework, the client restarts from the oldest event still in the buffer. Producers never wait for consumers and the monitor is only held
+ * while copying references, so any number of clients can follow the same stream.
+ * <p>
+ * High rate events can be coalesced: events appended with the same coalescing key less than the coalescing
+ * interval after the last accepted one are dropped.
+ *
+ * @param <T>
+ *            the type of the events
+ */
+public final class EventRing<T> {
+
+    private static final int MAX_COALESCING_KEYS = 1024;
+
+    private final Object[] events;
+    private final long coalescingIntervalNanos;
+    private final Map<String, Long> lastCoalescedNanos = new HashMap<>();
+
+    // id of the last appended event, guarded by this
+    private long lastId;
+
+    public EventRing(int capacity, long coalescingInterval, TimeUnit unit) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.events = new Object[capacity];
+        this.coalescingIntervalNanos = unit.toNanos(coalescingInterval);
+    }
+
+    /**
+     * Appends an event and wakes up the waiting clients.
+     *
+     * @return the id of the event
+     */
+    public long append(T event) {
+        return append(id -> event);
+    }
+
+    /**
+     * Appends the event created by {@code eventFactory} from the id assigned to it, allowing the id to be part of
+     * the event before it becomes visible to clients.
+     *
+     * @return the id of the event
+     */
+    public synchronized long append(LongFunction<? extends T> eventFactory) {
+        final long id = this.lastId + 1;
+        this.events[(int) (id % this.events.length)] = eventFactory.apply(id);
+        this.lastId = id;
+        notifyAll();
+        return id;
+    }
+
+    /**
+     * Appends an event unless another one with the same key has been accepted less than the coalescing interval
+     * ago.
+     *
+     * @return the id of the event, or -1 if it has been dropped
+     */
+    public long appendCoalesced(String key, LongFunction<? extends T> eventFactory) {
+        final long now = System.nanoTime();
+        synchronized (this) {
+            Long last = this.lastCoalescedNanos.get(key);
+            if (last != null && now - last < this.coalescingIntervalNanos) {
+                return -1;
+            }
+            if (this.lastCoalescedNanos.size() >= MAX_COALESCING_KEYS) {
+                this.lastCoalescedNanos.clear();
+            }
+            this.lastCoalescedNanos.put(key, now);
+            return append(eventFactory);
+        }
+    }
+
+    public synchronized long getLastId() {
+        return this.lastId;
+    }
+
+    /**
+     * Copies the events following {@code cursor} into {@code result}, oldest first.
+     *
+     * @return the new cursor, the id of the last copied event
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized long read(long cursor, List<T> result) {
+        final long from = Math.max(resync(cursor), this.lastId - this.events.length);
+        for (long id = from + 1; id <= this.lastId; id++) {
+            result.add((T) this.events[(int) (id % this.events.length)]);
+        }
+        return this.lastId;
+    }
+
+    /**
+     * Waits until an event following {@code cursor} is available, or the timeout expires, then copies the events
+     * following {@code cursor} into {@code result}, oldest first. The monitor is released while waiting.
+     *
+     * @return the new cursor, the id of the last event, that is also returned when no event has been copied
+     */
+    public synchronized long poll(long cursor, long timeout, TimeUnit unit, List<T> result)
+            throws InterruptedException {
+        // a stale cursor is resolved once, the events appended while waiting must not be taken for old ones
+        final long from = resync(cursor);
+        long remaining = unit.toNanos(timeout);
+        final long deadline = System.nanoTime() + remaining;
+        while (this.lastId == from && remaining > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            remaining = deadline - System.nanoTime();
+        }
+        return read(from, result);
+    }
+
+    private long resync(long cursor) {
+        // the client may come from a previous run of the framework, restart from the oldest event
+        return cursor > this.lastId ? 0 : cursor;
+    }
+}
@@ -30,6 +30,14 @@ public class GwtEventInfo extends GwtBaseModel implements Serializable {
         return get("timestamp");
     }
 
+    public String getId() {
+        return get("id");
+    }
+
+    public void setId(String id) {
+        set("id", id);
+    }
+
     public String getTopic() {
         return get("topic");
     }
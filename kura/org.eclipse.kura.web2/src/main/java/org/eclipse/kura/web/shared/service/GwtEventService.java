@@ -23,8 +23,12 @@ public interface GwtEventService extends RemoteService {
 
     public static final int POLL_TIMEOUT_SECONDS = 30;
 
-    public List<GwtEventInfo> getNextEvents(String fromTimestamp);
+    /**
+     * Returns the events following the one with the given id, waiting up to {@link #POLL_TIMEOUT_SECONDS} for
+     * new events. The id of each event is returned by {@link GwtEventInfo#getId()}.
+     */
+    public List<GwtEventInfo> getNextEvents(String fromId);
 
-    public String getLastEventTimestamp();
+    public String getLastEventId();
 
 }
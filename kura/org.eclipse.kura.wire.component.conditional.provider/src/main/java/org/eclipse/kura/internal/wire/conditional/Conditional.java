@@ -27,6 +27,10 @@ import javax.script.ScriptEngine;
 import javax.script.ScriptException;
 
 import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.internal.wire.conditional.ConditionalOptions.Language;
+import org.eclipse.kura.internal.wire.expression.Expression;
+import org.eclipse.kura.internal.wire.expression.ExpressionException;
+import org.eclipse.kura.internal.wire.expression.Scope;
 import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireHelperService;
@@ -45,6 +49,9 @@ import jdk.nashorn.api.scripting.NashornScriptEngineFactory;
 /**
  * The Class Conditional is a specific Wire Component to apply a condition
  * on the received {@link WireEnvelope}
+ * <p>
+ * The condition is either a JavaScript script, evaluated by Nashorn one envelope at a time, or an {@link Expression},
+ * which does not need any synchronization and is evaluated concurrently.
  */
 public final class Conditional implements WireReceiver, WireEmitter, ConfigurableComponent {
 
@@ -62,6 +69,7 @@ public final class Conditional implements WireReceiver, WireEmitter, Configurabl
 
     private ConditionalOptions conditionalOptions;
     private Optional<CompiledScript> script = Optional.empty();
+    private volatile Optional<Expression> expression = Optional.empty();
 
     public void bindWireHelperService(final WireHelperService wireHelperService) {
         if (isNull(this.wireHelperService)) {
@@ -98,11 +106,17 @@ public final class Conditional implements WireReceiver, WireEmitter, Configurabl
     public synchronized void updated(final Map<String, Object> properties) {
         logger.info("Updating Conditional component...");
         this.conditionalOptions = new ConditionalOptions(properties);
+        this.script = Optional.empty();
+        this.expression = Optional.empty();
         try {
-            this.script = Optional.of(tryCompileScript(this.conditionalOptions.getBooleanExpression()));
+            final String condition = this.conditionalOptions.getBooleanExpression();
+            if (this.conditionalOptions.getLanguage() == Language.EXPRESSION) {
+                this.expression = Optional.of(Expression.compileCondition(condition));
+            } else {
+                this.script = Optional.of(tryCompileScript(condition));
+            }
         } catch (Exception e) {
             logger.warn("Failed to compile boolean expression", e);
-            this.script = Optional.empty();
         }
         logger.info("Updating Conditional component...done");
     }
@@ -115,9 +129,32 @@ public final class Conditional implements WireReceiver, WireEmitter, Configurabl
 
     /** {@inheritDoc} */
     @Override
-    public synchronized void onWireReceive(final WireEnvelope wireEnvelope) {
+    public void onWireReceive(final WireEnvelope wireEnvelope) {
         requireNonNull(wireEnvelope, "Wire Envelope cannot be null");
 
+        final Optional<Expression> currentExpression = this.expression;
+        if (currentExpression.isPresent()) {
+            evaluateExpression(currentExpression.get(), wireEnvelope);
+        } else {
+            evaluateScript(wireEnvelope);
+        }
+    }
+
+    private void evaluateExpression(final Expression condition, final WireEnvelope wireEnvelope) {
+        final List<WireRecord> inputRecords = wireEnvelope.getRecords();
+
+        final boolean decision;
+        try {
+            decision = condition.test(new Scope(inputRecords, wireEnvelope.getEmitterPid()));
+        } catch (ExpressionException e) {
+            logger.warn("Failed to evaluate the condition: {}", e.getMessage());
+            return;
+        }
+
+        emit(inputRecords, decision);
+    }
+
+    private synchronized void evaluateScript(final WireEnvelope wireEnvelope) {
         try {
 
             if (!this.script.isPresent()) {
@@ -142,18 +179,22 @@ public final class Conditional implements WireReceiver, WireEmitter, Configurabl
                 return;
             }
 
-            final WireEnvelope outputEnvelope = this.wireSupport.createWireEnvelope(inputRecords);
-
-            if ((Boolean) decision) {
-                this.thenPort.emit(outputEnvelope);
-            } else {
-                this.elsePort.emit(outputEnvelope);
-            }
+            emit(inputRecords, (Boolean) decision);
         } catch (Exception e) {
             logger.warn("Exception while performing decision.", e);
         }
     }
 
+    private void emit(final List<WireRecord> inputRecords, final boolean decision) {
+        final WireEnvelope outputEnvelope = this.wireSupport.createWireEnvelope(inputRecords);
+
+        if (decision) {
+            this.thenPort.emit(outputEnvelope);
+        } else {
+            this.elsePort.emit(outputEnvelope);
+        }
+    }
+
     private CompiledScript tryCompileScript(final String script) throws ScriptException {
         final Compilable engine = ((Compilable) this.scriptEngine);
         return engine.compile(script);
@@ -21,6 +21,16 @@ import javax.script.ScriptException;
 public class ConditionalOptions {
 
     private static final String CONDITION_PROPERTY_KEY = "condition";
+    private static final String LANGUAGE_PROPERTY_KEY = "condition.language";
+
+    /**
+     * The language of the condition: JavaScript, evaluated by Nashorn, or the compiled expression language of
+     * {@link org.eclipse.kura.internal.wire.expression.Expression}.
+     */
+    enum Language {
+        JAVASCRIPT,
+        EXPRESSION
+    }
 
     private static final String DEFAULT_CONDITION = "records[0].TIMER !== null && records[0].TIMER.getValue() > 10 && records[0]['TIMER'].getValue() < 30;";
 
@@ -41,4 +51,18 @@ public class ConditionalOptions {
         return (String) booleanExpression;
     }
 
+    Language getLanguage() {
+        final Object language = this.properties.get(LANGUAGE_PROPERTY_KEY);
+
+        if (!(language instanceof String)) {
+            return Language.JAVASCRIPT;
+        }
+
+        try {
+            return Language.valueOf(((String) language).toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return Language.JAVASCRIPT;
+        }
+    }
+
 }
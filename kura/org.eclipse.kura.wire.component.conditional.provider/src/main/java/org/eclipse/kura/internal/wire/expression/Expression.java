@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import static java.util.Objects.requireNonNull;
+
+import org.eclipse.kura.internal.wire.expression.ExpressionParser.Evaluator;
+import org.eclipse.kura.internal.wire.expression.ExpressionParser.Term;
+import org.eclipse.kura.internal.wire.expression.ExpressionParser.Type;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+
+/**
+ * An expression over the properties of the received {@link org.eclipse.kura.wire.WireRecord}s, parsed and compiled
+ * once and then evaluated without further interpretation. A compiled expression is immutable and can be evaluated
+ * concurrently.
+ * <p>
+ * The expressions support:
+ * <ul>
+ * <li>literals: integer and decimal numbers, strings in single or double quotes, true, false and null</li>
+ * <li>properties of the current record, by name or enclosed in backquotes if the name contains other characters than
+ * letters, digits, '_' and '.', for example {@code TIMER} or {@code `temperature (C)`}</li>
+ * <li>properties of a given record of the envelope, for example {@code records[1].TIMER}</li>
+ * <li>the operators {@code ?:}, {@code ||}, {@code &&}, {@code ==}, {@code !=}, {@code <}, {@code <=}, {@code >},
+ * {@code >=}, {@code +}, {@code -}, {@code *}, {@code /}, {@code %} and {@code !} with the precedence they have in
+ * Java</li>
+ * <li>the functions {@code isNull(value)}, {@code isError(channel)}, which is true if the Wire Asset reported an error
+ * for the channel, {@code abs(value)}, {@code min(a, b)}, {@code max(a, b)} and {@code emitterPid()}</li>
+ * </ul>
+ * A missing property evaluates to null. Null is considered false by the boolean operators and makes the result of
+ * the arithmetic operators null. The types of the operands are checked at compile time when they are known, for
+ * example for literals, and at evaluation time otherwise.
+ */
+public final class Expression {
+
+    private final String source;
+    private final Evaluator evaluator;
+    private final Type type;
+
+    private Expression(final String source, final Term term) {
+        this.source = source;
+        this.evaluator = term.evaluator;
+        this.type = term.type;
+    }
+
+    /**
+     * Compiles an expression.
+     *
+     * @throws ExpressionException
+     *             if the expression is not valid
+     */
+    public static Expression compile(final String source) throws ExpressionException {
+        requireNonNull(source, "Expression cannot be null");
+        return new Expression(source, ExpressionParser.parse(source));
+    }
+
+    /**
+     * Compiles an expression that must evaluate to a boolean.
+     *
+     * @throws ExpressionException
+     *             if the expression is not valid or it is known not to evaluate to a boolean
+     */
+    public static Expression compileCondition(final String source) throws ExpressionException {
+        final Expression expression = compile(source);
+        if (expression.type != Type.BOOLEAN && expression.type != Type.ANY) {
+            throw new ExpressionException("The expression evaluates to " + expression.type + " instead of BOOLEAN");
+        }
+        return expression;
+    }
+
+    /**
+     * @return the value of the expression, a {@link Boolean}, {@link Number}, {@link String} or byte array, or null
+     */
+    public Object evaluate(final Scope scope) throws ExpressionException {
+        return this.evaluator.evaluate(scope);
+    }
+
+    /**
+     * Evaluates a condition.
+     *
+     * @return true if the expression evaluates to true, false if it evaluates to false or null
+     * @throws ExpressionException
+     *             if the evaluation fails or the expression does not evaluate to a boolean
+     */
+    public boolean test(final Scope scope) throws ExpressionException {
+        return Operations.isTrue(this.evaluator.evaluate(scope));
+    }
+
+    /**
+     * @return the value of the expression, null if the expression evaluates to null
+     */
+    public TypedValue<?> evaluateTypedValue(final Scope scope) throws ExpressionException {
+        final Object value = this.evaluator.evaluate(scope);
+        return value != null ? TypedValues.newTypedValue(value) : null;
+    }
+
+    @Override
+    public String toString() {
+        return this.source;
+    }
+}
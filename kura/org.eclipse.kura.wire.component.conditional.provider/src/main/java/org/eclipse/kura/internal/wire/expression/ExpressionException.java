@@ -0,0 +1,30 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+/**
+ * Signals that an expression cannot be compiled or that its evaluation failed, for example because an operator has
+ * been applied to values of incompatible types.
+ */
+public class ExpressionException extends Exception {
+
+    private static final long serialVersionUID = -4211236418032385619L;
+
+    public ExpressionException(final String message) {
+        super(message);
+    }
+
+    ExpressionException(final String message, final int position) {
+        super(message + " at position " + position);
+    }
+}
@@ -0,0 +1,607 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kura.internal.wire.expression.Operations.Arithmetic;
+import org.eclipse.kura.internal.wire.expression.Operations.Comparison;
+
+/**
+ * A recursive descent parser that compiles the expression while parsing it: every rule returns a {@link Term}, whose
+ * evaluator is a lambda that invokes the evaluators of the operands. Operators whose operands are all constant are
+ * evaluated once at compile time.
+ * <p>
+ * The grammar, from the lowest to the highest precedence:
+ *
+ * <pre>
+ * expression     := or ('?' expression ':' expression)?
+ * or             := and ('||' and)*
+ * and            := equality ('&amp;&amp;' equality)*
+ * equality       := relational (('==' | '!=') relational)*
+ * relational     := additive (('&lt;' | '&lt;=' | '&gt;' | '&gt;=') additive)*
+ * additive       := multiplicative (('+' | '-') multiplicative)*
+ * multiplicative := unary (('*' | '/' | '%') unary)*
+ * unary          := ('!' | '-') unary | primary
+ * primary        := literal | '(' expression ')' | function '(' arguments ')' | property
+ * property       := name | 'records' '[' integer ']' '.' name
+ * name           := identifier | '`' any character but '`' '`'
+ * </pre>
+ */
+final class ExpressionParser {
+
+    /**
+     * The suffix of the property that reports a channel error in the records emitted by a Wire Asset.
+     */
+    static final String ERROR_PROPERTY_SUFFIX = "_error";
+
+    @FunctionalInterface
+    interface Evaluator {
+
+        Object evaluate(Scope scope) throws ExpressionException;
+    }
+
+    /**
+     * The type of a term known at compile time, the type of property references is only known at runtime.
+     */
+    enum Type {
+        BOOLEAN,
+        NUMBER,
+        STRING,
+        ANY
+    }
+
+    static final class Term {
+
+        final Type type;
+        final Evaluator evaluator;
+        final boolean constant;
+
+        private Term(final Type type, final Evaluator evaluator, final boolean constant) {
+            this.type = type;
+            this.evaluator = evaluator;
+            this.constant = constant;
+        }
+    }
+
+    private enum TokenKind {
+        NUMBER,
+        STRING,
+        IDENTIFIER,
+        QUOTED_IDENTIFIER,
+        SYMBOL,
+        END
+    }
+
+    private static final String[] SYMBOLS = { "&&", "||", "==", "!=", "<=", ">=", "<", ">", "!", "+", "-", "*", "/",
+            "%", "(", ")", "[", "]", ".", ",", "?", ":" };
+
+    private final String source;
+    private int position;
+
+    private TokenKind tokenKind;
+    private String token;
+    private Object tokenValue;
+    private int tokenPosition;
+
+    private ExpressionParser(final String source) {
+        this.source = source;
+    }
+
+    static Term parse(final String source) throws ExpressionException {
+        final ExpressionParser parser = new ExpressionParser(source);
+        parser.next();
+        final Term term = parser.parseExpression();
+        if (parser.tokenKind != TokenKind.END) {
+            throw parser.error("Unexpected '" + parser.token + "'");
+        }
+        return term;
+    }
+
+    private Term parseExpression() throws ExpressionException {
+        final Term condition = parseOr();
+        if (!isSymbol("?")) {
+            return condition;
+        }
+        final int operatorPosition = this.tokenPosition;
+        next();
+        checkBoolean(condition, "?", operatorPosition);
+        final Term whenTrue = parseExpression();
+        expect(":");
+        final Term whenFalse = parseExpression();
+
+        final Evaluator c = condition.evaluator;
+        final Evaluator t = whenTrue.evaluator;
+        final Evaluator f = whenFalse.evaluator;
+        final Type type = whenTrue.type == whenFalse.type ? whenTrue.type : Type.ANY;
+        return fold(type, scope -> Operations.isTrue(c.evaluate(scope)) ? t.evaluate(scope) : f.evaluate(scope),
+                operatorPosition, condition, whenTrue, whenFalse);
+    }
+
+    private Term parseOr() throws ExpressionException {
+        Term left = parseAnd();
+        while (isSymbol("||")) {
+            final int operatorPosition = this.tokenPosition;
+            next();
+            final Term right = parseAnd();
+            checkBoolean(left, "||", operatorPosition);
+            checkBoolean(right, "||", operatorPosition);
+
+            final Evaluator l = left.evaluator;
+            final Evaluator r = right.evaluator;
+            left = fold(Type.BOOLEAN,
+                    scope -> Operations.isTrue(l.evaluate(scope)) || Operations.isTrue(r.evaluate(scope)),
+                    operatorPosition, left, right);
+        }
+        return left;
+    }
+
+    private Term parseAnd() throws ExpressionException {
+        Term left = parseEquality();
+        while (isSymbol("&&")) {
+            final int operatorPosition = this.tokenPosition;
+            next();
+            final Term right = parseEquality();
+            checkBoolean(left, "&&", operatorPosition);
+            checkBoolean(right, "&&", operatorPosition);
+
+            final Evaluator l = left.evaluator;
+            final Evaluator r = right.evaluator;
+            left = fold(Type.BOOLEAN,
+                    scope -> Operations.isTrue(l.evaluate(scope)) && Operations.isTrue(r.evaluate(scope)),
+                    operatorPosition, left, right);
+        }
+        return left;
+    }
+
+    private Term parseEquality() throws ExpressionException {
+        Term left = parseRelational();
+        while (isSymbol("==") || isSymbol("!=")) {
+            left = comparison(left, "==".equals(this.token) ? Comparison.EQUAL : Comparison.NOT_EQUAL);
+        }
+        return left;
+    }
+
+    private Term parseRelational() throws ExpressionException {
+        Term left = parseAdditive();
+        while (true) {
+            if (isSymbol("<")) {
+                left = comparison(left, Comparison.LESS);
+            } else if (isSymbol("<=")) {
+                left = comparison(left, Comparison.LESS_OR_EQUAL);
+            } else if (isSymbol(">")) {
+                left = comparison(left, Comparison.GREATER);
+            } else if (isSymbol(">=")) {
+                left = comparison(left, Comparison.GREATER_OR_EQUAL);
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Term comparison(final Term left, final Comparison comparison) throws ExpressionException {
+        final int operatorPosition = this.tokenPosition;
+        next();
+        final Term right = comparison.isOrdering() ? parseAdditive() : parseRelational();
+        if (comparison.isOrdering()) {
+            final boolean compatible = left.type == Type.ANY || right.type == Type.ANY
+                    || left.type == right.type && left.type != Type.BOOLEAN;
+            if (!compatible) {
+                throw incompatible(comparison.getSymbol(), left, right, operatorPosition);
+            }
+        }
+
+        final Evaluator l = left.evaluator;
+        final Evaluator r = right.evaluator;
+        return fold(Type.BOOLEAN, scope -> Operations.compare(comparison, l.evaluate(scope), r.evaluate(scope)),
+                operatorPosition, left, right);
+    }
+
+    private Term parseAdditive() throws ExpressionException {
+        Term left = parseMultiplicative();
+        while (true) {
+            if (isSymbol("+")) {
+                left = arithmetic(left, Arithmetic.ADD);
+            } else if (isSymbol("-")) {
+                left = arithmetic(left, Arithmetic.SUBTRACT);
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Term parseMultiplicative() throws ExpressionException {
+        Term left = parseUnary();
+        while (true) {
+            if (isSymbol("*")) {
+                left = arithmetic(left, Arithmetic.MULTIPLY);
+            } else if (isSymbol("/")) {
+                left = arithmetic(left, Arithmetic.DIVIDE);
+            } else if (isSymbol("%")) {
+                left = arithmetic(left, Arithmetic.REMAINDER);
+            } else {
+                return left;
+            }
+        }
+    }
+
+    private Term arithmetic(final Term left, final Arithmetic operation) throws ExpressionException {
+        final int operatorPosition = this.tokenPosition;
+        next();
+        final Term right = operation == Arithmetic.ADD || operation == Arithmetic.SUBTRACT ? parseMultiplicative()
+                : parseUnary();
+
+        final Type type;
+        if (operation == Arithmetic.ADD && (left.type == Type.STRING || right.type == Type.STRING)) {
+            type = Type.STRING;
+        } else if (isNumeric(left) && isNumeric(right)) {
+            type = left.type == Type.NUMBER && right.type == Type.NUMBER ? Type.NUMBER : Type.ANY;
+        } else {
+            throw incompatible(operation.getSymbol(), left, right, operatorPosition);
+        }
+
+        final Evaluator l = left.evaluator;
+        final Evaluator r = right.evaluator;
+        return fold(type, scope -> Operations.arithmetic(operation, l.evaluate(scope), r.evaluate(scope)),
+                operatorPosition, left, right);
+    }
+
+    private Term parseUnary() throws ExpressionException {
+        final int operatorPosition = this.tokenPosition;
+        if (isSymbol("!")) {
+            next();
+            final Term operand = parseUnary();
+            checkBoolean(operand, "!", operatorPosition);
+            final Evaluator o = operand.evaluator;
+            return fold(Type.BOOLEAN, scope -> !Operations.isTrue(o.evaluate(scope)), operatorPosition, operand);
+        } else if (isSymbol("-")) {
+            next();
+            final Term operand = parseUnary();
+            if (!isNumeric(operand)) {
+                throw error("Operator - cannot be applied to " + operand.type, operatorPosition);
+            }
+            final Evaluator o = operand.evaluator;
+            return fold(operand.type, scope -> Operations.negate(o.evaluate(scope)), operatorPosition, operand);
+        }
+        return parsePrimary();
+    }
+
+    private Term parsePrimary() throws ExpressionException {
+        final int primaryPosition = this.tokenPosition;
+        switch (this.tokenKind) {
+        case NUMBER:
+            return constant(Type.NUMBER, next());
+        case STRING:
+            return constant(Type.STRING, next());
+        case IDENTIFIER:
+            if ("true".equals(this.token) || "false".equals(this.token)) {
+                return constant(Type.BOOLEAN, Boolean.valueOf((String) next()));
+            } else if ("null".equals(this.token)) {
+                next();
+                return constant(Type.ANY, null);
+            }
+            final String name = (String) next();
+            if (isSymbol("(")) {
+                return parseFunction(name, primaryPosition);
+            }
+            return parseProperty(name, false, "");
+        case QUOTED_IDENTIFIER:
+            return parseProperty((String) next(), true, "");
+        case SYMBOL:
+            if (isSymbol("(")) {
+                next();
+                final Term term = parseExpression();
+                expect(")");
+                return term;
+            }
+            throw error("Unexpected '" + this.token + "'");
+        default:
+            throw error("Unexpected end of expression");
+        }
+    }
+
+    private Term parseProperty(final String name, final boolean quoted, final String suffix)
+            throws ExpressionException {
+        if (quoted || !"records".equals(name) || !isSymbol("[")) {
+            final String propertyName = name + suffix;
+            return new Term(Type.ANY, scope -> scope.getProperty(propertyName), false);
+        }
+
+        next();
+        if (this.tokenKind != TokenKind.NUMBER || !(this.tokenValue instanceof Integer)) {
+            throw error("Expected a record index");
+        }
+        final int recordIndex = (Integer) next();
+        expect("]");
+        expect(".");
+        if (this.tokenKind != TokenKind.IDENTIFIER && this.tokenKind != TokenKind.QUOTED_IDENTIFIER) {
+            throw error("Expected a property name");
+        }
+        final String propertyName = next() + suffix;
+        return new Term(Type.ANY, scope -> scope.getProperty(recordIndex, propertyName), false);
+    }
+
+    private Term parseFunction(final String name, final int functionPosition) throws ExpressionException {
+        expect("(");
+        final List<Term> arguments = new ArrayList<>();
+        if (!isSymbol(")")) {
+            do {
+                if (!arguments.isEmpty()) {
+                    next();
+                }
+                arguments.add("isError".equals(name) ? parseErrorProperty() : parseExpression());
+            } while (isSymbol(","));
+        }
+        expect(")");
+
+        switch (name) {
+        case "isNull": {
+            checkArguments(name, arguments, 1, functionPosition);
+            final Evaluator argument = arguments.get(0).evaluator;
+            return fold(Type.BOOLEAN, scope -> argument.evaluate(scope) == null, functionPosition,
+                    arguments.get(0));
+        }
+        case "isError": {
+            checkArguments(name, arguments, 1, functionPosition);
+            final Evaluator argument = arguments.get(0).evaluator;
+            return new Term(Type.BOOLEAN, scope -> {
+                final Object error = argument.evaluate(scope);
+                return error instanceof String && !((String) error).isEmpty();
+            }, false);
+        }
+        case "abs": {
+            checkArguments(name, arguments, 1, functionPosition);
+            final Term argument = arguments.get(0);
+            if (!isNumeric(argument)) {
+                throw error("Function abs cannot be applied to " + argument.type, functionPosition);
+            }
+            final Evaluator a = argument.evaluator;
+            return fold(argument.type, scope -> Operations.abs(a.evaluate(scope)), functionPosition, argument);
+        }
+        case "min":
+        case "max": {
+            checkArguments(name, arguments, 2, functionPosition);
+            final Term left = arguments.get(0);
+            final Term right = arguments.get(1);
+            if (!isNumeric(left) || !isNumeric(right)) {
+                throw error("Function " + name + " cannot be applied to " + left.type + " and " + right.type,
+                        functionPosition);
+            }
+            final Evaluator l = left.evaluator;
+            final Evaluator r = right.evaluator;
+            final Comparison comparison = "min".equals(name) ? Comparison.LESS_OR_EQUAL
+                    : Comparison.GREATER_OR_EQUAL;
+            final Type type = left.type == Type.NUMBER && right.type == Type.NUMBER ? Type.NUMBER : Type.ANY;
+            return fold(type, scope -> {
+                final Object a = l.evaluate(scope);
+                final Object b = r.evaluate(scope);
+                if (a == null || b == null) {
+                    return null;
+                }
+                return Operations.compare(comparison, a, b) ? a : b;
+            }, functionPosition, left, right);
+        }
+        case "emitterPid":
+            checkArguments(name, arguments, 0, functionPosition);
+            return new Term(Type.STRING, Scope::getEmitterPid, false);
+        default:
+            throw error("Unknown function " + name, functionPosition);
+        }
+    }
+
+    /**
+     * Parses the argument of isError(), the name of the channel whose error property is checked.
+     */
+    private Term parseErrorProperty() throws ExpressionException {
+        if (this.tokenKind != TokenKind.IDENTIFIER && this.tokenKind != TokenKind.QUOTED_IDENTIFIER) {
+            throw error("Expected a channel name");
+        }
+        final boolean quoted = this.tokenKind == TokenKind.QUOTED_IDENTIFIER;
+        return parseProperty((String) next(), quoted, ERROR_PROPERTY_SUFFIX);
+    }
+
+    private Term fold(final Type type, final Evaluator evaluator, final int operatorPosition, final Term... operands)
+            throws ExpressionException {
+        for (Term operand : operands) {
+            if (!operand.constant) {
+                return new Term(type, evaluator, false);
+            }
+        }
+        try {
+            // the evaluators of constant terms do not access the scope
+            return constant(type, evaluator.evaluate(null));
+        } catch (ExpressionException e) {
+            throw error(e.getMessage(), operatorPosition);
+        }
+    }
+
+    private static Term constant(final Type type, final Object value) {
+        return new Term(value != null ? type : Type.ANY, scope -> value, true);
+    }
+
+    private static boolean isNumeric(final Term term) {
+        return term.type == Type.NUMBER || term.type == Type.ANY;
+    }
+
+    private void checkBoolean(final Term term, final String operator, final int operatorPosition)
+            throws ExpressionException {
+        if (term.type != Type.BOOLEAN && term.type != Type.ANY) {
+            throw error("Operator " + operator + " cannot be applied to " + term.type, operatorPosition);
+        }
+    }
+
+    private void checkArguments(final String function, final List<Term> arguments, final int count,
+            final int functionPosition) throws ExpressionException {
+        if (arguments.size() != count) {
+            throw error("Function " + function + " expects " + count + " arguments", functionPosition);
+        }
+    }
+
+    private ExpressionException incompatible(final String operator, final Term left, final Term right,
+            final int operatorPosition) {
+        return error("Operator " + operator + " cannot be applied to " + left.type + " and " + right.type,
+                operatorPosition);
+    }
+
+    private ExpressionException error(final String message) {
+        return error(message, this.tokenPosition);
+    }
+
+    private ExpressionException error(final String message, final int errorPosition) {
+        return new ExpressionException(message, errorPosition);
+    }
+
+    private boolean isSymbol(final String symbol) {
+        return this.tokenKind == TokenKind.SYMBOL && symbol.equals(this.token);
+    }
+
+    private void expect(final String symbol) throws ExpressionException {
+        if (!isSymbol(symbol)) {
+            throw error(this.tokenKind == TokenKind.END ? "Expected '" + symbol + "'"
+                    : "Expected '" + symbol + "' but found '" + this.token + "'");
+        }
+        next();
+    }
+
+    /**
+     * Moves to the next token.
+     *
+     * @return the value of the current token
+     */
+    private Object next() throws ExpressionException {
+        final Object current = this.tokenValue;
+
+        while (this.position < this.source.length() && Character.isWhitespace(this.source.charAt(this.position))) {
+            this.position++;
+        }
+        this.tokenPosition = this.position;
+
+        if (this.position >= this.source.length()) {
+            this.tokenKind = TokenKind.END;
+            this.token = "";
+            this.tokenValue = null;
+            return current;
+        }
+
+        final char c = this.source.charAt(this.position);
+        if (Character.isDigit(c)) {
+            scanNumber();
+        } else if (Character.isLetter(c) || c == '_') {
+            final int start = this.position;
+            while (this.position < this.source.length() && isIdentifierPart(this.source.charAt(this.position))) {
+                this.position++;
+            }
+            setToken(TokenKind.IDENTIFIER, this.source.substring(start, this.position));
+        } else if (c == '`') {
+            final int end = this.source.indexOf('`', this.position + 1);
+            if (end < 0) {
+                throw error("Unterminated property name");
+            }
+            setToken(TokenKind.QUOTED_IDENTIFIER, this.source.substring(this.position + 1, end));
+            this.position = end + 1;
+        } else if (c == '"' || c == '\'') {
+            scanString(c);
+        } else {
+            scanSymbol();
+        }
+        return current;
+    }
+
+    private void setToken(final TokenKind kind, final String value) {
+        this.tokenKind = kind;
+        this.token = value;
+        this.tokenValue = value;
+    }
+
+    private static boolean isIdentifierPart(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+
+    private void scanNumber() throws ExpressionException {
+        final int start = this.position;
+        boolean decimal = false;
+        while (this.position < this.source.length()) {
+            final char c = this.source.charAt(this.position);
+            if (Character.isDigit(c)) {
+                this.position++;
+            } else if (c == '.' && !decimal && this.position + 1 < this.source.length()
+                    && Character.isDigit(this.source.charAt(this.position + 1))) {
+                decimal = true;
+                this.position++;
+            } else if ((c == 'e' || c == 'E') && this.position + 1 < this.source.length()) {
+                decimal = true;
+                this.position++;
+                final char sign = this.source.charAt(this.position);
+                if (sign == '+' || sign == '-') {
+                    this.position++;
+                }
+            } else {
+                break;
+            }
+        }
+
+        final String text = this.source.substring(start, this.position);
+        this.tokenKind = TokenKind.NUMBER;
+        this.token = text;
+        try {
+            if (decimal) {
+                this.tokenValue = Double.parseDouble(text);
+            } else {
+                final long value = Long.parseLong(text);
+                this.tokenValue = value <= Integer.MAX_VALUE ? (Object) (int) value : (Object) value;
+            }
+        } catch (NumberFormatException e) {
+            throw error("Invalid number " + text);
+        }
+    }
+
+    private void scanString(final char quote) throws ExpressionException {
+        final StringBuilder value = new StringBuilder();
+        int i = this.position + 1;
+        while (true) {
+            if (i >= this.source.length()) {
+                throw error("Unterminated string");
+            }
+            char c = this.source.charAt(i++);
+            if (c == quote) {
+                break;
+            } else if (c == '\\' && i < this.source.length()) {
+                c = this.source.charAt(i++);
+                if (c == 'n') {
+                    c = '\n';
+                } else if (c == 't') {
+                    c = '\t';
+                }
+            }
+            value.append(c);
+        }
+        this.tokenKind = TokenKind.STRING;
+        this.token = this.source.substring(this.position, i);
+        this.tokenValue = value.toString();
+        this.position = i;
+    }
+
+    private void scanSymbol() throws ExpressionException {
+        for (String symbol : SYMBOLS) {
+            if (this.source.startsWith(symbol, this.position)) {
+                this.tokenKind = TokenKind.SYMBOL;
+                this.token = symbol;
+                this.tokenValue = symbol;
+                this.position += symbol.length();
+                return;
+            }
+        }
+        throw error("Unexpected character '" + this.source.charAt(this.position) + "'");
+    }
+}
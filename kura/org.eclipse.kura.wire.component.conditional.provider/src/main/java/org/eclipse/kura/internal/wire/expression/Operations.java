@@ -0,0 +1,295 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import java.util.Arrays;
+
+/**
+ * The runtime semantics of the expression operators.
+ * <p>
+ * Numbers keep the type of the {@link org.eclipse.kura.type.TypedValue} they come from and are promoted as in Java:
+ * the result of an arithmetic operation has the widest type among INTEGER, LONG, FLOAT and DOUBLE of its operands.
+ * Arithmetic operations with a null operand produce null, ordering comparisons with a null operand are false.
+ */
+final class Operations {
+
+    enum Arithmetic {
+
+        ADD("+"),
+        SUBTRACT("-"),
+        MULTIPLY("*"),
+        DIVIDE("/"),
+        REMAINDER("%");
+
+        private final String symbol;
+
+        private Arithmetic(final String symbol) {
+            this.symbol = symbol;
+        }
+
+        String getSymbol() {
+            return this.symbol;
+        }
+    }
+
+    enum Comparison {
+
+        EQUAL("=="),
+        NOT_EQUAL("!="),
+        LESS("<"),
+        LESS_OR_EQUAL("<="),
+        GREATER(">"),
+        GREATER_OR_EQUAL(">=");
+
+        private final String symbol;
+
+        private Comparison(final String symbol) {
+            this.symbol = symbol;
+        }
+
+        String getSymbol() {
+            return this.symbol;
+        }
+
+        boolean isOrdering() {
+            return this != EQUAL && this != NOT_EQUAL;
+        }
+    }
+
+    private static final int INTEGER_RANK = 0;
+    private static final int LONG_RANK = 1;
+    private static final int FLOAT_RANK = 2;
+    private static final int DOUBLE_RANK = 3;
+
+    private Operations() {
+    }
+
+    static Object arithmetic(final Arithmetic operation, final Object left, final Object right)
+            throws ExpressionException {
+        if (left == null || right == null) {
+            return null;
+        }
+        if (operation == Arithmetic.ADD && (left instanceof String || right instanceof String)) {
+            return toString(left) + toString(right);
+        }
+        if (!(left instanceof Number) || !(right instanceof Number)) {
+            throw incompatible(operation.getSymbol(), left, right);
+        }
+
+        final Number l = (Number) left;
+        final Number r = (Number) right;
+        switch (Math.max(rank(l), rank(r))) {
+        case INTEGER_RANK:
+            return intArithmetic(operation, l.intValue(), r.intValue());
+        case LONG_RANK:
+            return longArithmetic(operation, l.longValue(), r.longValue());
+        case FLOAT_RANK:
+            return (float) doubleArithmetic(operation, l.floatValue(), r.floatValue());
+        default:
+            return doubleArithmetic(operation, l.doubleValue(), r.doubleValue());
+        }
+    }
+
+    static Object negate(final Object value) throws ExpressionException {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Integer) {
+            return -(Integer) value;
+        } else if (value instanceof Long) {
+            return -(Long) value;
+        } else if (value instanceof Float) {
+            return -(Float) value;
+        } else if (value instanceof Double) {
+            return -(Double) value;
+        }
+        throw new ExpressionException("Operator - cannot be applied to " + typeName(value));
+    }
+
+    static Object abs(final Object value) throws ExpressionException {
+        if (value == null) {
+            return null;
+        } else if (value instanceof Integer) {
+            return Math.abs((Integer) value);
+        } else if (value instanceof Long) {
+            return Math.abs((Long) value);
+        } else if (value instanceof Float) {
+            return Math.abs((Float) value);
+        } else if (value instanceof Double) {
+            return Math.abs((Double) value);
+        }
+        throw new ExpressionException("Function abs cannot be applied to " + typeName(value));
+    }
+
+    static boolean compare(final Comparison comparison, final Object left, final Object right)
+            throws ExpressionException {
+        if (!comparison.isOrdering()) {
+            return equal(left, right) == (comparison == Comparison.EQUAL);
+        }
+        if (left == null || right == null) {
+            return false;
+        }
+
+        if (left instanceof Number && right instanceof Number) {
+            final Number l = (Number) left;
+            final Number r = (Number) right;
+            if (Math.max(rank(l), rank(r)) <= LONG_RANK) {
+                return test(comparison, Long.compare(l.longValue(), r.longValue()));
+            }
+            return compareDoubles(comparison, l.doubleValue(), r.doubleValue());
+        } else if (left instanceof String && right instanceof String) {
+            return test(comparison, ((String) left).compareTo((String) right));
+        }
+        throw incompatible(comparison.getSymbol(), left, right);
+    }
+
+    /**
+     * @return the value of a condition, null is considered false
+     */
+    static boolean isTrue(final Object value) throws ExpressionException {
+        if (value == null) {
+            return false;
+        } else if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new ExpressionException("Expected a boolean but found " + typeName(value));
+    }
+
+    static String typeName(final Object value) {
+        if (value == null) {
+            return "null";
+        } else if (value instanceof byte[]) {
+            return "BYTE_ARRAY";
+        }
+        return value.getClass().getSimpleName().toUpperCase();
+    }
+
+    private static boolean equal(final Object left, final Object right) {
+        if (left == null || right == null) {
+            return left == right;
+        } else if (left instanceof Number && right instanceof Number) {
+            final Number l = (Number) left;
+            final Number r = (Number) right;
+            if (Math.max(rank(l), rank(r)) <= LONG_RANK) {
+                return l.longValue() == r.longValue();
+            }
+            return l.doubleValue() == r.doubleValue();
+        } else if (left instanceof byte[] && right instanceof byte[]) {
+            return Arrays.equals((byte[]) left, (byte[]) right);
+        }
+        return left.equals(right);
+    }
+
+    private static boolean test(final Comparison comparison, final int result) {
+        switch (comparison) {
+        case LESS:
+            return result < 0;
+        case LESS_OR_EQUAL:
+            return result <= 0;
+        case GREATER:
+            return result > 0;
+        default:
+            return result >= 0;
+        }
+    }
+
+    private static boolean compareDoubles(final Comparison comparison, final double left, final double right) {
+        // primitive comparisons, so that NaN is never ordered
+        switch (comparison) {
+        case LESS:
+            return left < right;
+        case LESS_OR_EQUAL:
+            return left <= right;
+        case GREATER:
+            return left > right;
+        default:
+            return left >= right;
+        }
+    }
+
+    private static int intArithmetic(final Arithmetic operation, final int left, final int right)
+            throws ExpressionException {
+        switch (operation) {
+        case ADD:
+            return left + right;
+        case SUBTRACT:
+            return left - right;
+        case MULTIPLY:
+            return left * right;
+        case DIVIDE:
+            checkDivisor(right);
+            return left / right;
+        default:
+            checkDivisor(right);
+            return left % right;
+        }
+    }
+
+    private static long longArithmetic(final Arithmetic operation, final long left, final long right)
+            throws ExpressionException {
+        switch (operation) {
+        case ADD:
+            return left + right;
+        case SUBTRACT:
+            return left - right;
+        case MULTIPLY:
+            return left * right;
+        case DIVIDE:
+            checkDivisor(right);
+            return left / right;
+        default:
+            checkDivisor(right);
+            return left % right;
+        }
+    }
+
+    private static double doubleArithmetic(final Arithmetic operation, final double left, final double right) {
+        switch (operation) {
+        case ADD:
+            return left + right;
+        case SUBTRACT:
+            return left - right;
+        case MULTIPLY:
+            return left * right;
+        case DIVIDE:
+            return left / right;
+        default:
+            return left % right;
+        }
+    }
+
+    private static void checkDivisor(final long divisor) throws ExpressionException {
+        if (divisor == 0) {
+            throw new ExpressionException("Division by zero");
+        }
+    }
+
+    private static int rank(final Number number) {
+        if (number instanceof Double) {
+            return DOUBLE_RANK;
+        } else if (number instanceof Float) {
+            return FLOAT_RANK;
+        } else if (number instanceof Long) {
+            return LONG_RANK;
+        }
+        return INTEGER_RANK;
+    }
+
+    private static String toString(final Object value) {
+        return value instanceof byte[] ? Arrays.toString((byte[]) value) : value.toString();
+    }
+
+    private static ExpressionException incompatible(final String operator, final Object left, final Object right) {
+        return new ExpressionException(
+                "Operator " + operator + " cannot be applied to " + typeName(left) + " and " + typeName(right));
+    }
+}
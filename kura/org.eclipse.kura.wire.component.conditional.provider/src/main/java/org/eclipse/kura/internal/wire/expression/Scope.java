@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireRecord;
+
+/**
+ * The input of an {@link Expression} evaluation: the records of a received envelope and the record referenced by
+ * unqualified property names.
+ * <p>
+ * A scope is not thread safe, it is meant to be created by the thread that evaluates the expression and can be
+ * reused for the records of the same envelope through {@link #setCurrentRecord(int)}.
+ */
+public final class Scope {
+
+    private final List<WireRecord> records;
+    private final String emitterPid;
+    private Map<String, TypedValue<?>> currentProperties;
+
+    public Scope(final List<WireRecord> records, final String emitterPid) {
+        requireNonNull(records, "Records cannot be null");
+        this.records = records;
+        this.emitterPid = emitterPid;
+        setCurrentRecord(0);
+    }
+
+    /**
+     * Sets the record referenced by unqualified property names, the first record by default.
+     */
+    public void setCurrentRecord(final int index) {
+        final WireRecord record = getRecord(index);
+        this.currentProperties = record != null ? record.getProperties() : Collections.emptyMap();
+    }
+
+    Object getProperty(final String name) {
+        return getValue(this.currentProperties, name);
+    }
+
+    Object getProperty(final int recordIndex, final String name) {
+        final WireRecord record = getRecord(recordIndex);
+        return record != null ? getValue(record.getProperties(), name) : null;
+    }
+
+    String getEmitterPid() {
+        return this.emitterPid;
+    }
+
+    private WireRecord getRecord(final int index) {
+        return index >= 0 && index < this.records.size() ? this.records.get(index) : null;
+    }
+
+    private static Object getValue(final Map<String, TypedValue<?>> properties, final String name) {
+        final TypedValue<?> value = properties.get(name);
+        return value != null ? value.getValue() : null;
+    }
+}
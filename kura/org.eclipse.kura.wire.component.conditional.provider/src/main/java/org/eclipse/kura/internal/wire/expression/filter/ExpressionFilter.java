@@ -0,0 +1,170 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression.filter;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.internal.wire.expression.Expression;
+import org.eclipse.kura.internal.wire.expression.ExpressionException;
+import org.eclipse.kura.internal.wire.expression.Scope;
+import org.eclipse.kura.internal.wire.expression.filter.ExpressionFilterOptions.Mapping;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireEmitter;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.osgi.service.wireadmin.Wire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Wire Component that filters and transforms the received records through compiled
+ * {@link Expression}s, without a script engine.
+ * <p>
+ * Each record that satisfies the filter condition is emitted, with the properties computed by the mappings added to
+ * or replacing its properties. The configuration is immutable once compiled, so the envelopes are processed
+ * concurrently.
+ */
+public final class ExpressionFilter implements WireReceiver, WireEmitter, ConfigurableComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExpressionFilter.class);
+
+    private volatile WireHelperService wireHelperService;
+
+    private WireSupport wireSupport;
+
+    private volatile Optional<ExpressionFilterOptions> options = Optional.empty();
+
+    public void bindWireHelperService(final WireHelperService wireHelperService) {
+        if (isNull(this.wireHelperService)) {
+            this.wireHelperService = wireHelperService;
+        }
+    }
+
+    public void unbindWireHelperService(final WireHelperService wireHelperService) {
+        if (this.wireHelperService == wireHelperService) {
+            this.wireHelperService = null;
+        }
+    }
+
+    protected void activate(final Map<String, Object> properties) {
+        logger.info("Activating Expression Filter component...");
+        this.wireSupport = this.wireHelperService.newWireSupport(this);
+        updated(properties);
+        logger.info("Activating Expression Filter component...done");
+    }
+
+    public void updated(final Map<String, Object> properties) {
+        logger.info("Updating Expression Filter component...");
+        try {
+            this.options = Optional.of(new ExpressionFilterOptions(properties));
+        } catch (ExpressionException e) {
+            logger.warn("Failed to compile the expressions: {}", e.getMessage());
+            this.options = Optional.empty();
+        }
+        logger.info("Updating Expression Filter component...done");
+    }
+
+    protected void deactivate() {
+        logger.info("Deactivating Expression Filter component...");
+        logger.info("Deactivating Expression Filter component...done");
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void onWireReceive(final WireEnvelope wireEnvelope) {
+        requireNonNull(wireEnvelope, "Wire Envelope cannot be null");
+
+        final Optional<ExpressionFilterOptions> currentOptions = this.options;
+        if (!currentOptions.isPresent()) {
+            logger.warn("The expression compilation failed during component configuration update, "
+                    + "please review the expressions.");
+            return;
+        }
+
+        final List<WireRecord> result = process(currentOptions.get(), wireEnvelope);
+        if (!result.isEmpty() || currentOptions.get().isEmitEmptyEnvelopes()) {
+            this.wireSupport.emit(result);
+        }
+    }
+
+    static List<WireRecord> process(final ExpressionFilterOptions options, final WireEnvelope wireEnvelope) {
+        final List<WireRecord> inputRecords = wireEnvelope.getRecords();
+        final Scope scope = new Scope(inputRecords, wireEnvelope.getEmitterPid());
+        final Optional<Expression> filter = options.getFilter();
+        final List<Mapping> mappings = options.getMappings();
+
+        final List<WireRecord> result = new ArrayList<>(inputRecords.size());
+        for (int i = 0; i < inputRecords.size(); i++) {
+            final WireRecord inputRecord = inputRecords.get(i);
+            scope.setCurrentRecord(i);
+            try {
+                if (filter.isPresent() && !filter.get().test(scope)) {
+                    continue;
+                }
+                if (mappings.isEmpty()) {
+                    result.add(inputRecord);
+                    continue;
+                }
+
+                final Map<String, TypedValue<?>> properties = options.isKeepInputProperties()
+                        ? new HashMap<>(inputRecord.getProperties())
+                        : new HashMap<>();
+                for (Mapping mapping : mappings) {
+                    final TypedValue<?> value = mapping.getExpression().evaluateTypedValue(scope);
+                    if (value != null) {
+                        properties.put(mapping.getName(), value);
+                    } else {
+                        properties.remove(mapping.getName());
+                    }
+                }
+                result.add(new WireRecord(properties));
+            } catch (ExpressionException e) {
+                logger.warn("Dropping record {}: {}", i, e.getMessage());
+            }
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void producersConnected(final Wire[] wires) {
+        this.wireSupport.producersConnected(wires);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void updated(final Wire wire, final Object value) {
+        this.wireSupport.updated(wire, value);
+    }
+
+    @Override
+    public Object polled(final Wire wire) {
+        return this.wireSupport.polled(wire);
+    }
+
+    @Override
+    public void consumersConnected(final Wire[] wires) {
+        this.wireSupport.consumersConnected(wires);
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression.filter;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.eclipse.kura.internal.wire.expression.Expression;
+import org.eclipse.kura.internal.wire.expression.ExpressionException;
+
+/**
+ * The configuration of an {@link ExpressionFilter}, with the expressions already compiled.
+ */
+final class ExpressionFilterOptions {
+
+    private static final String FILTER_PROPERTY_KEY = "filter";
+    private static final String MAPPING_PROPERTY_KEY = "mapping";
+    private static final String KEEP_INPUT_PROPERTIES_PROPERTY_KEY = "keep.input.properties";
+    private static final String EMIT_EMPTY_ENVELOPES_PROPERTY_KEY = "emit.empty.envelopes";
+
+    /**
+     * A property of the output records and the expression that computes its value.
+     */
+    static final class Mapping {
+
+        private final String name;
+        private final Expression expression;
+
+        Mapping(final String name, final Expression expression) {
+            this.name = name;
+            this.expression = expression;
+        }
+
+        String getName() {
+            return this.name;
+        }
+
+        Expression getExpression() {
+            return this.expression;
+        }
+    }
+
+    private final Optional<Expression> filter;
+    private final List<Mapping> mappings;
+    private final boolean keepInputProperties;
+    private final boolean emitEmptyEnvelopes;
+
+    ExpressionFilterOptions(final Map<String, Object> properties) throws ExpressionException {
+        requireNonNull(properties, "Properties must be not null");
+
+        final String filterSource = getString(properties, FILTER_PROPERTY_KEY);
+        this.filter = filterSource.trim().isEmpty() ? Optional.empty()
+                : Optional.of(Expression.compileCondition(filterSource));
+        this.mappings = parseMappings(getString(properties, MAPPING_PROPERTY_KEY));
+        this.keepInputProperties = getBoolean(properties, KEEP_INPUT_PROPERTIES_PROPERTY_KEY, true);
+        this.emitEmptyEnvelopes = getBoolean(properties, EMIT_EMPTY_ENVELOPES_PROPERTY_KEY, false);
+    }
+
+    /**
+     * @return the condition that the records must satisfy to be emitted, empty if all the records are emitted
+     */
+    Optional<Expression> getFilter() {
+        return this.filter;
+    }
+
+    List<Mapping> getMappings() {
+        return this.mappings;
+    }
+
+    boolean isKeepInputProperties() {
+        return this.keepInputProperties;
+    }
+
+    boolean isEmitEmptyEnvelopes() {
+        return this.emitEmptyEnvelopes;
+    }
+
+    /**
+     * Parses the mappings, one per line in the form {@code name = expression}. Empty lines and lines starting with
+     * '#' are ignored.
+     */
+    static List<Mapping> parseMappings(final String source) throws ExpressionException {
+        final List<Mapping> result = new ArrayList<>();
+        final String[] lines = source.split("\\r?\\n");
+        for (int i = 0; i < lines.length; i++) {
+            final String line = lines[i].trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            final int separator = line.indexOf('=');
+            final String name = separator > 0 ? line.substring(0, separator).trim() : "";
+            if (name.isEmpty()) {
+                throw new ExpressionException("Invalid mapping at line " + (i + 1) + ", expected name = expression");
+            }
+            try {
+                result.add(new Mapping(name, Expression.compile(line.substring(separator + 1))));
+            } catch (ExpressionException e) {
+                throw new ExpressionException("Invalid mapping at line " + (i + 1) + ": " + e.getMessage());
+            }
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private static String getString(final Map<String, Object> properties, final String key) {
+        final Object value = properties.get(key);
+        return value instanceof String ? (String) value : "";
+    }
+
+    private static boolean getBoolean(final Map<String, Object> properties, final String key,
+            final boolean defaultValue) {
+        final Object value = properties.get(key);
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+}
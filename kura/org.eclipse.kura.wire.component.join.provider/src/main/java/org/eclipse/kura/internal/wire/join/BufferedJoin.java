@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.join;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireRecord;
+
+/**
+ * Base class for the join strategies that keep the records received on each port in a bounded buffer until
+ * matching records have been received on all the other ports.
+ */
+abstract class BufferedJoin {
+
+    protected final int portCount;
+    protected final int bufferSize;
+    private long evictedCount;
+
+    BufferedJoin(final int portCount, final int bufferSize) {
+        this.portCount = portCount;
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * Processes the records received on a port.
+     *
+     * @param port
+     *            the index of the port
+     * @param records
+     *            the received records
+     * @param now
+     *            the current time
+     * @return the joined records
+     */
+    synchronized List<WireRecord> onWireReceive(final int port, final List<WireRecord> records, final long now) {
+        List<WireRecord> result = Collections.emptyList();
+        for (final WireRecord record : records) {
+            final WireRecord joined = join(port, record, now);
+            if (joined != null) {
+                if (result.isEmpty()) {
+                    result = new ArrayList<>();
+                }
+                result.add(joined);
+            }
+        }
+        return result;
+    }
+
+    synchronized long getEvictedCount() {
+        return this.evictedCount;
+    }
+
+    protected void evicted() {
+        this.evictedCount++;
+    }
+
+    /**
+     * Matches a received record with the buffered ones.
+     *
+     * @return the joined record if a match has been found on all the other ports, null if the record has been
+     *         buffered or discarded
+     */
+    protected abstract WireRecord join(int port, WireRecord record, long now);
+
+    /**
+     * Merges the matched records, ordered by port. If a property is contained in more than one record, the value of
+     * the port with the greatest index is kept.
+     */
+    static WireRecord merge(final WireRecord[] records) {
+        if (records.length == 1) {
+            return records[0];
+        }
+        final List<Map<String, TypedValue<?>>> layers = new ArrayList<>(records.length);
+        for (final WireRecord record : records) {
+            layers.add(record.getProperties());
+        }
+        return new WireRecord(new MergedProperties(layers));
+    }
+}
@@ -17,21 +17,18 @@ import static java.util.Objects.requireNonNull;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.function.BiConsumer;
 
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.localization.LocalizationAdapter;
 import org.eclipse.kura.localization.resources.WireMessages;
-import org.eclipse.kura.type.TypedValue;
 import org.eclipse.kura.wire.WireEmitter;
 import org.eclipse.kura.wire.WireEnvelope;
 import org.eclipse.kura.wire.WireHelperService;
 import org.eclipse.kura.wire.WireRecord;
 import org.eclipse.kura.wire.graph.MultiportWireSupport;
+import org.eclipse.kura.wire.graph.ReceiverPort;
 import org.eclipse.kura.wire.multiport.MultiportWireReceiver;
 import org.osgi.service.component.ComponentContext;
 import org.osgi.service.wireadmin.Wire;
@@ -75,41 +72,66 @@ public final class JoinComponent implements MultiportWireReceiver, WireEmitter,
         logger.debug(message.updatingLogger());
         this.joinComponentOptions = new JoinComponentOptions(properties, context.getBundleContext());
 
-        this.joinComponentOptions.getPortAggregatorFactory().build(wireSupport.getReceiverPorts())
-                .onWireReceive(this::onWireReceive);
+        final List<ReceiverPort> receiverPorts = this.wireSupport.getReceiverPorts();
+        final JoinMode joinMode = this.joinComponentOptions.getJoinMode();
+        if (joinMode == JoinMode.POSITIONAL) {
+            this.joinComponentOptions.getPortAggregatorFactory().build(receiverPorts)
+                    .onWireReceive(this::onWireReceive);
+        } else {
+            final BufferedJoin join = createBufferedJoin(joinMode, receiverPorts.size());
+            for (int i = 0; i < receiverPorts.size(); i++) {
+                final int port = i;
+                receiverPorts.get(i).onWireReceive(envelope -> emit(
+                        join.onWireReceive(port, envelope.getRecords(), System.currentTimeMillis())));
+            }
+        }
 
         logger.debug(message.updatingLoggerDone());
     }
 
+    private BufferedJoin createBufferedJoin(final JoinMode joinMode, final int portCount) {
+        final int bufferSize = this.joinComponentOptions.getBufferSize();
+        if (joinMode == JoinMode.TIMESTAMP) {
+            return new TimestampJoin(portCount, bufferSize, this.joinComponentOptions.getTimestampProperty(),
+                    this.joinComponentOptions.getTimestampTolerance());
+        }
+        return new KeyJoin(portCount, bufferSize, this.joinComponentOptions.getKeyProperty());
+    }
+
     private void onWireReceive(List<WireEnvelope> envelopes) {
-        final WireEnvelope firstEnvelope = envelopes.get(0);
-        final WireEnvelope secondEnvelope = envelopes.get(1);
-        final List<WireRecord> firstRecords = firstEnvelope != null ? firstEnvelope.getRecords()
-                : Collections.emptyList();
-        final List<WireRecord> secondRecords = firstEnvelope != null ? secondEnvelope.getRecords()
-                : Collections.emptyList();
-        final List<WireRecord> result = new ArrayList<>();
-        forEachPair(firstRecords.iterator(), secondRecords.iterator(), (first, second) -> {
-            if (first == null) {
-                result.add(new WireRecord(second.getProperties()));
-                return;
-            }
-            if (second == null) {
-                result.add(new WireRecord(first.getProperties()));
-                return;
+        emit(joinByPosition(envelopes));
+    }
+
+    /**
+     * Merges the records at the same position in the provided envelopes. If properties with the same name are
+     * contained in more than one record, the value received on the port with the greatest index is kept.
+     */
+    static List<WireRecord> joinByPosition(final List<WireEnvelope> envelopes) {
+        final List<List<WireRecord>> records = new ArrayList<>(envelopes.size());
+        int maxSize = 0;
+        for (final WireEnvelope envelope : envelopes) {
+            final List<WireRecord> envelopeRecords = envelope != null ? envelope.getRecords()
+                    : Collections.emptyList();
+            records.add(envelopeRecords);
+            maxSize = Math.max(maxSize, envelopeRecords.size());
+        }
+
+        final List<WireRecord> result = new ArrayList<>(maxSize);
+        for (int i = 0; i < maxSize; i++) {
+            final List<WireRecord> matched = new ArrayList<>(records.size());
+            for (final List<WireRecord> portRecords : records) {
+                if (i < portRecords.size()) {
+                    matched.add(portRecords.get(i));
+                }
             }
-            final Map<String, TypedValue<?>> resultProperties = new HashMap<>(first.getProperties());
-            resultProperties.putAll(second.getProperties());
-            result.add(new WireRecord(resultProperties));
-        });
-        this.wireSupport.emit(result);
+            result.add(BufferedJoin.merge(matched.toArray(new WireRecord[matched.size()])));
+        }
+        return result;
     }
 
-    private <T, U> void forEachPair(Iterator<T> first, Iterator<U> second, BiConsumer<T, U> consumer) {
-        while (first.hasNext() || second.hasNext()) {
-            final T firstValue = first.hasNext() ? first.next() : null;
-            final U secondValue = second.hasNext() ? second.next() : null;
-            consumer.accept(firstValue, secondValue);
+    private void emit(final List<WireRecord> records) {
+        if (!records.isEmpty()) {
+            this.wireSupport.emit(records);
         }
     }
 
@@ -25,8 +25,24 @@ public class JoinComponentOptions {
 
     private static final String BARRIER_MODALITY_PROPERTY_KEY = "barrier";
 
+    private static final String JOIN_MODE_PROPERTY_KEY = "join.mode";
+
+    private static final String TIMESTAMP_PROPERTY_PROPERTY_KEY = "timestamp.property";
+
+    private static final String TIMESTAMP_TOLERANCE_PROPERTY_KEY = "timestamp.tolerance";
+
+    private static final String KEY_PROPERTY_PROPERTY_KEY = "key.property";
+
+    private static final String BUFFER_SIZE_PROPERTY_KEY = "buffer.size";
+
     private static final boolean BARRIER_MODALITY_PROPERTY_DEFAULT = true;
 
+    private static final String TIMESTAMP_PROPERTY_DEFAULT = "assetTimestamp";
+
+    private static final long TIMESTAMP_TOLERANCE_DEFAULT = 500;
+
+    private static final int BUFFER_SIZE_DEFAULT = 100;
+
     private final Map<String, Object> properties;
     private final BundleContext context;
 
@@ -46,4 +62,29 @@ public class JoinComponentOptions {
         }
     }
 
+    JoinMode getJoinMode() {
+        return JoinMode.valueOf(
+                ((String) properties.getOrDefault(JOIN_MODE_PROPERTY_KEY, JoinMode.POSITIONAL.name())).trim());
+    }
+
+    String getTimestampProperty() {
+        return (String) properties.getOrDefault(TIMESTAMP_PROPERTY_PROPERTY_KEY, TIMESTAMP_PROPERTY_DEFAULT);
+    }
+
+    /**
+     * Returns the maximum difference between the timestamps of the joined records, in milliseconds
+     */
+    long getTimestampTolerance() {
+        return Math.max(((Number) properties.getOrDefault(TIMESTAMP_TOLERANCE_PROPERTY_KEY,
+                TIMESTAMP_TOLERANCE_DEFAULT)).longValue(), 0);
+    }
+
+    String getKeyProperty() {
+        return (String) properties.getOrDefault(KEY_PROPERTY_PROPERTY_KEY, "");
+    }
+
+    int getBufferSize() {
+        return Math.max((Integer) properties.getOrDefault(BUFFER_SIZE_PROPERTY_KEY, BUFFER_SIZE_DEFAULT), 1);
+    }
+
 }
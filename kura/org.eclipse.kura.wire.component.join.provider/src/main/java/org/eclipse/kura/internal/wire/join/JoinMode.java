@@ -0,0 +1,25 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.join;
+
+public enum JoinMode {
+
+    /** The records at the same position in the last envelope received on each port are merged */
+    POSITIONAL,
+
+    /** The records received on different ports are merged if their timestamps are within a tolerance */
+    TIMESTAMP,
+
+    /** The records received on different ports are merged if they have the same value of a key property */
+    KEY
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.join;
+
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Joins the records received on different ports that have the same value of a key property. Only the most recent
+ * record for each key is buffered, the least recently received keys are evicted when the buffer of a port is full.
+ * <p>
+ * Numeric keys are compared by value, so that for example an integer key matches a long key, and a double key
+ * without a fractional part matches the long key having the same value.
+ */
+final class KeyJoin extends BufferedJoin {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeyJoin.class);
+
+    private final String keyProperty;
+    private final Map<Object, WireRecord>[] buffers;
+
+    @SuppressWarnings("unchecked")
+    KeyJoin(final int portCount, final int bufferSize, final String keyProperty) {
+        super(portCount, bufferSize);
+        this.keyProperty = keyProperty;
+        this.buffers = new Map[portCount];
+        for (int i = 0; i < portCount; i++) {
+            this.buffers[i] = new LinkedHashMap<Object, WireRecord>() {
+
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<Object, WireRecord> eldest) {
+                    if (size() > KeyJoin.this.bufferSize) {
+                        evicted();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+
+    @Override
+    protected WireRecord join(final int port, final WireRecord record, final long now) {
+        final Object key = getKey(record);
+        if (key == null) {
+            logger.debug("Discarding record without the {} key property", this.keyProperty);
+            return null;
+        }
+
+        for (int i = 0; i < this.portCount; i++) {
+            if (i != port && !this.buffers[i].containsKey(key)) {
+                // the previous record with the same key, if any, is replaced
+                this.buffers[port].remove(key);
+                this.buffers[port].put(key, record);
+                return null;
+            }
+        }
+
+        final WireRecord[] records = new WireRecord[this.portCount];
+        for (int i = 0; i < this.portCount; i++) {
+            records[i] = i == port ? record : this.buffers[i].remove(key);
+        }
+        return merge(records);
+    }
+
+    private Object getKey(final WireRecord record) {
+        final TypedValue<?> value = record.getProperties().get(this.keyProperty);
+        if (value == null || value.getValue() == null) {
+            return null;
+        }
+        final Object key = value.getValue();
+        if (key instanceof Integer || key instanceof Long) {
+            return ((Number) key).longValue();
+        } else if (key instanceof Number) {
+            return normalize(((Number) key).doubleValue());
+        } else if (key instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) key);
+        }
+        return key;
+    }
+
+    private static Object normalize(final double key) {
+        // integral values that fit in a long are converted exactly, so they are equal to the same integral key
+        if (key == Math.rint(key) && key >= Long.MIN_VALUE && key < 0x1p63) {
+            return (long) key;
+        }
+        return key;
+    }
+}
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.join;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.eclipse.kura.type.TypedValue;
+
+/**
+ * A read only view of the union of the properties of some records. If a property is contained in more than one
+ * record, the value of the last one is visible.
+ * <p>
+ * The view does not copy the merged maps, that must not be modified while the view is in use.
+ */
+final class MergedProperties extends AbstractMap<String, TypedValue<?>> {
+
+    private final List<Map<String, TypedValue<?>>> layers;
+    private int size = -1;
+
+    MergedProperties(final List<Map<String, TypedValue<?>>> layers) {
+        this.layers = layers;
+    }
+
+    @Override
+    public TypedValue<?> get(final Object key) {
+        for (int i = this.layers.size() - 1; i >= 0; i--) {
+            final TypedValue<?> value = this.layers.get(i).get(key);
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public int size() {
+        if (this.size < 0) {
+            int count = 0;
+            for (int i = 0; i < this.layers.size(); i++) {
+                for (final String key : this.layers.get(i).keySet()) {
+                    if (!isHidden(key, i)) {
+                        count++;
+                    }
+                }
+            }
+            this.size = count;
+        }
+        return this.size;
+    }
+
+    @Override
+    public Set<Entry<String, TypedValue<?>>> entrySet() {
+        return new AbstractSet<Entry<String, TypedValue<?>>>() {
+
+            @Override
+            public Iterator<Entry<String, TypedValue<?>>> iterator() {
+                return new MergedIterator();
+            }
+
+            @Override
+            public int size() {
+                return MergedProperties.this.size();
+            }
+        };
+    }
+
+    private boolean isHidden(final String key, final int layer) {
+        for (int i = layer + 1; i < this.layers.size(); i++) {
+            if (this.layers.get(i).containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private final class MergedIterator implements Iterator<Entry<String, TypedValue<?>>> {
+
+        private int layer = 0;
+        private Iterator<Entry<String, TypedValue<?>>> current = null;
+        private Entry<String, TypedValue<?>> next = null;
+
+        @Override
+        public boolean hasNext() {
+            while (this.next == null) {
+                if (this.current != null && this.current.hasNext()) {
+                    final Entry<String, TypedValue<?>> candidate = this.current.next();
+                    if (!isHidden(candidate.getKey(), this.layer - 1)) {
+                        this.next = candidate;
+                    }
+                } else if (this.layer < MergedProperties.this.layers.size()) {
+                    this.current = MergedProperties.this.layers.get(this.layer++).entrySet().iterator();
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Entry<String, TypedValue<?>> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final Entry<String, TypedValue<?>> result = this.next;
+            this.next = null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.join;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireRecord;
+
+/**
+ * Joins the records received on different ports whose timestamps differ at most by a tolerance. For each port, the
+ * buffered record closest in time to the received one is selected.
+ * <p>
+ * A buffered record is evicted when it can no longer be matched, that is when all the other ports have received a
+ * record more recent than its timestamp plus the tolerance, or when the buffer of its port is full.
+ */
+final class TimestampJoin extends BufferedJoin {
+
+    private static final class Entry {
+
+        private final WireRecord record;
+        private final long timestamp;
+
+        private Entry(final WireRecord record, final long timestamp) {
+            this.record = record;
+            this.timestamp = timestamp;
+        }
+    }
+
+    private final String timestampProperty;
+    private final long tolerance;
+    private final ArrayDeque<Entry>[] buffers;
+    private final long[] watermarks;
+
+    @SuppressWarnings("unchecked")
+    TimestampJoin(final int portCount, final int bufferSize, final String timestampProperty, final long tolerance) {
+        super(portCount, bufferSize);
+        this.timestampProperty = timestampProperty;
+        this.tolerance = tolerance;
+        this.buffers = new ArrayDeque[portCount];
+        for (int i = 0; i < portCount; i++) {
+            this.buffers[i] = new ArrayDeque<>();
+        }
+        this.watermarks = new long[portCount];
+        Arrays.fill(this.watermarks, Long.MIN_VALUE);
+    }
+
+    @Override
+    protected WireRecord join(final int port, final WireRecord record, final long now) {
+        final long timestamp = getTimestamp(record, now);
+        this.watermarks[port] = Math.max(this.watermarks[port], timestamp);
+
+        final Entry[] matches = new Entry[this.portCount];
+        boolean matched = true;
+        for (int i = 0; i < this.portCount && matched; i++) {
+            if (i != port) {
+                matches[i] = findClosest(this.buffers[i], timestamp);
+                matched = matches[i] != null;
+            }
+        }
+
+        WireRecord result = null;
+        if (matched) {
+            final WireRecord[] records = new WireRecord[this.portCount];
+            for (int i = 0; i < this.portCount; i++) {
+                if (i == port) {
+                    records[i] = record;
+                } else {
+                    this.buffers[i].remove(matches[i]);
+                    records[i] = matches[i].record;
+                }
+            }
+            result = merge(records);
+        } else {
+            final ArrayDeque<Entry> buffer = this.buffers[port];
+            if (buffer.size() >= this.bufferSize) {
+                buffer.removeFirst();
+                evicted();
+            }
+            buffer.addLast(new Entry(record, timestamp));
+        }
+
+        evictExpired();
+        return result;
+    }
+
+    private Entry findClosest(final ArrayDeque<Entry> buffer, final long timestamp) {
+        Entry closest = null;
+        long closestDistance = Long.MAX_VALUE;
+        for (final Entry entry : buffer) {
+            final long distance = Math.abs(entry.timestamp - timestamp);
+            if (distance <= this.tolerance && distance < closestDistance) {
+                closest = entry;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    private void evictExpired() {
+        for (int port = 0; port < this.portCount; port++) {
+            final Iterator<Entry> iterator = this.buffers[port].iterator();
+            while (iterator.hasNext()) {
+                if (isExpired(port, iterator.next())) {
+                    iterator.remove();
+                    evicted();
+                } else {
+                    // the buffers are ordered by arrival, the remaining records are evicted when full
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean isExpired(final int port, final Entry entry) {
+        for (int i = 0; i < this.portCount; i++) {
+            if (i != port && this.watermarks[i] <= entry.timestamp + this.tolerance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long getTimestamp(final WireRecord record, final long now) {
+        final TypedValue<?> value = record.getProperties().get(this.timestampProperty);
+        if (value != null && value.getValue() instanceof Number) {
+            return ((Number) value.getValue()).longValue();
+        }
+        return now;
+    }
+}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import static java.util.Locale.ENGLISH;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+
+/**
+ * An aggregate function computed over the values of a property in a window. The result is emitted in the property
+ * named {@code <property>_<aggregate name>}.
+ */
+final class Aggregate {
+
+    private enum Function {
+        MIN,
+        MAX,
+        MEAN,
+        SUM,
+        COUNT,
+        LAST,
+        STDDEV,
+        PERCENTILE
+    }
+
+    private final Function function;
+    private final double quantile;
+    private final String name;
+
+    private Aggregate(final Function function, final double quantile, final String name) {
+        this.function = function;
+        this.quantile = quantile;
+        this.name = name;
+    }
+
+    String getName() {
+        return this.name;
+    }
+
+    boolean needsQuantiles() {
+        return this.function == Function.PERCENTILE;
+    }
+
+    /**
+     * Computes the aggregate
+     *
+     * @param statistics
+     *            the statistics of the values, tracking at least one value
+     * @return the result, or null if it cannot be computed
+     */
+    TypedValue<?> compute(final Statistics statistics) {
+        final double result;
+        switch (this.function) {
+        case COUNT:
+            return TypedValues.newLongValue(statistics.getCount());
+        case MIN:
+            result = statistics.getMin();
+            break;
+        case MAX:
+            result = statistics.getMax();
+            break;
+        case MEAN:
+            result = statistics.getMean();
+            break;
+        case SUM:
+            result = statistics.getSum();
+            break;
+        case LAST:
+            result = statistics.getLast();
+            break;
+        case STDDEV:
+            result = statistics.getStandardDeviation();
+            break;
+        default:
+            result = statistics.getQuantile(this.quantile);
+            break;
+        }
+        return Double.isNaN(result) ? null : TypedValues.newDoubleValue(result);
+    }
+
+    /**
+     * Parses a comma separated list of aggregates, for example {@code min, max, mean, p95}
+     *
+     * @throws IllegalArgumentException
+     *             if the list is empty or contains an unknown aggregate
+     */
+    static List<Aggregate> parseList(final String aggregates) {
+        final List<Aggregate> result = new ArrayList<>();
+        for (final String token : aggregates.split(",")) {
+            final String trimmed = token.trim();
+            if (!trimmed.isEmpty()) {
+                result.add(parse(trimmed));
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("At least one aggregate must be specified");
+        }
+        return result;
+    }
+
+    /**
+     * Parses an aggregate name: one of min, max, mean, sum, count, last and stddev, or {@code p<percentile>} for
+     * the approximate percentiles, for example p50 or p99.9
+     *
+     * @throws IllegalArgumentException
+     *             if the name is not valid
+     */
+    static Aggregate parse(final String name) {
+        final String normalized = name.trim().toLowerCase(ENGLISH);
+        if (normalized.startsWith("p") && normalized.length() > 1 && Character.isDigit(normalized.charAt(1))) {
+            final double percentile;
+            try {
+                percentile = Double.parseDouble(normalized.substring(1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid percentile: " + name, e);
+            }
+            if (percentile > 100) {
+                throw new IllegalArgumentException("Invalid percentile: " + name);
+            }
+            return new Aggregate(Function.PERCENTILE, percentile / 100, normalized);
+        }
+        for (final Function function : Function.values()) {
+            if (function != Function.PERCENTILE && function.name().equalsIgnoreCase(normalized)) {
+                return new Aggregate(function, 0, normalized);
+            }
+        }
+        throw new IllegalArgumentException("Unknown aggregate: " + name);
+    }
+}
@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.configuration.ConfigurationService;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEmitter;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.osgi.service.wireadmin.Wire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class {@link Aggregator} represents a {@link WireComponent} that reduces the received stream of records to
+ * statistics computed over tumbling or sliding windows, defined by time or by number of records.
+ * <p>
+ * The numeric properties of the received records can be grouped by the value of a property. When a window closes,
+ * a record containing the configured aggregates of each property is emitted for each group that received records
+ * in the window. Time based windows are aligned to the epoch and closed by a dedicated thread, so that a window is
+ * emitted also if no records are received when it ends.
+ * <p>
+ * The partial aggregates are preserved across configuration updates that do not change the structure of the
+ * windows.
+ */
+public final class Aggregator implements WireEmitter, WireReceiver, ConfigurableComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(Aggregator.class);
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private volatile WireHelperService wireHelperService;
+    private WireSupport wireSupport;
+
+    private WindowedAggregation aggregation;
+    private ScheduledExecutorService scheduler;
+
+    public void bindWireHelperService(final WireHelperService wireHelperService) {
+        if (isNull(this.wireHelperService)) {
+            this.wireHelperService = wireHelperService;
+        }
+    }
+
+    public void unbindWireHelperService(final WireHelperService wireHelperService) {
+        if (this.wireHelperService == wireHelperService) {
+            this.wireHelperService = null;
+        }
+    }
+
+    public void activate(final Map<String, Object> properties) {
+        logger.info(message.activatingAggregator());
+        this.wireSupport = this.wireHelperService.newWireSupport(this);
+        updated(properties);
+        logger.info(message.activatingAggregatorDone());
+    }
+
+    public synchronized void deactivate() {
+        logger.info(message.deactivatingAggregator());
+        stopScheduler();
+        this.aggregation = null;
+        logger.info(message.deactivatingAggregatorDone());
+    }
+
+    public synchronized void updated(final Map<String, Object> properties) {
+        logger.info(message.updatingAggregator());
+
+        stopScheduler();
+
+        final AggregatorOptions options;
+        try {
+            options = new AggregatorOptions(properties);
+        } catch (final Exception e) {
+            logger.warn("Invalid Aggregator configuration, the received records will be discarded", e);
+            this.aggregation = null;
+            return;
+        }
+
+        if (this.aggregation != null && this.aggregation.getOptions().hasSameWindows(options)) {
+            this.aggregation.setOptions(options);
+        } else {
+            this.aggregation = new WindowedAggregation(options);
+        }
+
+        if (options.isTimeBased()) {
+            final String threadName = (String) properties.getOrDefault(ConfigurationService.KURA_SERVICE_PID,
+                    "Aggregator") + "-WindowThread";
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, threadName);
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long slide = options.getSlide();
+            scheduleClose(this.aggregation, (System.currentTimeMillis() / slide + 1) * slide);
+        }
+
+        logger.info(message.updatingAggregatorDone());
+    }
+
+    private void scheduleClose(final WindowedAggregation expected, final long windowEnd) {
+        final long delay = Math.max(windowEnd - System.currentTimeMillis(), 0);
+        this.scheduler.schedule(() -> closeWindows(expected, windowEnd), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void closeWindows(final WindowedAggregation expected, final long windowEnd) {
+        final List<WireRecord> result;
+        synchronized (this) {
+            if (this.aggregation != expected || this.scheduler == null) {
+                // the component has been reconfigured in the meantime
+                return;
+            }
+            result = expected.close(windowEnd);
+            scheduleClose(expected, windowEnd + expected.getOptions().getSlide());
+        }
+        if (!result.isEmpty()) {
+            this.wireSupport.emit(result);
+        }
+    }
+
+    private void stopScheduler() {
+        if (this.scheduler != null) {
+            this.scheduler.shutdownNow();
+            this.scheduler = null;
+        }
+    }
+
+    @Override
+    public void onWireReceive(final WireEnvelope wireEnvelope) {
+        requireNonNull(wireEnvelope, message.wireEnvelopeNonNull());
+        final List<WireRecord> result;
+        synchronized (this) {
+            if (this.aggregation == null) {
+                return;
+            }
+            result = this.aggregation.add(wireEnvelope.getRecords(), System.currentTimeMillis());
+        }
+        if (!result.isEmpty()) {
+            this.wireSupport.emit(result);
+        }
+    }
+
+    @Override
+    public Object polled(final Wire wire) {
+        return this.wireSupport.polled(wire);
+    }
+
+    @Override
+    public void consumersConnected(final Wire[] wires) {
+        this.wireSupport.consumersConnected(wires);
+    }
+
+    @Override
+    public void updated(final Wire wire, final Object value) {
+        this.wireSupport.updated(wire, value);
+    }
+
+    @Override
+    public void producersConnected(final Wire[] wires) {
+        this.wireSupport.producersConnected(wires);
+    }
+}
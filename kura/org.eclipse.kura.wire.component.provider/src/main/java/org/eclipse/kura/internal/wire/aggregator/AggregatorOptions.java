@@ -0,0 +1,173 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+
+/**
+ * The Class AggregatorOptions is responsible to contain and validate all the Aggregator related configurable
+ * options
+ */
+final class AggregatorOptions {
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private static final String WINDOW_TYPE_PROP_NAME = "window.type";
+    private static final String WINDOW_UNIT_PROP_NAME = "window.unit";
+    private static final String WINDOW_LENGTH_PROP_NAME = "window.length";
+    private static final String WINDOW_SLIDE_PROP_NAME = "window.slide";
+    private static final String GROUP_BY_PROP_NAME = "group.by";
+    private static final String PROPERTIES_REGEX_PROP_NAME = "properties.regex";
+    private static final String AGGREGATES_PROP_NAME = "aggregates";
+    private static final String MAX_GROUPS_PROP_NAME = "max.groups";
+
+    /** The window unit denoting count based windows, the other allowed values are {@link TimeUnit} names */
+    private static final String RECORDS_UNIT = "RECORDS";
+
+    /** The maximum number of partial aggregates kept for a sliding window */
+    static final int MAX_PANES = 1000;
+
+    private final WindowType windowType;
+    private final Optional<TimeUnit> timeUnit;
+    private final long length;
+    private final long slide;
+    private final Optional<String> groupBy;
+    private final Pattern propertiesPattern;
+    private final List<Aggregate> aggregates;
+    private final boolean trackQuantiles;
+    private final int maxGroups;
+
+    /**
+     * Instantiates a new Aggregator options.
+     *
+     * @param properties
+     *            the provided properties
+     * @throws IllegalArgumentException
+     *             if the properties describe an invalid configuration
+     */
+    AggregatorOptions(final Map<String, Object> properties) {
+        requireNonNull(properties, message.propertiesNonNull());
+
+        this.windowType = WindowType.valueOf(
+                ((String) properties.getOrDefault(WINDOW_TYPE_PROP_NAME, WindowType.TUMBLING.name())).trim());
+
+        final String unit = ((String) properties.getOrDefault(WINDOW_UNIT_PROP_NAME, TimeUnit.MINUTES.name())).trim();
+        this.timeUnit = RECORDS_UNIT.equals(unit) ? Optional.empty() : Optional.of(TimeUnit.valueOf(unit));
+
+        final long configuredLength = ((Number) properties.getOrDefault(WINDOW_LENGTH_PROP_NAME, 1)).longValue();
+        final long configuredSlide = this.windowType == WindowType.TUMBLING ? configuredLength
+                : ((Number) properties.getOrDefault(WINDOW_SLIDE_PROP_NAME, configuredLength)).longValue();
+
+        if (configuredLength <= 0 || configuredSlide <= 0) {
+            throw new IllegalArgumentException("The window length and slide must be positive");
+        }
+        if (configuredSlide > configuredLength || configuredLength % configuredSlide != 0) {
+            throw new IllegalArgumentException("The window length must be a multiple of the window slide");
+        }
+        if (configuredLength / configuredSlide > MAX_PANES) {
+            throw new IllegalArgumentException(
+                    "The window length cannot be more than " + MAX_PANES + " times the window slide");
+        }
+
+        this.length = this.timeUnit.map(u -> u.toMillis(configuredLength)).orElse(configuredLength);
+        this.slide = this.timeUnit.map(u -> u.toMillis(configuredSlide)).orElse(configuredSlide);
+
+        final String groupByProperty = ((String) properties.getOrDefault(GROUP_BY_PROP_NAME, "")).trim();
+        this.groupBy = groupByProperty.isEmpty() ? Optional.empty() : Optional.of(groupByProperty);
+
+        final String regex = (String) properties.getOrDefault(PROPERTIES_REGEX_PROP_NAME, ".*");
+        try {
+            this.propertiesPattern = Pattern.compile(regex == null || regex.trim().isEmpty() ? ".*" : regex.trim());
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid properties regular expression", e);
+        }
+
+        this.aggregates = Aggregate
+                .parseList((String) properties.getOrDefault(AGGREGATES_PROP_NAME, "min, max, mean, count"));
+        this.trackQuantiles = this.aggregates.stream().anyMatch(Aggregate::needsQuantiles);
+
+        this.maxGroups = (Integer) properties.getOrDefault(MAX_GROUPS_PROP_NAME, 100);
+        if (this.maxGroups <= 0) {
+            throw new IllegalArgumentException("The maximum number of groups must be positive");
+        }
+    }
+
+    WindowType getWindowType() {
+        return this.windowType;
+    }
+
+    boolean isTimeBased() {
+        return this.timeUnit.isPresent();
+    }
+
+    /**
+     * Returns the window length, in milliseconds for time based windows or in records for count based ones
+     */
+    long getLength() {
+        return this.length;
+    }
+
+    /**
+     * Returns the interval between the start of two consecutive windows, in milliseconds for time based windows or
+     * in records for count based ones. Equals to the window length for tumbling windows.
+     */
+    long getSlide() {
+        return this.slide;
+    }
+
+    int getPaneCount() {
+        return (int) (this.length / this.slide);
+    }
+
+    Optional<String> getGroupBy() {
+        return this.groupBy;
+    }
+
+    Pattern getPropertiesPattern() {
+        return this.propertiesPattern;
+    }
+
+    List<Aggregate> getAggregates() {
+        return this.aggregates;
+    }
+
+    boolean isTrackQuantiles() {
+        return this.trackQuantiles;
+    }
+
+    int getMaxGroups() {
+        return this.maxGroups;
+    }
+
+    /**
+     * Checks whether the windows described by this instance and the provided one have the same structure, so that
+     * the partial aggregates computed with one configuration can be reused with the other.
+     */
+    boolean hasSameWindows(final AggregatorOptions other) {
+        return this.windowType == other.windowType && this.timeUnit.equals(other.timeUnit)
+                && this.length == other.length && this.slide == other.slide && this.groupBy.equals(other.groupBy)
+                && this.trackQuantiles == other.trackQuantiles
+                && Objects.equals(this.propertiesPattern.pattern(), other.propertiesPattern.pattern());
+    }
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+/**
+ * A mergeable sketch that estimates quantiles with a bounded relative error.
+ * <p>
+ * The values are counted in logarithmically sized buckets, so that the value returned for a quantile differs from
+ * the exact one by at most 1%. The number of buckets is bounded: if the range of the values is too wide, the buckets
+ * of the values closest to zero are collapsed, degrading only the accuracy of the lowest quantiles.
+ */
+final class QuantileSketch {
+
+    private static final double RELATIVE_ACCURACY = 0.01;
+    private static final double GAMMA = (1 + RELATIVE_ACCURACY) / (1 - RELATIVE_ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final int MAX_BUCKETS = 1024;
+    private static final int GROWTH = 32;
+
+    private final Buckets positive = new Buckets();
+    private final Buckets negative = new Buckets();
+    private long zeroCount;
+
+    private static final class Buckets {
+
+        private long[] counts = new long[0];
+        private int minIndex;
+        private long total;
+
+        private void add(final int index, final long count) {
+            ensureCapacity(index);
+            this.counts[Math.max(index, this.minIndex) - this.minIndex] += count;
+            this.total += count;
+        }
+
+        private void ensureCapacity(final int index) {
+            if (this.counts.length == 0) {
+                this.counts = new long[GROWTH];
+                this.minIndex = index - GROWTH / 2;
+                return;
+            }
+            final int maxIndex = this.minIndex + this.counts.length - 1;
+            if (index >= this.minIndex && index <= maxIndex) {
+                return;
+            }
+
+            int low = index < this.minIndex ? index - GROWTH : this.minIndex;
+            final int high = index > maxIndex ? index + GROWTH : maxIndex;
+            if (high - low + 1 > MAX_BUCKETS) {
+                // the lowest buckets are collapsed into the first one
+                low = high - MAX_BUCKETS + 1;
+            }
+
+            final long[] resized = new long[high - low + 1];
+            for (int i = 0; i < this.counts.length; i++) {
+                resized[Math.max(this.minIndex + i, low) - low] += this.counts[i];
+            }
+            this.counts = resized;
+            this.minIndex = low;
+        }
+
+        private void merge(final Buckets other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.minIndex + i, other.counts[i]);
+                }
+            }
+        }
+
+        private int getIndexAtRank(final long rank) {
+            long cumulative = 0;
+            for (int i = 0; i < this.counts.length; i++) {
+                cumulative += this.counts[i];
+                if (cumulative > rank) {
+                    return this.minIndex + i;
+                }
+            }
+            return this.minIndex + this.counts.length - 1;
+        }
+    }
+
+    void add(final double value) {
+        if (value >= Double.MIN_NORMAL) {
+            this.positive.add(index(value), 1);
+        } else if (value <= -Double.MIN_NORMAL) {
+            this.negative.add(index(-value), 1);
+        } else {
+            this.zeroCount++;
+        }
+    }
+
+    void merge(final QuantileSketch other) {
+        this.positive.merge(other.positive);
+        this.negative.merge(other.negative);
+        this.zeroCount += other.zeroCount;
+    }
+
+    long getCount() {
+        return this.negative.total + this.zeroCount + this.positive.total;
+    }
+
+    /**
+     * Returns the estimated value of the given quantile
+     *
+     * @param quantile
+     *            the quantile, between 0 and 1
+     * @return the estimated value, or {@link Double#NaN} if the sketch is empty
+     */
+    double getQuantile(final double quantile) {
+        final long count = getCount();
+        if (count == 0) {
+            return Double.NaN;
+        }
+
+        long rank = (long) (quantile * (count - 1));
+        if (rank < this.negative.total) {
+            // the negative values are stored by magnitude, so the lowest rank has the highest index
+            return -value(this.negative.getIndexAtRank(this.negative.total - 1 - rank));
+        }
+        rank -= this.negative.total;
+        if (rank < this.zeroCount) {
+            return 0;
+        }
+        return value(this.positive.getIndexAtRank(rank - this.zeroCount));
+    }
+
+    private static int index(final double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    private static double value(final int index) {
+        return 2 * Math.pow(GAMMA, index) / (GAMMA + 1);
+    }
+}
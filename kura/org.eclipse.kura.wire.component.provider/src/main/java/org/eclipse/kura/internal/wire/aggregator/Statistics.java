@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+/**
+ * Streaming statistics of the values of a property, computed in constant space.
+ * <p>
+ * Mean and variance are updated with the Welford algorithm, two instances can be merged without loss of precision.
+ */
+final class Statistics {
+
+    private long count;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double last = Double.NaN;
+    private double mean;
+    private double m2;
+    private final QuantileSketch sketch;
+
+    Statistics(final boolean trackQuantiles) {
+        this.sketch = trackQuantiles ? new QuantileSketch() : null;
+    }
+
+    void add(final double value) {
+        this.count++;
+        this.sum += value;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+        this.last = value;
+
+        final double delta = value - this.mean;
+        this.mean += delta / this.count;
+        this.m2 += delta * (value - this.mean);
+
+        if (this.sketch != null) {
+            this.sketch.add(value);
+        }
+    }
+
+    /**
+     * Adds the values tracked by another instance, which are assumed to be more recent than the ones tracked by
+     * this instance
+     */
+    void merge(final Statistics other) {
+        if (other.count == 0) {
+            return;
+        }
+
+        final long total = this.count + other.count;
+        final double delta = other.mean - this.mean;
+        this.mean += delta * other.count / total;
+        this.m2 += other.m2 + delta * delta * this.count * other.count / total;
+        this.count = total;
+
+        this.sum += other.sum;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+        this.last = other.last;
+
+        if (this.sketch != null && other.sketch != null) {
+            this.sketch.merge(other.sketch);
+        }
+    }
+
+    long getCount() {
+        return this.count;
+    }
+
+    double getSum() {
+        return this.sum;
+    }
+
+    double getMin() {
+        return this.min;
+    }
+
+    double getMax() {
+        return this.max;
+    }
+
+    double getLast() {
+        return this.last;
+    }
+
+    double getMean() {
+        return this.count > 0 ? this.mean : Double.NaN;
+    }
+
+    /**
+     * Returns the population standard deviation of the values
+     */
+    double getStandardDeviation() {
+        return this.count > 0 ? Math.sqrt(this.m2 / this.count) : Double.NaN;
+    }
+
+    double getQuantile(final double quantile) {
+        return this.sketch != null ? this.sketch.getQuantile(quantile) : Double.NaN;
+    }
+}
@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the state of the windows of an {@link Aggregator}.
+ * <p>
+ * Each window is split in panes whose length is the window slide, tumbling windows have a single pane. A pane keeps
+ * the {@link Statistics} of the values received while it is open, so that the memory used by a group depends only on
+ * the number of panes and aggregated properties, and not on the number of records. When a pane closes, the
+ * statistics of the panes in the window are merged and emitted, then the oldest pane is recycled.
+ * <p>
+ * Count based windows are tracked separately for each group and close when enough records of the group have been
+ * received, time based windows are closed by calling {@link #close(long)} at each slide boundary.
+ * <p>
+ * This class is not thread safe.
+ */
+final class WindowedAggregation {
+
+    private static final Logger logger = LoggerFactory.getLogger(WindowedAggregation.class);
+
+    static final String WINDOW_START_PROPERTY = "window.start";
+    static final String WINDOW_END_PROPERTY = "window.end";
+
+    private static final int MAX_CACHED_PROPERTY_NAMES = 1024;
+
+    private AggregatorOptions options;
+    private final Map<String, GroupWindow> groups = new HashMap<>();
+    private final Map<String, Boolean> aggregatedProperties = new HashMap<>();
+    private boolean groupLimitReached;
+
+    private static final class Pane {
+
+        private final Map<String, Statistics> statistics = new HashMap<>();
+        private long count;
+        private long firstTimestamp;
+        private long lastTimestamp;
+
+        private void clear() {
+            this.statistics.clear();
+            this.count = 0;
+        }
+    }
+
+    private final class GroupWindow {
+
+        private final TypedValue<?> groupValue;
+        private final Pane[] panes;
+        private int current;
+
+        private GroupWindow(final TypedValue<?> groupValue, final int paneCount) {
+            this.groupValue = groupValue;
+            this.panes = new Pane[paneCount];
+            for (int i = 0; i < paneCount; i++) {
+                this.panes[i] = new Pane();
+            }
+        }
+
+        private Pane add(final Map<String, TypedValue<?>> properties, final long timestamp) {
+            final Pane pane = this.panes[this.current];
+            final String groupBy = WindowedAggregation.this.options.getGroupBy().orElse(null);
+            final boolean trackQuantiles = WindowedAggregation.this.options.isTrackQuantiles();
+
+            for (final Entry<String, TypedValue<?>> entry : properties.entrySet()) {
+                final String name = entry.getKey();
+                final Object value = entry.getValue() != null ? entry.getValue().getValue() : null;
+                if (!(value instanceof Number) || name.equals(groupBy) || !isAggregated(name)) {
+                    continue;
+                }
+                final double doubleValue = ((Number) value).doubleValue();
+                if (Double.isNaN(doubleValue)) {
+                    continue;
+                }
+                pane.statistics.computeIfAbsent(name, k -> new Statistics(trackQuantiles)).add(doubleValue);
+            }
+
+            if (pane.count == 0) {
+                pane.firstTimestamp = timestamp;
+            }
+            pane.lastTimestamp = timestamp;
+            pane.count++;
+            return pane;
+        }
+
+        private boolean isEmpty() {
+            for (final Pane pane : this.panes) {
+                if (pane.count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Computes the aggregates of the window ending with the current pane and recycles the oldest pane.
+         *
+         * @return the aggregates, or null if no records have been received in the window
+         */
+        private WireRecord closePane(final long windowStart, final long windowEnd) {
+            final boolean trackQuantiles = WindowedAggregation.this.options.isTrackQuantiles();
+            final Map<String, Statistics> merged = new TreeMap<>();
+            long count = 0;
+            long firstTimestamp = windowStart;
+            long lastTimestamp = windowEnd;
+
+            for (int i = 1; i <= this.panes.length; i++) {
+                // from the oldest to the current pane
+                final Pane pane = this.panes[(this.current + i) % this.panes.length];
+                if (pane.count == 0) {
+                    continue;
+                }
+                if (count == 0) {
+                    firstTimestamp = pane.firstTimestamp;
+                }
+                lastTimestamp = pane.lastTimestamp;
+                count += pane.count;
+                for (final Entry<String, Statistics> entry : pane.statistics.entrySet()) {
+                    merged.computeIfAbsent(entry.getKey(), k -> new Statistics(trackQuantiles))
+                            .merge(entry.getValue());
+                }
+            }
+
+            this.current = (this.current + 1) % this.panes.length;
+            this.panes[this.current].clear();
+
+            if (count == 0) {
+                return null;
+            }
+
+            final Map<String, TypedValue<?>> properties = new HashMap<>();
+            final boolean timeBased = WindowedAggregation.this.options.isTimeBased();
+            properties.put(WINDOW_START_PROPERTY, TypedValues.newLongValue(timeBased ? windowStart : firstTimestamp));
+            properties.put(WINDOW_END_PROPERTY, TypedValues.newLongValue(timeBased ? windowEnd : lastTimestamp));
+            if (this.groupValue != null) {
+                properties.put(WindowedAggregation.this.options.getGroupBy().get(), this.groupValue);
+            }
+
+            for (final Entry<String, Statistics> entry : merged.entrySet()) {
+                for (final Aggregate aggregate : WindowedAggregation.this.options.getAggregates()) {
+                    final TypedValue<?> result = aggregate.compute(entry.getValue());
+                    if (result != null) {
+                        properties.put(entry.getKey() + "_" + aggregate.getName(), result);
+                    }
+                }
+            }
+            return new WireRecord(properties);
+        }
+    }
+
+    WindowedAggregation(final AggregatorOptions options) {
+        this.options = options;
+    }
+
+    AggregatorOptions getOptions() {
+        return this.options;
+    }
+
+    /**
+     * Applies a new configuration, which must have the same window structure of the current one.
+     */
+    void setOptions(final AggregatorOptions options) {
+        if (!this.options.hasSameWindows(options)) {
+            throw new IllegalArgumentException("The window structure cannot be changed");
+        }
+        this.options = options;
+        this.groupLimitReached = false;
+    }
+
+    int getGroupCount() {
+        return this.groups.size();
+    }
+
+    /**
+     * Adds the provided records to the current panes.
+     *
+     * @param records
+     *            the received records
+     * @param timestamp
+     *            the current time
+     * @return the aggregates of the count based windows closed by the provided records
+     */
+    List<WireRecord> add(final List<WireRecord> records, final long timestamp) {
+        List<WireRecord> result = Collections.emptyList();
+
+        for (final WireRecord record : records) {
+            final Map<String, TypedValue<?>> properties = record.getProperties();
+            final GroupWindow group = getGroup(properties);
+            if (group == null) {
+                continue;
+            }
+
+            final Pane pane = group.add(properties, timestamp);
+
+            if (!this.options.isTimeBased() && pane.count >= this.options.getSlide()) {
+                final WireRecord aggregates = group.closePane(0, 0);
+                if (aggregates != null) {
+                    if (result.isEmpty()) {
+                        result = new ArrayList<>();
+                    }
+                    result.add(aggregates);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Closes the current panes of the time based windows.
+     *
+     * @param windowEnd
+     *            the end of the windows, that is the slide boundary that has been reached
+     * @return the aggregates of the windows that contain at least one record
+     */
+    List<WireRecord> close(final long windowEnd) {
+        final List<WireRecord> result = new ArrayList<>();
+        final long windowStart = windowEnd - this.options.getLength();
+
+        final Iterator<GroupWindow> iterator = this.groups.values().iterator();
+        while (iterator.hasNext()) {
+            final GroupWindow group = iterator.next();
+            final WireRecord aggregates = group.closePane(windowStart, windowEnd);
+            if (aggregates != null) {
+                result.add(aggregates);
+            }
+            if (group.isEmpty()) {
+                // the group will be created again if new records are received
+                iterator.remove();
+            }
+        }
+        this.groupLimitReached = false;
+        return result;
+    }
+
+    private GroupWindow getGroup(final Map<String, TypedValue<?>> properties) {
+        final TypedValue<?> groupValue = this.options.getGroupBy().map(properties::get).orElse(null);
+        final String key = groupValue != null ? String.valueOf(groupValue.getValue()) : null;
+
+        GroupWindow group = this.groups.get(key);
+        if (group == null) {
+            if (this.groups.size() >= this.options.getMaxGroups()) {
+                if (!this.groupLimitReached) {
+                    logger.warn("Maximum number of groups reached, discarding the records of group {}", key);
+                    this.groupLimitReached = true;
+                }
+                return null;
+            }
+            group = new GroupWindow(groupValue, this.options.getPaneCount());
+            this.groups.put(key, group);
+        }
+        return group;
+    }
+
+    private boolean isAggregated(final String propertyName) {
+        final Boolean cached = this.aggregatedProperties.get(propertyName);
+        if (cached != null) {
+            return cached;
+        }
+        final boolean matches = this.options.getPropertiesPattern().matcher(propertyName).matches();
+        if (this.aggregatedProperties.size() < MAX_CACHED_PROPERTY_NAMES) {
+            this.aggregatedProperties.put(propertyName, matches);
+        }
+        return matches;
+    }
+}
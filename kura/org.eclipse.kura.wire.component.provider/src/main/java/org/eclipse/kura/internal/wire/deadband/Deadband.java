@@ -0,0 +1,191 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.deadband;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.requireNonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.kura.configuration.ConfigurableComponent;
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEmitter;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireReceiver;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.osgi.service.wireadmin.Wire;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The Class {@link Deadband} represents a {@link WireComponent} that implements report by exception: it keeps the
+ * last reported value of each property of each emitter, and forwards only the properties whose value has changed.
+ * <p>
+ * A numeric value is considered changed if it differs from the last reported one by more than the configured
+ * absolute or percentage deadband, the other values if they are not equal to the last reported ones. The
+ * passthrough properties, for example the timestamps emitted by the Wire Assets, are forwarded together with the
+ * changed properties of a record. The records without changed properties are discarded.
+ * <p>
+ * If a heartbeat interval is configured, all the properties received from an emitter are forwarded when the interval
+ * has elapsed since the last full report.
+ */
+public final class Deadband implements WireEmitter, WireReceiver, ConfigurableComponent {
+
+    private static final Logger logger = LoggerFactory.getLogger(Deadband.class);
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private volatile WireHelperService wireHelperService;
+    private WireSupport wireSupport;
+
+    private DeadbandOptions options;
+    private final Map<String, LastValues> lastValues = new HashMap<>();
+
+    public void bindWireHelperService(final WireHelperService wireHelperService) {
+        if (isNull(this.wireHelperService)) {
+            this.wireHelperService = wireHelperService;
+        }
+    }
+
+    public void unbindWireHelperService(final WireHelperService wireHelperService) {
+        if (this.wireHelperService == wireHelperService) {
+            this.wireHelperService = null;
+        }
+    }
+
+    public void activate(final Map<String, Object> properties) {
+        logger.info(message.activatingDeadband());
+        this.wireSupport = this.wireHelperService.newWireSupport(this);
+        updated(properties);
+        logger.info(message.activatingDeadbandDone());
+    }
+
+    public synchronized void deactivate() {
+        logger.info(message.deactivatingDeadband());
+        this.lastValues.clear();
+        logger.info(message.deactivatingDeadbandDone());
+    }
+
+    public synchronized void updated(final Map<String, Object> properties) {
+        logger.info(message.updatingDeadband());
+        try {
+            // the last reported values are retained, the new deadband applies from the next received envelope
+            this.options = new DeadbandOptions(properties);
+        } catch (final Exception e) {
+            logger.warn("Invalid Deadband configuration, the received envelopes will be forwarded unchanged", e);
+            this.options = null;
+        }
+        logger.info(message.updatingDeadbandDone());
+    }
+
+    @Override
+    public void onWireReceive(final WireEnvelope wireEnvelope) {
+        requireNonNull(wireEnvelope, message.wireEnvelopeNonNull());
+        final List<WireRecord> result;
+        synchronized (this) {
+            result = this.options == null ? wireEnvelope.getRecords()
+                    : process(wireEnvelope, System.currentTimeMillis());
+        }
+        if (!result.isEmpty()) {
+            this.wireSupport.emit(result);
+        }
+    }
+
+    /**
+     * Returns the records to be forwarded for the provided envelope, and updates the last reported values.
+     *
+     * @param wireEnvelope
+     *            the received envelope
+     * @param now
+     *            the current time
+     * @return the records containing the changed properties
+     */
+    synchronized List<WireRecord> process(final WireEnvelope wireEnvelope, final long now) {
+        final LastValues last = this.lastValues.computeIfAbsent(wireEnvelope.getEmitterPid(), k -> new LastValues());
+        final boolean fullReport = last.isFullReportDue(now, this.options.getHeartbeatInterval());
+        final DeadbandMode mode = this.options.getMode();
+        final double deadband = this.options.getDeadband();
+
+        List<WireRecord> result = Collections.emptyList();
+        for (final WireRecord wireRecord : wireEnvelope.getRecords()) {
+            final Map<String, TypedValue<?>> properties = wireRecord.getProperties();
+            final Map<String, TypedValue<?>> reported = new HashMap<>();
+            int passthroughCount = 0;
+
+            for (final Entry<String, TypedValue<?>> entry : properties.entrySet()) {
+                final TypedValue<?> value = entry.getValue();
+                if (value == null || this.options.isPassthrough(entry.getKey())) {
+                    passthroughCount++;
+                    continue;
+                }
+                final int slot = last.slot(entry.getKey());
+                if (fullReport || last.isChanged(slot, value, mode, deadband)) {
+                    last.update(slot, value);
+                    reported.put(entry.getKey(), value);
+                }
+            }
+
+            if (reported.isEmpty()) {
+                continue;
+            }
+            if (result.isEmpty()) {
+                result = new ArrayList<>();
+            }
+            if (reported.size() + passthroughCount == properties.size()) {
+                // nothing has been suppressed
+                result.add(wireRecord);
+                continue;
+            }
+            for (final Entry<String, TypedValue<?>> entry : properties.entrySet()) {
+                if (entry.getValue() != null && this.options.isPassthrough(entry.getKey())) {
+                    reported.put(entry.getKey(), entry.getValue());
+                }
+            }
+            result.add(new WireRecord(reported));
+        }
+
+        if (fullReport) {
+            last.setLastFullReport(now);
+        }
+        return result;
+    }
+
+    @Override
+    public Object polled(final Wire wire) {
+        return this.wireSupport.polled(wire);
+    }
+
+    @Override
+    public void consumersConnected(final Wire[] wires) {
+        this.wireSupport.consumersConnected(wires);
+    }
+
+    @Override
+    public void updated(final Wire wire, final Object value) {
+        this.wireSupport.updated(wire, value);
+    }
+
+    @Override
+    public void producersConnected(final Wire[] wires) {
+        this.wireSupport.producersConnected(wires);
+    }
+}
@@ -0,0 +1,33 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.deadband;
+
+public enum DeadbandMode {
+
+    /** A numeric value is reported if it differs from the last reported one by more than the deadband */
+    ABSOLUTE,
+
+    /**
+     * A numeric value is reported if it differs from the last reported one by more than the deadband, expressed as a
+     * percentage of the last reported value
+     */
+    PERCENT;
+
+    boolean isExceeded(final double lastValue, final double value, final double deadband) {
+        final double difference = Math.abs(value - lastValue);
+        if (this == ABSOLUTE) {
+            return difference > deadband;
+        }
+        return difference > Math.abs(lastValue) * deadband / 100;
+    }
+}
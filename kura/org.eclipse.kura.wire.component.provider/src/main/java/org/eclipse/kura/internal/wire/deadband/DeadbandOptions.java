@@ -0,0 +1,114 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.deadband;
+
+import static java.util.Objects.requireNonNull;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.localization.resources.WireMessages;
+
+/**
+ * The Class DeadbandOptions is responsible to contain and validate all the Deadband related configurable options.
+ * <p>
+ * The results of the passthrough regular expression are cached, this class is not thread safe.
+ */
+final class DeadbandOptions {
+
+    private static final WireMessages message = LocalizationAdapter.adapt(WireMessages.class);
+
+    private static final String DEADBAND_MODE_PROP_NAME = "deadband.mode";
+    private static final String DEADBAND_VALUE_PROP_NAME = "deadband.value";
+    private static final String HEARTBEAT_INTERVAL_PROP_NAME = "heartbeat.interval";
+    private static final String PASSTHROUGH_REGEX_PROP_NAME = "passthrough.regex";
+
+    private static final String DEFAULT_PASSTHROUGH_REGEX = "assetName|assetTimestamp|.*_timestamp";
+    private static final int MAX_CACHED_PROPERTY_NAMES = 1024;
+
+    private final DeadbandMode mode;
+    private final double deadband;
+    private final long heartbeatInterval;
+    private final Pattern passthroughPattern;
+    private final Map<String, Boolean> passthroughProperties = new HashMap<>();
+
+    /**
+     * Instantiates a new Deadband options.
+     *
+     * @param properties
+     *            the provided properties
+     * @throws IllegalArgumentException
+     *             if the properties describe an invalid configuration
+     */
+    DeadbandOptions(final Map<String, Object> properties) {
+        requireNonNull(properties, message.propertiesNonNull());
+
+        final String configuredMode = (String) properties.getOrDefault(DEADBAND_MODE_PROP_NAME,
+                DeadbandMode.ABSOLUTE.name());
+        this.mode = DeadbandMode.valueOf(configuredMode.trim());
+
+        this.deadband = ((Number) properties.getOrDefault(DEADBAND_VALUE_PROP_NAME, 0.0)).doubleValue();
+        if (this.deadband < 0 || Double.isNaN(this.deadband)) {
+            throw new IllegalArgumentException("The deadband cannot be negative");
+        }
+
+        final int heartbeatSeconds = (Integer) properties.getOrDefault(HEARTBEAT_INTERVAL_PROP_NAME, 0);
+        this.heartbeatInterval = TimeUnit.SECONDS.toMillis(Math.max(heartbeatSeconds, 0));
+
+        final String regex = (String) properties.getOrDefault(PASSTHROUGH_REGEX_PROP_NAME, DEFAULT_PASSTHROUGH_REGEX);
+        try {
+            this.passthroughPattern = regex == null || regex.trim().isEmpty() ? null : Pattern.compile(regex.trim());
+        } catch (PatternSyntaxException e) {
+            throw new IllegalArgumentException("Invalid passthrough regular expression", e);
+        }
+    }
+
+    DeadbandMode getMode() {
+        return this.mode;
+    }
+
+    double getDeadband() {
+        return this.deadband;
+    }
+
+    /**
+     * Returns the interval between two reports of all the properties of an emitter, in milliseconds, or 0 if the
+     * heartbeat is disabled
+     */
+    long getHeartbeatInterval() {
+        return this.heartbeatInterval;
+    }
+
+    /**
+     * Returns true if the property with the provided name is not subject to change detection, and must be reported
+     * together with the changed properties of a record
+     */
+    boolean isPassthrough(final String propertyName) {
+        if (this.passthroughPattern == null) {
+            return false;
+        }
+        final Boolean cached = this.passthroughProperties.get(propertyName);
+        if (cached != null) {
+            return cached;
+        }
+        final boolean matches = this.passthroughPattern.matcher(propertyName).matches();
+        if (this.passthroughProperties.size() < MAX_CACHED_PROPERTY_NAMES) {
+            this.passthroughProperties.put(propertyName, matches);
+        }
+        return matches;
+    }
+}
@@ -0,0 +1,103 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Eurotech
+ *
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.deadband;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValue;
+
+/**
+ * The last values reported for the properties of an emitter.
+ * <p>
+ * Each property is assigned a slot once, the numeric values are kept in a primitive array, together with their
+ * {@link DataType}, so that updating them does not allocate. The other values are compared with
+ * {@link TypedValue#equals(Object)}.
+ * <p>
+ * This class is not thread safe.
+ */
+final class LastValues {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<String, Integer> slots = new HashMap<>();
+    private double[] numbers = new double[INITIAL_CAPACITY];
+    private Object[] values = new Object[INITIAL_CAPACITY];
+    private long lastFullReport = Long.MIN_VALUE;
+
+    /**
+     * Returns the slot assigned to the provided property, assigning a new one if needed
+     */
+    int slot(final String propertyName) {
+        final Integer slot = this.slots.get(propertyName);
+        if (slot != null) {
+            return slot;
+        }
+        final int newSlot = this.slots.size();
+        if (newSlot == this.numbers.length) {
+            this.numbers = Arrays.copyOf(this.numbers, newSlot * 2);
+            this.values = Arrays.copyOf(this.values, newSlot * 2);
+        }
+        this.slots.put(propertyName, newSlot);
+        return newSlot;
+    }
+
+    /**
+     * Checks whether the value of the property in the provided slot must be reported.
+     *
+     * @return true if no value has been reported for the slot yet, if the {@link DataType} of the value has changed,
+     *         even between numeric types, if the numeric value exceeds the deadband or if a non numeric value has
+     *         changed
+     */
+    boolean isChanged(final int slot, final TypedValue<?> value, final DeadbandMode mode, final double deadband) {
+        final Object last = this.values[slot];
+        if (last == null) {
+            return true;
+        }
+        final Object raw = value.getValue();
+        if (raw instanceof Number) {
+            if (last != value.getType()) {
+                return true;
+            }
+            final double number = ((Number) raw).doubleValue();
+            final double lastNumber = this.numbers[slot];
+            if (Double.compare(number, lastNumber) == 0) {
+                return false;
+            }
+            return Double.isNaN(number) || Double.isNaN(lastNumber) || mode.isExceeded(lastNumber, number, deadband);
+        }
+        return !value.equals(last);
+    }
+
+    void update(final int slot, final TypedValue<?> value) {
+        final Object raw = value.getValue();
+        if (raw instanceof Number) {
+            // the type marker avoids keeping a reference to the boxed value
+            this.values[slot] = value.getType();
+            this.numbers[slot] = ((Number) raw).doubleValue();
+        } else {
+            this.values[slot] = value;
+        }
+    }
+
+    boolean isFullReportDue(final long now, final long heartbeatInterval) {
+        return this.lastFullReport == Long.MIN_VALUE
+                || heartbeatInterval > 0 && now - this.lastFullReport >= heartbeatInterval;
+    }
+
+    void setLastFullReport(final long timestamp) {
+        this.lastFullReport = timestamp;
+    }
+}
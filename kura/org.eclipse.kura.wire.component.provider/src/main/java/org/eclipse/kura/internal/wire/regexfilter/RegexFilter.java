@@ -9,28 +9,21 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.wire.regexfilter;
 
-import static java.util.Collections.unmodifiableMap;
 import static java.util.Locale.ENGLISH;
 import static java.util.Objects.isNull;
 import static java.util.Objects.requireNonNull;
-import static java.util.stream.Collectors.collectingAndThen;
-import static java.util.stream.Collectors.toMap;
 import static org.eclipse.kura.configuration.ConfigurationService.KURA_SERVICE_PID;
 import static org.eclipse.kura.internal.wire.regexfilter.FilterType.REMOVE;
 import static org.eclipse.kura.internal.wire.regexfilter.FilterType.RETAIN;
-import static org.eclipse.kura.util.collection.CollectionUtil.newArrayList;
-import static org.eclipse.kura.util.collection.CollectionUtil.newHashMap;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Set;
-import java.util.function.Predicate;
-import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
-import java.util.stream.Stream;
 
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.localization.LocalizationAdapter;
@@ -51,6 +44,9 @@ import org.slf4j.LoggerFactory;
  * The Class {@link RegexFilter} represents a {@link WireComponent} which filters the keys from
  * the associated properties in the incoming {@link WireEnvelope} that matches provided regular
  * expression
+ * <p>
+ * The regular expression is compiled once per configuration, and the decision taken for each
+ * property name is cached, since the same keys are usually received on every cycle.
  */
 public final class RegexFilter implements WireEmitter, WireReceiver, ConfigurableComponent {
 
@@ -66,6 +62,9 @@ public final class RegexFilter implements WireEmitter, WireReceiver, Configurabl
     /** Filter Type Attribute Definition Property Key */
     private static final String REGEX_TYPE_PROP = "filter.type";
 
+    /** Maximum number of property names whose match result is cached */
+    private static final int MAX_CACHED_PROPERTY_NAMES = 1024;
+
     /** Emit and Receive support operation adapter */
     private WireSupport wireSupport;
 
@@ -75,6 +74,12 @@ public final class RegexFilter implements WireEmitter, WireReceiver, Configurabl
     /** Associated Filter Type available in the component properties */
     private FilterType filterType;
 
+    /** The compiled filter, or null if no valid filter has been associated */
+    private Pattern pattern;
+
+    /** Property names mapped to true if the property must be retained by the filter */
+    private final Map<String, Boolean> retainedProperties = new HashMap<>();
+
     /** Wire Component PID */
     private String componentPid;
 
@@ -116,6 +121,7 @@ public final class RegexFilter implements WireEmitter, WireReceiver, Configurabl
         this.filter = String.valueOf(properties.getOrDefault(REGEX_PROP, ""));
         this.componentPid = String.valueOf(properties.get(KURA_SERVICE_PID));
         this.filterType = getType(properties);
+        this.pattern = compile(this.filter);
         this.wireSupport = this.wireHelperService.newWireSupport(this);
         logger.debug(message.activatingRegexFilterDone());
     }
@@ -130,6 +136,8 @@ public final class RegexFilter implements WireEmitter, WireReceiver, Configurabl
         logger.debug(message.updatingRegexFilter());
         this.filter = String.valueOf(properties.getOrDefault(REGEX_PROP, ""));
         this.filterType = getType(properties);
+        this.pattern = compile(this.filter);
+        this.retainedProperties.clear();
         logger.debug(message.updatingRegexFilterDone());
     }
 
@@ -161,133 +169,125 @@ public final class RegexFilter implements WireEmitter, WireReceiver, Configurabl
     @Override
     public synchronized void onWireReceive(final WireEnvelope wireEnvelope) {
         final List<WireRecord> receivedRecords = wireEnvelope.getRecords();
-        if (isNull(this.filter) || this.filter.trim().isEmpty()) {
-            // no filter has been associated
+        if (isNull(this.pattern)) {
+            // no valid filter has been associated
             this.wireSupport.emit(receivedRecords);
             return;
         }
-        // invoke filter mechanism
-        logger.debug(message.regexFilteringStarted(this.componentPid));
-        final WireEnvelope filteredWireEnvelope = getFilteredWireEnvelope(receivedRecords, wireEnvelope);
-        this.wireSupport.emit(filteredWireEnvelope.getRecords());
-        logger.debug(message.regexFilteringDone(this.componentPid));
+        // invoke filter mechanism, the localized messages are resolved only if they are logged
+        final boolean debugEnabled = logger.isDebugEnabled();
+        if (debugEnabled) {
+            logger.debug(message.regexFilteringStarted(this.componentPid));
+        }
+        this.wireSupport.emit(filter(receivedRecords));
+        if (debugEnabled) {
+            logger.debug(message.regexFilteringDone(this.componentPid));
+        }
     }
 
     /**
-     * Tries to filter the provided list of {@link WireRecord}s that matches the provided filter.
-     * In case of exceptional conditions, it returns the provided non-filtered {@link WireEnvelope}
-     * instance
+     * Compiles the provided filter. If the filter is empty or its syntax is invalid, the received
+     * {@link WireRecord}s will be emitted without filtering.
      *
-     * @param wireRecords
-     *            list of non-filtered {@link WireRecord}s
-     * @param nonFilteredWireEnvelope
-     *            non-filtered {@link WireEnvelope} instance
-     * @return returns A {@link WireEnvelope} instance associating the list of filtered
-     *         {@link WireRecord}s in case of success, otherwise the provided non-filtered
-     *         {@link WireEnvelope} instance
+     * @param filter
+     *            the filter to compile
+     * @return the compiled filter, or null if the filter is empty or invalid
      */
-    private WireEnvelope getFilteredWireEnvelope(final List<WireRecord> wireRecords,
-            final WireEnvelope nonFilteredWireEnvelope) {
-        WireEnvelope filteredWireEnvelope;
+    private static Pattern compile(final String filter) {
+        if (isNull(filter) || filter.trim().isEmpty()) {
+            return null;
+        }
         try {
-            filteredWireEnvelope = new WireEnvelope(this.componentPid,
-                    filter(wireRecords, this.filter, this.filterType));
-        } catch (final Exception ex) {
-            // if any exception occurs while filtering, just emit the not filtered
-            // Wire Records
+            return Pattern.compile(filter);
+        } catch (final PatternSyntaxException ex) {
             logger.warn(message.errorFilteringRegex(), ex);
-            filteredWireEnvelope = nonFilteredWireEnvelope;
+            return null;
         }
-        return filteredWireEnvelope;
     }
 
     /**
      * Filters out the keys from the associated properties of provided {@link WireRecord}s
-     * that matches the provided filter
+     * that matches the associated filter
      *
      * @param wireRecords
      *            the list of {@link WireRecord}s
-     * @param filter
-     *            the filter to match
-     * @param type
-     *            the associated type that signifies either to retain matched keys or remove
      * @return the list of {@link WireRecord}s containing the filtered properties
      * @throws NullPointerException
-     *             if any of the arguments is null
-     * @throws PatternSyntaxException
-     *             If the filter's syntax is invalid
+     *             if the argument is null
      */
-    private static List<WireRecord> filter(final List<WireRecord> wireRecords, final String filter,
-            final FilterType type) {
+    private List<WireRecord> filter(final List<WireRecord> wireRecords) {
         requireNonNull(wireRecords, message.wireRecordsNonNull());
-        requireNonNull(filter, message.filterNonNull());
-
-        final List<WireRecord> filteredWireRecords = newArrayList();
-        for (final WireRecord wireRecord : wireRecords) {
-            final Map<String, TypedValue<?>> previousProperties = wireRecord.getProperties();
-            final Map<String, TypedValue<?>> filteredProperties = match(filter, previousProperties, type);
-
-            // If both the maps' references refer to the same map instance, there is no need
-            // to create a new Wire Record. This is an optimization functionality, in which
-            // the regular expression filter matches all the provided keys of the properties
-            // or the properties is empty
-            if (previousProperties == filteredProperties) {
-                filteredWireRecords.add(wireRecord);
-                continue;
+
+        // created only when a record has to be replaced, if the filter retains all the keys
+        // the provided list is emitted as is
+        List<WireRecord> filteredWireRecords = null;
+        for (int i = 0; i < wireRecords.size(); i++) {
+            final WireRecord wireRecord = wireRecords.get(i);
+            final WireRecord filteredWireRecord = filter(wireRecord);
+            if (filteredWireRecords == null && filteredWireRecord != wireRecord) {
+                filteredWireRecords = new ArrayList<>(wireRecords.size());
+                filteredWireRecords.addAll(wireRecords.subList(0, i));
+            }
+            if (filteredWireRecords != null) {
+                filteredWireRecords.add(filteredWireRecord);
             }
-            final WireRecord newWireRecord = new WireRecord(filteredProperties);
-            filteredWireRecords.add(newWireRecord);
         }
-        return filteredWireRecords;
+        return filteredWireRecords == null ? wireRecords : filteredWireRecords;
     }
 
     /**
-     * Filters out the keys from the provided {@link Map} instance
+     * Filters out the keys from the associated properties of provided {@link WireRecord}
      *
-     * @param regularExpression
-     *            the regular expression to match
-     * @param map
-     *            the {@link Map} instance to filter
-     * @param type
-     *            the associated type that signifies either to retain matched keys or remove
-     * @return the {@link Map} instance comprising the keys
-     *         that match the provided regular expression
-     * @throws PatternSyntaxException
-     *             If the regular expression's syntax is invalid
+     * @param wireRecord
+     *            the {@link WireRecord} to filter
+     * @return the provided {@link WireRecord} if all its keys are retained, otherwise a new
+     *         {@link WireRecord} containing the retained properties
      */
-    private static <V> Map<String, V> match(final String regularExpression, final Map<String, V> map,
-            final FilterType type) {
-        // if the properties map is empty, no need to invoke filter mechanism
-        if (map.isEmpty()) {
-            return map;
+    private WireRecord filter(final WireRecord wireRecord) {
+        final Map<String, TypedValue<?>> properties = wireRecord.getProperties();
+
+        int retainedCount = 0;
+        for (final String key : properties.keySet()) {
+            if (isRetained(key)) {
+                retainedCount++;
+            }
+        }
+
+        // If all the keys are retained, or the properties are empty, there is no need
+        // to create a new Wire Record
+        if (retainedCount == properties.size()) {
+            return wireRecord;
         }
-        final Pattern pattern = Pattern.compile(regularExpression);
-        final Set<Entry<String, V>> entrySet = map.entrySet();
-        final Supplier<Stream<Entry<String, V>>> streamSupplier = entrySet::stream;
-        // If the provided regular expression matches all the keys of the provided map,
-        // there is no need to create a new map instance (in case of RETAIN type)
-        final boolean allMatch = streamSupplier.get().allMatch(matches(pattern, type));
-        if (allMatch) {
-            return type == RETAIN ? map : unmodifiableMap(newHashMap());
+        if (retainedCount == 0) {
+            return new WireRecord(Collections.emptyMap());
         }
-        return streamSupplier.get().filter(matches(pattern, type))
-                                   .collect(collectingAndThen(
-                                               toMap(Entry::getKey, Entry::getValue), 
-                                               Collections::unmodifiableMap));
+        final Map<String, TypedValue<?>> filteredProperties = new HashMap<>((int) Math.ceil(retainedCount / 0.75));
+        for (final Entry<String, TypedValue<?>> entry : properties.entrySet()) {
+            if (isRetained(entry.getKey())) {
+                filteredProperties.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return new WireRecord(filteredProperties);
     }
 
     /**
-     * The {@link Predicate} instance denoting the provided {@link Pattern} instance to match
+     * Checks whether the property with the provided name must be retained, according to the
+     * associated filter and filter type
      *
-     * @param pattern
-     *            the {@link Pattern} instance to match
-     * @param type
-     *            the type that signifies either to match entries or not
-     * @return a {@link Predicate} instance
+     * @param key
+     *            the property name
+     * @return true if the property must be retained
      */
-    private static <V> Predicate<Entry<String, V>> matches(final Pattern pattern, final FilterType type) {
-        final Predicate<Entry<String, V>> predicate = entry -> pattern.matcher(entry.getKey()).matches();
-        return type == RETAIN ? predicate : predicate.negate();
+    private boolean isRetained(final String key) {
+        final Boolean cached = this.retainedProperties.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        final boolean retained = this.pattern.matcher(key).matches() == (this.filterType == RETAIN);
+        if (this.retainedProperties.size() < MAX_CACHED_PROPERTY_NAMES) {
+            this.retainedProperties.put(key, retained);
+        }
+        return retained;
     }
 
     /**
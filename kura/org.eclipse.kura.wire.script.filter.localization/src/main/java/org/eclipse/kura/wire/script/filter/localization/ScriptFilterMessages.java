@@ -43,6 +43,9 @@ public interface ScriptFilterMessages {
     @En("Failed to execute script")
     public String errorExecutingScript();
 
+    @En("Number of workers changed from {0} to {1}, the worker script contexts have been reset")
+    public String workerContextsReset(int previousWorkers, int workers);
+
     @En("Added object cannot be null")
     public String errorNonNull();
 
@@ -0,0 +1,145 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.wire.script.filter.provider;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javax.script.ScriptContext;
+
+import org.eclipse.kura.localization.LocalizationAdapter;
+import org.eclipse.kura.wire.script.filter.localization.ScriptFilterMessages;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs script evaluations on a fixed set of worker threads, each one owning a {@link ScriptContext} that is never
+ * accessed by the other workers.
+ * <p>
+ * The tasks are assigned to the workers by key, so the tasks submitted with the same key are executed one at a time
+ * and in submission order. Each worker has a bounded queue, {@link #submit(String, Consumer)} blocks when the queue
+ * is full.
+ */
+final class ParallelScriptExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ParallelScriptExecutor.class);
+    private static final ScriptFilterMessages message = LocalizationAdapter.adapt(ScriptFilterMessages.class);
+
+    private static final Consumer<ScriptContext> POISON = context -> {
+    };
+
+    private final Worker[] workers;
+    private volatile boolean stopped;
+
+    private final class Worker implements Runnable {
+
+        private final BlockingQueue<Consumer<ScriptContext>> queue;
+        private final Supplier<ScriptContext> contextFactory;
+        private final Thread thread;
+
+        private Worker(final String name, final int queueCapacity, final Supplier<ScriptContext> contextFactory) {
+            this.queue = new ArrayBlockingQueue<>(queueCapacity);
+            this.contextFactory = contextFactory;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            // created by the worker thread, so that the script engine globals are confined to it
+            final ScriptContext context = this.contextFactory.get();
+            while (true) {
+                final Consumer<ScriptContext> task;
+                try {
+                    task = this.queue.take();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (task == POISON) {
+                    return;
+                }
+                try {
+                    task.accept(context);
+                } catch (Exception e) {
+                    logger.warn(message.errorExecutingScript(), e);
+                }
+            }
+        }
+    }
+
+    ParallelScriptExecutor(final String name, final int workerCount, final int queueCapacity,
+            final Supplier<ScriptContext> contextFactory) {
+        this.workers = new Worker[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            this.workers[i] = new Worker(name + "-" + i, queueCapacity, contextFactory);
+        }
+        for (Worker worker : this.workers) {
+            worker.thread.start();
+        }
+    }
+
+    int getWorkerCount() {
+        return this.workers.length;
+    }
+
+    /**
+     * Queues a task on the worker assigned to the given key, waiting if its queue is full. A task that is accepted
+     * is executed unless the shutdown timeout expires.
+     *
+     * @throws RejectedExecutionException
+     *             if the executor has been shut down
+     */
+    void submit(final String key, final Consumer<ScriptContext> task) throws InterruptedException {
+        final int hash = key != null ? key.hashCode() : 0;
+        final BlockingQueue<Consumer<ScriptContext>> queue = this.workers[Math.floorMod(hash,
+                this.workers.length)].queue;
+        do {
+            if (this.stopped) {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+        } while (!queue.offer(task, 100, TimeUnit.MILLISECONDS));
+        // shutdown may have started during the offer, the task might be queued behind the poison and never run
+        if (this.stopped && queue.remove(task)) {
+            throw new RejectedExecutionException("The executor has been shut down");
+        }
+    }
+
+    /**
+     * Stops the workers once they have executed the tasks already queued. The workers that do not terminate within
+     * the timeout are interrupted.
+     *
+     * @return true if the workers terminated within the timeout
+     */
+    boolean shutdown(final long timeout, final TimeUnit unit) throws InterruptedException {
+        this.stopped = true;
+        final long deadline = System.nanoTime() + unit.toNanos(timeout);
+        boolean terminated = true;
+        for (Worker worker : this.workers) {
+            if (!worker.queue.offer(POISON, deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                worker.thread.interrupt();
+            }
+        }
+        for (Worker worker : this.workers) {
+            final long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining > 0) {
+                worker.thread.join(remaining);
+            }
+            if (worker.thread.isAlive()) {
+                worker.thread.interrupt();
+                terminated = false;
+            }
+        }
+        return terminated;
+    }
+}
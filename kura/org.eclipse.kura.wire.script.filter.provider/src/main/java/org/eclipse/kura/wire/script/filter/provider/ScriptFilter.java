@@ -11,6 +11,10 @@ package org.eclipse.kura.wire.script.filter.provider;
 
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
@@ -20,6 +24,7 @@ import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptException;
+import javax.script.SimpleScriptContext;
 
 import org.eclipse.kura.configuration.ConfigurableComponent;
 import org.eclipse.kura.localization.LocalizationAdapter;
@@ -40,6 +45,19 @@ import org.slf4j.LoggerFactory;
 
 import jdk.nashorn.api.scripting.NashornScriptEngineFactory;
 
+/**
+ * A Wire Component that processes the received envelopes through a JavaScript script.
+ * <p>
+ * By default the envelopes are processed one at a time, in a single script context that retains the global
+ * variables across invocations. In parallel mode the compiled script is evaluated by a small pool of workers, each
+ * one with its own script context. The envelopes of the same emitter are always processed by the same worker, so
+ * their order is preserved. State shared by all the workers must be stored in the thread safe
+ * {@code sharedContext} map.
+ * <p>
+ * The worker script contexts live as long as the workers: changing the number of workers, or switching between the
+ * serial and parallel modes, discards them even if {@code script.context.drop} is false. Only the
+ * {@code sharedContext} map survives these changes.
+ */
 public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComponent {
 
     private static final Logger logger = LoggerFactory.getLogger(ScriptFilter.class);
@@ -47,9 +65,20 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
 
     private static final String SCRIPT_PROPERTY_KEY = "script";
     private static final String SCRIPT_CONTEXT_DROP_PROPERTY_KEY = "script.context.drop";
+    private static final String EXECUTION_MODE_PROPERTY_KEY = "script.execution.mode";
+    private static final String WORKERS_PROPERTY_KEY = "script.workers";
 
-    private CompiledScript script;
+    private static final String PARALLEL_EXECUTION_MODE = "parallel";
+    private static final int DEFAULT_WORKERS = 2;
+    private static final int MAX_WORKERS = 16;
+    private static final int WORKER_QUEUE_CAPACITY = 64;
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 5;
+
+    private volatile CompiledScript script;
     private Bindings bindings;
+    private ScriptContext context;
+    private ConcurrentMap<String, Object> sharedContext;
+    private volatile ParallelScriptExecutor executor;
 
     private volatile WireHelperService wireHelperService;
     private WireSupport wireSupport;
@@ -73,15 +102,16 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
         this.wireSupport = this.wireHelperService.newWireSupport(this);
 
         this.scriptEngine = createEngine();
-        this.bindings = createBindings();
+        resetContext();
 
         updated(properties);
 
         logger.info(message.activatingDone());
     }
 
-    public void deactivate() {
+    public synchronized void deactivate() {
         logger.info(message.deactivating());
+        stopExecutor();
         logger.info(message.deactivatingDone());
     }
 
@@ -102,29 +132,72 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
             logger.warn(message.errorScriptCompileFalied(), e);
         }
 
-        if (this.bindings == null || (Boolean) properties.getOrDefault(SCRIPT_CONTEXT_DROP_PROPERTY_KEY, false)) {
-            this.bindings = createBindings();
+        final boolean dropContext = (Boolean) properties.getOrDefault(SCRIPT_CONTEXT_DROP_PROPERTY_KEY, false);
+        if (dropContext) {
+            resetContext();
+        }
+
+        if (PARALLEL_EXECUTION_MODE.equals(properties.get(EXECUTION_MODE_PROPERTY_KEY))) {
+            final int workers = getWorkers(properties);
+            if (this.executor == null || dropContext || this.executor.getWorkerCount() != workers) {
+                if (this.executor != null && !dropContext) {
+                    logger.info(message.workerContextsReset(this.executor.getWorkerCount(), workers));
+                }
+                stopExecutor();
+                this.executor = new ParallelScriptExecutor("ScriptFilter-" + properties.get("kura.service.pid"),
+                        workers, WORKER_QUEUE_CAPACITY, this::createContext);
+            }
+        } else {
+            stopExecutor();
         }
 
         logger.info(message.updatingDone());
     }
 
     @Override
-    public synchronized void onWireReceive(WireEnvelope wireEnvelope) {
+    public void onWireReceive(WireEnvelope wireEnvelope) {
+        final ParallelScriptExecutor currentExecutor = this.executor;
+        if (currentExecutor == null) {
+            executeSerially(wireEnvelope);
+            return;
+        }
+
+        final CompiledScript currentScript = this.script;
+        if (currentScript == null) {
+            logger.warn(message.errorScriptCompileFalied());
+            return;
+        }
+
+        try {
+            currentExecutor.submit(wireEnvelope.getEmitterPid(),
+                    workerContext -> execute(currentScript, workerContext, wireEnvelope));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn(message.errorExecutingScript(), e);
+        } catch (RejectedExecutionException e) {
+            logger.warn(message.errorExecutingScript(), e);
+        }
+    }
+
+    private synchronized void executeSerially(WireEnvelope wireEnvelope) {
         if (this.script == null) {
             logger.warn(message.errorScriptCompileFalied());
             return;
         }
 
+        execute(this.script, this.context, wireEnvelope);
+    }
+
+    private void execute(CompiledScript script, ScriptContext scriptContext, WireEnvelope wireEnvelope) {
         try {
             final WireEnvelopeWrapper inputEnvelopeWrapper = new WireEnvelopeWrapper(
                     new WireRecordListWrapper(wireEnvelope.getRecords()), wireEnvelope.getEmitterPid());
             final OutputWireRecordListWrapper outputEnvelopeWrapper = new OutputWireRecordListWrapper();
 
-            this.bindings.put("input", inputEnvelopeWrapper);
-            this.bindings.put("output", outputEnvelopeWrapper);
+            scriptContext.setAttribute("input", inputEnvelopeWrapper, ScriptContext.ENGINE_SCOPE);
+            scriptContext.setAttribute("output", outputEnvelopeWrapper, ScriptContext.ENGINE_SCOPE);
 
-            this.script.eval(this.bindings);
+            script.eval(scriptContext);
 
             final List<WireRecord> result = outputEnvelopeWrapper.getRecords();
 
@@ -159,10 +232,50 @@ public class ScriptFilter implements WireEmitter, WireReceiver, ConfigurableComp
         return scriptEngine;
     }
 
+    private void stopExecutor() {
+        final ParallelScriptExecutor currentExecutor = this.executor;
+        if (currentExecutor == null) {
+            return;
+        }
+        this.executor = null;
+        try {
+            currentExecutor.shutdown(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int getWorkers(final Map<String, Object> properties) {
+        final Object workers = properties.get(WORKERS_PROPERTY_KEY);
+        if (!(workers instanceof Integer)) {
+            return DEFAULT_WORKERS;
+        }
+        return Math.min(Math.max((Integer) workers, 1), MAX_WORKERS);
+    }
+
+    private void resetContext() {
+        this.sharedContext = new ConcurrentHashMap<>();
+        this.bindings = createBindings();
+        this.context = createContext(this.bindings);
+    }
+
+    private ScriptContext createContext() {
+        return createContext(createBindings());
+    }
+
+    private ScriptContext createContext(final Bindings engineScopeBindings) {
+        final ScriptContext scriptContext = new SimpleScriptContext();
+        scriptContext.setBindings(engineScopeBindings, ScriptContext.ENGINE_SCOPE);
+        scriptContext.setBindings(this.scriptEngine.getBindings(ScriptContext.GLOBAL_SCOPE),
+                ScriptContext.GLOBAL_SCOPE);
+        return scriptContext;
+    }
+
     private Bindings createBindings() {
         Bindings bindings = this.scriptEngine.createBindings();
 
         bindings.put("logger", logger);
+        bindings.put("sharedContext", this.sharedContext);
 
         bindings.put("newWireRecord", (Supplier<WireRecordWrapper>) WireRecordWrapper::new);
 
@@ -11,10 +11,18 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.xml.marshaller.unmarshaller;
 
+import static org.eclipse.kura.internal.xml.marshaller.unmarshaller.XmlJavaDataMapper.ESF_NAMESPACE;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.eclipse.kura.configuration.ComponentConfiguration;
 import org.eclipse.kura.configuration.metatype.OCD;
 import org.eclipse.kura.core.configuration.ComponentConfigurationImpl;
@@ -23,13 +31,20 @@ import org.eclipse.kura.core.configuration.XmlConfigPropertiesAdapted;
 import org.eclipse.kura.core.configuration.XmlConfigPropertiesAdapter;
 import org.eclipse.kura.core.configuration.XmlConfigPropertyAdapted;
 import org.eclipse.kura.core.configuration.XmlConfigPropertyAdapted.ConfigPropertyType;
-import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-public class XmlJavaComponentConfigurationsMapper implements XmlJavaDataMapper {
+/**
+ * Streaming mapper for {@link XmlComponentConfigurations}.
+ * <p>
+ * Snapshots are written and read through StAX, without building a document for the whole snapshot. Only the
+ * component definitions, when present, are built as small DOM fragments by the {@link XmlJavaMetadataMapper} and
+ * copied to the stream.
+ */
+public class XmlJavaComponentConfigurationsMapper {
 
     private static final String CONFIGURATIONS = "configurations";
     private static final String PROPERTIES = "properties";
@@ -44,129 +59,165 @@ public class XmlJavaComponentConfigurationsMapper implements XmlJavaDataMapper {
     private static final String CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE = "type";
     private static final String CONFIGURATIONS_CONFIGURATION_PROPERTY_VALUE = "value";
 
-    private Document marshallDoc = null;
+    private static final String INDENT = "    ";
 
-    @Override
-    public Element marshal(Document doc, Object object) throws Exception {
-        this.marshallDoc = doc;
-        Element configurations = doc.createElement(ESF_NAMESPACE + ":" + CONFIGURATIONS);
-        configurations.setAttributeNS("http://www.w3.org/2000/xmlns/", "xmlns:esf", "http://eurotech.com/esf/2.0");
-        configurations.setAttributeNS("http://www.w3.org/2000/xmlns/", "xmlns:ocd",
-                "http://www.osgi.org/xmlns/metatype/v1.2.0");
-        doc.appendChild(configurations);
+    private final DocumentBuilder ocdDocumentBuilder;
 
-        XmlComponentConfigurations xmlCompConfig = (XmlComponentConfigurations) object;
-        List<ComponentConfiguration> configs = xmlCompConfig.getConfigurations();
+    /**
+     * @param ocdDocumentBuilder
+     *            the builder for the documents holding the component definitions, only needed for marshalling
+     */
+    public XmlJavaComponentConfigurationsMapper(DocumentBuilder ocdDocumentBuilder) {
+        this.ocdDocumentBuilder = ocdDocumentBuilder;
+    }
 
+    public void marshal(XMLStreamWriter writer, XmlComponentConfigurations xmlCompConfig) throws Exception {
+        writer.writeStartDocument("UTF-8", "1.0");
+        newLine(writer, 0);
+        writer.writeStartElement(qualified(CONFIGURATIONS));
+        writer.writeAttribute("xmlns:esf", "http://eurotech.com/esf/2.0");
+        writer.writeAttribute("xmlns:ocd", "http://www.osgi.org/xmlns/metatype/v1.2.0");
+
+        List<ComponentConfiguration> configs = xmlCompConfig.getConfigurations();
         if (configs != null) {
             for (ComponentConfiguration config : configs) {
-                Element configuration = marshallConfiguration(config);
-                configurations.appendChild(configuration);
+                marshallConfiguration(writer, config);
             }
         }
-        return configurations;
+
+        newLine(writer, 0);
+        writer.writeEndElement();
+        writer.writeEndDocument();
+        writer.flush();
     }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public <T> T unmarshal(Document doc) throws Exception {
+    public XmlComponentConfigurations unmarshal(XMLStreamReader reader) throws Exception {
         XmlComponentConfigurations xcc = new XmlComponentConfigurations();
 
-        // Get all configurations
-        NodeList configurationList = doc.getElementsByTagName(ESF_NAMESPACE + ":" + CONFIGURATIONS_CONFIGURATION);
-
         List<ComponentConfiguration> compConfList = new ArrayList<>();
-        // Iterate through all the configuration elements inside configurations tag
-        for (int configIndex = 0; configIndex < configurationList.getLength(); configIndex++) {
-            Element configuration = (Element) configurationList.item(configIndex);
-            ComponentConfiguration cci = parseConfiguration(configuration);
-            compConfList.add(cci);
+        // Iterate through all the configuration elements, wherever they are
+        while (reader.hasNext()) {
+            if (reader.next() == XMLStreamConstants.START_ELEMENT
+                    && qualified(CONFIGURATIONS_CONFIGURATION).equals(reader.getLocalName())) {
+                compConfList.add(parseConfiguration(reader));
+            }
         }
         xcc.setConfigurations(compConfList);
-        return (T) xcc;
+        return xcc;
     }
 
     //
     // Marshaller's private methods
     //
-    private Element marshallConfiguration(ComponentConfiguration config) throws Exception {
+    private void marshallConfiguration(XMLStreamWriter writer, ComponentConfiguration config) throws Exception {
         // get ComponentConfigurationImpl Object data
         String configPid = config.getPid();
         Map<String, Object> configProperty = config.getConfigurationProperties();
         OCD configOCD = config.getDefinition();
 
         // create configuration element
-        Element configurationElement = this.marshallDoc
-                .createElement(ESF_NAMESPACE + ":" + CONFIGURATIONS_CONFIGURATION);
-        Attr propertiesAttribute = this.marshallDoc.createAttribute(CONFIGURATION_PID);
-        propertiesAttribute.setNodeValue(configPid);
-        configurationElement.setAttributeNode(propertiesAttribute);
+        newLine(writer, 1);
+        writer.writeStartElement(qualified(CONFIGURATIONS_CONFIGURATION));
+        if (configPid != null) {
+            writer.writeAttribute(CONFIGURATION_PID, configPid);
+        }
 
         // Add OCD node and marshall definitions
         if (configOCD != null) {
-            Element ocd = new XmlJavaMetadataMapper().marshal(this.marshallDoc, configOCD);
-            configurationElement.appendChild(ocd);
+            Document doc = this.ocdDocumentBuilder.newDocument();
+            Element ocd = new XmlJavaMetadataMapper().marshal(doc, configOCD);
+            if (ocd != null) {
+                copyElement(writer, ocd, 2);
+            }
         }
 
         // Add properties Node and marshall properties
         if (configProperty != null) {
-            Element properties = this.marshallDoc.createElement(ESF_NAMESPACE + ":" + PROPERTIES);
-            marshallProperties(configProperty, properties);
-            configurationElement.appendChild(properties);
+            newLine(writer, 2);
+            writer.writeStartElement(qualified(PROPERTIES));
+            marshallProperties(writer, configProperty);
+            newLine(writer, 2);
+            writer.writeEndElement();
         }
 
-        return configurationElement;
+        newLine(writer, 1);
+        writer.writeEndElement();
     }
 
-    private void marshallProperties(Map<String, Object> propertyMap, Element properties) throws Exception {
+    private void marshallProperties(XMLStreamWriter writer, Map<String, Object> propertyMap) throws Exception {
         XmlConfigPropertiesAdapter xmlPropAdapter = new XmlConfigPropertiesAdapter();
         XmlConfigPropertiesAdapted configPropAdapted = xmlPropAdapter.marshal(propertyMap);
 
         XmlConfigPropertyAdapted[] propArray = configPropAdapted.getProperties();
         for (XmlConfigPropertyAdapted propertyObj : propArray) {
-            Element property = marshallProperty(propertyObj);
-            if (property != null) {
-                properties.appendChild(property);
-            }
+            marshallProperty(writer, propertyObj);
         }
     }
 
-    private Element marshallProperty(XmlConfigPropertyAdapted propertyObj) {
-        String name = propertyObj.getName();
-        Boolean array = propertyObj.getArray();
-        Boolean encrypted = propertyObj.isEncrypted();
-        ConfigPropertyType cpt = propertyObj.getType();
+    private void marshallProperty(XMLStreamWriter writer, XmlConfigPropertyAdapted propertyObj)
+            throws XMLStreamException {
         String[] values = propertyObj.getValues();
+        if (values == null) {
+            return;
+        }
 
-        if (values != null) {
-            Element property = this.marshallDoc
-                    .createElement(ESF_NAMESPACE + ":" + CONFIGURATIONS_CONFIGURATION_PROPERTY);
-            Attr attName = this.marshallDoc.createAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_NAME);
-            attName.setNodeValue(name);
-            property.setAttributeNode(attName);
-
-            Attr attArray = this.marshallDoc.createAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ARRAY);
-            attArray.setNodeValue(array.toString());
-            property.setAttributeNode(attArray);
+        newLine(writer, 3);
+        writer.writeStartElement(qualified(CONFIGURATIONS_CONFIGURATION_PROPERTY));
+        writer.writeAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_NAME, propertyObj.getName());
+        writer.writeAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ARRAY, Boolean.toString(propertyObj.getArray()));
+        writer.writeAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ENCRYPTED, Boolean.toString(propertyObj.isEncrypted()));
+        writer.writeAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE, getStringValue(propertyObj.getType()));
+
+        for (String value : values) {
+            newLine(writer, 4);
+            writer.writeStartElement(qualified(CONFIGURATIONS_CONFIGURATION_PROPERTY_VALUE));
+            if (value != null) {
+                writer.writeCharacters(value);
+            }
+            writer.writeEndElement();
+        }
 
-            Attr attEncrypted = this.marshallDoc.createAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ENCRYPTED);
-            attEncrypted.setNodeValue(encrypted.toString());
-            property.setAttributeNode(attEncrypted);
+        newLine(writer, 3);
+        writer.writeEndElement();
+    }
 
-            Attr attType = this.marshallDoc.createAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE);
+    private void copyElement(XMLStreamWriter writer, Element element, int depth) throws XMLStreamException {
+        newLine(writer, depth);
+        writer.writeStartElement(element.getNodeName());
 
-            attType.setNodeValue(getStringValue(cpt));
-            property.setAttributeNode(attType);
+        NamedNodeMap attributes = element.getAttributes();
+        for (int i = 0; i < attributes.getLength(); i++) {
+            Node attribute = attributes.item(i);
+            writer.writeAttribute(attribute.getNodeName(), attribute.getNodeValue());
+        }
 
-            for (String value : values) {
-                Element valueElem = this.marshallDoc
-                        .createElement(ESF_NAMESPACE + ":" + CONFIGURATIONS_CONFIGURATION_PROPERTY_VALUE);
-                valueElem.setTextContent(value);
-                property.appendChild(valueElem);
+        boolean hasChildElements = false;
+        NodeList children = element.getChildNodes();
+        for (int i = 0; i < children.getLength(); i++) {
+            Node child = children.item(i);
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                copyElement(writer, (Element) child, depth + 1);
+                hasChildElements = true;
+            } else if (child.getNodeType() == Node.TEXT_NODE) {
+                writer.writeCharacters(child.getNodeValue());
             }
-            return property;
         }
-        return null;
+
+        if (hasChildElements) {
+            newLine(writer, depth);
+        }
+        writer.writeEndElement();
+    }
+
+    private static void newLine(XMLStreamWriter writer, int depth) throws XMLStreamException {
+        writer.writeCharacters("\n");
+        for (int i = 0; i < depth; i++) {
+            writer.writeCharacters(INDENT);
+        }
+    }
+
+    private static String qualified(String name) {
+        return ESF_NAMESPACE + ":" + name;
     }
 
     private String getStringValue(ConfigPropertyType type) {
@@ -200,69 +251,78 @@ public class XmlJavaComponentConfigurationsMapper implements XmlJavaDataMapper {
     //
     // Unmarshaller's private methods
     //
-    private ComponentConfiguration parseConfiguration(Element configuration) throws Exception {
+    private ComponentConfiguration parseConfiguration(XMLStreamReader configuration) throws Exception {
         XmlConfigPropertiesAdapter xmlPropAdapter = new XmlConfigPropertiesAdapter();
 
-        // get configuration's properties
-        NodeList propertiesList = configuration.getChildNodes();
-
-        // get effective elements
-        Element[] propertiesArray = getElementNodes(propertiesList);
+        String pid = getAttribute(configuration, CONFIGURATION_PID);
 
+        // parse the property elements of the properties element, the definitions are not read back
         XmlConfigPropertiesAdapted xmlPropertiesAdapted = new XmlConfigPropertiesAdapted();
-        for (Element element : propertiesArray) {
-            // parse property elements
-            NodeList propertyList = element.getChildNodes();
-            Element[] propertyArray = getElementNodes(propertyList);
-
-            XmlConfigPropertyAdapted[] xmlConfigProperties = new XmlConfigPropertyAdapted[propertyArray.length];
-            for (int propertyIndex = 0; propertyIndex < propertyArray.length; propertyIndex++) {
-                XmlConfigPropertyAdapted xmlProperty = parseProperty(propertyArray[propertyIndex]);
-                xmlConfigProperties[propertyIndex] = xmlProperty;
+        List<XmlConfigPropertyAdapted> xmlConfigProperties = null;
+        int depth = 1;
+        while (depth > 0 && configuration.hasNext()) {
+            int event = configuration.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+                String name = configuration.getLocalName();
+                if (depth == 2 && qualified(PROPERTIES).equals(name)) {
+                    xmlConfigProperties = new ArrayList<>();
+                } else if (depth == 3 && xmlConfigProperties != null
+                        && qualified(CONFIGURATIONS_CONFIGURATION_PROPERTY).equals(name)) {
+                    xmlConfigProperties.add(parseProperty(configuration));
+                    depth--;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
             }
-            xmlPropertiesAdapted.setProperties(xmlConfigProperties);
+        }
+        if (xmlConfigProperties != null) {
+            xmlPropertiesAdapted
+                    .setProperties(xmlConfigProperties.toArray(new XmlConfigPropertyAdapted[xmlConfigProperties.size()]));
         }
 
         Map<String, Object> propertiesMap = xmlPropAdapter.unmarshal(xmlPropertiesAdapted);
 
-        String pid = configuration.getAttribute(CONFIGURATION_PID);
         return new ComponentConfigurationImpl(pid, null, propertiesMap);
     }
 
-    private XmlConfigPropertyAdapted parseProperty(Element property) {
-        NodeList valuesList = property.getChildNodes();
-        Element[] valuesArray = getElementNodes(valuesList);
-        String[] values = new String[valuesArray.length];
+    // consumes the property element, up to its end
+    private XmlConfigPropertyAdapted parseProperty(XMLStreamReader property) throws XMLStreamException {
+        String name = getAttribute(property, CONFIGURATIONS_CONFIGURATION_PROPERTY_NAME);
+        String type = getAttribute(property, CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE);
+        String array = getAttribute(property, CONFIGURATIONS_CONFIGURATION_PROPERTY_ARRAY);
+        String encrypted = getAttribute(property, CONFIGURATIONS_CONFIGURATION_PROPERTY_ENCRYPTED);
 
         // get values
-        for (int valIndex = 0; valIndex < valuesArray.length; valIndex++) {
-            values[valIndex] = valuesArray[valIndex].getTextContent();
+        List<String> values = new ArrayList<>();
+        int depth = 1;
+        while (depth > 0 && property.hasNext()) {
+            int event = property.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                if (depth == 1) {
+                    values.add(property.getElementText());
+                } else {
+                    depth++;
+                }
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
         }
 
-        String name = property.getAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_NAME);
-        String type = property.getAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_TYPE);
-        String array = property.getAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ARRAY);
-        String encrypted = property.getAttribute(CONFIGURATIONS_CONFIGURATION_PROPERTY_ENCRYPTED);
-
         ConfigPropertyType cct = getType(type);
 
-        XmlConfigPropertyAdapted xmlProperty = new XmlConfigPropertyAdapted(name, cct, values);
+        XmlConfigPropertyAdapted xmlProperty = new XmlConfigPropertyAdapted(name, cct,
+                values.toArray(new String[values.size()]));
         xmlProperty.setArray(Boolean.parseBoolean(array));
         xmlProperty.setEncrypted(Boolean.parseBoolean(encrypted));
 
         return xmlProperty;
     }
 
-    private Element[] getElementNodes(NodeList propertiesList) {
-        List<Element> elementList = new ArrayList<>();
-        for (int propIndex = 0; propIndex < propertiesList.getLength(); propIndex++) {
-            Node currentNode = propertiesList.item(propIndex);
-            if (currentNode.getNodeType() == Node.ELEMENT_NODE) {
-                Element el = (Element) currentNode;
-                elementList.add(el);
-            }
-        }
-        return elementList.toArray(new Element[0]);
+    // like Element.getAttribute(), returns an empty string for missing attributes
+    private static String getAttribute(XMLStreamReader reader, String name) {
+        String value = reader.getAttributeValue(null, name);
+        return value != null ? value : "";
     }
 
     private ConfigPropertyType getType(String type) {
@@ -21,6 +21,11 @@ import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.stream.FactoryConfigurationError;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -48,6 +53,20 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
 
     private static final Logger logger = LoggerFactory.getLogger(XmlMarshallUnmarshallImpl.class);
 
+    // factories are expensive to look up, they are created once and shared
+    private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = DocumentBuilderFactory.newInstance();
+    private static final TransformerFactory TRANSFORMER_FACTORY = TransformerFactory.newInstance();
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newInstance();
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    static {
+        // element names are matched with their prefix, as the DOM parser does
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
     @Override
     public String marshal(Object object) throws KuraException {
         StringWriter sw = new StringWriter();
@@ -60,9 +79,20 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
     }
 
     private void marshal(Object object, Writer w) throws Exception {
+        if (object instanceof XmlComponentConfigurations) {
+            // snapshots can be large, they are streamed
+            XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(w);
+            try {
+                new XmlJavaComponentConfigurationsMapper(newDocumentBuilder()).marshal(writer,
+                        (XmlComponentConfigurations) object);
+            } finally {
+                writer.close();
+            }
+            return;
+        }
+
         try {
-            DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
+            DocumentBuilder docBuilder = newDocumentBuilder();
 
             // root elements
             Document doc = docBuilder.newDocument();
@@ -79,8 +109,6 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
 
                 new XmlJavaSnapshotIdResultMapper().marshal(doc, object);
 
-            } else if (object instanceof XmlComponentConfigurations) {
-                new XmlJavaComponentConfigurationsMapper().marshal(doc, object);
             } else if (object instanceof XmlDeploymentPackages) {
                 // Expected resulting xml:
                 // <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
@@ -116,8 +144,7 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
             }
 
             // write the content into xml file
-            TransformerFactory transformerFactory = TransformerFactory.newInstance();
-            Transformer transformer = transformerFactory.newTransformer();
+            Transformer transformer = newTransformer();
             transformer.setOutputProperty(OutputKeys.INDENT, "yes");
             transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
             DOMSource source = new DOMSource(doc);
@@ -139,12 +166,15 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
     }
 
     private <T> T unmarshal(Reader r, Class<T> clazz) throws KuraException {
-        DocumentBuilderFactory factory = null;
+        if (clazz.equals(XmlComponentConfigurations.class)) {
+            // Snapshot parser
+            return clazz.cast(unmarshalComponentConfigurations(r));
+        }
+
         DocumentBuilder parser = null;
 
         try {
-            factory = DocumentBuilderFactory.newInstance();
-            parser = factory.newDocumentBuilder();
+            parser = newDocumentBuilder();
         } catch (FactoryConfigurationError fce) {
             // The implementation is not available or cannot be instantiated
             logger.error("Parser Factory configuration Error");
@@ -166,18 +196,42 @@ public class XmlMarshallUnmarshallImpl implements Marshaller, Unmarshaller {
         }
 
         // identify the correct parser that has to execute
-        if (clazz.equals(XmlComponentConfigurations.class)) {
-            try {
-                // Snapshot parser
-                return new XmlJavaComponentConfigurationsMapper().unmarshal(doc);
-            } catch (Exception e) {
-                throw new KuraException(KuraErrorCode.DECODER_ERROR, e);
-            }
-        } else if (clazz.equals(MetaData.class) || clazz.equals(Tmetadata.class)) {
+        if (clazz.equals(MetaData.class) || clazz.equals(Tmetadata.class)) {
             // MetaData parser
             return new XmlJavaMetadataMapper().unmarshal(doc);
         } else {
             throw new IllegalArgumentException("Class not supported!");
         }
     }
+
+    private XmlComponentConfigurations unmarshalComponentConfigurations(Reader r) throws KuraException {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(r);
+            return new XmlJavaComponentConfigurationsMapper(null).unmarshal(reader);
+        } catch (Exception e) {
+            throw new KuraException(KuraErrorCode.DECODER_ERROR, e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException e) {
+                    logger.debug("Failed to close reader", e);
+                }
+            }
+        }
+    }
+
+    private static DocumentBuilder newDocumentBuilder() throws ParserConfigurationException {
+        // factories are not required to be thread safe
+        synchronized (DOCUMENT_BUILDER_FACTORY) {
+            return DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+        }
+    }
+
+    private static Transformer newTransformer() throws TransformerException {
+        synchronized (TRANSFORMER_FACTORY) {
+            return TRANSFORMER_FACTORY.newTransformer();
+        }
+    }
 }
@@ -18,6 +18,6 @@ import org.junit.runners.Suite.SuiteClasses;
  * execute
  */
 @RunWith(Suite.class)
-@SuiteClasses({ AssetTest.class })
+@SuiteClasses({ AssetTest.class, ChannelReadCacheTest.class })
 public final class AssetTestsSuite {
 }
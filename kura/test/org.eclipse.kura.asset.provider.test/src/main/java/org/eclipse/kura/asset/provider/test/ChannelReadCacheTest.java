@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ *******************************************************************************/
+package org.eclipse.kura.asset.provider.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.ChannelStatus;
+import org.eclipse.kura.internal.asset.provider.ChannelReadCache;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValues;
+import org.junit.Test;
+
+public class ChannelReadCacheTest {
+
+    @Test
+    public void testMaxAge() throws KuraException {
+        final AtomicInteger reads = new AtomicInteger();
+        final ChannelReadCache cache = new ChannelReadCache(() -> records(reads.incrementAndGet()));
+
+        assertTrue(cache.getLatest().isEmpty());
+        assertEquals(1, value(cache.read(TimeUnit.HOURS.toNanos(1))));
+        assertEquals(1, value(cache.read(TimeUnit.HOURS.toNanos(1))));
+        assertEquals(1, value(cache.getLatest()));
+
+        assertEquals(2, value(cache.read(0)));
+        assertEquals(2, reads.get());
+
+        cache.invalidate();
+        assertTrue(cache.getLatest().isEmpty());
+        assertEquals(3, value(cache.read(TimeUnit.HOURS.toNanos(1))));
+    }
+
+    @Test
+    public void testRecordsCopied() throws KuraException {
+        final List<ChannelRecord> reused = records(1);
+        final ChannelReadCache cache = new ChannelReadCache(() -> reused);
+
+        final List<ChannelRecord> first = cache.read(0);
+        assertSame(reused, first);
+
+        first.get(0).setValue(TypedValues.newIntegerValue(42));
+        final List<ChannelRecord> cached = cache.read(TimeUnit.HOURS.toNanos(1));
+        assertNotSame(reused.get(0), cached.get(0));
+        assertEquals(42, value(reused));
+        assertEquals(1, value(cached));
+        assertEquals(ChannelFlag.SUCCESS, cached.get(0).getChannelStatus().getChannelFlag());
+        assertEquals(1000L, cached.get(0).getTimestamp());
+    }
+
+    @Test
+    public void testConcurrentReadsCoalesced() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger reads = new AtomicInteger();
+        final ChannelReadCache cache = new ChannelReadCache(() -> {
+            final int value = reads.incrementAndGet();
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return records(value);
+        });
+
+        final int callers = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            final List<Future<List<ChannelRecord>>> results = new ArrayList<>();
+            results.add(executor.submit(() -> cache.read(0)));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            for (int i = 1; i < callers; i++) {
+                results.add(executor.submit(() -> cache.read(0)));
+            }
+            // let the other callers queue up behind the read in progress
+            Thread.sleep(100);
+            release.countDown();
+
+            assertEquals(1, value(results.get(0).get(10, TimeUnit.SECONDS)));
+            for (int i = 1; i < callers; i++) {
+                // the values read before the call cannot be returned, but the following read is shared
+                assertEquals(2, value(results.get(i).get(10, TimeUnit.SECONDS)));
+            }
+            assertEquals(2, reads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFailureNotCached() throws KuraException {
+        final AtomicInteger reads = new AtomicInteger();
+        final ChannelReadCache cache = new ChannelReadCache(() -> {
+            if (reads.incrementAndGet() == 1) {
+                throw new KuraException(KuraErrorCode.CONNECTION_FAILED);
+            }
+            return records(reads.get());
+        });
+
+        try {
+            cache.read(TimeUnit.HOURS.toNanos(1));
+            fail("Read should have failed");
+        } catch (KuraException e) {
+            assertEquals(KuraErrorCode.CONNECTION_FAILED, e.getCode());
+        }
+        assertTrue(cache.getLatest().isEmpty());
+        assertEquals(2, value(cache.read(TimeUnit.HOURS.toNanos(1))));
+    }
+
+    private static List<ChannelRecord> records(int value) {
+        final ChannelRecord record = ChannelRecord.createReadRecord("channel", DataType.INTEGER);
+        record.setValue(TypedValues.newIntegerValue(value));
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+        record.setTimestamp(1000L);
+        return new ArrayList<>(Arrays.asList(record));
+    }
+
+    private static int value(List<ChannelRecord> records) {
+        assertEquals(1, records.size());
+        return (Integer) records.get(0).getValue().getValue();
+    }
+}
@@ -10,19 +10,28 @@ package org.eclipse.kura.camel.cloud;
 
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 import org.apache.camel.Exchange;
 import org.apache.camel.Message;
 import org.eclipse.kura.camel.camelcloud.KuraCloudClientConstants;
 import org.eclipse.kura.cloud.CloudClient;
+import org.eclipse.kura.cloud.CloudClientListener;
 import org.eclipse.kura.message.KuraPayload;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class KuraCloudProducerTest {
 
@@ -256,4 +265,40 @@ public class KuraCloudProducerTest {
         verify(clientMock, times(1)).controlPublish(eq(deviceId), eq(topic), (KuraPayload) anyObject(), eq(qos),
                 eq(retain), eq(prio));
     }
+
+    @Test
+    public void testProcessAsync() throws Exception {
+        // with a publish window the exchange is completed when the message is confirmed
+
+        KuraCloudEndpoint endpointMock = mock(KuraCloudEndpoint.class);
+        when(endpointMock.getPublishWindow()).thenReturn(10);
+        when(endpointMock.getAckTimeout()).thenReturn(60000L);
+        CloudClient clientMock = mock(CloudClient.class);
+        KuraCloudProducer kcp = new KuraCloudProducer(endpointMock, clientMock);
+        kcp.doStart();
+
+        ArgumentCaptor<CloudClientListener> listener = ArgumentCaptor.forClass(CloudClientListener.class);
+        verify(clientMock).addCloudClientListener(listener.capture());
+
+        Exchange exchangeMock = mock(Exchange.class);
+        Message msgMock = mock(Message.class);
+        when(exchangeMock.getIn()).thenReturn(msgMock);
+        when(msgMock.getBody()).thenReturn(new byte[] { 0x01, 0x02, 0x03 });
+        when(msgMock.getHeader(KuraCloudClientConstants.CAMEL_KURA_CLOUD_TOPIC, String.class)).thenReturn("topic");
+        when(msgMock.getHeader(KuraCloudClientConstants.CAMEL_KURA_CLOUD_QOS, Integer.class)).thenReturn(1);
+        when(clientMock.publish(eq("topic"), (KuraPayload) anyObject(), eq(1), eq(false), eq(0))).thenReturn(42);
+
+        CountDownLatch done = new CountDownLatch(1);
+        assertFalse(kcp.process(exchangeMock, doneSync -> done.countDown()));
+
+        verify(clientMock, timeout(5000)).publish(eq("topic"), (KuraPayload) anyObject(), eq(1), eq(false), eq(0));
+        listener.getValue().onMessagePublished(42, "topic");
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        listener.getValue().onMessageConfirmed(42, "topic");
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        verify(exchangeMock, never()).setException(anyObject());
+
+        kcp.doStop();
+        verify(clientMock).removeCloudClientListener(listener.getValue());
+    }
 }
@@ -0,0 +1,272 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.camel.internal.cloud;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.cloud.CloudClient;
+import org.junit.Test;
+
+public class AsyncPublisherTest {
+
+    private static final Exception NONE = new Exception();
+
+    @Test
+    public void testCompletion() throws Exception {
+        CloudClient cloudClient = mock(CloudClient.class);
+        AsyncPublisher publisher = new AsyncPublisher(cloudClient, "test", 10);
+        publisher.start();
+        verify(cloudClient).addCloudClientListener(publisher);
+
+        BlockingQueue<Object> completions = new ArrayBlockingQueue<>(10);
+        CountDownLatch published = new CountDownLatch(2);
+        publisher.submit(() -> {
+            published.countDown();
+            return 1;
+        }, 0, error -> completions.add(error == null ? 1 : error));
+        publisher.submit(() -> {
+            published.countDown();
+            return 2;
+        }, 1, error -> completions.add(error == null ? 2 : error));
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+
+        // a QoS 1 message is completed only when confirmed
+        publisher.onMessagePublished(2, "topic");
+        publisher.onMessagePublished(1, "topic");
+        assertEquals(1, completions.poll(5, TimeUnit.SECONDS));
+        assertNull(completions.poll(100, TimeUnit.MILLISECONDS));
+        publisher.onMessageConfirmed(2, "topic");
+        assertEquals(2, completions.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, publisher.getPendingCount());
+
+        publisher.stop();
+        verify(cloudClient).removeCloudClientListener(publisher);
+    }
+
+    @Test
+    public void testAcknowledgedBeforePublishReturns() throws Exception {
+        CloudClient cloudClient = mock(CloudClient.class);
+        AsyncPublisher publisher = new AsyncPublisher(cloudClient, "test", 10);
+        publisher.start();
+
+        BlockingQueue<Object> completions = new ArrayBlockingQueue<>(10);
+        publisher.submit(() -> {
+            // the data service may notify the publication before the identifier is returned
+            publisher.onMessagePublished(7, "topic");
+            publisher.onMessageConfirmed(7, "topic");
+            return 7;
+        }, 2, error -> completions.add(error == null ? NONE : error));
+
+        assertEquals(NONE, completions.poll(5, TimeUnit.SECONDS));
+        assertEquals(0, publisher.getPendingCount());
+        publisher.stop();
+    }
+
+    @Test
+    public void testPublishFailure() throws Exception {
+        CloudClient cloudClient = mock(CloudClient.class);
+        AsyncPublisher publisher = new AsyncPublisher(cloudClient, "test", 1);
+        publisher.start();
+
+        KuraException failure = new KuraException(KuraErrorCode.STORE_ERROR);
+        BlockingQueue<Object> completions = new ArrayBlockingQueue<>(10);
+        publisher.submit(() -> {
+            throw failure;
+        }, 0, error -> completions.add(error == null ? NONE : error));
+        assertEquals(failure, completions.poll(5, TimeUnit.SECONDS));
+
+        // the window has been released
+        CountDownLatch published = new CountDownLatch(1);
+        publisher.submit(() -> {
+            published.countDown();
+            return 1;
+        }, 0, error -> completions.add(error == null ? NONE : error));
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        publisher.onMessagePublished(1, "topic");
+        assertEquals(NONE, completions.poll(5, TimeUnit.SECONDS));
+        publisher.stop();
+    }
+
+    @Test
+    public void testWindow() throws Exception {
+        CloudClient cloudClient = mock(CloudClient.class);
+        AsyncPublisher publisher = new AsyncPublisher(cloudClient, "test", 2);
+        publisher.start();
+
+        AtomicInteger ids = new AtomicInteger();
+        publisher.submit(ids::incrementAndGet, 1, error -> {
+        });
+        publisher.submit(ids::incrementAndGet, 1, error -> {
+        });
+
+        CountDownLatch submitted = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            try {
+                publisher.submit(ids::incrementAndGet, 1, error -> {
+                });
+                submitted.countDown();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+
+        // the third submission waits for an acknowledgement
+        assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+        while (publisher.getPendingCount() < 2 || ids.get() < 2) {
+            Thread.sleep(10);
+        }
+        publisher.onMessageConfirmed(1, "topic");
+        assertTrue(submitted.await(5, TimeUnit.SECONDS));
+        producer.join();
+        publisher.stop();
+    }
+
+    @Test
+    public void testAcknowledgementTimeout() throws Exception {
+        CloudClient cloudClient = mock(CloudClient.class);
+        AsyncPublisher publisher = new AsyncPublisher(cloudClient, "test", 1, 500);
+        publisher.start();
+
+        // the data service never reports the publication, e.g. because the message has been dropped
+        BlockingQueue<Object> completions = new ArrayBlockingQueue<>(10);
+        publisher.submit(() -> 1, 0, error -> completions.add(error == null ? NONE : error));
+        assertTrue(completions.poll(5, TimeUnit.SECONDS) instanceof TimeoutException);
+        assertEquals(0, publisher.getPendingCount());
+
+        // the window has been released
+        CountDownLatch published = new CountDownLatch(1);
+        publisher.submit(() -> {
+            published.countDown();
+            return 2;
+        }, 0, error -> completions.add(error == null ? NONE : error));
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        publisher.onMessagePublished(2, "topic");
+        assertEquals(NONE, completions.poll(5, TimeUnit.SECONDS));
+        publisher.stop();
+    }
+
+    @Test
+    public void testConnectionLost() throws Exception {
+        CloudClient cloudClient = mock(CloudClient.class);
+        AsyncPublisher publisher = new AsyncPublisher(cloudClient, "test", 2);
+        publisher.start();
+
+        BlockingQueue<Object> qos0 = new ArrayBlockingQueue<>(10);
+        BlockingQueue<Object> qos1 = new ArrayBlockingQueue<>(10);
+        CountDownLatch handedOver = new CountDownLatch(2);
+        publisher.submit(() -> {
+            handedOver.countDown();
+            return 1;
+        }, 1, error -> qos1.add(error == null ? NONE : error));
+        publisher.submit(() -> {
+            handedOver.countDown();
+            return 2;
+        }, 0, error -> qos0.add(error == null ? NONE : error));
+        assertTrue(handedOver.await(5, TimeUnit.SECONDS));
+        while (publisher.getPendingCount() < 2) {
+            Thread.sleep(10);
+        }
+
+        // the QoS 0 message has not been published, the QoS 1 message is kept in the store
+        publisher.onConnectionLost();
+        assertTrue(qos0.poll(5, TimeUnit.SECONDS) instanceof IllegalStateException);
+        assertNull(qos1.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(1, publisher.getPendingCount());
+
+        publisher.onConnectionEstablished();
+        publisher.onMessageConfirmed(1, "topic");
+        assertEquals(NONE, qos1.poll(5, TimeUnit.SECONDS));
+        publisher.stop();
+    }
+
+    @Test
+    public void testCompletionDoesNotBlockAcknowledgements() throws Exception {
+        CloudClient cloudClient = mock(CloudClient.class);
+        AsyncPublisher publisher = new AsyncPublisher(cloudClient, "test", 10);
+        publisher.start();
+
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<Object> completions = new ArrayBlockingQueue<>(10);
+        CountDownLatch published = new CountDownLatch(2);
+        publisher.submit(() -> {
+            published.countDown();
+            return 1;
+        }, 1, error -> {
+            // e.g. the rest of the route waiting for the window of another endpoint
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            completions.add(1);
+        });
+        publisher.submit(() -> {
+            published.countDown();
+            return 2;
+        }, 1, error -> completions.add(2));
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        while (publisher.getPendingCount() < 2) {
+            Thread.sleep(10);
+        }
+
+        Thread acknowledger = new Thread(() -> {
+            publisher.onMessageConfirmed(1, "topic");
+            publisher.onMessageConfirmed(2, "topic");
+        });
+        acknowledger.start();
+        // the data service thread is not held by the blocked completion
+        acknowledger.join(5000);
+        assertFalse(acknowledger.isAlive());
+        assertEquals(0, publisher.getPendingCount());
+
+        release.countDown();
+        assertEquals(1, completions.poll(5, TimeUnit.SECONDS));
+        assertEquals(2, completions.poll(5, TimeUnit.SECONDS));
+        publisher.stop();
+    }
+
+    @Test
+    public void testStop() throws Exception {
+        CloudClient cloudClient = mock(CloudClient.class);
+        AsyncPublisher publisher = new AsyncPublisher(cloudClient, "test", 10);
+        publisher.start();
+
+        BlockingQueue<Object> completions = new ArrayBlockingQueue<>(10);
+        publisher.submit(() -> 1, 1, error -> completions.add(error == null ? NONE : error));
+        while (publisher.getPendingCount() == 0) {
+            Thread.sleep(10);
+        }
+        publisher.stop();
+
+        assertTrue(completions.poll(5, TimeUnit.SECONDS) instanceof IllegalStateException);
+        try {
+            publisher.submit(() -> 2, 1, error -> {
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+
+import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.message.KuraPosition;
+import org.junit.Test;
+
+public class CloudPayloadJsonStreamCodecTest {
+
+    @Test(expected = NullPointerException.class)
+    public void testEncodeNullKuraPayload() {
+        CloudPayloadJsonStreamEncoder.getBytes(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEncodeUnsupportedMetric() {
+        KuraPayload payload = new KuraPayload();
+        payload.addMetric("metric.character", 'c');
+
+        CloudPayloadJsonStreamEncoder.getBytes(payload);
+    }
+
+    @Test
+    public void testEncodeSameBytesAsTreeEncoder() {
+        KuraPayload payload = buildPayload();
+
+        assertArrayEquals(CloudPayloadJsonEncoder.getBytes(payload), CloudPayloadJsonStreamEncoder.getBytes(payload));
+    }
+
+    @Test
+    public void testEncodeEmptySameBytesAsTreeEncoder() {
+        KuraPayload payload = new KuraPayload();
+
+        assertArrayEquals(CloudPayloadJsonEncoder.getBytes(payload), CloudPayloadJsonStreamEncoder.getBytes(payload));
+    }
+
+    @Test
+    public void testEncodeEscapedStringsSameBytesAsTreeEncoder() {
+        KuraPayload payload = new KuraPayload();
+        payload.addMetric("quote\"backslash\\", "line\nfeed\rtab\tcontrol\u0001");
+        payload.addMetric("unicode", "\u00e8\u20ac\ud83d\ude00\u2028\u2029");
+        payload.addMetric("min", Long.MIN_VALUE);
+        payload.addMetric("negative", -42);
+        payload.addMetric("float", 3.0f);
+        payload.addMetric("exponent", 1.0E-10);
+        payload.addMetric("bytes.1", new byte[] { 1 });
+        payload.addMetric("bytes.2", new byte[] { 1, 2 });
+        payload.addMetric("bytes.empty", new byte[0]);
+
+        assertArrayEquals(CloudPayloadJsonEncoder.getBytes(payload), CloudPayloadJsonStreamEncoder.getBytes(payload));
+    }
+
+    @Test
+    public void testEncodeLargeBody() {
+        KuraPayload payload = new KuraPayload();
+        payload.setBody(new byte[256 * 1024]);
+
+        assertArrayEquals(CloudPayloadJsonEncoder.getBytes(payload), CloudPayloadJsonStreamEncoder.getBytes(payload));
+
+        // the pooled buffer must be reusable after a large payload
+        KuraPayload small = buildPayload();
+        assertArrayEquals(CloudPayloadJsonEncoder.getBytes(small), CloudPayloadJsonStreamEncoder.getBytes(small));
+    }
+
+    @Test
+    public void testManyMetricsSameAsTreeCodec() {
+        KuraPayload payload = new KuraPayload();
+        payload.setTimestamp(new Date(1490275324619L));
+        for (int i = 0; i < 1000; i++) {
+            switch (i % 6) {
+            case 0:
+                payload.addMetric("temperature." + i, 20.0 + i / 7.0);
+                break;
+            case 1:
+                payload.addMetric("counter." + i, 1000000L * i);
+                break;
+            case 2:
+                payload.addMetric("status." + i, "running/" + i);
+                break;
+            case 3:
+                payload.addMetric("enabled." + i, i % 4 == 3);
+                break;
+            case 4:
+                payload.addMetric("value." + i, i);
+                break;
+            default:
+                payload.addMetric("raw." + i, new byte[] { (byte) i, 1, 2, 3, 4, 5, 6, 7 });
+                break;
+            }
+        }
+
+        byte[] encoded = CloudPayloadJsonEncoder.getBytes(payload);
+        assertArrayEquals(encoded, CloudPayloadJsonStreamEncoder.getBytes(payload));
+
+        KuraPayload expected = CloudPayloadJsonDecoder.buildFromByteArray(encoded);
+        KuraPayload actual = CloudPayloadJsonStreamDecoder.buildFromByteArray(encoded);
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.metrics(), actual.metrics());
+    }
+
+    @Test
+    public void testRoundTrip() {
+        KuraPayload payload = buildPayload();
+
+        KuraPayload decoded = CloudPayloadJsonStreamDecoder
+                .buildFromByteArray(CloudPayloadJsonStreamEncoder.getBytes(payload));
+
+        assertEquals(payload.getTimestamp(), decoded.getTimestamp());
+
+        KuraPosition position = decoded.getPosition();
+        assertNotNull(position);
+        assertTrue(position.getAltitude() == 200);
+        assertTrue(position.getLatitude() == 10.5);
+        assertTrue(position.getSatellites() == 3);
+        assertTrue(position.getTimestamp().getTime() == 123456789L);
+
+        assertEquals(7, decoded.metrics().size());
+        assertEquals("metric.value", decoded.getMetric("metric.name"));
+        assertEquals(1L, decoded.getMetric("metric.int"));
+        assertEquals(Double.MAX_VALUE, decoded.getMetric("metric.double"));
+        assertEquals(1.2, decoded.getMetric("metric.float"));
+        assertEquals("VGVzdA==", decoded.getMetric("metric.bytearray"));
+        assertEquals(true, decoded.getMetric("metric.boolean"));
+        assertEquals(12345L, decoded.getMetric("metric.long"));
+
+        assertArrayEquals("Test body".getBytes(), decoded.getBody());
+    }
+
+    @Test
+    public void testDecodeSameAsTreeDecoder() {
+        byte[] json = ("{\"SENTON\":1490275324619,"
+                + "\"POSITION\":{\"LATITUDE\":10,\"LONGITUDE\":20.5,\"SATELLITES\":3,\"TIMESTAMP\":123456789},"
+                + " \"METRICS\" : {\"escaped\\\"name\":\"a\\u00e8\\n\","
+                + "\"big\":92233720368547758070,\"neg\":-9223372036854775808,\"exp\":1e3,\"bool\":false}}")
+                        .getBytes(StandardCharsets.UTF_8);
+
+        KuraPayload expected = CloudPayloadJsonDecoder.buildFromByteArray(json);
+        KuraPayload actual = CloudPayloadJsonStreamDecoder.buildFromByteArray(json);
+
+        assertEquals(expected.getTimestamp(), actual.getTimestamp());
+        assertEquals(expected.getPosition().getLatitude(), actual.getPosition().getLatitude());
+        assertEquals(expected.getPosition().getLongitude(), actual.getPosition().getLongitude());
+        assertEquals(expected.getPosition().getSatellites(), actual.getPosition().getSatellites());
+        assertEquals(expected.getPosition().getTimestamp(), actual.getPosition().getTimestamp());
+        assertEquals(expected.metrics(), actual.metrics());
+        assertNull(actual.getBody());
+    }
+
+    @Test
+    public void testDecodeUtf8() {
+        byte[] json = "{\"METRICS\":{\"utf8\":\"\u00e8\u20ac\ud83d\ude00\"}}".getBytes(StandardCharsets.UTF_8);
+
+        KuraPayload payload = CloudPayloadJsonStreamDecoder.buildFromByteArray(json);
+
+        assertEquals("\u00e8\u20ac\ud83d\ude00", payload.getMetric("utf8"));
+    }
+
+    @Test
+    public void testDecodeUnmappableWrappedInBody() {
+        byte[] json = "{\"SENTON\":1490275324619,\"METRICS\":{\"metric.name\":{\"metric.value\":\"value\"}}}"
+                .getBytes();
+
+        KuraPayload payload = CloudPayloadJsonStreamDecoder.buildFromByteArray(json);
+
+        assertNull(payload.getTimestamp());
+        assertTrue(payload.metrics().isEmpty());
+        assertArrayEquals(json, payload.getBody());
+    }
+
+    @Test
+    public void testDecodeUnknownJsonWrappedInBody() {
+        byte[] json = "{\"stuff\": {\"onetype\": [{\"id\":1},{\"id\":2}]}, \"otherstuff\": {\"thing\": [[1,42],[2,2]]}}"
+                .getBytes();
+
+        KuraPayload payload = CloudPayloadJsonStreamDecoder.buildFromByteArray(json);
+
+        assertNull(payload.getPosition());
+        assertTrue(payload.metrics().isEmpty());
+        assertArrayEquals(json, payload.getBody());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeEmptyFailure() {
+        CloudPayloadJsonStreamDecoder.buildFromByteArray(new byte[0]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeIncompleteFailure() {
+        CloudPayloadJsonStreamDecoder.buildFromByteArray("{\"SENTON\":,\"METRICS\":{}}".getBytes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDecodeMalformedAfterUnmappableFailure() {
+        CloudPayloadJsonStreamDecoder.buildFromByteArray("{\"unknown\":1,\"METRICS\":{\"a\":}".getBytes());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testDecodeNullInput() {
+        CloudPayloadJsonStreamDecoder.buildFromByteArray(null);
+    }
+
+    private static KuraPayload buildPayload() {
+        KuraPayload payload = new KuraPayload();
+        payload.setTimestamp(new Date());
+
+        KuraPosition position = new KuraPosition();
+        position.setAltitude(200);
+        position.setLatitude(10.5);
+        position.setLongitude(20);
+        position.setSatellites(3);
+        position.setStatus(0);
+        position.setTimestamp(new Date(123456789L));
+        payload.setPosition(position);
+
+        payload.addMetric("metric.name", "metric.value");
+        payload.addMetric("metric.int", 1);
+        payload.addMetric("metric.double", Double.MAX_VALUE);
+        payload.addMetric("metric.float", 1.2f);
+        payload.addMetric("metric.bytearray", "Test".getBytes());
+        payload.addMetric("metric.boolean", true);
+        payload.addMetric("metric.long", 12345L);
+
+        payload.setBody("Test body".getBytes());
+        return payload;
+    }
+}
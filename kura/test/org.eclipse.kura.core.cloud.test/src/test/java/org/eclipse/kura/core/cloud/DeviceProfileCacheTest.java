@@ -0,0 +1,137 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.core.message.KuraDeviceProfile;
+import org.eclipse.kura.net.NetInterface;
+import org.eclipse.kura.net.NetInterfaceAddress;
+import org.eclipse.kura.net.NetworkService;
+import org.eclipse.kura.position.NmeaPosition;
+import org.eclipse.kura.position.PositionService;
+import org.eclipse.kura.system.SystemAdminService;
+import org.eclipse.kura.system.SystemService;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeviceProfileCacheTest {
+
+    private CloudServiceImpl cloudService;
+    private SystemService systemService;
+    private SystemAdminService systemAdminService;
+    private NetworkService networkService;
+    private PositionService positionService;
+
+    @Before
+    public void setup() throws KuraException {
+        this.systemService = mock(SystemService.class);
+        when(this.systemService.getDeviceName()).thenReturn("device");
+        when(this.systemService.getBiosVersion()).thenReturn("bios");
+        when(this.systemService.getFirmwareVersion()).thenReturn("firmware");
+        when(this.systemService.getJavaVmVersion()).thenReturn("25.0");
+        when(this.systemService.getJavaVmInfo()).thenReturn("mixed mode");
+        when(this.systemService.getNumberOfProcessors()).thenReturn(4);
+        when(this.systemService.getTotalMemory()).thenReturn(1024L);
+
+        this.systemAdminService = mock(SystemAdminService.class);
+        when(this.systemAdminService.getUptime()).thenReturn("1000", "2000");
+
+        this.networkService = mock(NetworkService.class);
+        List<NetInterface<? extends NetInterfaceAddress>> interfaces = new ArrayList<>();
+        when(this.networkService.getActiveNetworkInterfaces()).thenReturn(interfaces);
+
+        this.positionService = mock(PositionService.class);
+        when(this.positionService.getNmeaPosition()).thenReturn(new NmeaPosition(45.0, 12.0, 10.0, 0, 0),
+                new NmeaPosition(46.0, 13.0, 20.0, 0, 0));
+
+        this.cloudService = mock(CloudServiceImpl.class);
+        when(this.cloudService.getSystemService()).thenReturn(this.systemService);
+        when(this.cloudService.getSystemAdminService()).thenReturn(this.systemAdminService);
+        when(this.cloudService.getNetworkService()).thenReturn(this.networkService);
+        when(this.cloudService.getPositionService()).thenReturn(this.positionService);
+    }
+
+    @Test
+    public void testProfile() {
+        KuraDeviceProfile profile = new DeviceProfileCache(this.cloudService).get();
+
+        assertEquals("1000", profile.getUptime());
+        assertEquals("device", profile.getDisplayName());
+        assertEquals("bios", profile.getBiosVersion());
+        assertEquals("firmware", profile.getFirmwareVersion());
+        assertEquals("25.0 mixed mode", profile.getJvmVersion());
+        assertEquals("4", profile.getAvailableProcessors());
+        assertEquals("1024", profile.getTotalMemory());
+        assertEquals("UNKNOWN", profile.getConnectionInterface());
+        assertEquals("UNKNOWN", profile.getConnectionIp());
+        assertEquals(45.0, profile.getLatitude(), 0.0);
+        assertEquals(12.0, profile.getLongitude(), 0.0);
+        assertEquals(10.0, profile.getAltitude(), 0.0);
+    }
+
+    @Test
+    public void testCached() throws KuraException {
+        DeviceProfileCache cache = new DeviceProfileCache(this.cloudService);
+
+        KuraDeviceProfile first = cache.get();
+        KuraDeviceProfile second = cache.get();
+
+        assertNotSame(first, second);
+        // the uptime is always read
+        assertEquals("2000", second.getUptime());
+        assertEquals(45.0, second.getLatitude(), 0.0);
+        verify(this.systemService, times(1)).getBiosVersion();
+        verify(this.systemService, times(1)).getFirmwareVersion();
+        verify(this.networkService, times(1)).getActiveNetworkInterfaces();
+        verify(this.positionService, times(1)).getNmeaPosition();
+    }
+
+    @Test
+    public void testInvalidation() throws KuraException {
+        DeviceProfileCache cache = new DeviceProfileCache(this.cloudService);
+        cache.get();
+
+        cache.invalidatePosition();
+        KuraDeviceProfile profile = cache.get();
+        assertEquals(46.0, profile.getLatitude(), 0.0);
+        verify(this.positionService, times(2)).getNmeaPosition();
+        verify(this.networkService, times(1)).getActiveNetworkInterfaces();
+
+        cache.invalidateNetwork();
+        cache.get();
+        verify(this.networkService, times(2)).getActiveNetworkInterfaces();
+        verify(this.systemService, times(1)).getBiosVersion();
+
+        cache.invalidateAll();
+        cache.get();
+        verify(this.systemService, times(2)).getBiosVersion();
+        verify(this.networkService, times(3)).getActiveNetworkInterfaces();
+        verify(this.positionService, times(3)).getNmeaPosition();
+    }
+
+    @Test
+    public void testNoPositionService() {
+        when(this.cloudService.getPositionService()).thenReturn(null);
+
+        KuraDeviceProfile profile = new DeviceProfileCache(this.cloudService).get();
+
+        assertEquals(0.0, profile.getLatitude(), 0.0);
+        assertEquals(0.0, profile.getLongitude(), 0.0);
+    }
+}
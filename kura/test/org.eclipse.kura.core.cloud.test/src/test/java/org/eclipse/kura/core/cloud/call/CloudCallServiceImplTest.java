@@ -0,0 +1,159 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     Eurotech
+ *******************************************************************************/
+package org.eclipse.kura.core.cloud.call;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.KuraErrorCode;
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.kura.KuraTimeoutException;
+import org.eclipse.kura.core.cloud.CloudPayloadProtoBufEncoderImpl;
+import org.eclipse.kura.data.DataService;
+import org.eclipse.kura.message.KuraPayload;
+import org.eclipse.kura.message.KuraResponsePayload;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class CloudCallServiceImplTest {
+
+    private DataService dataService;
+    private CloudCallServiceImpl callService;
+
+    @Before
+    public void setUp() {
+        this.dataService = mock(DataService.class);
+        this.callService = new CloudCallServiceImpl();
+        this.callService.setDataService(this.dataService);
+        this.callService.activate(null);
+    }
+
+    @After
+    public void tearDown() {
+        this.callService.deactivate(null);
+    }
+
+    @Test
+    public void testConcurrentCallsCompletedOutOfOrder() throws Exception {
+        CompletableFuture<KuraResponsePayload> first = this.callService.callAsync("APP", "first", null, 10000);
+        CompletableFuture<KuraResponsePayload> second = this.callService.callAsync("APP", "second", null, 10000);
+
+        List<String> replyTopics = captureReplyTopics(2);
+        assertEquals(2, this.callService.getPendingCallCount());
+
+        reply(replyTopics.get(1), "second");
+        assertTrue(second.isDone());
+        assertFalse(first.isDone());
+
+        reply(replyTopics.get(0), "first");
+
+        assertEquals("first", first.get().getMetric("name"));
+        assertEquals("second", second.get().getMetric("name"));
+        assertEquals(0, this.callService.getPendingCallCount());
+
+        verify(this.dataService, timeout(1000)).unsubscribe(replyTopics.get(0));
+        verify(this.dataService, timeout(1000)).unsubscribe(replyTopics.get(1));
+    }
+
+    @Test
+    public void testReplyForOtherApplicationIgnored() throws Exception {
+        CompletableFuture<KuraResponsePayload> future = this.callService.callAsync("APP", "topic", null, 10000);
+        String replyTopic = captureReplyTopics(1).get(0);
+
+        reply(replyTopic.replace("/APP/", "/OTHER/"), "other");
+        assertFalse(future.isDone());
+
+        reply(replyTopic, "app");
+        assertEquals("app", future.get(1, TimeUnit.SECONDS).getMetric("name"));
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        CompletableFuture<KuraResponsePayload> future = this.callService.callAsync("APP", "topic", null, 50);
+        String replyTopic = captureReplyTopics(1).get(0);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Timeout expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof KuraTimeoutException);
+        }
+
+        assertEquals(0, this.callService.getPendingCallCount());
+        verify(this.dataService, timeout(1000)).unsubscribe(replyTopic);
+    }
+
+    @Test(expected = KuraTimeoutException.class)
+    public void testSynchronousCallTimeout() throws KuraException {
+        this.callService.call("APP", "topic", null, 50);
+    }
+
+    @Test
+    public void testPublishFailure() throws Exception {
+        doThrow(new KuraStoreException("store")).when(this.dataService).publish(anyString(), any(byte[].class),
+                anyInt(), anyBoolean(), anyInt());
+
+        try {
+            this.callService.call("APP", "topic", null, 10000);
+            fail("Exception expected");
+        } catch (KuraStoreException e) {
+            assertEquals(KuraErrorCode.STORE_ERROR, e.getCode());
+        }
+        assertEquals(0, this.callService.getPendingCallCount());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        CompletableFuture<KuraResponsePayload> future = this.callService.callAsync("APP", "topic", null, 0);
+        captureReplyTopics(1);
+
+        this.callService.cancel();
+
+        assertTrue(future.isCancelled());
+        assertEquals(0, this.callService.getPendingCallCount());
+    }
+
+    private List<String> captureReplyTopics(int count) throws KuraException {
+        ArgumentCaptor<String> topics = ArgumentCaptor.forClass(String.class);
+        verify(this.dataService, times(count)).subscribe(topics.capture(), eq(0));
+        return topics.getAllValues();
+    }
+
+    private void reply(String replyTopic, String name) throws Exception {
+        KuraPayload payload = new KuraPayload();
+        payload.addMetric("name", name);
+        byte[] bytes = new CloudPayloadProtoBufEncoderImpl(payload).getBytes();
+
+        String topic = replyTopic.replace("#account-name", "account").replace("#client-id", "client");
+        this.callService.onMessageArrived(topic, bytes, 0, false);
+    }
+}
@@ -2329,6 +2329,119 @@ public class ConfigurationServiceTest {
         d1.delete();
     }
 
+    @Test
+    public void testSaveSnapshotJournal() throws Throwable {
+        // small changes are appended to the journal of the latest full snapshot and replayed when loading
+
+        final String dir = "dirSSJ";
+        File d1 = new File(dir);
+        d1.mkdirs();
+        d1.deleteOnExit();
+
+        ConfigurationServiceImpl cs = new ConfigurationServiceImpl() {
+
+            @Override
+            String getSnapshotsDirectory() {
+                return dir;
+            }
+
+            @Override
+            protected <T> T unmarshal(String xmlString, Class<T> clazz) throws KuraException {
+                XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
+
+                return xmlMarshaller.unmarshal(xmlString, clazz);
+            }
+
+            @Override
+            protected String marshal(Object object) {
+                XmlMarshallUnmarshallImpl xmlMarshaller = new XmlMarshallUnmarshallImpl();
+                try {
+                    return xmlMarshaller.marshal(object);
+                } catch (KuraException e) {
+
+                }
+                return null;
+            }
+        };
+
+        CryptoService cryptoServiceMock = mock(CryptoService.class);
+        cs.setCryptoService(cryptoServiceMock);
+
+        Answer<char[]> identity = invocation -> (char[]) invocation.getArguments()[0];
+        when(cryptoServiceMock.encryptAes((char[]) Matchers.anyObject())).thenAnswer(identity);
+        when(cryptoServiceMock.decryptAes((char[]) Matchers.anyObject())).thenAnswer(identity);
+
+        SystemService systemServiceMock = mock(SystemService.class);
+        cs.setSystemService(systemServiceMock);
+
+        when(systemServiceMock.getKuraSnapshotsCount()).thenReturn(10);
+
+        BundleContext bundleContext = mock(BundleContext.class);
+        TestUtil.setFieldValue(cs, "bundleContext", bundleContext);
+
+        List<ComponentConfiguration> configs = new ArrayList<>();
+        for (String pid : Arrays.asList("pid1", "pid2", "pid3")) {
+            Map<String, Object> props = new HashMap<>();
+            props.put("key", pid);
+            configs.add(new ComponentConfigurationImpl(pid, null, props));
+        }
+
+        Long baseSid = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", configs);
+
+        List<ComponentConfiguration> changedConfigs = new ArrayList<>(configs);
+        Map<String, Object> props = new HashMap<>();
+        props.put("key", "changed");
+        changedConfigs.set(1, new ComponentConfigurationImpl("pid2", null, props));
+
+        Long sid = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", changedConfigs);
+
+        File base = new File(d1, "snapshot_" + baseSid + ".xml");
+        File journal = new File(d1, "snapshot_" + baseSid + ".journal");
+        assertTrue("Expected full snapshot", base.exists());
+        assertFalse("Expected no full snapshot for the change", new File(d1, "snapshot_" + sid + ".xml").exists());
+        assertTrue("Expected journal", journal.exists());
+
+        assertEquals(new TreeSet<>(Arrays.asList(baseSid, sid)), cs.getSnapshots());
+
+        List<ComponentConfiguration> loaded = cs.loadEncryptedSnapshotFileContent(sid).getConfigurations();
+        assertEquals(3, loaded.size());
+        for (ComponentConfiguration config : loaded) {
+            Object expected = "pid2".equals(config.getPid()) ? "changed" : config.getPid();
+            assertEquals(expected, config.getConfigurationProperties().get("key"));
+        }
+
+        List<ComponentConfiguration> loadedBase = cs.loadEncryptedSnapshotFileContent(baseSid).getConfigurations();
+        for (ComponentConfiguration config : loadedBase) {
+            assertEquals(config.getPid(), config.getConfigurationProperties().get("key"));
+        }
+
+        // the cached configurations of the latest snapshot are not modified through the returned ones
+        List<ComponentConfiguration> latest = (List<ComponentConfiguration>) TestUtil.invokePrivate(cs,
+                "loadLatestSnapshotConfigurations");
+        latest.get(1).getConfigurationProperties().put("key", "modified");
+        latest = (List<ComponentConfiguration>) TestUtil.invokePrivate(cs, "loadLatestSnapshotConfigurations");
+        assertEquals("changed", latest.get(1).getConfigurationProperties().get("key"));
+
+        // line breaks in the values survive the journal
+        props = new HashMap<>();
+        props.put("key", "multi\nline\\n");
+        changedConfigs.set(0, new ComponentConfigurationImpl("pid1", null, props));
+        Long multilineSid = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", changedConfigs);
+        assertEquals(new TreeSet<>(Arrays.asList(baseSid, sid, multilineSid)), cs.getSnapshots());
+        loaded = cs.loadEncryptedSnapshotFileContent(multilineSid).getConfigurations();
+        assertEquals("multi\nline\\n", loaded.get(0).getConfigurationProperties().get("key"));
+
+        // removing a component requires a new full snapshot
+        Long fullSid = (Long) TestUtil.invokePrivate(cs, "saveSnapshot", changedConfigs.subList(0, 2));
+        File full = new File(d1, "snapshot_" + fullSid + ".xml");
+        assertTrue("Expected full snapshot", full.exists());
+
+        full.delete();
+        journal.delete();
+        base.delete();
+        d1.delete();
+    }
+
     @Test
     public void testUpdateWithDefaultConfigurationPidsNull() throws Throwable {
         // test null values
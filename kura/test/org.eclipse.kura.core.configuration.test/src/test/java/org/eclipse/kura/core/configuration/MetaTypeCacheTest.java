@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.kura.configuration.metatype.AD;
+import org.eclipse.kura.configuration.metatype.Scalar;
+import org.eclipse.kura.core.configuration.MetaTypeCache.ComponentOCD;
+import org.eclipse.kura.core.configuration.metatype.Tad;
+import org.eclipse.kura.core.configuration.metatype.Ticon;
+import org.eclipse.kura.core.configuration.metatype.Tocd;
+import org.eclipse.kura.core.configuration.metatype.Toption;
+import org.eclipse.kura.core.configuration.metatype.Tscalar;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class MetaTypeCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testSaveAndLoad() throws Exception {
+        File file = new File(this.folder.getRoot(), "metatype.cache");
+        MetaTypeCache cache = new MetaTypeCache(file);
+        cache.put(5, 1000, Arrays.asList(new ComponentOCD("pid", ocd(), true)));
+        cache.save();
+
+        MetaTypeCache loaded = new MetaTypeCache(file);
+        loaded.load();
+
+        assertNull(loaded.get(5, 1001));
+        assertNull(loaded.get(6, 1000));
+
+        List<ComponentOCD> ocds = loaded.get(5, 1000);
+        assertEquals(1, ocds.size());
+        assertEquals("pid", ocds.get(0).getPid());
+        assertTrue(ocds.get(0).isFactory());
+
+        Tocd ocd = ocds.get(0).getOcd();
+        assertEquals("pid", ocd.getId());
+        assertEquals("name", ocd.getName());
+        assertNull(ocd.getDescription());
+        assertEquals("icon.png", ocd.getIcon().get(0).getResource());
+        assertEquals(BigInteger.valueOf(32), ocd.getIcon().get(0).getSize());
+
+        assertEquals(2, ocd.getAD().size());
+        AD ad = ocd.getAD().get(0);
+        assertEquals("ad", ad.getId());
+        assertEquals(Scalar.INTEGER, ad.getType());
+        assertEquals(3, ad.getCardinality());
+        assertEquals("1", ad.getMin());
+        assertNull(ad.getMax());
+        assertEquals("2", ad.getDefault());
+        assertFalse(ad.isRequired());
+        assertEquals("two", ad.getOption().get(0).getLabel());
+        assertEquals("2", ad.getOption().get(0).getValue());
+
+        AD defaults = ocd.getAD().get(1);
+        assertEquals(0, defaults.getCardinality());
+        assertTrue(defaults.isRequired());
+    }
+
+    @Test
+    public void testRetain() throws Exception {
+        File file = new File(this.folder.getRoot(), "metatype.cache");
+        MetaTypeCache cache = new MetaTypeCache(file);
+        cache.put(1, 1, Collections.<ComponentOCD> emptyList());
+        cache.put(2, 1, Collections.<ComponentOCD> emptyList());
+        cache.retain(Arrays.asList(2L));
+        cache.save();
+
+        MetaTypeCache loaded = new MetaTypeCache(file);
+        loaded.load();
+
+        assertEquals(1, loaded.size());
+        assertNull(loaded.get(1, 1));
+        assertTrue(loaded.get(2, 1).isEmpty());
+    }
+
+    @Test
+    public void testCorruptedFileIgnored() throws Exception {
+        File file = new File(this.folder.getRoot(), "metatype.cache");
+        MetaTypeCache cache = new MetaTypeCache(file);
+        cache.put(1, 1, Arrays.asList(new ComponentOCD("pid", ocd(), false)));
+        cache.save();
+
+        byte[] content = Files.readAllBytes(file.toPath());
+        Files.write(file.toPath(), Arrays.copyOf(content, content.length / 2));
+
+        MetaTypeCache loaded = new MetaTypeCache(file);
+        loaded.load();
+
+        assertEquals(0, loaded.size());
+    }
+
+    private static Tocd ocd() {
+        Tocd ocd = new Tocd();
+        ocd.setId("pid");
+        ocd.setName("name");
+
+        Ticon icon = new Ticon();
+        icon.setResource("icon.png");
+        icon.setSize(BigInteger.valueOf(32));
+        ocd.setIcon(icon);
+
+        Tad ad = new Tad();
+        ad.setId("ad");
+        ad.setName("ad name");
+        ad.setType(Tscalar.INTEGER);
+        ad.setCardinality(3);
+        ad.setMin("1");
+        ad.setDefault("2");
+        ad.setRequired(false);
+        Toption option = new Toption();
+        option.setLabel("two");
+        option.setValue("2");
+        ad.setOption(option);
+        ocd.addAD(ad);
+
+        Tad defaults = new Tad();
+        defaults.setId("defaults");
+        defaults.setType(Tscalar.STRING);
+        ocd.addAD(defaults);
+
+        return ocd;
+    }
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.configuration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.eclipse.kura.configuration.ComponentConfiguration;
+import org.eclipse.kura.configuration.Password;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SnapshotJournalTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testAppendAndRead() throws Exception {
+        File journal = new File(this.folder.getRoot(), "snapshot_1.journal");
+
+        SnapshotJournal.append(journal, 2, "first".toCharArray());
+        SnapshotJournal.append(journal, 3, "sec\nond".toCharArray());
+        SnapshotJournal.append(journal, 4, "line\r\nbreak \\n\\".toCharArray());
+
+        TreeMap<Long, String> records = SnapshotJournal.read(journal);
+
+        assertEquals(Arrays.asList(2L, 3L, 4L), Arrays.asList(records.keySet().toArray()));
+        assertEquals("first", records.get(2L));
+        assertEquals("sec\nond", records.get(3L));
+        assertEquals("line\r\nbreak \\n\\", records.get(4L));
+    }
+
+    @Test
+    public void testInterruptedRecordIgnored() throws Exception {
+        File journal = new File(this.folder.getRoot(), "snapshot_1.journal");
+
+        SnapshotJournal.append(journal, 2, "first".toCharArray());
+        try (FileOutputStream fos = new FileOutputStream(journal, true)) {
+            fos.write("3:incompl".getBytes(StandardCharsets.UTF_8));
+        }
+
+        TreeMap<Long, String> records = SnapshotJournal.read(journal);
+
+        assertEquals(1, records.size());
+        assertEquals("first", records.get(2L));
+    }
+
+    @Test
+    public void testReadMissingJournal() throws Exception {
+        assertTrue(SnapshotJournal.read(new File(this.folder.getRoot(), "missing.journal")).isEmpty());
+    }
+
+    @Test
+    public void testDeltaAndApply() {
+        ComponentConfiguration a = config("a", "value", new Password("secret"));
+        ComponentConfiguration b = config("b", "value", new String[] { "x", "y" });
+        ComponentConfiguration sameB = config("b", "value", new String[] { "x", "y" });
+        ComponentConfiguration changedA = config("a", "value", new Password("other"));
+        ComponentConfiguration c = config("c", "value", 1);
+
+        List<ComponentConfiguration> delta = SnapshotJournal.delta(Arrays.asList(a, b),
+                Arrays.asList(changedA, sameB, c));
+
+        assertEquals(Arrays.asList(changedA, c), delta);
+
+        List<ComponentConfiguration> applied = SnapshotJournal.apply(Arrays.asList(a, b), delta);
+
+        assertEquals(3, applied.size());
+        assertSame(changedA, applied.get(0));
+        assertSame(b, applied.get(1));
+        assertSame(c, applied.get(2));
+    }
+
+    @Test
+    public void testDeltaWithRemovedConfiguration() {
+        ComponentConfiguration a = config("a", "value", 1);
+        ComponentConfiguration b = config("b", "value", 1);
+
+        assertNull(SnapshotJournal.delta(Arrays.asList(a, b), Arrays.asList(a)));
+    }
+
+    private static ComponentConfiguration config(String pid, String key, Object value) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(key, value);
+        return new ComponentConfigurationImpl(pid, null, properties);
+    }
+}
@@ -0,0 +1,411 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.deployment.download.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.kura.KuraException;
+import org.eclipse.kura.core.deployment.DownloadStatus;
+import org.eclipse.kura.core.deployment.download.DeploymentPackageDownloadOptions;
+import org.eclipse.kura.core.deployment.download.DownloadFileUtilities;
+import org.eclipse.kura.core.deployment.download.DownloadOptions;
+import org.eclipse.kura.core.deployment.progress.ProgressEvent;
+import org.eclipse.kura.core.deployment.util.HashUtil;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class HttpDownloadCountingOutputStreamTest {
+
+    private static final String ETAG = "\"v1\"";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<ProgressEvent> events = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void testDownload() throws Exception {
+        FakeServer server = new FakeServer(content(10000));
+        File file = new File(this.folder.getRoot(), "dp.dp");
+
+        HttpDownloadCountingOutputStream download = newDownload(server, file, false, 1);
+        download.startWork();
+
+        assertArrayEquals(server.content, Files.readAllBytes(file.toPath()));
+        assertEquals(md5(server.content), download.getContentHash());
+        assertFalse(DownloadFileUtilities.getPartialDownloadFile(file).exists());
+        assertEquals(Arrays.asList((String) null), server.ranges);
+        assertEquals(10000L, (long) download.getTotalBytes());
+        assertEquals(DownloadStatus.COMPLETED.getStatusString(),
+                this.events.get(this.events.size() - 1).getTransferStatus());
+    }
+
+    @Test
+    public void testResumeAfterConnectionDrop() throws Exception {
+        FakeServer server = new FakeServer(content(10000));
+        server.drops = 2;
+        server.dropAfter = 3000;
+        File file = new File(this.folder.getRoot(), "dp.dp");
+
+        HttpDownloadCountingOutputStream download = newDownload(server, file, false, 1);
+        download.startWork();
+
+        assertArrayEquals(server.content, Files.readAllBytes(file.toPath()));
+        assertEquals(md5(server.content), download.getContentHash());
+        assertEquals(Arrays.asList(null, "bytes=3000-", "bytes=6000-"), server.ranges);
+        assertEquals(Arrays.asList(null, ETAG, ETAG), server.ifRanges);
+    }
+
+    @Test
+    public void testRestartWhenRangesNotSupported() throws Exception {
+        FakeServer server = new FakeServer(content(10000));
+        server.supportsRanges = false;
+        server.drops = 1;
+        server.dropAfter = 3000;
+        File file = new File(this.folder.getRoot(), "dp.dp");
+
+        HttpDownloadCountingOutputStream download = newDownload(server, file, false, 1);
+        download.startWork();
+
+        assertArrayEquals(server.content, Files.readAllBytes(file.toPath()));
+        assertEquals(md5(server.content), download.getContentHash());
+        assertEquals(Arrays.asList(null, "bytes=3000-"), server.ranges);
+    }
+
+    @Test
+    public void testResumePartialFile() throws Exception {
+        FakeServer server = new FakeServer(content(10000));
+        File file = new File(this.folder.getRoot(), "dp.dp");
+        Files.write(DownloadFileUtilities.getPartialDownloadFile(file).toPath(),
+                Arrays.copyOf(server.content, 4000));
+        Files.write(DownloadFileUtilities.getPartialDownloadValidatorFile(file).toPath(),
+                ETAG.getBytes(StandardCharsets.UTF_8));
+
+        HttpDownloadCountingOutputStream download = newDownload(server, file, true, 1);
+        download.startWork();
+
+        assertArrayEquals(server.content, Files.readAllBytes(file.toPath()));
+        assertEquals(md5(server.content), download.getContentHash());
+        assertEquals(Arrays.asList("bytes=4000-"), server.ranges);
+        assertEquals(Arrays.asList(ETAG), server.ifRanges);
+        assertFalse(DownloadFileUtilities.getPartialDownloadValidatorFile(file).exists());
+    }
+
+    @Test
+    public void testRestartPartialFileWithoutValidator() throws Exception {
+        FakeServer server = new FakeServer(content(10000));
+        File file = new File(this.folder.getRoot(), "dp.dp");
+        Files.write(DownloadFileUtilities.getPartialDownloadFile(file).toPath(), content(4000));
+
+        HttpDownloadCountingOutputStream download = newDownload(server, file, true, 1);
+        download.startWork();
+
+        assertArrayEquals(server.content, Files.readAllBytes(file.toPath()));
+        assertEquals(Arrays.asList((String) null), server.ranges);
+    }
+
+    @Test
+    public void testRestartWhenContentChanged() throws Exception {
+        FakeServer server = new FakeServer(content(10000));
+        server.etag = "\"v2\"";
+        File file = new File(this.folder.getRoot(), "dp.dp");
+        Files.write(DownloadFileUtilities.getPartialDownloadFile(file).toPath(), content(4000));
+        Files.write(DownloadFileUtilities.getPartialDownloadValidatorFile(file).toPath(),
+                ETAG.getBytes(StandardCharsets.UTF_8));
+
+        HttpDownloadCountingOutputStream download = newDownload(server, file, true, 1);
+        download.startWork();
+
+        assertArrayEquals(server.content, Files.readAllBytes(file.toPath()));
+        assertEquals(md5(server.content), download.getContentHash());
+        assertEquals(Arrays.asList("bytes=4000-"), server.ranges);
+        assertEquals(Arrays.asList(ETAG), server.ifRanges);
+    }
+
+    @Test
+    public void testPartialFileDiscardedWithoutResume() throws Exception {
+        FakeServer server = new FakeServer(content(10000));
+        File file = new File(this.folder.getRoot(), "dp.dp");
+        Files.write(DownloadFileUtilities.getPartialDownloadFile(file).toPath(), content(20000));
+
+        HttpDownloadCountingOutputStream download = newDownload(server, file, false, 1);
+        download.startWork();
+
+        assertArrayEquals(server.content, Files.readAllBytes(file.toPath()));
+        assertEquals(Arrays.asList((String) null), server.ranges);
+    }
+
+    @Test
+    public void testParallelRanges() throws Exception {
+        FakeServer server = new FakeServer(content(3 * 1024 * 1024 + 5));
+        server.drops = 1;
+        server.dropAfter = 100000;
+        File file = new File(this.folder.getRoot(), "dp.dp");
+
+        HttpDownloadCountingOutputStream download = newDownload(server, file, false, 3);
+        download.startWork();
+
+        assertArrayEquals(server.content, Files.readAllBytes(file.toPath()));
+        assertEquals(md5(server.content), download.getContentHash());
+        assertEquals(4, server.ranges.size());
+        assertTrue(server.ranges.contains("bytes=0-1048577"));
+        assertTrue(server.ranges.contains("bytes=2097156-3145732"));
+        assertEquals(1, server.heads);
+    }
+
+    @Test
+    public void testResumeFailedParallelRanges() throws Exception {
+        FakeServer server = new FakeServer(content(3 * 1024 * 1024 + 5));
+        server.failFrom = 2097156;
+        File file = new File(this.folder.getRoot(), "dp.dp");
+        File partialFile = DownloadFileUtilities.getPartialDownloadFile(file);
+
+        try {
+            newDownload(server, file, true, 3).startWork();
+            fail("The download should fail");
+        } catch (KuraException e) {
+            // expected
+        }
+
+        // the partial file is truncated to the ranges completed without gaps
+        assertEquals(2097156, partialFile.length());
+        assertArrayEquals(Arrays.copyOf(server.content, 2097156), Files.readAllBytes(partialFile.toPath()));
+
+        server.failFrom = Integer.MAX_VALUE;
+        server.ranges.clear();
+        server.ifRanges.clear();
+        HttpDownloadCountingOutputStream download = newDownload(server, file, true, 3);
+        download.startWork();
+
+        assertArrayEquals(server.content, Files.readAllBytes(file.toPath()));
+        assertEquals(md5(server.content), download.getContentHash());
+        assertEquals(Arrays.asList("bytes=2097156-"), server.ranges);
+        assertEquals(Arrays.asList(ETAG), server.ifRanges);
+    }
+
+    @Test
+    public void testParseContentRange() {
+        assertArrayEquals(new long[] { 0, 499, 1234 },
+                HttpDownloadCountingOutputStream.parseContentRange("bytes 0-499/1234"));
+        assertArrayEquals(new long[] { 500, 999, -1 },
+                HttpDownloadCountingOutputStream.parseContentRange("bytes 500-999/*"));
+        assertArrayEquals(new long[] { -1, -1, 1234 },
+                HttpDownloadCountingOutputStream.parseContentRange("bytes */1234"));
+        assertNull(HttpDownloadCountingOutputStream.parseContentRange("bytes 0-x/1234"));
+        assertNull(HttpDownloadCountingOutputStream.parseContentRange(null));
+    }
+
+    private HttpDownloadCountingOutputStream newDownload(FakeServer server, File file, boolean resume,
+            int parallelRanges) {
+        DeploymentPackageDownloadOptions options = new DeploymentPackageDownloadOptions("http://localhost/dp.dp",
+                "dp", "1.0.0");
+        options.setJobId(1234L);
+        options.setBlockSize(1000);
+        options.setResume(resume);
+        options.setParallelRanges(parallelRanges);
+
+        DownloadOptions downloadOptions = new DownloadOptions();
+        downloadOptions.setFile(file);
+        downloadOptions.setHashAlgorithm("MD5");
+        downloadOptions.setRequestOptions(options);
+        downloadOptions.setCallback(this.events::add);
+        downloadOptions.setDownloadURL(options.getDeployUri());
+
+        HttpDownloadCountingOutputStream download = new HttpDownloadCountingOutputStream(downloadOptions) {
+
+            @Override
+            protected URLConnection openConnection(URL url) throws IOException {
+                return new FakeConnection(url, server);
+            }
+        };
+        download.setResumeDelay(1);
+        return download;
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    private static String md5(byte[] content) throws Exception {
+        return HashUtil.toHexString(MessageDigest.getInstance("MD5").digest(content));
+    }
+
+    private static final class FakeServer {
+
+        private final byte[] content;
+        private String etag = ETAG;
+        private boolean supportsRanges = true;
+        private int failFrom = Integer.MAX_VALUE;
+        private int drops;
+        private int dropAfter;
+        private int heads;
+        private final List<String> ranges = new ArrayList<>();
+        private final List<String> ifRanges = new ArrayList<>();
+
+        private FakeServer(byte[] content) {
+            this.content = content;
+        }
+
+        private synchronized boolean drop() {
+            return this.drops-- > 0;
+        }
+    }
+
+    private static final class DroppingInputStream extends InputStream {
+
+        private final InputStream in;
+
+        private DroppingInputStream(byte[] body, int length) {
+            this.in = new ByteArrayInputStream(body, 0, Math.min(length, body.length));
+        }
+
+        @Override
+        public int read() throws IOException {
+            return check(this.in.read());
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            return check(this.in.read(b, off, len));
+        }
+
+        private static int check(int result) throws IOException {
+            if (result < 0) {
+                throw new IOException("Connection reset");
+            }
+            return result;
+        }
+    }
+
+    private static final class FakeConnection extends HttpURLConnection {
+
+        private final FakeServer server;
+        private final Map<String, String> headers = new HashMap<>();
+        private int code;
+        private byte[] body;
+
+        private FakeConnection(URL url, FakeServer server) {
+            super(url);
+            this.server = server;
+        }
+
+        @Override
+        public void connect() {
+        }
+
+        @Override
+        public void disconnect() {
+        }
+
+        @Override
+        public boolean usingProxy() {
+            return false;
+        }
+
+        @Override
+        public int getResponseCode() {
+            if (this.code == 0) {
+                respond();
+            }
+            return this.code;
+        }
+
+        @Override
+        public String getResponseMessage() {
+            return "";
+        }
+
+        @Override
+        public String getHeaderField(String name) {
+            getResponseCode();
+            return this.headers.get(name);
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            getResponseCode();
+            return this.body.length;
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            getResponseCode();
+            if (!this.server.drop()) {
+                return new ByteArrayInputStream(this.body);
+            }
+            return new DroppingInputStream(this.body, this.server.dropAfter);
+        }
+
+        private void respond() {
+            final byte[] content = this.server.content;
+            this.headers.put("ETag", this.server.etag);
+            if ("HEAD".equals(getRequestMethod())) {
+                synchronized (this.server) {
+                    this.server.heads++;
+                }
+                this.code = HTTP_OK;
+                this.body = content;
+                if (this.server.supportsRanges) {
+                    this.headers.put("Accept-Ranges", "bytes");
+                }
+                return;
+            }
+
+            final String range = getRequestProperty("Range");
+            final String ifRange = getRequestProperty("If-Range");
+            synchronized (this.server) {
+                this.server.ranges.add(range);
+                this.server.ifRanges.add(ifRange);
+            }
+            if (range == null || !this.server.supportsRanges || ifRange != null && !ifRange.equals(this.server.etag)) {
+                this.code = HTTP_OK;
+                this.body = content;
+                return;
+            }
+
+            final String[] bounds = range.substring("bytes=".length()).split("-", -1);
+            final int start = Integer.parseInt(bounds[0]);
+            final int end = bounds[1].isEmpty() ? content.length - 1 : Integer.parseInt(bounds[1]);
+            if (start >= this.server.failFrom) {
+                this.code = HTTP_UNAVAILABLE;
+                this.body = new byte[0];
+                return;
+            }
+            this.code = HTTP_PARTIAL;
+            this.body = Arrays.copyOfRange(content, start, end + 1);
+            this.headers.put("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        }
+    }
+}
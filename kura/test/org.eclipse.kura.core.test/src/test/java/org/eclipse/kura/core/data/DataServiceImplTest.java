@@ -11,12 +11,16 @@ package org.eclipse.kura.core.data;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyBoolean;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.atMost;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -25,13 +29,17 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.kura.KuraConnectException;
+import org.eclipse.kura.KuraNotConnectedException;
 import org.eclipse.kura.KuraStoreException;
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.data.DataTransportService;
@@ -669,4 +677,99 @@ public class DataServiceImplTest {
         verify(congestionMock, times(1)).schedule((Runnable) anyObject(), eq(100L), eq(TimeUnit.SECONDS));
     }
 
+    @Test
+    public void testPublisherOnlyStoresWhileOffline() throws Throwable {
+        DataServiceImpl svc = new DataServiceImpl();
+
+        svc.setCloudConnectionStatusService(mock(CloudConnectionStatusService.class));
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+
+        ComponentContext ctxMock = mock(ComponentContext.class);
+        TestUtil.setFieldValue(svc, "dataServiceListeners", new DataServiceListenerS(ctxMock));
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("enable.rate.limit", false);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        TestUtil.setFieldValue(svc, "inFlightMsgIds", new ConcurrentHashMap<DataTransportToken, Integer>());
+
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        svc.setDataTransportService(dtsMock);
+
+        DataMessage message = new DataMessage.Builder(1).withTopic("topic").withQos(0).withPriority(5)
+                .withPayload(new byte[0]).build();
+        when(storeMock.store("topic", message.getPayload(), 0, false, 5)).thenReturn(message);
+
+        ExecutorService publisherExecutor = Executors.newSingleThreadExecutor();
+        TestUtil.setFieldValue(svc, "publisherExecutor", publisherExecutor);
+        TestUtil.invokePrivate(svc, "submitPublishingWork");
+
+        try {
+            for (int i = 0; i < 10; i++) {
+                svc.publish("topic", message.getPayload(), 0, false, 5);
+            }
+            Thread.sleep(100);
+
+            // offline: stored messages do not wake up the publisher
+            verify(storeMock, never()).getNextMessage();
+            verify(dtsMock, never()).isConnected();
+
+            when(dtsMock.isConnected()).thenReturn(true);
+            when(storeMock.getNextMessage()).thenReturn(message, (DataMessage) null);
+            svc.onConnectionEstablished(false);
+
+            verify(dtsMock, timeout(1000)).publish("topic", message.getPayload(), 0, false);
+            verify(storeMock, timeout(1000)).published(1);
+        } finally {
+            ((AtomicBoolean) TestUtil.getFieldValue(svc, "publisherEnabled")).set(false);
+            TestUtil.invokePrivate(svc, "signalPublisher");
+            publisherExecutor.shutdown();
+        }
+    }
+
+    @Test
+    public void testPublisherBacksOffWhileReconnecting() throws Throwable {
+        DataServiceImpl svc = new DataServiceImpl();
+
+        svc.setCloudConnectionStatusService(mock(CloudConnectionStatusService.class));
+
+        DataStore storeMock = mock(DataStore.class);
+        TestUtil.setFieldValue(svc, "store", storeMock);
+
+        ComponentContext ctxMock = mock(ComponentContext.class);
+        TestUtil.setFieldValue(svc, "dataServiceListeners", new DataServiceListenerS(ctxMock));
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("enable.rate.limit", false);
+        TestUtil.setFieldValue(svc, "dataServiceOptions", new DataServiceOptions(properties));
+        TestUtil.setFieldValue(svc, "inFlightMsgIds", new ConcurrentHashMap<DataTransportToken, Integer>());
+
+        // the transport still reports to be connected while it fails to publish
+        DataTransportService dtsMock = mock(DataTransportService.class);
+        when(dtsMock.isConnected()).thenReturn(true);
+        when(dtsMock.publish(eq("topic"), (byte[]) anyObject(), anyInt(), anyBoolean()))
+                .thenThrow(new KuraNotConnectedException("reconnecting"));
+        svc.setDataTransportService(dtsMock);
+
+        DataMessage message = new DataMessage.Builder(1).withTopic("topic").withQos(0).withPriority(5)
+                .withPayload(new byte[0]).build();
+        when(storeMock.getNextMessage()).thenReturn(message);
+
+        ExecutorService publisherExecutor = Executors.newSingleThreadExecutor();
+        TestUtil.setFieldValue(svc, "publisherExecutor", publisherExecutor);
+        TestUtil.invokePrivate(svc, "submitPublishingWork");
+
+        try {
+            svc.onConnectionEstablished(false);
+            Thread.sleep(500);
+
+            // the publisher waits before retrying instead of spinning
+            verify(storeMock, atMost(2)).getNextMessage();
+        } finally {
+            ((AtomicBoolean) TestUtil.getFieldValue(svc, "publisherEnabled")).set(false);
+            TestUtil.invokePrivate(svc, "signalPublisher");
+            publisherExecutor.shutdown();
+        }
+    }
 }
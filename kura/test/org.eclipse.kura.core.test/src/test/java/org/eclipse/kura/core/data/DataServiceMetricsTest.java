@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.kura.data.DataTransportToken;
+import org.junit.Test;
+
+public class DataServiceMetricsTest {
+
+    @Test
+    public void testHistogramPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1000000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals((99 * 1000 + 1000000) / 100, histogram.getMean());
+
+        // power of two buckets: within a factor of two of the recorded value
+        long p50 = histogram.getPercentile(50);
+        assertTrue(p50 >= 1000 && p50 < 2048);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(p99 >= 1000 && p99 < 2048);
+        assertEquals(1000000, histogram.getPercentile(100));
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new LatencyHistogram().getPercentile(101);
+    }
+
+    @Test
+    public void testConfirmLatencyOnlyForTrackedMessages() {
+        DataServiceMetrics metrics = new DataServiceMetrics();
+        DataTransportToken token = new DataTransportToken(1, "session");
+
+        metrics.messageStored(System.nanoTime());
+        metrics.messagePublished(token, System.nanoTime());
+        metrics.messageConfirmed(token);
+        // restored from the store or already confirmed: counted, no latency
+        metrics.messageConfirmed(new DataTransportToken(2, "session"));
+        metrics.messageConfirmed(token);
+
+        assertEquals(1, metrics.getStoredCount());
+        assertEquals(1, metrics.getPublishedCount());
+        assertEquals(3, metrics.getConfirmedCount());
+        assertEquals(1, metrics.getConfirmLatency().getCount());
+    }
+
+    @Test
+    public void testInFlightMessagesCleared() {
+        DataServiceMetrics metrics = new DataServiceMetrics();
+        DataTransportToken token = new DataTransportToken(1, "session");
+
+        metrics.messagePublished(token, System.nanoTime());
+        metrics.inFlightMessagesCleared();
+        metrics.messageConfirmed(token);
+
+        assertEquals(0, metrics.getConfirmLatency().getCount());
+    }
+
+    @Test
+    public void testReset() {
+        DataServiceMetrics metrics = new DataServiceMetrics();
+        metrics.messageStored(System.nanoTime());
+        metrics.storeFailed();
+        metrics.publishFailed();
+
+        metrics.reset();
+
+        assertEquals(0, metrics.getStoredCount());
+        assertEquals(0, metrics.getStoreFailureCount());
+        assertEquals(0, metrics.getPublishFailureCount());
+        assertEquals(0, metrics.getStoreLatency().getCount());
+    }
+}
@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.core.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.kura.KuraStoreException;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttAsyncClient;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.MqttPersistable;
+import org.eclipse.paho.client.mqttv3.MqttPersistenceException;
+import org.eclipse.paho.client.mqttv3.internal.wire.MqttPubRel;
+import org.eclipse.paho.client.mqttv3.internal.wire.MqttPublish;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DataStoreMqttClientPersistenceTest {
+
+    private static final String CLIENT_ID = "client";
+    private static final String BROKER_URL = "tcp://localhost:1883";
+    private static final String SESSION_ID = CLIENT_ID + "-" + BROKER_URL;
+
+    private DataStore store;
+    private DataStoreMqttClientPersistence persistence;
+
+    @Before
+    public void setUp() throws MqttPersistenceException {
+        this.store = mock(DataStore.class);
+        this.persistence = new DataStoreMqttClientPersistence(this.store);
+        this.persistence.open(CLIENT_ID, BROKER_URL);
+    }
+
+    @Test
+    public void testPublicationsNotWrittenTwice() throws Exception {
+        MqttPublish publish = new MqttPublish("topic", new MqttMessage("payload".getBytes()));
+        publish.setMessageId(5);
+
+        this.persistence.put("s-5", publish);
+        this.persistence.remove("s-5");
+
+        verifyNoMoreInteractions(this.store);
+    }
+
+    @Test
+    public void testKeysFromStoreInFlightSession() throws Exception {
+        when(this.store.allInFlightMessagesNoPayload()).thenReturn(Arrays.asList(inFlight(1, 10, SESSION_ID),
+                inFlight(2, 11, "other-session"), inFlight(3, 12, SESSION_ID)));
+
+        List<Object> keys = Collections.list(this.persistence.keys());
+
+        assertEquals(Arrays.asList("s-10", "s-12"), keys);
+        assertTrue(this.persistence.containsKey("s-12"));
+        assertFalse(this.persistence.containsKey("s-11"));
+    }
+
+    @Test
+    public void testGetRestoresPublication() throws Exception {
+        when(this.store.allInFlightMessagesNoPayload()).thenReturn(Arrays.asList(inFlight(1, 10, SESSION_ID)));
+        when(this.store.get(1)).thenReturn(new DataMessage.Builder(1).withTopic("a/b").withQos(1).withRetain(true)
+                .withPayload("payload".getBytes()).withPublishedMessageId(10).withSessionId(SESSION_ID).build());
+
+        MqttPersistable persistable = this.persistence.get("s-10");
+
+        MqttPublish publish = (MqttPublish) persistable;
+        assertEquals("a/b", publish.getTopicName());
+        assertEquals(10, publish.getMessageId());
+        assertEquals(1, publish.getMessage().getQos());
+        assertTrue(publish.getMessage().isRetained());
+        assertArrayEquals("payload".getBytes(), publish.getMessage().getPayload());
+    }
+
+    @Test
+    public void testGetUnknownPublication() throws Exception {
+        when(this.store.allInFlightMessagesNoPayload()).thenReturn(new ArrayList<DataMessage>());
+
+        assertNull(this.persistence.get("s-10"));
+        verify(this.store, never()).get(anyInt());
+    }
+
+    @Test
+    public void testOtherStateKeptInMemory() throws Exception {
+        when(this.store.allInFlightMessagesNoPayload()).thenReturn(new ArrayList<DataMessage>());
+
+        MqttPubRel pubRel = new MqttPubRel((byte) 0, new byte[] { 0, 7 });
+        this.persistence.put("sc-7", pubRel);
+
+        assertTrue(this.persistence.containsKey("sc-7"));
+        assertEquals(Arrays.asList("sc-7"), Collections.list(this.persistence.keys()));
+
+        this.persistence.clear();
+        assertFalse(this.persistence.containsKey("sc-7"));
+    }
+
+    @Test(expected = MqttPersistenceException.class)
+    public void testStoreFailure() throws Exception {
+        when(this.store.allInFlightMessagesNoPayload()).thenThrow(new KuraStoreException("failure"));
+
+        this.persistence.keys();
+    }
+
+    @Test
+    public void testClientRestoresPendingDeliveries() throws Exception {
+        when(this.store.allInFlightMessagesNoPayload()).thenReturn(Arrays.asList(inFlight(1, 10, SESSION_ID)));
+        when(this.store.get(1)).thenReturn(new DataMessage.Builder(1).withTopic("a/b").withQos(1)
+                .withPayload("payload".getBytes()).withPublishedMessageId(10).withSessionId(SESSION_ID).build());
+
+        MqttAsyncClient client = new MqttAsyncClient(BROKER_URL, CLIENT_ID,
+                new DataStoreMqttClientPersistence(this.store));
+        // never connected, nothing to close: Paho 1.1.0 fails closing a client that has not connected
+        IMqttDeliveryToken[] tokens = client.getPendingDeliveryTokens();
+
+        assertEquals(1, tokens.length);
+    }
+
+    private static DataMessage inFlight(int id, int publishedMessageId, String sessionId) {
+        return new DataMessage.Builder(id).withTopic("topic").withQos(1).withPublishedMessageId(publishedMessageId)
+                .withSessionId(sessionId).build();
+    }
+}
@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.core.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeFalse;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.eclipse.kura.core.util.ProcessUtil.Priority;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ProcessExecutorTest {
+
+    private ExecutorService callers;
+
+    @Before
+    public void setup() {
+        assumeFalse(System.getProperty("os.name").contains("indows"));
+        this.callers = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        if (this.callers != null) {
+            this.callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testExecAndStatistics() throws IOException {
+        ProcessExecutor executor = new ProcessExecutor(2);
+
+        SafeProcess process = executor.exec(new String[] { "/bin/sh", "-c", "echo out; echo err 1>&2; exit 3" },
+                Priority.NORMAL, 0);
+
+        assertEquals(3, process.exitValue());
+        assertEquals("out\n", IOUtils.toString(process.getInputStream(), StandardCharsets.UTF_8));
+        assertEquals("err\n", IOUtils.toString(process.getErrorStream(), StandardCharsets.UTF_8));
+
+        ProcessStatistics statistics = find(executor, "sh");
+        assertEquals(1, statistics.getExecutions());
+        assertEquals(0, statistics.getFailures());
+        assertEquals(0, statistics.getTimeouts());
+        assertTrue(statistics.getMaxExecutionTime(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    @Test
+    public void testFailure() {
+        ProcessExecutor executor = new ProcessExecutor(1);
+
+        try {
+            executor.exec(new String[] { "/nonexistent/command" }, Priority.NORMAL, 0);
+            fail("Exception expected");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(1, find(executor, "command").getFailures());
+    }
+
+    @Test
+    public void testTimeoutKillsProcess() throws IOException {
+        ProcessExecutor executor = new ProcessExecutor(1);
+
+        long start = System.nanoTime();
+        try {
+            executor.exec(new String[] { "sleep", "10" }, Priority.NORMAL, TimeUnit.MILLISECONDS.toNanos(200));
+            fail("Exception expected");
+        } catch (IOException e) {
+            // expected
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+
+        // the worker is released
+        SafeProcess process = executor.exec(new String[] { "true" }, Priority.NORMAL,
+                TimeUnit.SECONDS.toNanos(5));
+        assertEquals(0, process.exitValue());
+
+        ProcessStatistics statistics = find(executor, "sleep");
+        assertEquals(1, statistics.getTimeouts());
+        assertEquals(1, statistics.getFailures());
+    }
+
+    @Test
+    public void testTimeoutWhileQueued() throws Exception {
+        ProcessExecutor executor = new ProcessExecutor(1);
+
+        Future<SafeProcess> blocker = this.callers
+                .submit(() -> executor.exec(new String[] { "sleep", "1" }, Priority.NORMAL, 0));
+        waitForBusyWorkers(executor, 1);
+
+        try {
+            executor.exec(new String[] { "echo" }, Priority.HIGH, TimeUnit.MILLISECONDS.toNanos(100));
+            fail("Exception expected");
+        } catch (IOException e) {
+            // expected
+        }
+        assertEquals(0, executor.getQueueLength());
+        assertEquals(0, blocker.get(5, TimeUnit.SECONDS).exitValue());
+
+        ProcessStatistics statistics = find(executor, "echo");
+        assertEquals(0, statistics.getExecutions());
+        assertEquals(1, statistics.getTimeouts());
+    }
+
+    @Test
+    public void testPriorityOrder() throws Exception {
+        ProcessExecutor executor = new ProcessExecutor(1);
+        List<String> completed = Collections.synchronizedList(new ArrayList<>());
+
+        Future<?> blocker = this.callers
+                .submit(() -> executor.exec(new String[] { "sleep", "1" }, Priority.NORMAL, 0));
+        waitForBusyWorkers(executor, 1);
+
+        List<Future<?>> results = new ArrayList<>();
+        for (Priority priority : new Priority[] { Priority.LOW, Priority.NORMAL, Priority.HIGH }) {
+            results.add(this.callers.submit(() -> {
+                executor.exec(new String[] { "echo", priority.name() }, priority, 0);
+                completed.add(priority.name());
+                return null;
+            }));
+            waitForQueueLength(executor, results.size());
+        }
+
+        blocker.get(5, TimeUnit.SECONDS);
+        for (Future<?> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(3, completed.size());
+        assertEquals("HIGH", completed.get(0));
+        assertEquals("LOW", completed.get(2));
+    }
+
+    @Test
+    public void testLowPriorityLeavesWorkerFree() throws Exception {
+        ProcessExecutor executor = new ProcessExecutor(2);
+
+        List<Future<SafeProcess>> scans = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            scans.add(this.callers.submit(() -> executor.exec(new String[] { "sleep", "2" }, Priority.LOW, 0)));
+        }
+        waitForBusyWorkers(executor, 1);
+        // the second scan cannot take the last worker
+        Thread.sleep(100);
+        assertEquals(1, executor.getQueueLength());
+
+        long start = System.nanoTime();
+        executor.exec(new String[] { "true" }, Priority.HIGH, TimeUnit.SECONDS.toNanos(5));
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1500));
+
+        for (Future<SafeProcess> scan : scans) {
+            assertEquals(0, scan.get(10, TimeUnit.SECONDS).exitValue());
+        }
+        assertTrue(find(executor, "sleep").getMaxQueueTime(TimeUnit.MILLISECONDS) >= 1000);
+    }
+
+    @Test
+    public void testSingleWorkerSharedWithLowPriority() throws Exception {
+        ProcessExecutor executor = new ProcessExecutor(1);
+
+        Future<SafeProcess> scan = this.callers
+                .submit(() -> executor.exec(new String[] { "sleep", "1" }, Priority.LOW, 0));
+        waitForBusyWorkers(executor, 1);
+
+        // no worker is reserved: the execution waits for the low priority one to complete
+        long start = System.nanoTime();
+        executor.exec(new String[] { "true" }, Priority.HIGH, TimeUnit.SECONDS.toNanos(5));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(0, scan.get().exitValue());
+    }
+
+    private static ProcessStatistics find(ProcessExecutor executor, String command) {
+        for (ProcessStatistics statistics : executor.getStatistics()) {
+            if (command.equals(statistics.getCommand())) {
+                return statistics;
+            }
+        }
+        fail("No statistics for " + command);
+        return null;
+    }
+
+    private static void waitForBusyWorkers(ProcessExecutor executor, int workers) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getBusyWorkers() < workers) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private static void waitForQueueLength(ProcessExecutor executor, int length) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.getQueueLength() < length) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+    }
+}
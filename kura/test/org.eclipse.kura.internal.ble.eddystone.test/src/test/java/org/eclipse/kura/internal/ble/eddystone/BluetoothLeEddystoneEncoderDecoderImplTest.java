@@ -161,6 +161,7 @@ public class BluetoothLeEddystoneEncoderDecoderImplTest {
         BluetoothLeEddystoneDecoderImpl svc = new BluetoothLeEddystoneDecoderImpl();
 
         assertEquals(BluetoothLeEddystone.class, svc.getBeaconType());
+        assertArrayEquals(new int[] { 0x03 }, svc.getAdvertisingDataTypes());
 
         // nothing to check, here
         svc.activate(null);
@@ -36,6 +36,7 @@ public class BluetoothLeIBeaconEncoderDecoderImplTest {
         BluetoothLeIBeaconDecoderImpl svc = new BluetoothLeIBeaconDecoderImpl();
 
         assertEquals(BluetoothLeIBeacon.class, svc.getBeaconType());
+        assertArrayEquals(new int[] { 0xFF }, svc.getAdvertisingDataTypes());
 
         // nothing to check, here
         svc.activate(null);
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.ble.beacon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+public class AdvertisingReportFilterTest {
+
+    private static final ByteBuffer DATA = ByteBuffer.wrap(new byte[] { 0, 1, 2, 3, 4, 5, 1, 2, 3, 9 });
+
+    @Test
+    public void testDuplicates() {
+        AdvertisingReportFilter filter = new AdvertisingReportFilter(1000, 0);
+
+        assertTrue(filter.accept(1, DATA, 1, 3, 0));
+        // the same data, also at a different position of the buffer
+        assertFalse(filter.accept(1, DATA, 1, 3, 500));
+        assertFalse(filter.accept(1, DATA, 6, 3, 999));
+        // another advertiser
+        assertTrue(filter.accept(2, DATA, 1, 3, 500));
+        // changed data
+        assertTrue(filter.accept(1, DATA, 2, 3, 600));
+        assertTrue(filter.accept(1, DATA, 2, 4, 700));
+        assertFalse(filter.accept(1, DATA, 2, 4, 800));
+        // the interval is measured from the last accepted report
+        assertTrue(filter.accept(1, DATA, 2, 4, 1700));
+    }
+
+    @Test
+    public void testMinInterval() {
+        AdvertisingReportFilter filter = new AdvertisingReportFilter(0, 100);
+
+        assertTrue(filter.accept(1, DATA, 0, 3, 0));
+        assertFalse(filter.accept(1, DATA, 3, 3, 50));
+        assertTrue(filter.accept(2, DATA, 3, 3, 50));
+        assertTrue(filter.accept(1, DATA, 0, 3, 100));
+    }
+
+    @Test
+    public void testDisabled() {
+        AdvertisingReportFilter filter = new AdvertisingReportFilter(1000, 100);
+        filter.setIntervals(0, -1);
+
+        assertTrue(filter.accept(1, DATA, 0, 3, 0));
+        assertTrue(filter.accept(1, DATA, 0, 3, 0));
+        assertEquals(0, filter.getAdvertiserCount());
+    }
+
+    @Test
+    public void testAdvertiserEviction() {
+        AdvertisingReportFilter filter = new AdvertisingReportFilter(1000, 0);
+
+        for (int i = 0; i <= AdvertisingReportFilter.MAX_ADVERTISERS; i++) {
+            assertTrue(filter.accept(i, DATA, 0, 3, 0));
+        }
+        assertEquals(AdvertisingReportFilter.MAX_ADVERTISERS, filter.getAdvertiserCount());
+        // the least recently seen advertiser has been forgotten
+        assertTrue(filter.accept(0, DATA, 0, 3, 1));
+        assertFalse(filter.accept(AdvertisingReportFilter.MAX_ADVERTISERS, DATA, 0, 3, 1));
+    }
+
+    @Test
+    public void testAdvertisingDataTypes() {
+        ByteBuffer data = ByteBuffer.wrap(new byte[] { 0x00, 0x02, 0x01, 0x06, 0x03, (byte) 0xFF, 0x4C, 0x00, 0x00 });
+
+        int[] manufacturer = { 0xFF };
+        int[] uuids = { 0x03 };
+        assertTrue(AdvertisingDataTypes.containsAny(data, 1, 7, manufacturer));
+        assertFalse(AdvertisingDataTypes.containsAny(data, 1, 7, uuids));
+        // the structure is outside of the report data
+        assertFalse(AdvertisingDataTypes.containsAny(data, 1, 4, manufacturer));
+        // a zero length structure ends the data
+        assertFalse(AdvertisingDataTypes.containsAny(data, 0, 9, manufacturer));
+        assertTrue(AdvertisingDataTypes.containsAny(data, 0, 0, null));
+    }
+}
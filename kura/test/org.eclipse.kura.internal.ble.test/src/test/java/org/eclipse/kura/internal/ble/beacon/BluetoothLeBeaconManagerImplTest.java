@@ -18,7 +18,14 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -34,6 +41,8 @@ import org.eclipse.kura.bluetooth.le.beacon.BluetoothLeBeaconEncoder;
 import org.eclipse.kura.bluetooth.le.beacon.BluetoothLeBeaconScanner;
 import org.eclipse.kura.bluetooth.le.beacon.listener.BluetoothLeBeaconListener;
 import org.eclipse.kura.core.testutil.TestUtil;
+import org.eclipse.kura.internal.ble.util.BTSnoopParser;
+import org.eclipse.kura.internal.ble.util.BTSnoopParserTest;
 import org.eclipse.kura.internal.ble.util.BluetoothProcess;
 import org.junit.Test;
 import org.osgi.service.component.ComponentContext;
@@ -632,4 +641,110 @@ public class BluetoothLeBeaconManagerImplTest {
 
         assertEquals(0, listeners.size());
     }
+
+    @Test
+    public void testReplayBTSnoopStream() throws Exception {
+        BluetoothLeBeaconManagerImpl svc = new BluetoothLeBeaconManagerImpl() {
+
+            @Override
+            protected BluetoothProcess execBtdump(String interfaceName) throws IOException {
+                return mock(BluetoothProcess.class);
+            }
+
+            @Override
+            protected BluetoothProcess execHcitool(String interfaceName, String... cmd) throws IOException {
+                return mock(BluetoothProcess.class);
+            }
+        };
+        svc.activate(null);
+
+        BluetoothLeAdapter adapter = mock(BluetoothLeAdapter.class);
+        when(adapter.getInterfaceName()).thenReturn("replay");
+        BluetoothLeBeaconDecoder<BluetoothLeBeacon> decoder = new BluetoothLeBeaconDecoder<BluetoothLeBeacon>() {
+
+            @Override
+            public BluetoothLeBeacon decode(byte[] data) {
+                TestBeacon beacon = new TestBeacon();
+                beacon.data = data;
+                return data.length > 1 ? beacon : null;
+            }
+
+            @Override
+            public Class<BluetoothLeBeacon> getBeaconType() {
+                return (Class<BluetoothLeBeacon>) (Class<?>) TestBeacon.class;
+            }
+        };
+
+        List<BluetoothLeBeacon> received = new ArrayList<>();
+        BluetoothLeBeaconScanner<BluetoothLeBeacon> scanner = svc.newBeaconScanner(adapter, decoder);
+        scanner.addBeaconListener(received::add);
+        new Thread(() -> {
+            try {
+                scanner.startBeaconScan(1000);
+            } catch (KuraBluetoothCommandException e) {
+                // won't happen
+            }
+        }).start();
+        while (!scanner.isScanning()) {
+            Thread.sleep(10);
+        }
+
+        byte[] first = { 1, 2, 3, 4, 5, 6 };
+        byte[] second = { 6, 5, 4, 3, 2, 1 };
+        byte[] data = { 2, 1, 6 };
+        byte[] changed = { 2, 1, 4 };
+        Path file = Files.createTempFile("beacons", ".btsnoop");
+        try {
+            Files.write(file, BTSnoopParserTest.btsnoop(advertisement(first, data),
+                    advertisement(first, data), // duplicate
+                    new byte[] { 0x04, 0x0E, 0x04, 0x01, 0x0C, 0x20, 0x00 }, // command complete
+                    advertisement(second, data, first, changed, second, data), // the last report is a duplicate
+                    advertisement(second, new byte[] { 1 }), // not decoded
+                    Arrays.copyOf(advertisement(first, new byte[] { 4, 5, 6 }), 16))); // truncated
+
+            BTSnoopParser parser = new BTSnoopParser();
+            try (InputStream in = Files.newInputStream(file)) {
+                parser.setInputStream(in);
+                ByteBuffer record;
+                while ((record = parser.nextRecord()) != null) {
+                    svc.processBTSnoopRecord(record);
+                }
+            }
+        } finally {
+            Files.delete(file);
+            scanner.stopBeaconScan();
+            svc.deleteBeaconScanner(scanner);
+        }
+
+        assertEquals(3, received.size());
+        assertEquals("06:05:04:03:02:01", received.get(0).getAddress());
+        assertEquals(-60, received.get(0).getRssi());
+        assertArrayEquals(data, ((TestBeacon) received.get(0)).data);
+        assertEquals("01:02:03:04:05:06", received.get(1).getAddress());
+        assertEquals("06:05:04:03:02:01", received.get(2).getAddress());
+        assertArrayEquals(changed, ((TestBeacon) received.get(2)).data);
+    }
+
+    private static byte[] advertisement(byte[]... addressesAndData) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0x04); // HCI event
+        out.write(0x3E); // LE meta event
+        out.write(0); // parameter length, not checked
+        out.write(0x02); // advertising report
+        out.write(addressesAndData.length / 2);
+        for (int i = 0; i < addressesAndData.length; i += 2) {
+            out.write(0x03); // non connectable undirected advertising
+            out.write(0x01); // random address
+            out.write(addressesAndData[i], 0, 6);
+            out.write(addressesAndData[i + 1].length);
+            out.write(addressesAndData[i + 1], 0, addressesAndData[i + 1].length);
+            out.write(-60); // rssi
+        }
+        return out.toByteArray();
+    }
+
+    private static class TestBeacon extends BluetoothLeBeacon {
+
+        private byte[] data;
+    }
 }
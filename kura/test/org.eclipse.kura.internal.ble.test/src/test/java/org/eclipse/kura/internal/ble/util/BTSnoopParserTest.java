@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.ble.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class BTSnoopParserTest {
+
+    @Test
+    public void testNextRecord() throws IOException {
+        byte[] first = { 0x04, 0x3E, 0x00, 0x02 };
+        byte[] second = new byte[300];
+        Arrays.fill(second, (byte) 0x80);
+        byte[] third = { 0x01 };
+
+        BTSnoopParser parser = new BTSnoopParser();
+        parser.setInputStream(new ByteArrayInputStream(btsnoop(first, second, third)));
+
+        ByteBuffer record = parser.nextRecord();
+        assertEquals(ByteBuffer.wrap(first), record);
+
+        // a length with the most significant bit of a byte set is read as unsigned
+        ByteBuffer next = parser.nextRecord();
+        assertEquals(ByteBuffer.wrap(second), next);
+
+        // the buffer is reused
+        assertSame(next, parser.nextRecord());
+        assertEquals(ByteBuffer.wrap(third), next);
+
+        assertNull(parser.nextRecord());
+    }
+
+    @Test
+    public void testReadRecord() throws IOException {
+        byte[] first = { 1, 2, 3 };
+        byte[] second = { 4, 5 };
+
+        BTSnoopParser parser = new BTSnoopParser();
+        parser.setInputStream(new ByteArrayInputStream(btsnoop(first, second)));
+
+        byte[] record = parser.readRecord();
+        assertArrayEquals(first, record);
+        assertArrayEquals(second, parser.readRecord());
+        // the returned arrays are not reused
+        assertArrayEquals(first, record);
+
+        try {
+            parser.readRecord();
+            fail();
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTruncatedRecord() throws IOException {
+        byte[] stream = btsnoop(new byte[] { 1, 2, 3 });
+
+        BTSnoopParser parser = new BTSnoopParser();
+        parser.setInputStream(new ByteArrayInputStream(Arrays.copyOf(stream, stream.length - 1)));
+        try {
+            parser.nextRecord();
+            fail();
+        } catch (EOFException e) {
+            // expected
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidLength() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.write(new byte[16]);
+        data.writeInt(0);
+        data.writeInt(-1);
+        data.write(new byte[16]);
+
+        BTSnoopParser parser = new BTSnoopParser();
+        parser.setInputStream(new ByteArrayInputStream(out.toByteArray()));
+        parser.nextRecord();
+    }
+
+    /**
+     * Builds a btsnoop stream, see RFC 1761 for the format.
+     */
+    public static byte[] btsnoop(byte[]... packets) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(out);
+        data.write("btsnoop\0".getBytes("US-ASCII"));
+        data.writeInt(1); // version
+        data.writeInt(1002); // HCI UART (H4) datalink
+        long timestamp = 0x00E03AB44A676000L;
+        for (byte[] packet : packets) {
+            data.writeInt(packet.length); // original length
+            data.writeInt(packet.length); // included length
+            data.writeInt(3); // received event
+            data.writeInt(0); // cumulative drops
+            data.writeLong(timestamp++);
+            data.write(packet);
+        }
+        return out.toByteArray();
+    }
+}
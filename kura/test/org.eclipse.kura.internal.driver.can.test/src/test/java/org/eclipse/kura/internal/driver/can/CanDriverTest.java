@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.driver.can;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.listener.ChannelEvent;
+import org.eclipse.kura.channel.listener.ChannelListener;
+import org.eclipse.kura.protocol.can.CanConnectionService;
+import org.eclipse.kura.protocol.can.CanFilter;
+import org.eclipse.kura.protocol.can.CanMessage;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValues;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class CanDriverTest {
+
+    private CanDriver driver;
+    private CanConnectionService service;
+
+    @Before
+    public void setUp() {
+        this.service = mock(CanConnectionService.class);
+        this.driver = new CanDriver();
+        this.driver.setCanConnectionService(this.service);
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("interface.name", "vcan0");
+        this.driver.activate(null, properties);
+    }
+
+    @Test
+    public void testRead() throws Exception {
+        ChannelRecord speed = record("speed", DataType.INTEGER, 0x123, "UINT16_LE", 0, 0, 0);
+        ChannelRecord gear = record("gear", DataType.INTEGER, 0x123, "INT8", 2, 0, 0);
+        ChannelRecord brake = record("brake", DataType.BOOLEAN, 0x123, "BOOL", 3, 0, 1);
+        ChannelRecord raw = record("raw", DataType.BYTE_ARRAY, 0x456, "BYTE_ARRAY", 1, 2, 0);
+        List<ChannelRecord> records = Arrays.asList(speed, gear, brake, raw);
+
+        // no frame received yet
+        this.driver.read(records);
+        for (ChannelRecord record : records) {
+            assertEquals(ChannelFlag.FAILURE, record.getChannelStatus().getChannelFlag());
+        }
+        verify(this.service).connectCanSocket();
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        ArgumentCaptor<List<CanFilter>> filters = ArgumentCaptor.forClass((Class) List.class);
+        verify(this.service, times(2)).addCanMessageListener(eq(this.driver), filters.capture());
+        assertTrue(filters.getValue().contains(CanFilter.forId(0x123)));
+        assertTrue(filters.getValue().contains(CanFilter.forId(0x456)));
+
+        this.driver.onCanMessages(Arrays.asList(message(0x123, 0x34, 0x12, 0xFE, 0x02), message(0x456, 1, 2, 3)));
+        this.driver.read(records);
+        for (ChannelRecord record : records) {
+            assertEquals(ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+        }
+        assertEquals(TypedValues.newIntegerValue(0x1234), speed.getValue());
+        assertEquals(TypedValues.newIntegerValue(-2), gear.getValue());
+        assertEquals(TypedValues.newBooleanValue(true), brake.getValue());
+        assertArrayEquals(new byte[] { 2, 3 }, (byte[]) raw.getValue().getValue());
+    }
+
+    @Test
+    public void testShortFrame() throws Exception {
+        ChannelRecord value = record("value", DataType.LONG, 0x10, "UINT32_BE", 2, 0, 0);
+        this.driver.onCanMessages(Collections.singletonList(message(0x10, 1, 2, 3)));
+        this.driver.read(Collections.singletonList(value));
+        assertEquals(ChannelFlag.FAILURE, value.getChannelStatus().getChannelFlag());
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        this.driver.onCanMessages(Collections.singletonList(message(0x200, 1, 2, 3, 4)));
+
+        ChannelRecord value = record("value", DataType.INTEGER, 0x200, "UINT16_BE", 1, 0, 0);
+        value.setValue(TypedValues.newIntegerValue(0xABCD));
+        ChannelRecord flag = record("flag", DataType.BOOLEAN, 0x200, "BOOL", 3, 0, 7);
+        flag.setValue(TypedValues.newBooleanValue(true));
+        this.driver.write(Arrays.asList(value, flag));
+
+        assertEquals(ChannelFlag.SUCCESS, value.getChannelStatus().getChannelFlag());
+        assertEquals(ChannelFlag.SUCCESS, flag.getChannelStatus().getChannelFlag());
+        ArgumentCaptor<byte[]> payload = ArgumentCaptor.forClass(byte[].class);
+        verify(this.service, atLeastOnce()).sendCanMessage(eq("vcan0"), eq(0x200), payload.capture());
+        // the unchanged bytes come from the last received frame
+        assertArrayEquals(new byte[] { 1, (byte) 0xAB, (byte) 0xCD, (byte) 0x84 }, payload.getValue());
+        assertArrayEquals(payload.getValue(), this.driver.getLastFrame(0x200).getData());
+    }
+
+    @Test
+    public void testChannelListener() throws Exception {
+        BlockingQueue<ChannelEvent> events = new LinkedBlockingQueue<>();
+        Map<String, Object> config = record("rpm", DataType.INTEGER, 0x300, "UINT16_BE", 0, 0, 0).getChannelConfig();
+        ChannelListener listener = events::add;
+        this.driver.registerChannelListener(config, listener);
+
+        // only the last frame of a batch is reported
+        this.driver.onCanMessages(
+                Arrays.asList(message(0x300, 0, 1), message(0x301, 0, 2), withTimestamp(message(0x300, 0, 3), 1234)));
+        ChannelEvent event = events.poll(5, TimeUnit.SECONDS);
+        ChannelRecord record = event.getChannelRecord();
+        assertEquals("rpm", record.getChannelName());
+        assertEquals(TypedValues.newIntegerValue(3), record.getValue());
+        assertEquals(1234, record.getTimestamp());
+
+        this.driver.unregisterChannelListener(listener);
+        this.driver.onCanMessages(Collections.singletonList(message(0x300, 0, 4)));
+        assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSlowChannelListener() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BlockingQueue<ChannelEvent> events = new LinkedBlockingQueue<>();
+        Map<String, Object> config = record("rpm", DataType.INTEGER, 0x300, "UINT16_BE", 0, 0, 0).getChannelConfig();
+        this.driver.registerChannelListener(config, event -> {
+            events.add(event);
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        // the listener does not hold the dispatching thread, the frames received meanwhile are coalesced
+        this.driver.onCanMessages(Collections.singletonList(message(0x300, 0, 1)));
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        this.driver.onCanMessages(Collections.singletonList(message(0x300, 0, 2)));
+        this.driver.onCanMessages(Collections.singletonList(message(0x300, 0, 3)));
+        release.countDown();
+
+        assertEquals(TypedValues.newIntegerValue(1), events.poll(5, TimeUnit.SECONDS).getChannelRecord().getValue());
+        assertEquals(TypedValues.newIntegerValue(3), events.poll(5, TimeUnit.SECONDS).getChannelRecord().getValue());
+        assertNull(events.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testUnregisterChannelListenerNarrowsFilters() throws Exception {
+        ChannelListener rpm = event -> {
+        };
+        ChannelListener temp = event -> {
+        };
+        this.driver.registerChannelListener(
+                record("rpm", DataType.INTEGER, 0x300, "UINT16_BE", 0, 0, 0).getChannelConfig(), rpm);
+        this.driver.registerChannelListener(
+                record("temp", DataType.INTEGER, 0x310, "INT8", 0, 0, 0).getChannelConfig(), temp);
+
+        this.driver.unregisterChannelListener(rpm);
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        ArgumentCaptor<List<CanFilter>> filters = ArgumentCaptor.forClass((Class) List.class);
+        verify(this.service, times(3)).addCanMessageListener(eq(this.driver), filters.capture());
+        assertEquals(Collections.singletonList(CanFilter.forId(0x310)), filters.getValue());
+        verify(this.service, never()).removeCanMessageListener(this.driver);
+
+        this.driver.unregisterChannelListener(temp);
+        verify(this.service).removeCanMessageListener(this.driver);
+    }
+
+    private static ChannelRecord record(String name, DataType type, int canId, String canDataType, int offset,
+            int byteCount, int bitIndex) {
+        ChannelRecord record = ChannelRecord.createReadRecord(name, type);
+        Map<String, Object> config = new HashMap<>();
+        config.put("+name", name);
+        config.put("+value.type", type.name());
+        config.put(CanChannelDescriptor.CAN_ID_ID, canId);
+        config.put(CanChannelDescriptor.CAN_DATA_TYPE_ID, canDataType);
+        config.put(CanChannelDescriptor.OFFSET_ID, offset);
+        config.put(CanChannelDescriptor.BYTE_COUNT_ID, byteCount);
+        config.put(CanChannelDescriptor.BIT_INDEX_ID, bitIndex);
+        record.setChannelConfig(config);
+        return record;
+    }
+
+    private static CanMessage message(int canId, int... data) {
+        CanMessage message = new CanMessage();
+        message.setCanId(canId);
+        byte[] bytes = new byte[data.length];
+        for (int i = 0; i < data.length; i++) {
+            bytes[i] = (byte) data[i];
+        }
+        message.setData(bytes);
+        message.setTimestamp(System.currentTimeMillis());
+        return message;
+    }
+
+    private static CanMessage withTimestamp(CanMessage message, long timestamp) {
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.driver.gpio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.channel.ChannelFlag;
+import org.eclipse.kura.channel.ChannelRecord;
+import org.eclipse.kura.channel.listener.ChannelEvent;
+import org.eclipse.kura.channel.listener.ChannelListener;
+import org.eclipse.kura.gpio.GPIOService;
+import org.eclipse.kura.gpio.KuraGPIODirection;
+import org.eclipse.kura.gpio.KuraGPIOMode;
+import org.eclipse.kura.gpio.KuraGPIOPin;
+import org.eclipse.kura.gpio.KuraGPIOTrigger;
+import org.eclipse.kura.gpio.PinStatusListener;
+import org.eclipse.kura.type.DataType;
+import org.eclipse.kura.type.TypedValues;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class GPIODriverTest {
+
+    private GPIODriver driver;
+    private KuraGPIOPin pin;
+
+    @Before
+    public void setUp() {
+        this.pin = mock(KuraGPIOPin.class);
+        when(this.pin.getName()).thenReturn("in");
+        when(this.pin.isOpen()).thenReturn(true);
+        GPIOService service = mock(GPIOService.class);
+        when(service.getPinByName(eq("in"), any(KuraGPIODirection.class), any(KuraGPIOMode.class),
+                any(KuraGPIOTrigger.class))).thenReturn(this.pin);
+
+        this.driver = new GPIODriver();
+        this.driver.bindGPIOService(service);
+        this.driver.activate(Collections.emptyMap());
+    }
+
+    @After
+    public void tearDown() {
+        this.driver.deactivate();
+    }
+
+    @Test
+    public void testImmediateEvents() throws Exception {
+        BlockingQueue<ChannelEvent> events = new ArrayBlockingQueue<>(10);
+        ChannelListener listener = events::add;
+        this.driver.registerChannelListener(channelConfig("state", "BOOLEAN", "STATE", 0, 0), listener);
+        PinStatusListener pinListener = getPinListener();
+
+        pinListener.pinStatusChange(true);
+        pinListener.pinStatusChange(false);
+        assertEquals(2, events.size());
+        assertEquals(TypedValues.newBooleanValue(true), events.poll().getChannelRecord().getValue());
+        ChannelRecord record = events.poll().getChannelRecord();
+        assertEquals("state", record.getChannelName());
+        assertEquals(TypedValues.newBooleanValue(false), record.getValue());
+        assertEquals(ChannelFlag.SUCCESS, record.getChannelStatus().getChannelFlag());
+
+        this.driver.unregisterChannelListener(listener);
+        verify(this.pin).removePinStatusListener(pinListener);
+        pinListener.pinStatusChange(true);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testCoalescedEvents() throws Exception {
+        BlockingQueue<ChannelEvent> events = new ArrayBlockingQueue<>(10);
+        this.driver.registerChannelListener(channelConfig("pulses", "LONG", "PULSE_COUNTER", 0, 200), events::add);
+        this.driver.registerChannelListener(channelConfig("state", "INTEGER", "STATE", 0, 200), events::add);
+        // both channels share the same pin listener
+        PinStatusListener pinListener = getPinListener();
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 1000; i++) {
+            pinListener.pinStatusChange(i % 2 == 0);
+        }
+
+        ChannelEvent first = events.poll(5, TimeUnit.SECONDS);
+        ChannelEvent second = events.poll(5, TimeUnit.SECONDS);
+        ChannelRecord pulses = first.getChannelRecord().getChannelName().equals("pulses") ? first.getChannelRecord()
+                : second.getChannelRecord();
+        ChannelRecord state = first.getChannelRecord().getChannelName().equals("state") ? first.getChannelRecord()
+                : second.getChannelRecord();
+        assertEquals(TypedValues.newLongValue(1000), pulses.getValue());
+        assertEquals(TypedValues.newIntegerValue(0), state.getValue());
+        assertTrue(pulses.getTimestamp() >= start);
+
+        // no event is sent without new edges
+        assertNull(events.poll(400, TimeUnit.MILLISECONDS));
+
+        pinListener.pinStatusChange(true);
+        assertNotNull(events.poll(5, TimeUnit.SECONDS));
+        assertNotNull(events.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testDebouncedState() throws Exception {
+        BlockingQueue<ChannelEvent> events = new ArrayBlockingQueue<>(10);
+        this.driver.registerChannelListener(channelConfig("state", "BOOLEAN", "STATE", 100, 0), events::add);
+        PinStatusListener pinListener = getPinListener();
+
+        // the state is reported at the end of the debounce interval
+        pinListener.pinStatusChange(true);
+        pinListener.pinStatusChange(false);
+        pinListener.pinStatusChange(true);
+        ChannelEvent event = events.poll(5, TimeUnit.SECONDS);
+        assertEquals(TypedValues.newBooleanValue(true), event.getChannelRecord().getValue());
+        assertNull(events.poll(300, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPulseCounterRead() throws Exception {
+        Map<String, Object> config = channelConfig("pulses", "LONG", "PULSE_COUNTER", 0, 0);
+        ChannelRecord record = ChannelRecord.createReadRecord("pulses", DataType.LONG);
+        record.setChannelConfig(config);
+
+        // the first read starts counting
+        this.driver.read(Collections.singletonList(record));
+        assertEquals(TypedValues.newLongValue(0), record.getValue());
+
+        PinStatusListener pinListener = getPinListener();
+        for (int i = 0; i < 5; i++) {
+            pinListener.pinStatusChange(true);
+        }
+        this.driver.read(Collections.singletonList(record));
+        assertEquals(TypedValues.newLongValue(5), record.getValue());
+        // the pin is not read
+        verify(this.pin, times(0)).getValue();
+
+        // a channel listener on the same pin uses the same counter, which survives the listener
+        ChannelListener listener = event -> {
+        };
+        this.driver.registerChannelListener(config, listener);
+        this.driver.unregisterChannelListener(listener);
+        pinListener.pinStatusChange(true);
+        this.driver.read(Collections.singletonList(record));
+        assertEquals(TypedValues.newLongValue(6), record.getValue());
+        verify(this.pin, times(1)).addPinStatusListener(any(PinStatusListener.class));
+    }
+
+    @Test
+    public void testPulseCounterWithoutTrigger() throws Exception {
+        Map<String, Object> config = channelConfig("pulses", "LONG", "PULSE_COUNTER", 0, 0);
+        config.put("resource.trigger", "NONE");
+        ChannelRecord record = ChannelRecord.createReadRecord("pulses", DataType.LONG);
+        record.setChannelConfig(config);
+
+        this.driver.read(Collections.singletonList(record));
+        assertEquals(ChannelFlag.FAILURE, record.getChannelStatus().getChannelFlag());
+
+        this.driver.registerChannelListener(config, event -> {
+        });
+        verify(this.pin, times(0)).addPinStatusListener(any(PinStatusListener.class));
+    }
+
+    @Test
+    public void testReadDoesNotLockDriver() throws Exception {
+        when(this.pin.getValue()).thenReturn(true);
+        ChannelRecord record = ChannelRecord.createReadRecord("state", DataType.BOOLEAN);
+        record.setChannelConfig(channelConfig("state", "BOOLEAN", "STATE", 0, 0));
+
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            synchronized (this.driver) {
+                locked.countDown();
+                try {
+                    done.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        holder.start();
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        this.driver.read(Collections.singletonList(record));
+        done.countDown();
+        holder.join();
+        assertEquals(TypedValues.newBooleanValue(true), record.getValue());
+    }
+
+    private PinStatusListener getPinListener() throws Exception {
+        ArgumentCaptor<PinStatusListener> captor = ArgumentCaptor.forClass(PinStatusListener.class);
+        verify(this.pin).addPinStatusListener(captor.capture());
+        return captor.getValue();
+    }
+
+    private static Map<String, Object> channelConfig(String name, String valueType, String function, int debounce,
+            int window) {
+        Map<String, Object> config = new HashMap<>();
+        config.put("+name", name);
+        config.put("+value.type", valueType);
+        config.put("resource.name", "in");
+        config.put("resource.direction", "INPUT");
+        config.put("resource.trigger", "BOTH_EDGES");
+        config.put("resource.function", function);
+        config.put("resource.debounce", debounce);
+        config.put("resource.coalescing.window", window);
+        return config;
+    }
+}
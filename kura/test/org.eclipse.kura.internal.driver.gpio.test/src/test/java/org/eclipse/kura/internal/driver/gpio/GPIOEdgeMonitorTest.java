@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.driver.gpio;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.kura.gpio.KuraGPIOPin;
+import org.junit.Test;
+
+public class GPIOEdgeMonitorTest {
+
+    @Test
+    public void testDebounce() {
+        AtomicLong now = new AtomicLong();
+        GPIOEdgeMonitor monitor = new GPIOEdgeMonitor(mock(KuraGPIOPin.class), 5, now::get);
+        AtomicInteger notifications = new AtomicInteger();
+        monitor.addEdgeListener(m -> notifications.incrementAndGet());
+
+        monitor.pinStatusChange(true);
+        assertEquals(1, monitor.getEdgeCount());
+        assertTrue(monitor.getValue());
+        long timestamp = monitor.getLastEdgeTimestamp();
+        assertTrue(timestamp > 0);
+
+        // bounces update the value only
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        monitor.pinStatusChange(false);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        monitor.pinStatusChange(true);
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(2));
+        monitor.pinStatusChange(false);
+        assertEquals(1, monitor.getEdgeCount());
+        assertFalse(monitor.getValue());
+        assertEquals(1, notifications.get());
+
+        // the debounce interval starts from the last counted edge
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        monitor.pinStatusChange(true);
+        assertEquals(2, monitor.getEdgeCount());
+        assertEquals(2, notifications.get());
+        assertTrue(monitor.getLastEdgeTimestamp() >= timestamp);
+    }
+
+    @Test
+    public void testNoDebounce() {
+        GPIOEdgeMonitor monitor = new GPIOEdgeMonitor(mock(KuraGPIOPin.class), 0, () -> 0);
+        for (int i = 0; i < 1000; i++) {
+            monitor.pinStatusChange(i % 2 == 0);
+        }
+        assertEquals(1000, monitor.getEdgeCount());
+        assertFalse(monitor.getValue());
+    }
+
+    @Test
+    public void testListeners() {
+        GPIOEdgeMonitor monitor = new GPIOEdgeMonitor(mock(KuraGPIOPin.class), 0);
+        AtomicInteger notifications = new AtomicInteger();
+        GPIOEdgeMonitor.EdgeListener failing = m -> {
+            throw new IllegalStateException();
+        };
+        GPIOEdgeMonitor.EdgeListener counting = m -> notifications.incrementAndGet();
+        monitor.addEdgeListener(failing);
+        monitor.addEdgeListener(counting);
+        assertTrue(monitor.hasEdgeListeners());
+
+        // a failing listener does not prevent the others from being notified
+        monitor.pinStatusChange(true);
+        assertEquals(1, notifications.get());
+
+        monitor.removeEdgeListener(failing);
+        monitor.removeEdgeListener(counting);
+        assertFalse(monitor.hasEdgeListeners());
+        monitor.pinStatusChange(false);
+        assertEquals(1, notifications.get());
+        assertEquals(2, monitor.getEdgeCount());
+    }
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.protocol.can;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class CanFilterTest {
+
+    @Test
+    public void testMatches() {
+        CanFilter filter = new CanFilter(0x120, 0x7F0);
+        assertTrue(filter.matches(0x120));
+        assertTrue(filter.matches(0x12F));
+        assertFalse(filter.matches(0x130));
+
+        assertTrue(CanFilter.forId(0x18FEF100).matches(0x18FEF100));
+        assertFalse(CanFilter.forId(0x18FEF100).matches(0x18FEF101));
+        assertTrue(CanFilter.ACCEPT_ALL.matches(0x7FF));
+    }
+
+    @Test
+    public void testMerge() {
+        assertEquals(CanFilter.ACCEPT_ALL, CanFilter.merge(Collections.<CanFilter> emptyList()));
+        assertEquals(CanFilter.forId(0x100), CanFilter.merge(Collections.singletonList(CanFilter.forId(0x100))));
+
+        List<CanFilter> filters = Arrays.asList(CanFilter.forId(0x100), CanFilter.forId(0x101),
+                new CanFilter(0x104, 0x7FC));
+        CanFilter merged = CanFilter.merge(filters);
+        assertEquals(new CanFilter(0x100, 0x7F8), merged);
+
+        // the merged filter matches every frame matched by one of the filters
+        for (int id = 0; id < 0x800; id++) {
+            for (CanFilter filter : filters) {
+                if (filter.matches(id)) {
+                    assertTrue(merged.matches(id));
+                }
+            }
+        }
+        assertFalse(merged.matches(0x108));
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.protocol.can;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CanFrameRingBufferTest {
+
+    @Test
+    public void testCapacity() {
+        assertEquals(1, new CanFrameRingBuffer(1).getCapacity());
+        assertEquals(4, new CanFrameRingBuffer(3).getCapacity());
+        assertEquals(4096, new CanFrameRingBuffer(4096).getCapacity());
+    }
+
+    @Test
+    public void testOfferAndDrain() {
+        CanFrameRingBuffer buffer = new CanFrameRingBuffer(4);
+        List<CanMessage> messages = new ArrayList<>();
+
+        // the frames wrap around the end of the arrays several times
+        for (int i = 0; i < 10; i++) {
+            assertTrue(buffer.offer(i, new byte[] { (byte) i, 2 }, 1000 + i));
+            assertTrue(buffer.offer(0x100 + i, new byte[0], 2000 + i));
+            assertEquals(2, buffer.size());
+            assertEquals(2, buffer.drain((canId, data, offset, length, timestamp) -> messages
+                    .add(message(canId, Arrays.copyOfRange(data, offset, offset + length), timestamp)), 10));
+            assertTrue(buffer.isEmpty());
+        }
+
+        assertEquals(20, messages.size());
+        assertEquals(9, messages.get(18).getCanId());
+        assertArrayEquals(new byte[] { 9, 2 }, messages.get(18).getData());
+        assertEquals(1009, messages.get(18).getTimestamp());
+        assertEquals(0x109, messages.get(19).getCanId());
+        assertEquals(0, messages.get(19).getData().length);
+    }
+
+    @Test
+    public void testFullBuffer() {
+        CanFrameRingBuffer buffer = new CanFrameRingBuffer(2);
+        assertTrue(buffer.offer(1, new byte[] { 1 }, 0));
+        assertTrue(buffer.offer(2, new byte[] { 2 }, 0));
+        assertFalse(buffer.offer(3, new byte[] { 3 }, 0));
+        assertEquals(1, buffer.getDroppedFrames());
+
+        // partial drain
+        List<Integer> ids = new ArrayList<>();
+        assertEquals(1, buffer.drain((canId, data, offset, length, timestamp) -> ids.add(canId), 1));
+        assertTrue(buffer.offer(4, new byte[] { 4, 4, 4, 4, 4, 4, 4, 4, 4 }, 0));
+        assertEquals(2, buffer.drain((canId, data, offset, length, timestamp) -> {
+            ids.add(canId);
+            // the payload is truncated to the maximum CAN frame length
+            assertTrue(length <= CanFrameRingBuffer.MAX_DATA_LENGTH);
+        }, 10));
+        assertEquals(Arrays.asList(1, 2, 4), ids);
+    }
+
+    @Test
+    public void testAwait() throws Exception {
+        CanFrameRingBuffer buffer = new CanFrameRingBuffer(16);
+        assertFalse(buffer.await(10, TimeUnit.MILLISECONDS));
+
+        Thread producer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            buffer.offer(1, new byte[] { 1 }, 0);
+        });
+        producer.start();
+        assertTrue(buffer.await(5, TimeUnit.SECONDS));
+        producer.join();
+    }
+
+    private static CanMessage message(int canId, byte[] data, long timestamp) {
+        CanMessage message = new CanMessage();
+        message.setCanId(canId);
+        message.setData(data);
+        message.setTimestamp(timestamp);
+        return message;
+    }
+}
@@ -0,0 +1,119 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.protocol.can;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class CanMessageDispatcherTest {
+
+    @Test
+    public void testBatchDelivery() {
+        CanMessageDispatcher dispatcher = new CanMessageDispatcher(64, 4);
+        List<List<Integer>> allBatches = new ArrayList<>();
+        List<List<Integer>> filteredBatches = new ArrayList<>();
+        dispatcher.addListener(messages -> allBatches.add(ids(messages)), Collections.<CanFilter> emptyList());
+        dispatcher.addListener(messages -> filteredBatches.add(ids(messages)),
+                Arrays.asList(CanFilter.forId(2), CanFilter.forId(5)));
+
+        CanFrameRingBuffer buffer = new CanFrameRingBuffer(64);
+        for (int i = 0; i < 6; i++) {
+            buffer.offer(i, new byte[] { (byte) i }, i);
+        }
+
+        List<CanMessage> batch = new ArrayList<>();
+        assertEquals(4, dispatcher.dispatch(buffer, batch));
+        assertEquals(2, dispatcher.dispatch(buffer, batch));
+        assertEquals(0, dispatcher.dispatch(buffer, batch));
+
+        assertEquals(Arrays.asList(Arrays.asList(0, 1, 2, 3), Arrays.asList(4, 5)), allBatches);
+        assertEquals(Arrays.asList(Arrays.asList(2), Arrays.asList(5)), filteredBatches);
+    }
+
+    @Test
+    public void testFailingListener() {
+        CanMessageDispatcher dispatcher = new CanMessageDispatcher(64, 64);
+        List<CanMessage> received = new ArrayList<>();
+        dispatcher.addListener(messages -> {
+            throw new IllegalStateException();
+        }, null);
+        dispatcher.addListener(received::addAll, null);
+
+        CanFrameRingBuffer buffer = new CanFrameRingBuffer(64);
+        buffer.offer(0x10, new byte[] { 1, 2, 3 }, 42);
+        dispatcher.dispatch(buffer, new ArrayList<>());
+
+        assertEquals(1, received.size());
+        assertEquals(0x10, received.get(0).getCanId());
+        assertArrayEquals(new byte[] { 1, 2, 3 }, received.get(0).getData());
+        assertEquals(42, received.get(0).getTimestamp());
+    }
+
+    @Test
+    public void testSocketFilter() {
+        CanMessageDispatcher dispatcher = new CanMessageDispatcher(64, 64);
+        CanMessageListener first = messages -> {
+        };
+        CanMessageListener second = messages -> {
+        };
+        dispatcher.addListener(first, Collections.singletonList(CanFilter.forId(0x100)));
+        assertEquals(CanFilter.forId(0x100), dispatcher.getSocketFilter());
+
+        dispatcher.addListener(second, Collections.singletonList(CanFilter.forId(0x101)));
+        assertEquals(new CanFilter(0x100, CanFilter.CAN_EFF_MASK & ~1), dispatcher.getSocketFilter());
+
+        // replaces the filters of the listener
+        dispatcher.addListener(second, Collections.<CanFilter> emptyList());
+        assertEquals(CanFilter.ACCEPT_ALL, dispatcher.getSocketFilter());
+
+        assertTrue(dispatcher.removeListener(second));
+        assertEquals(CanFilter.forId(0x100), dispatcher.getSocketFilter());
+    }
+
+    @Test
+    public void testDispatcherThread() throws Exception {
+        CanMessageDispatcher dispatcher = new CanMessageDispatcher(1024, 256);
+        BlockingQueue<CanMessage> received = new ArrayBlockingQueue<>(1000);
+        dispatcher.addListener(received::addAll, null);
+
+        CanFrameRingBuffer buffer = dispatcher.start();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                while (!buffer.offer(i, new byte[] { (byte) i }, i)) {
+                    Thread.yield();
+                }
+            }
+            for (int i = 0; i < 1000; i++) {
+                CanMessage message = received.poll(5, TimeUnit.SECONDS);
+                assertEquals(i, message.getCanId());
+            }
+        } finally {
+            dispatcher.stop();
+        }
+    }
+
+    private static List<Integer> ids(List<CanMessage> messages) {
+        List<Integer> ids = new ArrayList<>();
+        for (CanMessage message : messages) {
+            ids.add(message.getCanId());
+        }
+        return ids;
+    }
+}
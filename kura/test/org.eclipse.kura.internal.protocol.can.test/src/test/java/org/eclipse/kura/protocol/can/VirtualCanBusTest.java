@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.protocol.can;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.entropia.can.CanSocket;
+import de.entropia.can.CanSocket.CanFrame;
+import de.entropia.can.CanSocket.CanId;
+import de.entropia.can.CanSocket.CanInterface;
+import de.entropia.can.CanSocket.Mode;
+
+/**
+ * Runs the {@link CanConnectionServiceImpl} against a virtual CAN interface, the tests are skipped if it is not
+ * available. The interface can be created with:
+ *
+ * <pre>
+ * modprobe vcan
+ * ip link add dev vcan0 type vcan
+ * ip link set up vcan0
+ * </pre>
+ */
+public class VirtualCanBusTest {
+
+    private static final String INTERFACE_NAME = "vcan0";
+
+    private CanConnectionServiceImpl service;
+    private CanSocket sender;
+    private CanInterface senderInterface;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(new File("/sys/class/net/" + INTERFACE_NAME).exists());
+
+        this.service = new CanConnectionServiceImpl();
+        this.service.activate();
+        try {
+            this.service.connectCanSocket();
+            // the service disables the loopback of its socket, the frames are sent with a separate socket
+            this.sender = new CanSocket(Mode.RAW);
+            this.senderInterface = new CanInterface(this.sender, INTERFACE_NAME);
+            this.sender.bind(this.senderInterface);
+        } catch (Throwable e) {
+            // the native library is not available
+            Assume.assumeNoException(e);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (this.sender != null) {
+            this.sender.close();
+        }
+        if (this.service != null) {
+            this.service.deactivate();
+        }
+    }
+
+    @Test
+    public void testFilteredBatchDelivery() throws Exception {
+        BlockingQueue<CanMessage> received = new LinkedBlockingQueue<>();
+        this.service.addCanMessageListener(received::addAll, Collections.singletonList(CanFilter.forId(0x123)));
+
+        for (int i = 0; i < 100; i++) {
+            send(0x100, (byte) i);
+            send(0x123, (byte) i);
+        }
+
+        for (int i = 0; i < 100; i++) {
+            CanMessage message = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull(message);
+            assertEquals(0x123, message.getCanId());
+            assertArrayEquals(new byte[] { (byte) i }, message.getData());
+        }
+        assertEquals(null, received.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testReceiveWithListener() throws Exception {
+        BlockingQueue<CanMessage> received = new LinkedBlockingQueue<>();
+        this.service.addCanMessageListener(received::addAll, Collections.<CanFilter> emptyList());
+
+        Thread sendThread = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                send(0x7FF, (byte) 1);
+                send(0x200, (byte) 2);
+            } catch (Exception e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sendThread.start();
+
+        // served by the receiving thread, the other listener keeps receiving all the frames
+        CanMessage message = this.service.receiveCanMessage(0x200, 0x7FF);
+        assertEquals(0x200, message.getCanId());
+        sendThread.join();
+
+        assertEquals(0x7FF, received.poll(5, TimeUnit.SECONDS).getCanId());
+        assertEquals(0x200, received.poll(5, TimeUnit.SECONDS).getCanId());
+    }
+
+    @Test
+    public void testSharedConnection() throws Exception {
+        BlockingQueue<CanMessage> received = new LinkedBlockingQueue<>();
+        this.service.addCanMessageListener(received::addAll, Collections.<CanFilter> emptyList());
+
+        // another client connects and disconnects, the socket stays open for the first one
+        this.service.connectCanSocket();
+        this.service.disconnectCanSocket();
+
+        send(0x10, (byte) 1);
+        assertEquals(0x10, received.poll(5, TimeUnit.SECONDS).getCanId());
+    }
+
+    @Test
+    public void testRemoveLastListener() throws Exception {
+        CanMessageListener listener = messages -> {
+        };
+        this.service.addCanMessageListener(listener, Collections.singletonList(CanFilter.forId(0x123)));
+        this.service.removeCanMessageListener(listener);
+
+        // the receiver blocked on the socket is kept, a new listener does not start a second one
+        BlockingQueue<CanMessage> received = new LinkedBlockingQueue<>();
+        this.service.addCanMessageListener(received::addAll, Collections.singletonList(CanFilter.forId(0x200)));
+        assertEquals(1, Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> "CanConnectionService Receiver".equals(thread.getName())).count());
+
+        Thread sendThread = new Thread(() -> {
+            try {
+                Thread.sleep(100);
+                send(0x200, (byte) 2);
+            } catch (Exception e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        sendThread.start();
+
+        // the frame is delivered both to the listener and to the direct read
+        CanMessage message = this.service.receiveCanMessage(-1, 0);
+        assertEquals(0x200, message.getCanId());
+        assertEquals(0x200, received.poll(5, TimeUnit.SECONDS).getCanId());
+        sendThread.join();
+    }
+
+    private void send(int canId, byte value) throws Exception {
+        this.sender.send(new CanFrame(this.senderInterface, new CanId(canId), new byte[] { value }));
+    }
+}
@@ -0,0 +1,176 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.linux.net.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.kura.linux.net.util.SysfsNetworkStateProvider.InterfaceState;
+import org.eclipse.kura.net.NetInterfaceType;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SysfsNetworkStateProviderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path root;
+    private final Map<String, InterfaceState.Inet4> addresses = new HashMap<>();
+    private final AtomicInteger resolutions = new AtomicInteger();
+
+    @Before
+    public void setup() throws IOException {
+        this.root = this.folder.getRoot().toPath();
+
+        Path eth0 = createInterface("eth0", "0x1043", 1, "up", 1500, "b8:27:eb:01:02:03");
+        write(eth0, "carrier", "1");
+        Path driver = Files.createDirectories(this.root.resolve("sys/bus/platform/drivers/smsc95xx"));
+        Files.createDirectories(eth0.resolve("device"));
+        Files.createSymbolicLink(eth0.resolve("device/driver"), driver);
+
+        Path wlan0 = createInterface("wlan0", "0x1002", 1, "down", 1500, "b8:27:eb:04:05:06");
+        Files.createDirectories(wlan0.resolve("wireless"));
+
+        createInterface("lo", "0x9", 772, "unknown", 65536, "00:00:00:00:00:00");
+        write(this.root.resolve("sys/class/net/lo"), "carrier", "1");
+
+        Path ppp0 = createInterface("ppp0", "0x10d1", 512, "unknown", 1500, "");
+        write(ppp0, "carrier", "1");
+
+        this.addresses.put("eth0", new InterfaceState.Inet4("192.168.1.10", (short) 24));
+        this.addresses.put("lo", new InterfaceState.Inet4("127.0.0.1", (short) 8));
+    }
+
+    @Test
+    public void testInterfaceNames() throws IOException {
+        SysfsNetworkStateProvider provider = newProvider(1000);
+
+        assertTrue(provider.isAvailable());
+        assertEquals(Arrays.asList("eth0", "lo", "ppp0", "wlan0"), provider.getInterfaceNames());
+    }
+
+    @Test
+    public void testEthernetState() throws IOException {
+        InterfaceState state = newProvider(1000).getState("eth0");
+
+        assertEquals("eth0", state.getName());
+        assertEquals(NetInterfaceType.ETHERNET, state.getType());
+        assertTrue(state.isUp());
+        assertTrue(state.isRunning());
+        assertTrue(state.isLinkUp());
+        assertEquals("up", state.getOperState());
+        assertEquals(1500, state.getMtu());
+        assertEquals("b8:27:eb:01:02:03", state.getMacAddress());
+        assertEquals("smsc95xx", state.getDriver());
+        assertEquals("192.168.1.10", state.getInetAddress());
+        assertEquals(24, state.getInetPrefixLength());
+    }
+
+    @Test
+    public void testWifiDown() throws IOException {
+        InterfaceState state = newProvider(1000).getState("wlan0");
+
+        assertEquals(NetInterfaceType.WIFI, state.getType());
+        assertFalse(state.isUp());
+        // the carrier cannot be read while the interface is down
+        assertFalse(state.isLinkUp());
+        assertNull(state.getDriver());
+        assertNull(state.getInetAddress());
+        assertEquals(-1, state.getInetPrefixLength());
+    }
+
+    @Test
+    public void testOtherTypes() throws IOException {
+        SysfsNetworkStateProvider provider = newProvider(1000);
+
+        InterfaceState lo = provider.getState("lo");
+        assertEquals(NetInterfaceType.LOOPBACK, lo.getType());
+        assertTrue(lo.isUp());
+        assertNull(lo.getMacAddress());
+
+        InterfaceState ppp0 = provider.getState("ppp0");
+        assertEquals(NetInterfaceType.MODEM, ppp0.getType());
+        assertTrue(ppp0.isLinkUp());
+        assertNull(ppp0.getMacAddress());
+    }
+
+    @Test
+    public void testMissingInterface() throws IOException {
+        SysfsNetworkStateProvider provider = newProvider(1000);
+
+        assertNull(provider.getState("eth1"));
+        assertNull(provider.getState("../net/eth0"));
+        assertFalse(new SysfsNetworkStateProvider(this.root.resolve("missing"), 1000, name -> null).isAvailable());
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        SysfsNetworkStateProvider provider = newProvider(60000);
+        Path eth0 = this.root.resolve("sys/class/net/eth0");
+
+        assertTrue(provider.getState("eth0").isLinkUp());
+        write(eth0, "carrier", "0");
+        assertTrue(provider.getState("eth0").isLinkUp());
+        assertEquals(1, this.resolutions.get());
+
+        provider.invalidate("eth0");
+        assertFalse(provider.getState("eth0").isLinkUp());
+        assertEquals(2, this.resolutions.get());
+
+        write(eth0, "carrier", "1");
+        provider.invalidateAll();
+        assertTrue(provider.getState("eth0").isLinkUp());
+    }
+
+    @Test
+    public void testNoCache() throws IOException {
+        SysfsNetworkStateProvider provider = newProvider(0);
+        Path eth0 = this.root.resolve("sys/class/net/eth0");
+
+        assertEquals(1500, provider.getState("eth0").getMtu());
+        write(eth0, "mtu", "1400");
+        assertEquals(1400, provider.getState("eth0").getMtu());
+    }
+
+    private SysfsNetworkStateProvider newProvider(long maxAgeMillis) {
+        return new SysfsNetworkStateProvider(this.root, maxAgeMillis, name -> {
+            this.resolutions.incrementAndGet();
+            return this.addresses.get(name);
+        });
+    }
+
+    private Path createInterface(String name, String flags, int type, String operState, int mtu, String address)
+            throws IOException {
+        Path dir = Files.createDirectories(this.root.resolve("sys/class/net").resolve(name));
+        write(dir, "flags", flags);
+        write(dir, "type", Integer.toString(type));
+        write(dir, "operstate", operState);
+        write(dir, "mtu", Integer.toString(mtu));
+        write(dir, "address", address);
+        return dir;
+    }
+
+    private static void write(Path dir, String attribute, String value) throws IOException {
+        Files.write(dir.resolve(attribute), (value + "\n").getBytes(StandardCharsets.US_ASCII));
+    }
+}
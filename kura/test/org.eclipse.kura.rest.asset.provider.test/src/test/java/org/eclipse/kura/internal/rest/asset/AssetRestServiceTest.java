@@ -14,14 +14,21 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -31,6 +38,7 @@ import java.util.TreeMap;
 
 import javax.ws.rs.WebApplicationException;
 
+import org.eclipse.kura.KuraErrorCode;
 import org.eclipse.kura.KuraException;
 import org.eclipse.kura.asset.Asset;
 import org.eclipse.kura.asset.AssetConfiguration;
@@ -40,6 +48,8 @@ import org.eclipse.kura.channel.ChannelFlag;
 import org.eclipse.kura.channel.ChannelRecord;
 import org.eclipse.kura.channel.ChannelStatus;
 import org.eclipse.kura.channel.ChannelType;
+import org.eclipse.kura.channel.listener.ChannelEvent;
+import org.eclipse.kura.channel.listener.ChannelListener;
 import org.eclipse.kura.core.testutil.TestUtil;
 import org.eclipse.kura.type.DataType;
 import org.eclipse.kura.type.TypedValue;
@@ -48,7 +58,9 @@ import org.junit.Test;
 import org.osgi.framework.InvalidSyntaxException;
 import org.osgi.framework.ServiceReference;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
 
 public class AssetRestServiceTest {
 
@@ -388,4 +400,199 @@ public class AssetRestServiceTest {
         assertFalse(req.isValid());
     }
 
+    @Test
+    public void testBatchRead() throws Exception {
+        // test reading several assets in one request, with missing and failing assets
+
+        AssetRestService svc = new AssetRestService();
+
+        AssetService asMock = mock(AssetService.class);
+        svc.setAssetService(asMock);
+
+        Asset asset1 = mock(Asset.class);
+        when(asMock.getAsset("asset1")).thenReturn(asset1);
+        Asset asset2 = mock(Asset.class);
+        when(asMock.getAsset("asset2")).thenReturn(asset2);
+        Asset asset3 = mock(Asset.class);
+        when(asMock.getAsset("asset3")).thenReturn(asset3);
+
+        ChannelRecord record = ChannelRecord.createReadRecord("ch1", DataType.INTEGER);
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+        record.setValue(TypedValues.newIntegerValue(1));
+        when(asset1.readAllChannels()).thenReturn(Collections.singletonList(record));
+
+        Set<String> channelNames = Collections.singleton("ch2");
+        ChannelRecord record2 = ChannelRecord.createReadRecord("ch2", DataType.STRING);
+        record2.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+        record2.setValue(TypedValues.newStringValue("val"));
+        when(asset2.read(channelNames)).thenReturn(Collections.singletonList(record2));
+
+        when(asset3.readAllChannels()).thenThrow(new KuraException(KuraErrorCode.INTERNAL_ERROR, "failure"));
+
+        List<AssetReadRequest> requests = new ArrayList<>();
+        requests.add(readRequest("asset1", null));
+        requests.add(readRequest("missing", null));
+        requests.add(readRequest("asset2", channelNames));
+        requests.add(readRequest("asset3", null));
+        BatchReadRequest batchRequest = new BatchReadRequest();
+        TestUtil.setFieldValue(batchRequest, "assets", requests);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        svc.read(batchRequest).write(out);
+
+        JsonArray result = new JsonParser().parse(out.toString("UTF-8")).getAsJsonArray();
+        assertEquals(4, result.size());
+        assertEquals(
+                "{\"name\":\"asset1\",\"channels\":[{\"channelStatus\":{\"channelFlag\":\"SUCCESS\"},\"name\":\"ch1\",\"valueType\":\"INTEGER\",\"value\":1,\"timestamp\":0}]}",
+                result.get(0).toString());
+        assertEquals("{\"name\":\"missing\",\"error\":\"Asset not found: missing\"}", result.get(1).toString());
+        assertEquals(
+                "{\"name\":\"asset2\",\"channels\":[{\"channelStatus\":{\"channelFlag\":\"SUCCESS\"},\"name\":\"ch2\",\"valueType\":\"STRING\",\"value\":\"val\",\"timestamp\":0}]}",
+                result.get(2).toString());
+        assertEquals("asset3", result.get(3).getAsJsonObject().get("name").getAsString());
+        assertTrue(result.get(3).getAsJsonObject().has("error"));
+    }
+
+    @Test(expected = WebApplicationException.class)
+    public void testBatchReadValidationException() throws Exception {
+        // test batch read with an asset without name
+
+        AssetRestService svc = new AssetRestService();
+        svc.setAssetService(mock(AssetService.class));
+
+        BatchReadRequest batchRequest = new BatchReadRequest();
+        TestUtil.setFieldValue(batchRequest, "assets", Collections.singletonList(new AssetReadRequest()));
+
+        svc.read(batchRequest);
+    }
+
+    @Test
+    public void testBatchWrite() throws Exception {
+        // test writing several assets in one request
+
+        AssetRestService svc = new AssetRestService();
+
+        AssetService asMock = mock(AssetService.class);
+        svc.setAssetService(asMock);
+
+        Asset asset1 = mock(Asset.class);
+        when(asMock.getAsset("asset1")).thenReturn(asset1);
+        doAnswer(invocation -> {
+            List<ChannelRecord> records = invocation.getArgumentAt(0, List.class);
+            assertEquals(1, records.size());
+            assertChannelWrite(records, 0, "ch1", TypedValues.newIntegerValue(12));
+            return null;
+        }).when(asset1).write(anyObject());
+
+        List<WriteRequest> channels = new ArrayList<>();
+        addRequest(channels, "ch1", DataType.INTEGER, "12");
+        AssetWriteRequest request = new AssetWriteRequest();
+        TestUtil.setFieldValue(request, "name", "asset1");
+        TestUtil.setFieldValue(request, "channels", channels);
+
+        BatchWriteRequest batchRequest = new BatchWriteRequest();
+        TestUtil.setFieldValue(batchRequest, "assets", Collections.singletonList(request));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        svc.write(batchRequest).write(out);
+
+        verify(asset1, times(1)).write(anyObject());
+        assertEquals(
+                "[{\"name\":\"asset1\",\"channels\":[{\"channelStatus\":{\"channelFlag\":\"SUCCESS\"},\"name\":\"ch1\",\"valueType\":\"INTEGER\",\"value\":12,\"timestamp\":0}]}]",
+                out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testSubscribePolling() throws Exception {
+        // test periodic reads streamed as newline delimited JSON until the client disconnects
+
+        AssetRestService svc = new AssetRestService();
+
+        AssetService asMock = mock(AssetService.class);
+        svc.setAssetService(asMock);
+
+        Asset asset = mock(Asset.class);
+        when(asMock.getAsset("pid1")).thenReturn(asset);
+
+        ChannelRecord record = ChannelRecord.createReadRecord("ch1", DataType.BOOLEAN);
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+        record.setValue(TypedValues.newBooleanValue(true));
+        Set<String> channelNames = new HashSet<>(Arrays.asList("ch1"));
+        when(asset.read(channelNames)).thenReturn(Collections.singletonList(record));
+
+        DisconnectingOutputStream out = new DisconnectingOutputStream(2);
+        svc.subscribe("pid1", "ch1", 100).write(out);
+
+        String line = "[{\"channelStatus\":{\"channelFlag\":\"SUCCESS\"},\"name\":\"ch1\",\"valueType\":\"BOOLEAN\",\"value\":true,\"timestamp\":0}]\n";
+        assertEquals(line + line, out.toString());
+        verify(asset, times(3)).read(channelNames);
+    }
+
+    @Test
+    public void testSubscribeListener() throws Exception {
+        // test channel listener notifications streamed as newline delimited JSON
+
+        AssetRestService svc = new AssetRestService();
+
+        AssetService asMock = mock(AssetService.class);
+        svc.setAssetService(asMock);
+
+        Asset asset = mock(Asset.class);
+        when(asMock.getAsset("pid1")).thenReturn(asset);
+
+        ChannelRecord record = ChannelRecord.createReadRecord("ch1", DataType.LONG);
+        record.setChannelStatus(new ChannelStatus(ChannelFlag.SUCCESS));
+        record.setValue(TypedValues.newLongValue(5));
+
+        doAnswer(invocation -> {
+            ChannelListener listener = invocation.getArgumentAt(1, ChannelListener.class);
+            listener.onChannelEvent(new ChannelEvent(record));
+            return null;
+        }).when(asset).registerChannelListener(eq("ch1"), anyObject());
+
+        DisconnectingOutputStream out = new DisconnectingOutputStream(2);
+        new AssetSubscription(asset, Collections.singleton("ch1"), 0, svc.getChannelSerializer(), 10).write(out);
+
+        // the notified value, then an empty heartbeat
+        assertEquals(
+                "[{\"channelStatus\":{\"channelFlag\":\"SUCCESS\"},\"name\":\"ch1\",\"valueType\":\"LONG\",\"value\":5,\"timestamp\":0}]\n[]\n",
+                out.toString());
+        verify(asset, times(1)).unregisterChannelListener(anyObject());
+    }
+
+    private static AssetReadRequest readRequest(String name, Set<String> channels) throws NoSuchFieldException {
+        AssetReadRequest request = new AssetReadRequest();
+        TestUtil.setFieldValue(request, "name", name);
+        TestUtil.setFieldValue(request, "channels", channels);
+        return request;
+    }
+
+    /**
+     * Simulates a client disconnecting after receiving the given number of lines.
+     */
+    private static class DisconnectingOutputStream extends OutputStream {
+
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private int remainingLines;
+
+        DisconnectingOutputStream(int lines) {
+            this.remainingLines = lines;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (this.remainingLines <= 0) {
+                throw new IOException("disconnected");
+            }
+            this.received.write(b);
+            if (b == '\n') {
+                this.remainingLines--;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return new String(this.received.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
 }
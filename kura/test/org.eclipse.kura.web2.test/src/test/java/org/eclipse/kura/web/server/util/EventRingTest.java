@@ -0,0 +1,150 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.web.server.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class EventRingTest {
+
+    @Test
+    public void testRead() {
+        EventRing<String> ring = new EventRing<>(4, 0, TimeUnit.MILLISECONDS);
+        assertEquals(0, ring.getLastId());
+        assertEquals(1, ring.append("a"));
+        assertEquals(2, ring.append(id -> "b" + id));
+
+        List<String> result = new ArrayList<>();
+        assertEquals(2, ring.read(0, result));
+        assertEquals(Arrays.asList("a", "b2"), result);
+
+        result.clear();
+        assertEquals(2, ring.read(1, result));
+        assertEquals(Collections.singletonList("b2"), result);
+
+        result.clear();
+        assertEquals(2, ring.read(2, result));
+        assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void testWrapAround() {
+        EventRing<Integer> ring = new EventRing<>(3, 0, TimeUnit.MILLISECONDS);
+        for (int i = 1; i <= 7; i++) {
+            ring.append(i);
+        }
+
+        List<Integer> result = new ArrayList<>();
+        assertEquals(7, ring.read(5, result));
+        assertEquals(Arrays.asList(6, 7), result);
+    }
+
+    @Test
+    public void testFallingBehind() {
+        EventRing<Integer> ring = new EventRing<>(3, 0, TimeUnit.MILLISECONDS);
+        for (int i = 1; i <= 10; i++) {
+            ring.append(i);
+        }
+
+        // the events overwritten since the cursor are lost
+        List<Integer> result = new ArrayList<>();
+        assertEquals(10, ring.read(2, result));
+        assertEquals(Arrays.asList(8, 9, 10), result);
+    }
+
+    @Test
+    public void testStaleCursor() throws Exception {
+        EventRing<Integer> ring = new EventRing<>(3, 0, TimeUnit.MILLISECONDS);
+        ring.append(1);
+        ring.append(2);
+
+        // a cursor from a previous run restarts from the oldest event, without waiting
+        List<Integer> result = new ArrayList<>();
+        long start = System.nanoTime();
+        assertEquals(2, ring.poll(57, 10, TimeUnit.SECONDS, result));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertEquals(Arrays.asList(1, 2), result);
+    }
+
+    @Test
+    public void testStaleCursorWithoutEvents() throws Exception {
+        EventRing<Integer> ring = new EventRing<>(3, 0, TimeUnit.MILLISECONDS);
+
+        // the client waits for the events of this run instead of polling again at once
+        List<Integer> result = new ArrayList<>();
+        long start = System.nanoTime();
+        assertEquals(0, ring.poll(57, 200, TimeUnit.MILLISECONDS, result));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(result.isEmpty());
+
+        Thread producer = new Thread(() -> {
+            sleep(100);
+            ring.append(1);
+        });
+        producer.start();
+        assertEquals(1, ring.poll(57, 10, TimeUnit.SECONDS, result));
+        assertEquals(Collections.singletonList(1), result);
+        producer.join();
+    }
+
+    @Test
+    public void testPollWaitsForEvents() throws Exception {
+        EventRing<Integer> ring = new EventRing<>(3, 0, TimeUnit.MILLISECONDS);
+        ring.append(1);
+
+        List<Integer> result = new ArrayList<>();
+        long start = System.nanoTime();
+        assertEquals(1, ring.poll(1, 200, TimeUnit.MILLISECONDS, result));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+        assertTrue(result.isEmpty());
+
+        Thread producer = new Thread(() -> {
+            sleep(100);
+            ring.append(2);
+        });
+        producer.start();
+        assertEquals(2, ring.poll(1, 10, TimeUnit.SECONDS, result));
+        assertEquals(Collections.singletonList(2), result);
+        producer.join();
+    }
+
+    @Test
+    public void testCoalescing() throws Exception {
+        EventRing<String> ring = new EventRing<>(10, 200, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, ring.appendCoalesced("emit", id -> "a"));
+        assertEquals(-1, ring.appendCoalesced("emit", id -> "b"));
+        // other keys and plain events are not affected
+        assertEquals(2, ring.appendCoalesced("other", id -> "c"));
+        assertEquals(3, ring.append("d"));
+
+        Thread.sleep(250);
+        assertEquals(4, ring.appendCoalesced("emit", id -> "e"));
+
+        List<String> result = new ArrayList<>();
+        ring.read(0, result);
+        assertEquals(Arrays.asList("a", "c", "d", "e"), result);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
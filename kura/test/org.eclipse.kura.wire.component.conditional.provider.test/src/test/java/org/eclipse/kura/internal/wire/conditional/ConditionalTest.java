@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.conditional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.graph.EmitterPort;
+import org.eclipse.kura.wire.graph.MultiportWireSupport;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.wireadmin.Wire;
+
+public class ConditionalTest {
+
+    private final RecordingPort thenPort = new RecordingPort();
+    private final RecordingPort elsePort = new RecordingPort();
+    private Conditional conditional;
+
+    private static final class RecordingPort implements EmitterPort {
+
+        private final List<WireEnvelope> emitted = new ArrayList<>();
+
+        @Override
+        public List<Wire> listConnectedWires() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public void emit(WireEnvelope wireEnvelope) {
+            this.emitted.add(wireEnvelope);
+        }
+    }
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        MultiportWireSupport wireSupport = mock(MultiportWireSupport.class);
+        when(wireSupport.getEmitterPorts()).thenReturn(Arrays.<EmitterPort> asList(this.thenPort, this.elsePort));
+        when(wireSupport.createWireEnvelope(any())).then(
+                invocation -> new WireEnvelope("conditional", (List<WireRecord>) invocation.getArguments()[0]));
+        WireHelperService wireHelperService = mock(WireHelperService.class);
+        when(wireHelperService.newWireSupport(any(WireComponent.class))).thenReturn(wireSupport);
+
+        this.conditional = new Conditional();
+        this.conditional.bindWireHelperService(wireHelperService);
+        this.conditional.activate(null, properties("TIMER > 10 && TIMER < 30", "expression"));
+    }
+
+    @Test
+    public void testExpressionRoutesEnvelopes() {
+        WireEnvelope inRange = envelope(record(20, 21.0));
+        WireEnvelope outOfRange = envelope(record(40, 21.0));
+
+        this.conditional.onWireReceive(inRange);
+        this.conditional.onWireReceive(outOfRange);
+
+        assertEquals(1, this.thenPort.emitted.size());
+        assertEquals(inRange.getRecords(), this.thenPort.emitted.get(0).getRecords());
+        assertEquals(1, this.elsePort.emitted.size());
+        assertEquals(outOfRange.getRecords(), this.elsePort.emitted.get(0).getRecords());
+    }
+
+    @Test
+    public void testExpressionMatchesScript() {
+        String[][] conditions = new String[][] {
+                { "records[0].TIMER !== null && records[0].TIMER.getValue() > 10 && records[0].TIMER.getValue() < 30",
+                        "TIMER > 10 && TIMER < 30" },
+                { "records[0].temperature.getValue() * 9 / 5 + 32 > 70", "temperature * 9 / 5 + 32 > 70" },
+                { "records[1].TIMER.getValue() - records[0].TIMER.getValue() > 5",
+                        "records[1].TIMER - records[0].TIMER > 5" },
+                { "emitterPid === 'timer1'", "emitterPid() == 'timer1'" } };
+
+        List<WireEnvelope> envelopes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            envelopes.add(new WireEnvelope(i % 2 == 0 ? "timer1" : "timer2",
+                    Arrays.asList(record(i * 5L, 15.0 + i * 2), record(i * 7L, 0.0))));
+        }
+
+        for (String[] condition : conditions) {
+            List<Boolean> scriptDecisions = decisions(condition[0], "javascript", envelopes);
+            List<Boolean> expressionDecisions = decisions(condition[1], "expression", envelopes);
+
+            assertEquals(condition[1], scriptDecisions, expressionDecisions);
+            assertTrue(condition[1], scriptDecisions.contains(true) && scriptDecisions.contains(false));
+        }
+    }
+
+    @Test
+    public void testEvaluationErrorEmitsNothing() {
+        this.conditional.updated(properties("10 / TIMER > 1", "expression"));
+
+        this.conditional.onWireReceive(envelope(record(0, 21.0)));
+        this.conditional.onWireReceive(envelope(record(5, 21.0)));
+
+        assertEquals(1, this.thenPort.emitted.size());
+        assertTrue(this.elsePort.emitted.isEmpty());
+    }
+
+    @Test
+    public void testInvalidExpressionEmitsNothing() {
+        this.conditional.updated(properties("TIMER >", "expression"));
+        this.conditional.onWireReceive(envelope(record(20, 21.0)));
+
+        // a valid JavaScript condition is not a valid expression
+        this.conditional.updated(properties("records[0].TIMER.getValue() > 10", "expression"));
+        this.conditional.onWireReceive(envelope(record(20, 21.0)));
+
+        assertTrue(this.thenPort.emitted.isEmpty());
+        assertTrue(this.elsePort.emitted.isEmpty());
+    }
+
+    @Test
+    public void testUpdateSwitchesLanguage() {
+        this.conditional.updated(properties("records[0].TIMER.getValue() > 10", "javascript"));
+        this.conditional.onWireReceive(envelope(record(20, 21.0)));
+
+        this.conditional.updated(properties("TIMER > 30", "expression"));
+        this.conditional.onWireReceive(envelope(record(20, 21.0)));
+
+        assertEquals(1, this.thenPort.emitted.size());
+        assertEquals(1, this.elsePort.emitted.size());
+    }
+
+    private List<Boolean> decisions(String condition, String language, List<WireEnvelope> envelopes) {
+        this.conditional.updated(properties(condition, language));
+
+        List<Boolean> decisions = new ArrayList<>();
+        for (WireEnvelope envelope : envelopes) {
+            int thenCount = this.thenPort.emitted.size();
+            int elseCount = this.elsePort.emitted.size();
+            this.conditional.onWireReceive(envelope);
+            assertEquals(condition, thenCount + elseCount + 1,
+                    this.thenPort.emitted.size() + this.elsePort.emitted.size());
+            decisions.add(this.thenPort.emitted.size() > thenCount);
+        }
+        return decisions;
+    }
+
+    private static Map<String, Object> properties(String condition, String language) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("condition", condition);
+        properties.put("condition.language", language);
+        return properties;
+    }
+
+    private static WireEnvelope envelope(WireRecord record) {
+        return new WireEnvelope("timer1", Collections.singletonList(record));
+    }
+
+    private static WireRecord record(long timer, double temperature) {
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("TIMER", TypedValues.newLongValue(timer));
+        properties.put("temperature", TypedValues.newDoubleValue(temperature));
+        return new WireRecord(properties);
+    }
+}
@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireRecord;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpressionTest {
+
+    private Scope scope;
+
+    @Before
+    public void setup() {
+        Map<String, TypedValue<?>> first = new HashMap<>();
+        first.put("TIMER", TypedValues.newLongValue(20));
+        first.put("int", TypedValues.newIntegerValue(7));
+        first.put("float", TypedValues.newFloatValue(1.5f));
+        first.put("double", TypedValues.newDoubleValue(2.5));
+        first.put("name", TypedValues.newStringValue("pump"));
+        first.put("enabled", TypedValues.newBooleanValue(true));
+        first.put("raw", TypedValues.newByteArrayValue(new byte[] { 1, 2 }));
+        first.put("sensor.temperature", TypedValues.newDoubleValue(21.5));
+        first.put("temperature (C)", TypedValues.newDoubleValue(-4.0));
+        first.put("temp_error", TypedValues.newStringValue(""));
+        first.put("pressure_error", TypedValues.newStringValue("Read failed"));
+
+        Map<String, TypedValue<?>> second = new HashMap<>();
+        second.put("TIMER", TypedValues.newLongValue(40));
+
+        this.scope = new Scope(Arrays.asList(new WireRecord(first), new WireRecord(second)), "timer1");
+    }
+
+    @Test
+    public void testLiterals() throws ExpressionException {
+        assertEquals(3, evaluate("3"));
+        assertEquals(10000000000L, evaluate("10000000000"));
+        assertEquals(0.5, evaluate("0.5"));
+        assertEquals(1000.0, evaluate("1e3"));
+        assertEquals("it's", evaluate("'it\\'s'"));
+        assertEquals("a\"b", evaluate("\"a\\\"b\""));
+        assertEquals(true, evaluate("true"));
+        assertNull(evaluate("null"));
+    }
+
+    @Test
+    public void testProperties() throws ExpressionException {
+        assertEquals(20L, evaluate("TIMER"));
+        assertEquals(40L, evaluate("records[1].TIMER"));
+        assertEquals(21.5, evaluate("sensor.temperature"));
+        assertEquals(-4.0, evaluate("`temperature (C)`"));
+        assertEquals(-4.0, evaluate("records[0].`temperature (C)`"));
+        assertNull(evaluate("missing"));
+        assertNull(evaluate("records[5].TIMER"));
+        assertEquals("timer1", evaluate("emitterPid()"));
+
+        this.scope.setCurrentRecord(1);
+        assertEquals(40L, evaluate("TIMER"));
+        assertEquals(20L, evaluate("records[0].TIMER"));
+    }
+
+    @Test
+    public void testArithmetic() throws ExpressionException {
+        assertEquals(7, evaluate("1 + 2 * 3"));
+        assertEquals(9, evaluate("(1 + 2) * 3"));
+        assertEquals(1, evaluate("7 % 3"));
+        assertEquals(3, evaluate("7 / 2"));
+        assertEquals(3.5, evaluate("7 / 2.0"));
+        assertEquals(-13, evaluate("-int - 6"));
+
+        // the operands are promoted as in Java
+        assertEquals(27L, evaluate("TIMER + int"));
+        assertEquals(8.5f, evaluate("int + float"));
+        assertEquals(4.0, evaluate("float + double"));
+        assertEquals(10.0, evaluate("TIMER / 2.0"));
+
+        assertEquals("pump1", evaluate("name + 1"));
+        assertEquals("7 pcs", evaluate("int + ' pcs'"));
+        assertNull(evaluate("missing * 2"));
+        assertEquals(4.0, evaluate("abs(`temperature (C)`)"));
+        assertEquals(7, evaluate("min(int, TIMER)"));
+        assertEquals(20L, evaluate("max(int, TIMER)"));
+    }
+
+    @Test
+    public void testComparisons() throws ExpressionException {
+        assertTrue(test("TIMER > 10 && TIMER < 30"));
+        assertFalse(test("TIMER >= 30 || TIMER <= 10"));
+        assertTrue(test("TIMER == 20"));
+        assertTrue(test("TIMER == 20.0"));
+        assertTrue(test("int != TIMER"));
+        assertTrue(test("name == 'pump'"));
+        assertTrue(test("name < 'valve'"));
+        assertTrue(test("enabled"));
+        assertFalse(test("!enabled"));
+        assertTrue(test("records[1].TIMER > TIMER"));
+        assertTrue(test("TIMER > 10 ? name == 'pump' : false"));
+    }
+
+    @Test
+    public void testNullAndErrors() throws ExpressionException {
+        assertTrue(test("isNull(missing)"));
+        assertFalse(test("isNull(TIMER)"));
+        assertTrue(test("missing == null"));
+        assertFalse(test("missing > 10"));
+        assertFalse(test("missing"));
+        assertTrue(test("!missing"));
+        assertFalse(test("missing && true"));
+
+        assertFalse(test("isError(temp)"));
+        assertTrue(test("isError(pressure)"));
+        assertFalse(test("isError(records[1].pressure)"));
+        assertFalse(test("isError(unknown)"));
+    }
+
+    @Test
+    public void testShortCircuit() throws ExpressionException {
+        assertFalse(test("false && name > 1"));
+        assertTrue(test("true || name > 1"));
+    }
+
+    @Test
+    public void testRuntimeTypeErrors() {
+        assertEvaluationFails("name > 1");
+        assertEvaluationFails("name - 1");
+        assertEvaluationFails("TIMER && true");
+        assertEvaluationFails("-name");
+        assertEvaluationFails("int / 0");
+        assertEvaluationFails("raw + 1");
+    }
+
+    @Test
+    public void testCompilationErrors() {
+        assertCompilationFails("");
+        assertCompilationFails("TIMER >");
+        assertCompilationFails("(TIMER > 1");
+        assertCompilationFails("TIMER > 1)");
+        assertCompilationFails("'unterminated");
+        assertCompilationFails("`unterminated");
+        assertCompilationFails("TIMER # 1");
+        assertCompilationFails("records[a].TIMER");
+        assertCompilationFails("unknown(TIMER)");
+        assertCompilationFails("isNull(TIMER, 1)");
+        assertCompilationFails("isError(1)");
+    }
+
+    @Test
+    public void testStaticTypeErrors() {
+        assertCompilationFails("1 && TIMER > 0");
+        assertCompilationFails("!'a'");
+        assertCompilationFails("'a' < 1");
+        assertCompilationFails("true < false");
+        assertCompilationFails("'a' - 1");
+        assertCompilationFails("-'a'");
+        assertCompilationFails("1 / 0");
+        assertCompilationFails("abs('a')");
+    }
+
+    @Test
+    public void testCondition() throws ExpressionException {
+        assertTrue(Expression.compileCondition("TIMER > 1").test(this.scope));
+        assertTrue(Expression.compileCondition("enabled").test(this.scope));
+
+        try {
+            Expression.compileCondition("TIMER + 1 + 'a'");
+            fail("Exception expected");
+        } catch (ExpressionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConstantFolding() throws ExpressionException {
+        Scope empty = new Scope(Arrays.asList(), null);
+        assertEquals(6, Expression.compile("(1 + 2) * 2").evaluate(empty));
+        assertEquals("ab", Expression.compile("'a' + 'b'").evaluate(empty));
+    }
+
+    @Test
+    public void testTypedValue() throws ExpressionException {
+        assertEquals(TypedValues.newLongValue(40), Expression.compile("TIMER * 2").evaluateTypedValue(this.scope));
+        assertEquals(TypedValues.newIntegerValue(8), Expression.compile("int + 1").evaluateTypedValue(this.scope));
+        assertEquals(TypedValues.newBooleanValue(true),
+                Expression.compile("TIMER > 1").evaluateTypedValue(this.scope));
+        assertNull(Expression.compile("missing").evaluateTypedValue(this.scope));
+    }
+
+    private Object evaluate(String expression) throws ExpressionException {
+        return Expression.compile(expression).evaluate(this.scope);
+    }
+
+    private boolean test(String expression) throws ExpressionException {
+        return Expression.compileCondition(expression).test(this.scope);
+    }
+
+    private void assertEvaluationFails(String source) {
+        final Expression expression;
+        try {
+            expression = Expression.compile(source);
+        } catch (ExpressionException e) {
+            fail("Unexpected compilation error for " + source + ": " + e.getMessage());
+            return;
+        }
+        try {
+            expression.evaluate(this.scope);
+            fail("Exception expected for " + source);
+        } catch (ExpressionException e) {
+            // expected
+        }
+    }
+
+    private static void assertCompilationFails(String source) {
+        try {
+            Expression.compile(source);
+            fail("Exception expected for " + source);
+        } catch (ExpressionException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.internal.wire.expression.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.internal.wire.expression.ExpressionException;
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.junit.Test;
+
+public class ExpressionFilterTest {
+
+    @Test
+    public void testFilter() throws ExpressionException {
+        List<WireRecord> result = process(options("!isError(value) && value < 2", "", true));
+
+        assertEquals(1, result.size());
+        assertEquals(TypedValues.newIntegerValue(1), result.get(0).getProperties().get("value"));
+    }
+
+    @Test
+    public void testMapping() throws ExpressionException {
+        List<WireRecord> result = process(options("", "# comment\n\ndouble = value * 2\r\nlabel = 'v' + value", true));
+
+        assertEquals(3, result.size());
+        Map<String, TypedValue<?>> properties = result.get(2).getProperties();
+        assertEquals(TypedValues.newIntegerValue(2), properties.get("value"));
+        assertEquals(TypedValues.newIntegerValue(4), properties.get("double"));
+        assertEquals(TypedValues.newStringValue("v2"), properties.get("label"));
+    }
+
+    @Test
+    public void testMappingOnly() throws ExpressionException {
+        List<WireRecord> result = process(options("value >= 2", "value = value - 1\nvalue_error = null", false));
+
+        assertEquals(1, result.size());
+        assertEquals(Collections.singletonMap("value", TypedValues.newIntegerValue(1)),
+                result.get(0).getProperties());
+    }
+
+    @Test
+    public void testEvaluationErrorDropsRecord() throws ExpressionException {
+        List<WireRecord> result = process(options("", "half = 10 / value", true));
+
+        // the record whose value is 0 is dropped
+        assertEquals(2, result.size());
+        assertEquals(TypedValues.newIntegerValue(10), result.get(0).getProperties().get("half"));
+    }
+
+    @Test
+    public void testInvalidOptions() {
+        assertInvalid(options("value >", "", true));
+        assertInvalid(options("'value' + 1", "", true));
+        assertInvalid(options("", "value", true));
+        assertInvalid(options("", "= value", true));
+        assertInvalid(options("", "a = value +", true));
+    }
+
+    @Test
+    public void testEmptyEnvelopes() {
+        WireSupport wireSupport = mock(WireSupport.class);
+        WireHelperService wireHelperService = mock(WireHelperService.class);
+        when(wireHelperService.newWireSupport(any(WireComponent.class))).thenReturn(wireSupport);
+
+        ExpressionFilter filter = new ExpressionFilter();
+        filter.bindWireHelperService(wireHelperService);
+        Map<String, Object> properties = options("value > 100", "", true);
+        filter.activate(properties);
+
+        filter.onWireReceive(envelope());
+        verify(wireSupport, never()).emit(any());
+
+        properties.put("emit.empty.envelopes", true);
+        filter.updated(properties);
+        filter.onWireReceive(envelope());
+        verify(wireSupport).emit(new ArrayList<>());
+    }
+
+    @Test
+    public void testDefaults() throws ExpressionException {
+        ExpressionFilterOptions options = new ExpressionFilterOptions(new HashMap<>());
+
+        assertFalse(options.getFilter().isPresent());
+        assertTrue(options.getMappings().isEmpty());
+        assertTrue(options.isKeepInputProperties());
+        assertFalse(options.isEmitEmptyEnvelopes());
+    }
+
+    private static List<WireRecord> process(Map<String, Object> properties) throws ExpressionException {
+        return ExpressionFilter.process(new ExpressionFilterOptions(properties), envelope());
+    }
+
+    private static WireEnvelope envelope() {
+        List<WireRecord> records = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Map<String, TypedValue<?>> properties = new HashMap<>();
+            properties.put("value", TypedValues.newIntegerValue(i));
+            // the first record reports a channel error
+            properties.put("value_error", TypedValues.newStringValue(i == 0 ? "Read failed" : ""));
+            records.add(new WireRecord(properties));
+        }
+        return new WireEnvelope("emitter", records);
+    }
+
+    private static Map<String, Object> options(String filter, String mapping, boolean keepInputProperties) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("filter", filter);
+        properties.put("mapping", mapping);
+        properties.put("keep.input.properties", keepInputProperties);
+        properties.put("emit.empty.envelopes", false);
+        return properties;
+    }
+
+    private static void assertInvalid(Map<String, Object> properties) {
+        try {
+            new ExpressionFilterOptions(properties);
+            fail("Exception expected for " + properties);
+        } catch (ExpressionException e) {
+            // expected
+        }
+    }
+}
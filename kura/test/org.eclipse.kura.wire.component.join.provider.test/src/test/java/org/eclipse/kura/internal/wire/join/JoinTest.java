@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2018 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireRecord;
+import org.junit.Test;
+
+public class JoinTest {
+
+    @Test
+    public void testMergedProperties() {
+        Map<String, TypedValue<?>> first = new HashMap<>();
+        first.put("a", TypedValues.newIntegerValue(1));
+        first.put("b", TypedValues.newIntegerValue(2));
+        Map<String, TypedValue<?>> second = new HashMap<>();
+        second.put("b", TypedValues.newIntegerValue(3));
+        second.put("c", TypedValues.newIntegerValue(4));
+
+        MergedProperties merged = new MergedProperties(Arrays.asList(first, second));
+        assertEquals(3, merged.size());
+        assertEquals(TypedValues.newIntegerValue(1), merged.get("a"));
+        assertEquals(TypedValues.newIntegerValue(3), merged.get("b"));
+        assertEquals(TypedValues.newIntegerValue(4), merged.get("c"));
+        assertTrue(merged.containsKey("c"));
+        assertFalse(merged.containsKey("d"));
+
+        Map<String, TypedValue<?>> expected = new HashMap<>(first);
+        expected.putAll(second);
+        assertEquals(expected, new HashMap<>(merged));
+        assertEquals(expected, new WireRecord(merged).getProperties());
+    }
+
+    @Test
+    public void testPositionalJoin() {
+        WireRecord a1 = record("a", 1);
+        WireRecord a2 = record("a", 2);
+        WireRecord b1 = record("b", 1);
+        WireRecord c1 = record("a", 3);
+
+        List<WireEnvelope> envelopes = Arrays.asList(new WireEnvelope("first", Arrays.asList(a1, a2)), null,
+                new WireEnvelope("third", Arrays.asList(b1)), new WireEnvelope("fourth", Arrays.asList(c1)));
+        List<WireRecord> result = JoinComponent.joinByPosition(envelopes);
+
+        assertEquals(2, result.size());
+        assertEquals(2, result.get(0).getProperties().size());
+        assertEquals(TypedValues.newIntegerValue(3), result.get(0).getProperties().get("a"));
+        assertEquals(TypedValues.newIntegerValue(1), result.get(0).getProperties().get("b"));
+        // a record without counterparts is forwarded as is
+        assertSame(a2, result.get(1));
+    }
+
+    @Test
+    public void testTimestampJoin() {
+        TimestampJoin join = new TimestampJoin(2, 10, "ts", 100);
+
+        assertTrue(join.onWireReceive(0, Arrays.asList(timestamped("a", 1, 1000)), 0).isEmpty());
+        assertTrue(join.onWireReceive(0, Arrays.asList(timestamped("a", 2, 2000)), 0).isEmpty());
+
+        // the closest record within the tolerance is selected
+        List<WireRecord> result = join.onWireReceive(1, Arrays.asList(timestamped("b", 1, 1950)), 0);
+        assertEquals(1, result.size());
+        assertEquals(TypedValues.newIntegerValue(2), result.get(0).getProperties().get("a"));
+        assertEquals(TypedValues.newIntegerValue(1), result.get(0).getProperties().get("b"));
+        assertEquals(TypedValues.newLongValue(1950), result.get(0).getProperties().get("ts"));
+
+        // the record with timestamp 1000 is evicted, it can no longer be matched
+        assertEquals(1, join.getEvictedCount());
+
+        // out of tolerance, the record received on the second port is evicted
+        assertTrue(join.onWireReceive(1, Arrays.asList(timestamped("b", 2, 3000)), 0).isEmpty());
+        assertTrue(join.onWireReceive(0, Arrays.asList(timestamped("a", 3, 3200)), 0).isEmpty());
+        assertEquals(2, join.getEvictedCount());
+
+        result = join.onWireReceive(1, Arrays.asList(timestamped("b", 3, 3150)), 0);
+        assertEquals(1, result.size());
+        assertEquals(TypedValues.newIntegerValue(3), result.get(0).getProperties().get("a"));
+        assertEquals(TypedValues.newIntegerValue(3), result.get(0).getProperties().get("b"));
+    }
+
+    @Test
+    public void testTimestampJoinMissingTimestamp() {
+        TimestampJoin join = new TimestampJoin(2, 10, "ts", 100);
+
+        assertTrue(join.onWireReceive(0, Arrays.asList(record("a", 1)), 5000).isEmpty());
+        assertTrue(join.onWireReceive(1, Arrays.asList(record("b", 1)), 5200).isEmpty());
+        assertEquals(1, join.getEvictedCount());
+        assertEquals(1, join.onWireReceive(0, Arrays.asList(record("a", 2)), 5250).size());
+    }
+
+    @Test
+    public void testTimestampJoinBufferSize() {
+        TimestampJoin join = new TimestampJoin(3, 2, "ts", 10);
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(join.onWireReceive(0, Arrays.asList(timestamped("a", i, i * 1000)), 0).isEmpty());
+        }
+        assertEquals(3, join.getEvictedCount());
+
+        assertTrue(join.onWireReceive(1, Arrays.asList(timestamped("b", 0, 0)), 0).isEmpty());
+        assertTrue(join.onWireReceive(2, Arrays.asList(timestamped("c", 0, 0)), 0).isEmpty());
+
+        List<WireRecord> result = join.onWireReceive(1, Arrays.asList(timestamped("b", 1, 4000)), 0);
+        assertTrue(result.isEmpty());
+        result = join.onWireReceive(2, Arrays.asList(timestamped("c", 1, 4005)), 0);
+        assertEquals(1, result.size());
+        assertEquals(TypedValues.newIntegerValue(4), result.get(0).getProperties().get("a"));
+    }
+
+    @Test
+    public void testKeyJoin() {
+        KeyJoin join = new KeyJoin(2, 2, "id");
+
+        assertTrue(join.onWireReceive(0, Arrays.asList(keyed("a", TypedValues.newIntegerValue(1)),
+                keyed("a", TypedValues.newIntegerValue(2))), 0).isEmpty());
+
+        // integer and long keys with the same value are matched
+        List<WireRecord> result = join.onWireReceive(1, Arrays.asList(keyed("b", TypedValues.newLongValue(2))), 0);
+        assertEquals(1, result.size());
+        assertEquals(TypedValues.newStringValue("a"), result.get(0).getProperties().get("a"));
+        assertEquals(TypedValues.newStringValue("b"), result.get(0).getProperties().get("b"));
+
+        // the matched record is removed from the buffer
+        assertTrue(join.onWireReceive(1, Arrays.asList(keyed("b", TypedValues.newLongValue(2))), 0).isEmpty());
+
+        // records without the key are discarded
+        assertTrue(join.onWireReceive(0, Arrays.asList(record("a", 1)), 0).isEmpty());
+
+        // the buffer of the first port contains 1, adding 3 and 4 evicts 1
+        join.onWireReceive(0, Arrays.asList(keyed("a", TypedValues.newIntegerValue(3)),
+                keyed("a", TypedValues.newIntegerValue(4))), 0);
+        assertEquals(1, join.getEvictedCount());
+        assertTrue(join.onWireReceive(1, Arrays.asList(keyed("b", TypedValues.newIntegerValue(1))), 0).isEmpty());
+        assertEquals(1, join.onWireReceive(1, Arrays.asList(keyed("b", TypedValues.newIntegerValue(4))), 0).size());
+    }
+
+    @Test
+    public void testKeyJoinFloatingPointKeys() {
+        KeyJoin join = new KeyJoin(2, 4, "id");
+
+        assertTrue(join.onWireReceive(0, Arrays.asList(keyed("a", TypedValues.newLongValue(1)),
+                keyed("a", TypedValues.newDoubleValue(1.5))), 0).isEmpty());
+
+        // a double without a fractional part matches the long key with the same value
+        assertEquals(1, join.onWireReceive(1, Arrays.asList(keyed("b", TypedValues.newDoubleValue(1.0))), 0).size());
+
+        // other floating point keys are matched by value
+        assertTrue(join.onWireReceive(1, Arrays.asList(keyed("b", TypedValues.newIntegerValue(2))), 0).isEmpty());
+        assertEquals(1, join.onWireReceive(1, Arrays.asList(keyed("b", TypedValues.newFloatValue(1.5f))), 0).size());
+
+        // large longs are not rounded to the nearest double
+        assertTrue(join.onWireReceive(0, Arrays.asList(keyed("a", TypedValues.newLongValue((1L << 53) + 1))), 0)
+                .isEmpty());
+        assertTrue(join.onWireReceive(1, Arrays.asList(keyed("b", TypedValues.newDoubleValue(1L << 53))), 0)
+                .isEmpty());
+    }
+
+    @Test
+    public void testOptions() {
+        Map<String, Object> properties = new HashMap<>();
+        JoinComponentOptions options = new JoinComponentOptions(properties, null);
+        assertEquals(JoinMode.POSITIONAL, options.getJoinMode());
+        assertEquals("assetTimestamp", options.getTimestampProperty());
+        assertEquals(500, options.getTimestampTolerance());
+        assertEquals(100, options.getBufferSize());
+
+        properties.put("join.mode", "KEY");
+        properties.put("buffer.size", 0);
+        assertEquals(JoinMode.KEY, options.getJoinMode());
+        assertEquals(1, options.getBufferSize());
+    }
+
+    private static WireRecord record(String name, int value) {
+        return new WireRecord(Collections.singletonMap(name, TypedValues.newIntegerValue(value)));
+    }
+
+    private static WireRecord timestamped(String name, int value, long timestamp) {
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put(name, TypedValues.newIntegerValue(value));
+        properties.put("ts", TypedValues.newLongValue(timestamp));
+        return new WireRecord(properties);
+    }
+
+    private static WireRecord keyed(String name, TypedValue<?> key) {
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put(name, TypedValues.newStringValue(name));
+        properties.put("id", key);
+        return new WireRecord(properties);
+    }
+}
@@ -0,0 +1,301 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.aggregator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+public class AggregatorTest {
+
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testTumblingTimeWindow() {
+        WindowedAggregation aggregation = aggregation("TUMBLING", "SECONDS", 10, 10,
+                "min, max, mean, sum, count, last, stddev");
+
+        assertTrue(aggregation.add(records(2, 4, 4, 4, 5, 5, 7, 9), 1000).isEmpty());
+
+        List<WireRecord> result = aggregation.close(10000);
+
+        assertEquals(1, result.size());
+        Map<String, TypedValue<?>> properties = result.get(0).getProperties();
+        assertEquals(TypedValues.newLongValue(0), properties.get("window.start"));
+        assertEquals(TypedValues.newLongValue(10000), properties.get("window.end"));
+        assertEquals(2.0, value(properties, "value_min"), DELTA);
+        assertEquals(9.0, value(properties, "value_max"), DELTA);
+        assertEquals(5.0, value(properties, "value_mean"), DELTA);
+        assertEquals(40.0, value(properties, "value_sum"), DELTA);
+        assertEquals(TypedValues.newLongValue(8), properties.get("value_count"));
+        assertEquals(9.0, value(properties, "value_last"), DELTA);
+        assertEquals(2.0, value(properties, "value_stddev"), DELTA);
+
+        // no records received in the next window
+        assertTrue(aggregation.close(20000).isEmpty());
+        assertEquals(0, aggregation.getGroupCount());
+    }
+
+    @Test
+    public void testSlidingTimeWindow() {
+        WindowedAggregation aggregation = aggregation("SLIDING", "SECONDS", 3, 1, "min, max, count");
+
+        aggregation.add(records(1), 500);
+        assertEquals(1.0, value(aggregation.close(1000).get(0).getProperties(), "value_max"), DELTA);
+        aggregation.add(records(2), 1500);
+        assertEquals(2.0, value(aggregation.close(2000).get(0).getProperties(), "value_max"), DELTA);
+        aggregation.add(records(3), 2500);
+
+        Map<String, TypedValue<?>> properties = aggregation.close(3000).get(0).getProperties();
+        assertEquals(TypedValues.newLongValue(0), properties.get("window.start"));
+        assertEquals(1.0, value(properties, "value_min"), DELTA);
+        assertEquals(3.0, value(properties, "value_max"), DELTA);
+
+        // the first pane leaves the window
+        properties = aggregation.close(4000).get(0).getProperties();
+        assertEquals(TypedValues.newLongValue(1000), properties.get("window.start"));
+        assertEquals(2.0, value(properties, "value_min"), DELTA);
+        assertEquals(TypedValues.newLongValue(2), properties.get("value_count"));
+
+        assertEquals(1, aggregation.close(5000).size());
+        assertTrue(aggregation.close(6000).isEmpty());
+        assertEquals(0, aggregation.getGroupCount());
+    }
+
+    @Test
+    public void testTumblingCountWindow() {
+        WindowedAggregation aggregation = aggregation("TUMBLING", "RECORDS", 3, 3, "sum");
+
+        assertTrue(aggregation.add(records(1, 2), 100).isEmpty());
+        List<WireRecord> result = aggregation.add(records(3, 4, 5, 6, 7), 200);
+
+        assertEquals(2, result.size());
+        assertEquals(6.0, value(result.get(0).getProperties(), "value_sum"), DELTA);
+        assertEquals(TypedValues.newLongValue(100), result.get(0).getProperties().get("window.start"));
+        assertEquals(15.0, value(result.get(1).getProperties(), "value_sum"), DELTA);
+        assertEquals(TypedValues.newLongValue(200), result.get(1).getProperties().get("window.start"));
+    }
+
+    @Test
+    public void testSlidingCountWindow() {
+        WindowedAggregation aggregation = aggregation("SLIDING", "RECORDS", 4, 2, "mean");
+
+        List<WireRecord> result = aggregation.add(records(1, 2, 3, 4, 5, 6), 0);
+
+        assertEquals(3, result.size());
+        assertEquals(1.5, value(result.get(0).getProperties(), "value_mean"), DELTA);
+        assertEquals(2.5, value(result.get(1).getProperties(), "value_mean"), DELTA);
+        assertEquals(4.5, value(result.get(2).getProperties(), "value_mean"), DELTA);
+    }
+
+    @Test
+    public void testGroups() {
+        Map<String, Object> properties = options("TUMBLING", "RECORDS", 2, 2, "max");
+        properties.put("group.by", "id");
+        properties.put("max.groups", 2);
+        WindowedAggregation aggregation = new WindowedAggregation(new AggregatorOptions(properties));
+
+        List<WireRecord> records = Arrays.asList(record("a", 1), record("b", 10), record("c", 100), record("a", 2),
+                record("c", 200), record("b", 20));
+        List<WireRecord> result = aggregation.add(records, 0);
+
+        // the records of the third group are discarded
+        assertEquals(2, result.size());
+        assertEquals(TypedValues.newStringValue("a"), result.get(0).getProperties().get("id"));
+        assertEquals(2.0, value(result.get(0).getProperties(), "value_max"), DELTA);
+        assertFalse(result.get(0).getProperties().containsKey("id_max"));
+        assertEquals(TypedValues.newStringValue("b"), result.get(1).getProperties().get("id"));
+        assertEquals(20.0, value(result.get(1).getProperties(), "value_max"), DELTA);
+    }
+
+    @Test
+    public void testPropertySelection() {
+        Map<String, Object> properties = options("TUMBLING", "RECORDS", 1, 1, "last");
+        properties.put("properties.regex", "^(?!.*_timestamp$).*");
+        WindowedAggregation aggregation = new WindowedAggregation(new AggregatorOptions(properties));
+
+        Map<String, TypedValue<?>> recordProperties = new HashMap<>();
+        recordProperties.put("temperature", TypedValues.newFloatValue(21.5f));
+        recordProperties.put("temperature_timestamp", TypedValues.newLongValue(1000));
+        recordProperties.put("temperature_error", TypedValues.newStringValue(""));
+        recordProperties.put("enabled", TypedValues.newBooleanValue(true));
+        recordProperties.put("counter", TypedValues.newIntegerValue(3));
+
+        Map<String, TypedValue<?>> result = aggregation
+                .add(Collections.singletonList(new WireRecord(recordProperties)), 0).get(0).getProperties();
+
+        assertEquals(21.5, value(result, "temperature_last"), DELTA);
+        assertEquals(3.0, value(result, "counter_last"), DELTA);
+        assertEquals(4, result.size());
+    }
+
+    @Test
+    public void testPercentiles() {
+        WindowedAggregation aggregation = aggregation("SLIDING", "SECONDS", 10, 1, "p50, p90, p99.9");
+
+        Random random = new Random(1);
+        double[] values = new double[10000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextGaussian() * 10 + 50;
+            aggregation.add(records(values[i]), i);
+        }
+        Arrays.sort(values);
+
+        Map<String, TypedValue<?>> properties = aggregation.close(10000).get(0).getProperties();
+        assertEquals(values[4999], value(properties, "value_p50"), values[4999] * 0.011);
+        assertEquals(values[8999], value(properties, "value_p90"), values[8999] * 0.011);
+        assertEquals(values[9989], value(properties, "value_p99.9"), values[9989] * 0.011);
+    }
+
+    @Test
+    public void testQuantileSketch() {
+        QuantileSketch first = new QuantileSketch();
+        QuantileSketch second = new QuantileSketch();
+        for (int i = -1000; i <= 1000; i++) {
+            (i % 2 == 0 ? first : second).add(i);
+        }
+        first.merge(second);
+
+        assertEquals(2001, first.getCount());
+        assertEquals(-1000, first.getQuantile(0), 10);
+        assertEquals(0, first.getQuantile(0.5), DELTA);
+        assertEquals(500, first.getQuantile(0.75), 5);
+        assertEquals(1000, first.getQuantile(1), 10);
+
+        // a wide range of values is collapsed in a bounded number of buckets
+        QuantileSketch wide = new QuantileSketch();
+        for (int i = -300; i <= 300; i++) {
+            wide.add(Math.pow(10, i / 2.0));
+        }
+        assertEquals(1e150, wide.getQuantile(1), 1e150 * 0.01);
+        assertEquals(1e147, wide.getQuantile(0.99), 1e147 * 0.01);
+    }
+
+    @Test
+    public void testInvalidOptions() {
+        assertInvalid(options("SLIDING", "SECONDS", 10, 3, "min"));
+        assertInvalid(options("SLIDING", "SECONDS", 10, 20, "min"));
+        assertInvalid(options("SLIDING", "RECORDS", 2000, 1, "min"));
+        assertInvalid(options("TUMBLING", "WEEKS", 1, 1, "min"));
+        assertInvalid(options("TUMBLING", "SECONDS", 1, 1, "min, median"));
+        assertInvalid(options("TUMBLING", "SECONDS", 1, 1, "p101"));
+        assertInvalid(options("TUMBLING", "SECONDS", 1, 1, " , "));
+        assertInvalid(options("TUMBLING", "SECONDS", 0, 1, "min"));
+
+        // the slide is not relevant for tumbling windows
+        assertEquals(10000, new AggregatorOptions(options("TUMBLING", "SECONDS", 10, 3, "min")).getSlide());
+    }
+
+    @Test
+    public void testComponent() {
+        WireSupport wireSupport = mock(WireSupport.class);
+        WireHelperService wireHelperService = mock(WireHelperService.class);
+        when(wireHelperService.newWireSupport(any(WireComponent.class))).thenReturn(wireSupport);
+
+        Aggregator aggregator = new Aggregator();
+        aggregator.bindWireHelperService(wireHelperService);
+        Map<String, Object> properties = options("TUMBLING", "RECORDS", 4, 4, "sum");
+        aggregator.activate(properties);
+
+        aggregator.onWireReceive(new WireEnvelope("asset", records(1, 2, 3)));
+        verify(wireSupport, never()).emit(any());
+
+        // the partial aggregates are retained if the windows do not change
+        properties.put("aggregates", "sum, count");
+        aggregator.updated(properties);
+        aggregator.onWireReceive(new WireEnvelope("asset", records(4)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<WireRecord>> captor = ArgumentCaptor
+                .forClass((Class<List<WireRecord>>) (Class<?>) List.class);
+        verify(wireSupport).emit(captor.capture());
+        Map<String, TypedValue<?>> result = captor.getValue().get(0).getProperties();
+        assertEquals(10.0, value(result, "value_sum"), DELTA);
+        assertEquals(TypedValues.newLongValue(4), result.get("value_count"));
+
+        // an invalid configuration disables the component
+        properties.put("aggregates", "unknown");
+        aggregator.updated(properties);
+        aggregator.onWireReceive(new WireEnvelope("asset", records(1, 2, 3, 4)));
+        verify(wireSupport).emit(any());
+
+        aggregator.deactivate();
+    }
+
+    private static double value(Map<String, TypedValue<?>> properties, String name) {
+        TypedValue<?> value = properties.get(name);
+        if (value == null) {
+            fail("Missing property " + name);
+        }
+        return ((Number) value.getValue()).doubleValue();
+    }
+
+    private static List<WireRecord> records(double... values) {
+        List<WireRecord> records = new ArrayList<>();
+        for (double value : values) {
+            records.add(new WireRecord(Collections.singletonMap("value", TypedValues.newDoubleValue(value))));
+        }
+        return records;
+    }
+
+    private static WireRecord record(String id, double value) {
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("id", TypedValues.newStringValue(id));
+        properties.put("value", TypedValues.newDoubleValue(value));
+        return new WireRecord(properties);
+    }
+
+    private static WindowedAggregation aggregation(String type, String unit, int length, int slide,
+            String aggregates) {
+        return new WindowedAggregation(new AggregatorOptions(options(type, unit, length, slide, aggregates)));
+    }
+
+    private static Map<String, Object> options(String type, String unit, int length, int slide, String aggregates) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("window.type", type);
+        properties.put("window.unit", unit);
+        properties.put("window.length", length);
+        properties.put("window.slide", slide);
+        properties.put("aggregates", aggregates);
+        return properties;
+    }
+
+    private static void assertInvalid(Map<String, Object> properties) {
+        try {
+            new AggregatorOptions(properties);
+            fail("Exception expected for " + properties);
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
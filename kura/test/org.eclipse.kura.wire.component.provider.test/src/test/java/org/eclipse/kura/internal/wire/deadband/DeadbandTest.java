@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ *   All rights reserved. This program and the accompanying materials
+ *   are made available under the terms of the Eclipse Public License v1.0
+ *   which accompanies this distribution, and is available at
+ *   http://www.eclipse.org/legal/epl-v10.html
+ ******************************************************************************/
+package org.eclipse.kura.internal.wire.deadband;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.junit.Test;
+
+public class DeadbandTest {
+
+    @Test
+    public void testAbsoluteDeadband() {
+        Deadband deadband = deadband("ABSOLUTE", 0.5, 0);
+
+        List<WireRecord> result = deadband.process(envelope("asset", 20.0, "OK", 1000), 0);
+        assertEquals(1, result.size());
+        assertEquals(4, result.get(0).getProperties().size());
+
+        // within the deadband, with an unchanged status
+        assertTrue(deadband.process(envelope("asset", 20.4, "OK", 2000), 1).isEmpty());
+        assertTrue(deadband.process(envelope("asset", 19.6, "OK", 3000), 2).isEmpty());
+
+        result = deadband.process(envelope("asset", 20.6, "OK", 4000), 3);
+        assertEquals(1, result.size());
+        Map<String, TypedValue<?>> properties = result.get(0).getProperties();
+        assertEquals(TypedValues.newDoubleValue(20.6), properties.get("temperature"));
+        assertEquals(TypedValues.newLongValue(4000), properties.get("temperature_timestamp"));
+        assertEquals(TypedValues.newStringValue("asset"), properties.get("assetName"));
+        assertEquals(3, properties.size());
+
+        // compared with the last reported value, not with the last received one
+        assertTrue(deadband.process(envelope("asset", 20.2, "OK", 5000), 4).isEmpty());
+        assertEquals(1, deadband.process(envelope("asset", 20.0, "OK", 6000), 5).size());
+
+        result = deadband.process(envelope("asset", 20.0, "ALARM", 7000), 6);
+        assertEquals(TypedValues.newStringValue("ALARM"), result.get(0).getProperties().get("status"));
+        assertEquals(3, result.get(0).getProperties().size());
+    }
+
+    @Test
+    public void testPercentDeadband() {
+        Deadband deadband = deadband("PERCENT", 10, 0);
+
+        deadband.process(envelope("asset", 200.0, "OK", 0), 0);
+        assertTrue(deadband.process(envelope("asset", 219.0, "OK", 0), 0).isEmpty());
+        assertTrue(deadband.process(envelope("asset", 181.0, "OK", 0), 0).isEmpty());
+        assertEquals(1, deadband.process(envelope("asset", 221.0, "OK", 0), 0).size());
+        // the threshold is relative to the last reported value
+        assertTrue(deadband.process(envelope("asset", 242.0, "OK", 0), 0).isEmpty());
+        assertEquals(1, deadband.process(envelope("asset", 243.2, "OK", 0), 0).size());
+    }
+
+    @Test
+    public void testZeroDeadband() {
+        Deadband deadband = deadband("ABSOLUTE", 0, 0);
+
+        deadband.process(envelope("asset", 1.0, "OK", 0), 0);
+        assertTrue(deadband.process(envelope("asset", 1.0, "OK", 0), 0).isEmpty());
+        assertEquals(1, deadband.process(envelope("asset", 1.000001, "OK", 0), 0).size());
+
+        // a change of type is always reported
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("temperature", TypedValues.newStringValue("1.000001"));
+        WireEnvelope envelope = new WireEnvelope("asset", Collections.singletonList(new WireRecord(properties)));
+        assertEquals(1, deadband.process(envelope, 0).size());
+
+        // even between numeric types with the same value
+        properties.put("temperature", TypedValues.newIntegerValue(1));
+        envelope = new WireEnvelope("asset", Collections.singletonList(new WireRecord(properties)));
+        assertEquals(1, deadband.process(envelope, 0).size());
+        properties.put("temperature", TypedValues.newLongValue(1));
+        envelope = new WireEnvelope("asset", Collections.singletonList(new WireRecord(properties)));
+        assertEquals(1, deadband.process(envelope, 0).size());
+        assertTrue(deadband.process(envelope, 0).isEmpty());
+    }
+
+    @Test
+    public void testEmittersAreIndependent() {
+        Deadband deadband = deadband("ABSOLUTE", 1, 0);
+
+        assertEquals(1, deadband.process(envelope("first", 10.0, "OK", 0), 0).size());
+        assertEquals(1, deadband.process(envelope("second", 10.0, "OK", 0), 0).size());
+        assertTrue(deadband.process(envelope("first", 10.5, "OK", 0), 0).isEmpty());
+        assertEquals(1, deadband.process(envelope("second", 12.0, "OK", 0), 0).size());
+    }
+
+    @Test
+    public void testHeartbeat() {
+        Deadband deadband = deadband("ABSOLUTE", 1, 10);
+
+        deadband.process(envelope("asset", 10.0, "OK", 0), 0);
+        assertTrue(deadband.process(envelope("asset", 10.0, "OK", 0), 9999).isEmpty());
+
+        WireEnvelope envelope = envelope("asset", 10.0, "OK", 0);
+        List<WireRecord> result = deadband.process(envelope, 10000);
+        assertEquals(1, result.size());
+        assertSame(envelope.getRecords().get(0), result.get(0));
+
+        assertTrue(deadband.process(envelope("asset", 10.0, "OK", 0), 10001).isEmpty());
+    }
+
+    @Test
+    public void testMultipleRecords() {
+        Deadband deadband = deadband("ABSOLUTE", 0, 0);
+
+        WireRecord first = new WireRecord(Collections.singletonMap("a", TypedValues.newIntegerValue(1)));
+        WireRecord second = new WireRecord(Collections.singletonMap("b", TypedValues.newIntegerValue(1)));
+        assertEquals(2, deadband.process(new WireEnvelope("emitter", Arrays.asList(first, second)), 0).size());
+
+        WireRecord changed = new WireRecord(Collections.singletonMap("b", TypedValues.newIntegerValue(2)));
+        List<WireRecord> result = deadband.process(new WireEnvelope("emitter", Arrays.asList(first, changed)), 0);
+        assertEquals(1, result.size());
+        assertSame(changed, result.get(0));
+    }
+
+    @Test
+    public void testComponent() {
+        WireSupport wireSupport = mock(WireSupport.class);
+        WireHelperService wireHelperService = mock(WireHelperService.class);
+        when(wireHelperService.newWireSupport(any(WireComponent.class))).thenReturn(wireSupport);
+
+        Deadband deadband = new Deadband();
+        deadband.bindWireHelperService(wireHelperService);
+        Map<String, Object> properties = options("ABSOLUTE", 1, 0);
+        deadband.activate(properties);
+
+        deadband.onWireReceive(envelope("asset", 10.0, "OK", 0));
+        deadband.onWireReceive(envelope("asset", 10.0, "OK", 0));
+        verify(wireSupport, times(1)).emit(any());
+
+        // an invalid configuration disables the suppression
+        properties.put("deadband.mode", "RELATIVE");
+        deadband.updated(properties);
+        deadband.onWireReceive(envelope("asset", 10.0, "OK", 0));
+        verify(wireSupport, times(2)).emit(any());
+
+        deadband.deactivate();
+    }
+
+    private static Deadband deadband(String mode, double value, int heartbeat) {
+        Deadband deadband = new Deadband();
+        deadband.updated(options(mode, value, heartbeat));
+        return deadband;
+    }
+
+    private static Map<String, Object> options(String mode, double value, int heartbeat) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("deadband.mode", mode);
+        properties.put("deadband.value", value);
+        properties.put("heartbeat.interval", heartbeat);
+        properties.put("passthrough.regex", "assetName|assetTimestamp|.*_timestamp");
+        return properties;
+    }
+
+    private static WireEnvelope envelope(String asset, double temperature, String status, long timestamp) {
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("assetName", TypedValues.newStringValue(asset));
+        properties.put("temperature", TypedValues.newDoubleValue(temperature));
+        properties.put("temperature_timestamp", TypedValues.newLongValue(timestamp));
+        properties.put("status", TypedValues.newStringValue(status));
+        return new WireEnvelope(asset, Collections.singletonList(new WireRecord(properties)));
+    }
+}
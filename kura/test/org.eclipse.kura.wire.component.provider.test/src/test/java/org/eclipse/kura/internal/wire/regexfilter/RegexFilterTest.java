@@ -10,6 +10,8 @@ package org.eclipse.kura.internal.wire.regexfilter;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyObject;
 import static org.mockito.Mockito.doAnswer;
@@ -19,6 +21,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -408,4 +411,142 @@ public class RegexFilterTest {
         verify(wsMock, times(1)).emit(anyObject());
     }
 
+    @Test
+    public void testOnWireReceiveRemoveAndUpdate() throws InvalidSyntaxException, NoSuchFieldException {
+        // the cached match results are discarded when the filter is updated
+
+        RegexFilter rf = new RegexFilter();
+
+        WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        rf.bindWireHelperService(wireHelperServiceMock);
+
+        WireSupport wsMock = mock(WireSupport.class);
+        when(wireHelperServiceMock.newWireSupport(rf)).thenReturn(wsMock);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("kura.service.pid", "spid");
+        properties.put("regex.filter", ".*_timestamp");
+        properties.put("filter.type", 2);
+
+        rf.activate(properties);
+
+        Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("temperature", new StringValue("val"));
+        recordProps.put("temperature_timestamp", new StringValue("ts"));
+        WireRecord record = new WireRecord(recordProps);
+        WireEnvelope wireEnvelope = new WireEnvelope("emitter", Collections.singletonList(record));
+
+        List<List<WireRecord>> emitted = new ArrayList<>();
+        doAnswer(invocation -> {
+            emitted.add(invocation.getArgumentAt(0, List.class));
+            return null;
+        }).when(wsMock).emit(anyObject());
+
+        rf.onWireReceive(wireEnvelope);
+        rf.onWireReceive(wireEnvelope);
+
+        properties.put("regex.filter", "temp.*");
+        rf.updated(properties);
+        rf.onWireReceive(wireEnvelope);
+
+        // an invalid filter disables the filtering
+        properties.put("regex.filter", "temp(");
+        rf.updated(properties);
+        rf.onWireReceive(wireEnvelope);
+
+        assertEquals(4, emitted.size());
+        for (int i = 0; i < 2; i++) {
+            Map<String, TypedValue<?>> props = emitted.get(i).get(0).getProperties();
+            assertEquals(1, props.size());
+            assertTrue(props.containsKey("temperature"));
+        }
+        assertEquals(0, emitted.get(2).get(0).getProperties().size());
+        assertSame(record, emitted.get(3).get(0));
+    }
+
+    @Test
+    public void testOnWireReceiveReusesPattern() throws InvalidSyntaxException, NoSuchFieldException {
+        // the filter is compiled once per configuration and records whose keys are all retained are not copied
+
+        RegexFilter rf = new RegexFilter();
+
+        WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        rf.bindWireHelperService(wireHelperServiceMock);
+
+        WireSupport wsMock = mock(WireSupport.class);
+        when(wireHelperServiceMock.newWireSupport(rf)).thenReturn(wsMock);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("kura.service.pid", "spid");
+        properties.put("regex.filter", "temp.*");
+        properties.put("filter.type", 1);
+
+        rf.activate(properties);
+        Object pattern = TestUtil.getFieldValue(rf, "pattern");
+        assertNotNull(pattern);
+
+        Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+        recordProps.put("temperature", new StringValue("val"));
+        recordProps.put("temperature_timestamp", new StringValue("ts"));
+        List<WireRecord> wireRecords = Collections.singletonList(new WireRecord(recordProps));
+        WireEnvelope wireEnvelope = new WireEnvelope("emitter", wireRecords);
+
+        rf.onWireReceive(wireEnvelope);
+        rf.onWireReceive(wireEnvelope);
+
+        verify(wsMock, times(2)).emit(wireRecords);
+        assertSame(pattern, TestUtil.getFieldValue(rf, "pattern"));
+
+        properties.put("regex.filter", "temp.*_timestamp");
+        rf.updated(properties);
+        assertNotSame(pattern, TestUtil.getFieldValue(rf, "pattern"));
+    }
+
+    @Test
+    public void testOnWireReceiveManyKeys() throws InvalidSyntaxException, NoSuchFieldException {
+        // the match results of a bounded number of keys are cached, the others are still filtered
+
+        RegexFilter rf = new RegexFilter();
+
+        WireHelperService wireHelperServiceMock = mock(WireHelperService.class);
+        rf.bindWireHelperService(wireHelperServiceMock);
+
+        WireSupport wsMock = mock(WireSupport.class);
+        when(wireHelperServiceMock.newWireSupport(rf)).thenReturn(wsMock);
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("kura.service.pid", "spid");
+        properties.put("regex.filter", "key[0-9]*[02468]");
+        properties.put("filter.type", 1);
+
+        rf.activate(properties);
+
+        List<List<WireRecord>> emitted = new ArrayList<>();
+        doAnswer(invocation -> {
+            emitted.add(invocation.getArgumentAt(0, List.class));
+            return null;
+        }).when(wsMock).emit(anyObject());
+
+        for (int envelope = 0; envelope < 2; envelope++) {
+            for (int first = 0; first < 4000; first += 100) {
+                Map<String, TypedValue<?>> recordProps = new HashMap<String, TypedValue<?>>();
+                for (int i = first; i < first + 100; i++) {
+                    recordProps.put("key" + i, new StringValue("val"));
+                }
+                rf.onWireReceive(new WireEnvelope("emitter", Collections.singletonList(new WireRecord(recordProps))));
+            }
+        }
+
+        assertEquals(80, emitted.size());
+        for (int i = 0; i < emitted.size(); i++) {
+            Map<String, TypedValue<?>> props = emitted.get(i).get(0).getProperties();
+            assertEquals(50, props.size());
+            int first = i % 40 * 100;
+            for (int key = first; key < first + 100; key += 2) {
+                assertTrue(props.containsKey("key" + key));
+            }
+        }
+        assertTrue(((Map<?, ?>) TestUtil.getFieldValue(rf, "retainedProperties")).size() <= 1024);
+    }
+
 }
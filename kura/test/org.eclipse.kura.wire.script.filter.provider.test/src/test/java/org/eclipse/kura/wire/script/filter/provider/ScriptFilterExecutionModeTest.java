@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Eurotech and/or its affiliates and others
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *******************************************************************************/
+package org.eclipse.kura.wire.script.filter.provider;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.kura.type.TypedValue;
+import org.eclipse.kura.type.TypedValues;
+import org.eclipse.kura.wire.WireComponent;
+import org.eclipse.kura.wire.WireEnvelope;
+import org.eclipse.kura.wire.WireHelperService;
+import org.eclipse.kura.wire.WireRecord;
+import org.eclipse.kura.wire.WireSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScriptFilterExecutionModeTest {
+
+    private static final int ENVELOPES_PER_EMITTER = 200;
+
+    // "a" and "b" are assigned to different workers when there are two of them
+    private static final String[] EMITTERS = { "a", "b" };
+
+    private static final String SCRIPT = "counter = typeof(counter) === 'undefined' ? 1 : counter + 1\n"
+            + "var record = newWireRecord()\n" //
+            + "record.emitter = newStringValue(input.emitterPid)\n"
+            + "record.seq = input.records[0].seq\n" //
+            + "record.counter = newIntegerValue(counter)\n"
+            + "record.total = newIntegerValue(sharedContext.merge('total', 1, function(a, b) { return a + b }))\n"
+            + "output.add(record)";
+
+    private final List<WireRecord> emitted = Collections.synchronizedList(new ArrayList<>());
+    private ScriptFilter filter;
+    private ExecutorService emitters;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        WireSupport wireSupport = mock(WireSupport.class);
+        doAnswer(invocation -> {
+            this.emitted.addAll((List<WireRecord>) invocation.getArguments()[0]);
+            return null;
+        }).when(wireSupport).emit(anyListOf(WireRecord.class));
+        WireHelperService wireHelperService = mock(WireHelperService.class);
+        when(wireHelperService.newWireSupport(any(WireComponent.class))).thenReturn(wireSupport);
+
+        this.filter = new ScriptFilter();
+        this.filter.bindWireHelperService(wireHelperService);
+        this.emitters = Executors.newFixedThreadPool(EMITTERS.length);
+    }
+
+    @After
+    public void tearDown() {
+        this.filter.deactivate();
+        this.emitters.shutdownNow();
+    }
+
+    @Test
+    public void testSerial() throws Exception {
+        this.filter.activate(properties("serial"));
+
+        receiveConcurrently();
+
+        assertEquals(2 * ENVELOPES_PER_EMITTER, this.emitted.size());
+        // a single context is shared by all the envelopes
+        assertEquals(2 * ENVELOPES_PER_EMITTER, maxValue("counter"));
+        assertEquals(2 * ENVELOPES_PER_EMITTER, maxValue("total"));
+        assertOrdered();
+    }
+
+    @Test
+    public void testParallel() throws Exception {
+        this.filter.activate(properties("parallel"));
+
+        receiveConcurrently();
+        waitForRecords(2 * ENVELOPES_PER_EMITTER);
+
+        // each worker has its own context, the shared context is seen by all of them
+        assertEquals(ENVELOPES_PER_EMITTER, maxValue("counter"));
+        assertEquals(2 * ENVELOPES_PER_EMITTER, maxValue("total"));
+        assertOrdered();
+    }
+
+    @Test
+    public void testContextDrop() throws Exception {
+        Map<String, Object> properties = properties("parallel");
+        this.filter.activate(properties);
+        receiveConcurrently();
+        waitForRecords(2 * ENVELOPES_PER_EMITTER);
+
+        // the worker contexts are retained across updates
+        this.filter.updated(properties);
+        this.filter.onWireReceive(envelope("a", 0));
+        waitForRecords(2 * ENVELOPES_PER_EMITTER + 1);
+        assertEquals(ENVELOPES_PER_EMITTER + 1, lastValue("counter"));
+
+        properties.put("script.context.drop", true);
+        this.filter.updated(properties);
+        this.filter.onWireReceive(envelope("a", 0));
+        waitForRecords(2 * ENVELOPES_PER_EMITTER + 2);
+        assertEquals(1, lastValue("counter"));
+        assertEquals(1, lastValue("total"));
+    }
+
+    @Test
+    public void testWorkersResize() throws Exception {
+        Map<String, Object> properties = properties("parallel");
+        this.filter.activate(properties);
+        receiveConcurrently();
+        waitForRecords(2 * ENVELOPES_PER_EMITTER);
+
+        // resizing the pool resets the worker contexts, the shared context is retained
+        properties.put("script.workers", 3);
+        this.filter.updated(properties);
+        this.filter.onWireReceive(envelope("a", 0));
+        waitForRecords(2 * ENVELOPES_PER_EMITTER + 1);
+        assertEquals(1, lastValue("counter"));
+        assertEquals(2 * ENVELOPES_PER_EMITTER + 1, lastValue("total"));
+    }
+
+    private void receiveConcurrently() throws Exception {
+        List<Future<?>> results = new ArrayList<>();
+        for (String emitter : EMITTERS) {
+            results.add(this.emitters.submit(() -> {
+                for (int i = 0; i < ENVELOPES_PER_EMITTER; i++) {
+                    this.filter.onWireReceive(envelope(emitter, i));
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+    }
+
+    private void waitForRecords(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (this.emitted.size() < count) {
+            assertTrue(System.nanoTime() < deadline);
+            Thread.sleep(10);
+        }
+        assertEquals(count, this.emitted.size());
+    }
+
+    private void assertOrdered() {
+        Map<String, Integer> next = new HashMap<>();
+        synchronized (this.emitted) {
+            for (WireRecord record : this.emitted) {
+                String emitter = (String) record.getProperties().get("emitter").getValue();
+                int expected = next.getOrDefault(emitter, 0);
+                assertEquals(expected, record.getProperties().get("seq").getValue());
+                next.put(emitter, expected + 1);
+            }
+        }
+    }
+
+    private int maxValue(String property) {
+        int max = 0;
+        synchronized (this.emitted) {
+            for (WireRecord record : this.emitted) {
+                max = Math.max(max, (Integer) record.getProperties().get(property).getValue());
+            }
+        }
+        return max;
+    }
+
+    private int lastValue(String property) {
+        return (Integer) this.emitted.get(this.emitted.size() - 1).getProperties().get(property).getValue();
+    }
+
+    private static WireEnvelope envelope(String emitter, int seq) {
+        Map<String, TypedValue<?>> properties = new HashMap<>();
+        properties.put("seq", TypedValues.newIntegerValue(seq));
+        return new WireEnvelope(emitter, Collections.singletonList(new WireRecord(properties)));
+    }
+
+    private static Map<String, Object> properties(String mode) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("kura.service.pid", "filter");
+        properties.put("script", SCRIPT);
+        properties.put("script.context.drop", false);
+        properties.put("script.execution.mode", mode);
+        properties.put("script.workers", 2);
+        return properties;
+    }
+}
@@ -8,6 +8,7 @@
  *******************************************************************************/
 package org.eclipse.kura.internal.xml.marshaller.unmarshaller.test;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
@@ -421,4 +422,38 @@ public class XmlEncoderDecoderTest {
         Map<String, Object> properties1 = config1.getConfigurations().get(0).getConfigurationProperties();
         assertEquals(properties, properties1);
     }
+
+    @Test
+    public void testSnapshotUnmarshallFormatting() throws Exception {
+        // hand written snapshots: comments, definitions, escaped and multi line values, arrays
+        String snapshot = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" //
+                + "<!-- comment -->\n" //
+                + "<esf:configurations xmlns:ocd=\"http://www.osgi.org/xmlns/metatype/v1.2.0\" "
+                + "xmlns:esf=\"http://eurotech.com/esf/2.0\">\n" //
+                + "  <esf:configuration pid=\"first\">\n" //
+                + "    <ocd:OCD id=\"first\" name=\"First\"><ocd:AD id=\"a\" type=\"String\" "
+                + "cardinality=\"0\" required=\"true\" default=\"x\"/></ocd:OCD>\n" //
+                + "    <esf:properties>\n" //
+                + "      <esf:property name=\"text\" array=\"false\" encrypted=\"false\" type=\"String\">\n" //
+                + "        <esf:value>a &amp; <![CDATA[<b>]]>\nc</esf:value>\n" //
+                + "      </esf:property>\n" //
+                + "      <esf:property name=\"list\" array=\"true\" encrypted=\"false\" type=\"Integer\">\n" //
+                + "        <esf:value>1</esf:value><esf:value>2</esf:value>\n" //
+                + "      </esf:property>\n" //
+                + "    </esf:properties>\n" //
+                + "  </esf:configuration>\n" //
+                + "  <esf:configuration pid=\"second\"/>\n" //
+                + "</esf:configurations>\n";
+
+        XmlComponentConfigurations xcc = new XmlMarshallUnmarshallImpl().unmarshal(snapshot,
+                XmlComponentConfigurations.class);
+
+        assertEquals(2, xcc.getConfigurations().size());
+        ComponentConfiguration first = xcc.getConfigurations().get(0);
+        assertEquals("first", first.getPid());
+        assertEquals(2, first.getConfigurationProperties().size());
+        assertEquals("a & <b>\nc", first.getConfigurationProperties().get("text"));
+        assertArrayEquals(new Integer[] { 1, 2 }, (Integer[]) first.getConfigurationProperties().get("list"));
+        assertEquals("second", xcc.getConfigurations().get(1).getPid());
+    }
 }